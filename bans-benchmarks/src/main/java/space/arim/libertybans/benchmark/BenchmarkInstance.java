@@ -0,0 +1,140 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.benchmark;
+
+import space.arim.injector.Identifier;
+import space.arim.injector.Injector;
+import space.arim.injector.InjectorBuilder;
+import space.arim.libertybans.api.LibertyBans;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
+import space.arim.libertybans.api.punish.EnforcementOptions;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.bootstrap.BaseFoundation;
+import space.arim.libertybans.core.ApiBindModule;
+import space.arim.libertybans.core.PillarOneReplacementModule;
+import space.arim.libertybans.core.PillarTwoBindModule;
+import space.arim.libertybans.core.database.Vendor;
+import space.arim.libertybans.core.selector.AddressStrictness;
+import space.arim.libertybans.core.uuid.ServerType;
+import space.arim.libertybans.it.ConfigSpec;
+import space.arim.libertybans.it.DatabaseInfo;
+import space.arim.libertybans.it.env.QuackBindModule;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * A running instance of LibertyBans backed by an embedded HSQLDB database, for use by benchmarks. <br>
+ * <br>
+ * The instance is assembled in the same way as for integration tests, using the test environment
+ * of bans-core.
+ *
+ */
+public final class BenchmarkInstance implements AutoCloseable {
+
+	private final Path folder;
+	private final Injector injector;
+	private final BaseFoundation base;
+
+	private BenchmarkInstance(Path folder, Injector injector, BaseFoundation base) {
+		this.folder = folder;
+		this.injector = injector;
+		this.base = base;
+	}
+
+	/**
+	 * Starts an instance
+	 *
+	 * @param addressStrictness the address strictness to configure
+	 * @return the started instance
+	 */
+	public static BenchmarkInstance start(AddressStrictness addressStrictness) {
+		Path folder;
+		try {
+			folder = Files.createTempDirectory("libertybans-benchmark");
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		ConfigSpec configSpec = new ConfigSpec(
+				Vendor.HSQLDB, addressStrictness, ServerType.ONLINE, Instant.now().getEpochSecond());
+		Injector injector = new InjectorBuilder()
+				.bindInstance(Identifier.ofTypeAndNamed(Path.class, "folder"), folder)
+				.bindInstance(ConfigSpec.class, configSpec)
+				.bindInstance(DatabaseInfo.class, new DatabaseInfo())
+				.addBindModules(
+						new ApiBindModule(),
+						new PillarOneReplacementModule(),
+						new PillarTwoBindModule(),
+						new QuackBindModule())
+				.build();
+		BaseFoundation base = injector.request(BaseFoundation.class);
+		base.startup();
+		return new BenchmarkInstance(folder, injector, base);
+	}
+
+	public <T> T request(Class<T> type) {
+		return injector.request(type);
+	}
+
+	public LibertyBans api() {
+		return request(LibertyBans.class);
+	}
+
+	/**
+	 * Enacts a punishment without enforcing it, blocking until complete
+	 *
+	 * @param type the punishment type
+	 * @param victim the victim
+	 * @return the punishment
+	 */
+	public Punishment enact(PunishmentType type, Victim victim) {
+		var draft = api().getDrafter()
+				.draftBuilder()
+				.type(type)
+				.victim(victim)
+				.reason("Benchmarking")
+				.build();
+		var enforcementOptions = draft.enforcementOptionsBuilder()
+				.enforcement(EnforcementOptions.Enforcement.NONE)
+				.build();
+		return draft.enactPunishment(enforcementOptions)
+				.toCompletableFuture()
+				.join()
+				.orElseThrow(() -> new IllegalStateException("Punishment " + type + " of " + victim + " conflicts"));
+	}
+
+	@Override
+	public void close() {
+		base.shutdown();
+		try (Stream<Path> files = Files.walk(folder)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(file);
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.config;
+
+import net.kyori.adventure.text.Component;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.benchmark.BenchmarkInstance;
+import space.arim.libertybans.core.selector.AddressStrictness;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the formatting of the message shown to a punished player, such as when
+ * a banned player is denied or a muted player tries to chat.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FormatterBenchmark {
+
+	@Param({"BAN", "MUTE", "WARN", "KICK"})
+	public PunishmentType type;
+
+	private BenchmarkInstance instance;
+	private InternalFormatter formatter;
+	private Punishment punishment;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		instance = BenchmarkInstance.start(AddressStrictness.NORMAL);
+		formatter = instance.request(InternalFormatter.class);
+		punishment = instance.enact(type, PlayerVictim.of(UUID.randomUUID()));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		instance.close();
+	}
+
+	@Benchmark
+	public Component getPunishmentMessage() {
+		return formatter.getPunishmentMessage(punishment).join();
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.punish.sync;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import space.arim.libertybans.api.ConsoleOperator;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.punish.EnforcementOptions;
+import space.arim.libertybans.core.punish.Mode;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.ReactionStage;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the serialization of synchronization messages, and their deserialization
+ * by another instance.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({org.openjdk.jmh.annotations.Mode.Throughput, org.openjdk.jmh.annotations.Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SynchronizationProtocolBenchmark {
+
+	private final FactoryOfTheFuture futuresFactory = new IndifferentFactoryOfTheFuture();
+	private final SynchronizationProtocol sendingProtocol = new SynchronizationProtocol(futuresFactory);
+	private final SynchronizationProtocol receivingProtocol = new SynchronizationProtocol(futuresFactory);
+
+	private SynchronizationMessage enforceMessage;
+	private SynchronizationMessage unenforceMessage;
+	private byte[] serializedEnforceMessage;
+	private byte[] serializedUnenforceMessage;
+
+	@Setup
+	public void setup() {
+		enforceMessage = new SynchronizationMessage(
+				1L, PunishmentType.BAN, Mode.DO, EnforcementOptions.Broadcasting.NORMAL, null, null);
+		unenforceMessage = new SynchronizationMessage(
+				2L, PunishmentType.MUTE, Mode.UNDO, EnforcementOptions.Broadcasting.NORMAL,
+				"A248", ConsoleOperator.INSTANCE);
+		serializedEnforceMessage = sendingProtocol.serializeMessage(enforceMessage);
+		serializedUnenforceMessage = sendingProtocol.serializeMessage(unenforceMessage);
+	}
+
+	@Benchmark
+	public byte[] serializeEnforceMessage() {
+		return sendingProtocol.serializeMessage(enforceMessage);
+	}
+
+	@Benchmark
+	public byte[] serializeUnenforceMessage() {
+		return sendingProtocol.serializeMessage(unenforceMessage);
+	}
+
+	@Benchmark
+	public ReactionStage<?> receiveEnforceMessage(Blackhole blackhole) {
+		return receivingProtocol.receiveMessage(serializedEnforceMessage, receiver(blackhole));
+	}
+
+	@Benchmark
+	public ReactionStage<?> receiveUnenforceMessage(Blackhole blackhole) {
+		return receivingProtocol.receiveMessage(serializedUnenforceMessage, receiver(blackhole));
+	}
+
+	private MessageReceiver receiver(Blackhole blackhole) {
+		return (message) -> {
+			blackhole.consume(message);
+			return futuresFactory.completedFuture(null);
+		};
+	}
+
+}
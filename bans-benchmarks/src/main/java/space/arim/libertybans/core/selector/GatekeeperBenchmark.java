@@ -0,0 +1,123 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector;
+
+import net.kyori.adventure.text.Component;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import space.arim.libertybans.api.AddressVictim;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.benchmark.BenchmarkInstance;
+import space.arim.libertybans.it.util.RandomUtil;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the connection check performed whenever a player joins. A portion of the
+ * joining players are banned, either directly or by address.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GatekeeperBenchmark {
+
+	@Param({"LENIENT", "NORMAL", "STRICT"})
+	public AddressStrictness addressStrictness;
+
+	@Param({"1000"})
+	public int players;
+
+	@Param({"0.1"})
+	public double bannedRatio;
+
+	private BenchmarkInstance instance;
+	private Gatekeeper gatekeeper;
+
+	private UUID[] uuids;
+	private String[] names;
+	private NetworkAddress[] addresses;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		instance = BenchmarkInstance.start(addressStrictness);
+		gatekeeper = instance.request(Gatekeeper.class);
+		uuids = new UUID[players];
+		names = new String[players];
+		addresses = new NetworkAddress[players];
+		for (int n = 0; n < players; n++) {
+			uuids[n] = UUID.randomUUID();
+			names[n] = RandomUtil.randomName();
+			addresses[n] = RandomUtil.randomAddress();
+			// Record each player's address, as if they had joined before
+			gatekeeper.executeAndCheckConnection(uuids[n], names[n], addresses[n]).join();
+		}
+		int banned = (int) (players * bannedRatio);
+		for (int n = 0; n < banned; n++) {
+			// Alternate between user and address bans
+			if (n % 2 == 0) {
+				instance.enact(PunishmentType.BAN, PlayerVictim.of(uuids[n]));
+			} else {
+				instance.enact(PunishmentType.BAN, AddressVictim.of(addresses[n]));
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		instance.close();
+	}
+
+	@State(Scope.Thread)
+	public static class Player {
+
+		private int index;
+
+		int next(int players) {
+			int current = index;
+			index = (current + 1) % players;
+			return current;
+		}
+	}
+
+	@Benchmark
+	public Component executeAndCheckConnection(Player player) {
+		int index = player.next(players);
+		return gatekeeper.executeAndCheckConnection(uuids[index], names[index], addresses[index]).join();
+	}
+
+}
@@ -0,0 +1,120 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector;
+
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import space.arim.libertybans.api.ConsoleOperator;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.api.select.PunishmentSelector;
+import space.arim.libertybans.api.select.SelectionOrder;
+import space.arim.libertybans.api.select.SelectionPredicate;
+import space.arim.libertybans.benchmark.BenchmarkInstance;
+import space.arim.libertybans.core.database.jooq.JooqContext;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the building and execution of punishment selection queries, such as those
+ * used by the history and list commands.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SelectionBenchmark {
+
+	private BenchmarkInstance instance;
+	private SelectionImpl selectionImpl;
+	private DSLContext renderContext;
+
+	private SelectionOrder activeBansOfVictim;
+	private SelectionOrder historyOfOperator;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		instance = BenchmarkInstance.start(AddressStrictness.NORMAL);
+		selectionImpl = instance.request(SelectionImpl.class);
+		renderContext = new JooqContext(SQLDialect.HSQLDB).createContext(null);
+
+		UUID victim = UUID.randomUUID();
+		for (int n = 0; n < 100; n++) {
+			instance.enact(PunishmentType.WARN, PlayerVictim.of(UUID.randomUUID()));
+		}
+		instance.enact(PunishmentType.BAN, PlayerVictim.of(victim));
+
+		PunishmentSelector selector = instance.api().getSelector();
+		activeBansOfVictim = selector.selectionBuilder()
+				.type(PunishmentType.BAN)
+				.victim(PlayerVictim.of(victim))
+				.build();
+		historyOfOperator = selector.selectionBuilder()
+				.types(SelectionPredicate.matchingAnyOf(PunishmentType.BAN, PunishmentType.WARN))
+				.operator(ConsoleOperator.INSTANCE)
+				.selectAll()
+				.limitToRetrieve(20)
+				.build();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		instance.close();
+	}
+
+	@Benchmark
+	public String buildActiveBansOfVictim() {
+		return selectionImpl.buildQuery(activeBansOfVictim, renderContext).getSQL();
+	}
+
+	@Benchmark
+	public String buildHistoryOfOperator() {
+		return selectionImpl.buildQuery(historyOfOperator, renderContext).getSQL();
+	}
+
+	@Benchmark
+	public List<Punishment> selectActiveBansOfVictim() {
+		return activeBansOfVictim.getAllSpecificPunishments().toCompletableFuture().join();
+	}
+
+	@Benchmark
+	public List<Punishment> selectHistoryOfOperator() {
+		return historyOfOperator.getAllSpecificPunishments().toCompletableFuture().join();
+	}
+
+}
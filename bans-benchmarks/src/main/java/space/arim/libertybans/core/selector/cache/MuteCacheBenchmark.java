@@ -0,0 +1,133 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector.cache;
+
+import net.kyori.adventure.text.Component;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.benchmark.BenchmarkInstance;
+import space.arim.libertybans.core.selector.AddressStrictness;
+import space.arim.libertybans.it.util.RandomUtil;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the mute lookup performed on every chat message and command, for both
+ * mute cache implementations. Every player is online and a portion of them are muted.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MuteCacheBenchmark {
+
+	@Param({"ALWAYS_AVAILABLE", "ON_DEMAND"})
+	public Implementation implementation;
+
+	@Param({"1000"})
+	public int players;
+
+	@Param({"0.1"})
+	public double mutedRatio;
+
+	private BenchmarkInstance instance;
+	private MuteCache muteCache;
+
+	private UUID[] uuids;
+	private NetworkAddress[] addresses;
+
+	public enum Implementation {
+		ALWAYS_AVAILABLE(AlwaysAvailableMuteCache.class),
+		ON_DEMAND(OnDemandMuteCache.class);
+
+		private final Class<? extends MuteCache> implementationClass;
+
+		Implementation(Class<? extends MuteCache> implementationClass) {
+			this.implementationClass = implementationClass;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() {
+		instance = BenchmarkInstance.start(AddressStrictness.NORMAL);
+		muteCache = instance.request(implementation.implementationClass);
+		// The environment starts only the mute cache it uses
+		muteCache.startup();
+
+		uuids = new UUID[players];
+		addresses = new NetworkAddress[players];
+		int muted = (int) (players * mutedRatio);
+		for (int n = 0; n < players; n++) {
+			uuids[n] = UUID.randomUUID();
+			addresses[n] = RandomUtil.randomAddress();
+			if (n < muted) {
+				instance.enact(PunishmentType.MUTE, PlayerVictim.of(uuids[n]));
+			}
+			muteCache.cacheOnLogin(uuids[n], addresses[n]).join();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		for (int n = 0; n < players; n++) {
+			muteCache.uncacheOnQuit(uuids[n], addresses[n]);
+		}
+		muteCache.shutdown();
+		instance.close();
+	}
+
+	@State(Scope.Thread)
+	public static class Player {
+
+		private int index;
+
+		int next(int players) {
+			int current = index;
+			index = (current + 1) % players;
+			return current;
+		}
+	}
+
+	@Benchmark
+	public Optional<Component> getCachedMuteMessage(Player player) {
+		int index = player.next(players);
+		return muteCache.getCachedMuteMessage(uuids[index], addresses[index]).join();
+	}
+
+}
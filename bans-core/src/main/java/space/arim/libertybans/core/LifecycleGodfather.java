@@ -24,6 +24,10 @@ import jakarta.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import space.arim.libertybans.core.commands.extra.TabCompletion;
+import space.arim.libertybans.core.punish.AssociationQueue;
+import space.arim.libertybans.core.punish.sync.PostgresSynchronizationMessenger;
+import space.arim.libertybans.core.punish.sync.TcpSynchronizationMessenger;
+import space.arim.libertybans.core.selector.cache.ActivePunishmentIndex;
 import space.arim.libertybans.core.selector.cache.MuteCache;
 import space.arim.libertybans.core.uuid.UUIDManager;
 import space.arim.omnibus.registry.Registration;
@@ -42,7 +46,11 @@ public class LifecycleGodfather extends AbstractBaseFoundation {
 	private final AsynchronicityManager asyncManager;
 	private final Configs configs;
 	private final DatabaseManager databaseManager;
+	private final AssociationQueue associationQueue;
+	private final TcpSynchronizationMessenger tcpMessenger;
+	private final PostgresSynchronizationMessenger postgresMessenger;
 	private final UUIDManager uuidManager;
+	private final ActivePunishmentIndex punishmentIndex;
 	private final MuteCache muteCache;
 	private final TabCompletion tabCompletion;
 	private final EnvironmentManager envManager;
@@ -54,13 +62,19 @@ public class LifecycleGodfather extends AbstractBaseFoundation {
 
 	@Inject
 	public LifecycleGodfather(AsynchronicityManager asyncManager, Configs configs, DatabaseManager databaseManager,
-							  UUIDManager uuidManager, MuteCache muteCache,
+							  AssociationQueue associationQueue, TcpSynchronizationMessenger tcpMessenger,
+							  PostgresSynchronizationMessenger postgresMessenger,
+							  UUIDManager uuidManager, ActivePunishmentIndex punishmentIndex, MuteCache muteCache,
 							  TabCompletion tabCompletion, EnvironmentManager envManager,
 							  LibertyBans api) {
 		this.asyncManager = asyncManager;
 		this.configs = configs;
 		this.databaseManager = databaseManager;
+		this.associationQueue = associationQueue;
+		this.tcpMessenger = tcpMessenger;
+		this.postgresMessenger = postgresMessenger;
 		this.uuidManager = uuidManager;
+		this.punishmentIndex = punishmentIndex;
 		this.muteCache = muteCache;
 		this.tabCompletion = tabCompletion;
 		this.envManager = envManager;
@@ -73,7 +87,11 @@ public class LifecycleGodfather extends AbstractBaseFoundation {
 		asyncManager.startup();
 		configs.startup();
 		databaseManager.startup();
+		associationQueue.startup();
+		tcpMessenger.startup();
+		postgresMessenger.startup();
 		uuidManager.startup();
+		punishmentIndex.startup();
 		muteCache.startup();
 		tabCompletion.startup();
 		envManager.startup();
@@ -90,8 +108,13 @@ public class LifecycleGodfather extends AbstractBaseFoundation {
 		envManager.shutdown();
 		asyncManager.restart();
 		configs.restart();
+		// Write pending associations before the database is restarted
+		associationQueue.restart();
 		databaseManager.restart();
+		tcpMessenger.restart();
+		postgresMessenger.restart();
 		uuidManager.restart();
+		punishmentIndex.restart();
 		muteCache.restart();
 		tabCompletion.restart();
 		envManager.startup();
@@ -102,8 +125,12 @@ public class LifecycleGodfather extends AbstractBaseFoundation {
 		envManager.shutdown();
 		tabCompletion.shutdown();
 		muteCache.shutdown();
+		punishmentIndex.shutdown();
 		uuidManager.shutdown();
 		configs.shutdown();
+		postgresMessenger.shutdown();
+		tcpMessenger.shutdown();
+		associationQueue.shutdown();
 		databaseManager.shutdown();
 		asyncManager.shutdown();
 
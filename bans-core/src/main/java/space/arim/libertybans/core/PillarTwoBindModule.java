@@ -25,11 +25,15 @@ import space.arim.libertybans.core.commands.extra.TabCompletion;
 import space.arim.libertybans.core.commands.usage.PluginInfoMessage;
 import space.arim.libertybans.core.commands.usage.StandardUsageGlossary;
 import space.arim.libertybans.core.commands.usage.UsageGlossary;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
 import space.arim.libertybans.core.database.execute.QueryExecutor;
 import space.arim.libertybans.core.punish.sync.EnforcingMessageReceiver;
 import space.arim.libertybans.core.punish.sync.MessageReceiver;
+import space.arim.libertybans.core.punish.sync.PostgresSynchronizationMessenger;
 import space.arim.libertybans.core.punish.sync.SQLSynchronizationMessenger;
 import space.arim.libertybans.core.punish.sync.SynchronizationMessenger;
+import space.arim.libertybans.core.punish.sync.TcpSynchronizationMessenger;
 import space.arim.omnibus.util.concurrent.EnhancedExecutor;
 
 import space.arim.api.env.PlatformHandle;
@@ -71,8 +75,17 @@ public class PillarTwoBindModule {
 		return database;
 	}
 
-	public SynchronizationMessenger synchronizationMessenger(SQLSynchronizationMessenger synchronizationMessenger) {
-		return synchronizationMessenger;
+	public SynchronizationMessenger synchronizationMessenger(Configs configs,
+															 SQLSynchronizationMessenger sqlMessenger,
+															 TcpSynchronizationMessenger tcpMessenger,
+															 PostgresSynchronizationMessenger postgresMessenger) {
+		if (configs.getSqlConfig().synchronization().mode() == SqlConfig.Synchronization.SyncMode.TCP_MESH) {
+			return tcpMessenger;
+		}
+		if (postgresMessenger.isActive()) {
+			return postgresMessenger;
+		}
+		return sqlMessenger;
 	}
 
 	public MessageReceiver messageReceiver(EnforcingMessageReceiver messageReceiver) {
@@ -22,6 +22,7 @@ package space.arim.libertybans.core.alts;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import org.jooq.Condition;
+import org.jooq.Query;
 import space.arim.libertybans.api.AddressVictim;
 import space.arim.libertybans.api.CompositeVictim;
 import space.arim.libertybans.api.NetworkAddress;
@@ -29,10 +30,12 @@ import space.arim.libertybans.api.PlayerVictim;
 import space.arim.libertybans.api.Victim;
 import space.arim.libertybans.core.database.execute.QueryExecutor;
 import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.libertybans.core.punish.Applicability;
 import space.arim.libertybans.core.punish.MiscUtil;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -99,12 +102,26 @@ public class AccountHistory {
 
 	public CentralisedFuture<Boolean> deleteAccount(UUID user, Instant recorded) {
 		return queryExecutor.get().queryWithRetry((context, transaction) -> {
-			int updateCount = context
+			Condition accountCondition = ADDRESSES.UUID.eq(user).and(ADDRESSES.UPDATED.eq(recorded));
+			List<NetworkAddress> addresses = context
+					.select(ADDRESSES.ADDRESS)
+					.from(ADDRESSES)
+					.where(accountCondition)
+					.fetch(ADDRESSES.ADDRESS);
+			if (addresses.isEmpty()) {
+				return false;
+			}
+			context
 					.deleteFrom(ADDRESSES)
-					.where(ADDRESSES.UUID.eq(user))
-					.and(ADDRESSES.UPDATED.eq(recorded))
+					.where(accountCondition)
 					.execute();
-			return updateCount != 0;
+			// The user is no longer linked to punishments of the deleted addresses
+			List<Query> unlinkQueries = new ArrayList<>();
+			for (NetworkAddress address : addresses) {
+				unlinkQueries.addAll(List.of(Applicability.unlinkAddressQueries(context, user, address)));
+			}
+			context.batch(unlinkQueries).execute();
+			return true;
 		});
 	}
 }
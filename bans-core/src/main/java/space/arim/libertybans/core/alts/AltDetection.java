@@ -149,9 +149,9 @@ public class AltDetection {
 	}
 
 	public CentralisedFuture<List<DetectedAlt>> detectAlts(UUID uuid, NetworkAddress address, WhichAlts whichAlts) {
-		return queryExecutor.get().query(SQLFunction.readOnly((context) -> {
-			return detectAlts(context, uuid, address, whichAlts);
-		}));
+		return queryExecutor.get().query(SQLFunction.readOnly(
+				"AltDetection.detectAlts", (context) -> detectAlts(context, uuid, address, whichAlts)
+		));
 	}
 
 	public CentralisedFuture<List<DetectedAlt>> detectAlts(UUIDAndAddress userDetails, WhichAlts whichAlts) {
@@ -22,11 +22,14 @@ package space.arim.libertybans.core.alts;
 import jakarta.inject.Inject;
 import net.kyori.adventure.text.Component;
 import org.checkerframework.checker.nullness.qual.Nullable;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
 import space.arim.libertybans.api.NetworkAddress;
 import space.arim.libertybans.core.config.Configs;
 
 import java.time.Instant;
+import java.util.UUID;
 
 import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
 
@@ -41,6 +44,26 @@ public final class ConnectionLimiter {
 
 	public @Nullable Component hasExceededLimit(DSLContext context, NetworkAddress address,
 												Instant currentTime) {
+		return hasExceededLimit(context, DSL.noCondition(), 0, address, currentTime);
+	}
+
+	/**
+	 * Determines whether the connection limit is exceeded by the joining user, whose association
+	 * with the address may not yet have been written
+	 *
+	 * @param context the query source
+	 * @param uuid the joining user's uuid
+	 * @param address the address
+	 * @param currentTime the current time
+	 * @return the denial message if the limit is exceeded, null otherwise
+	 */
+	public @Nullable Component hasExceededLimit(DSLContext context, UUID uuid, NetworkAddress address,
+												Instant currentTime) {
+		return hasExceededLimit(context, ADDRESSES.UUID.notEqual(uuid), 1, address, currentTime);
+	}
+
+	private @Nullable Component hasExceededLimit(DSLContext context, Condition otherUsers, int joiningUsers,
+												 NetworkAddress address, Instant currentTime) {
 		var config = configs.getMainConfig().enforcement().connectionLimiter();
 		if (config.enable()) {
 			Instant timeBeforeDuration = currentTime.minusSeconds(config.durationSeconds());
@@ -49,10 +72,11 @@ public final class ConnectionLimiter {
 					.from(ADDRESSES)
 					.where(ADDRESSES.ADDRESS.eq(address))
 					.and(ADDRESSES.UPDATED.greaterOrEqual(timeBeforeDuration))
+					.and(otherUsers)
 					.fetchOne()
 					.value1();
 			assert count != null;
-			if (count > config.limit()) {
+			if (count + joiningUsers > config.limit()) {
 				return config.message();
 			}
 		}
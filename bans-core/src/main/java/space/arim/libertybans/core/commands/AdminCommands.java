@@ -19,6 +19,7 @@
 
 package space.arim.libertybans.core.commands;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
@@ -26,8 +27,15 @@ import space.arim.api.env.PlatformHandle;
 import space.arim.libertybans.bootstrap.BaseFoundation;
 import space.arim.libertybans.bootstrap.plugin.PluginInfo;
 import space.arim.libertybans.core.config.MessagesConfig;
+import space.arim.libertybans.core.database.execute.LatencyHistogram;
+import space.arim.libertybans.core.database.execute.QueryMetrics;
+import space.arim.libertybans.core.database.execute.QueryStatistics;
+import space.arim.libertybans.core.database.execute.RetryStatistics;
 import space.arim.libertybans.core.env.CmdSender;
 import space.arim.libertybans.core.env.Environment;
+import space.arim.libertybans.core.env.NotificationAudiences;
+import space.arim.libertybans.core.selector.ApplicableImpl;
+import space.arim.libertybans.core.selector.InFlightLookups;
 import space.arim.omnibus.util.concurrent.ReactionStage;
 
 import java.util.Arrays;
@@ -41,14 +49,21 @@ public class AdminCommands extends AbstractSubCommandGroup {
 	private final Provider<BaseFoundation> foundation;
 	private final Provider<Environment> environment;
 	private final PlatformHandle envHandle;
+	private final QueryMetrics queryMetrics;
+	private final NotificationAudiences notificationAudiences;
+	private final ApplicableImpl applicableImpl;
 
 	@Inject
 	public AdminCommands(Dependencies dependencies, Provider<BaseFoundation> foundation,
-			Provider<Environment> environment, PlatformHandle envHandle) {
+			Provider<Environment> environment, PlatformHandle envHandle, QueryMetrics queryMetrics,
+			NotificationAudiences notificationAudiences, ApplicableImpl applicableImpl) {
 		super(dependencies, Arrays.stream(Type.values()).map(Type::toString));
 		this.foundation = foundation;
 		this.environment = environment;
 		this.envHandle = envHandle;
+		this.queryMetrics = queryMetrics;
+		this.notificationAudiences = notificationAudiences;
+		this.applicableImpl = applicableImpl;
 	}
 
 	private MessagesConfig.Admin adminConfig() {
@@ -61,14 +76,15 @@ public class AdminCommands extends AbstractSubCommandGroup {
 	}
 	
 	@Override
-	public Stream<String> suggest(CmdSender sender, String arg, int argIndex) {
+	public Stream<String> suggest(CmdSender sender, String arg, int argIndex, String prefix) {
 		return Stream.empty();
 	}
 	
 	private enum Type {
 		RELOAD,
 		RESTART,
-		DEBUG;
+		DEBUG,
+		STATS;
 		
 		@Override
 		public String toString() {
@@ -100,6 +116,9 @@ public class AdminCommands extends AbstractSubCommandGroup {
 			case DEBUG:
 				debugCmd();
 				break;
+			case STATS:
+				statsCmd();
+				break;
 			default:
 				throw new IllegalArgumentException("Command mismatch");
 			}
@@ -136,6 +155,48 @@ public class AdminCommands extends AbstractSubCommandGroup {
 					"Platform Version: " + envHandle.getPlatformVersion()); // TODO add more debug information
 			debugInfo.forEach(sender()::sendLiteralMessage);
 		}
+
+		private void statsCmd() {
+			CacheStats audienceStats = notificationAudiences.statistics();
+			sender().sendLiteralMessage(
+					"&7Staff notifications: " + audienceStats.hitCount() + " sent to a cached audience, "
+							+ audienceStats.missCount() + " required checking permissions");
+			InFlightLookups<?, ?> inFlightLookups = applicableImpl.inFlightLookups();
+			sender().sendLiteralMessage(
+					"&7Applicable punishment lookups: " + inFlightLookups.lookupCount() + ", of which "
+							+ inFlightLookups.coalescedCount() + " shared one already in flight ("
+							+ String.format(Locale.ROOT, "%.1f", inFlightLookups.hitRate() * 100D) + "%)");
+			List<QueryStatistics> statistics = queryMetrics.statistics();
+			if (statistics.isEmpty()) {
+				sender().sendLiteralMessage("&7No queries have been recorded yet");
+				return;
+			}
+			sender().sendLiteralMessage("&7Query statistics since startup. Times are p50/p99/max in milliseconds");
+			for (QueryStatistics query : statistics) {
+				LatencyHistogram connectionWait = query.connectionWait();
+				LatencyHistogram execution = query.execution();
+				sender().sendLiteralMessage(
+						"&e" + query.name() + "&7: " + query.executions() + " executions, "
+								+ query.failures() + " failed, " + query.retries() + " retries, "
+								+ query.rows() + " rows. Wait " + formatTimes(connectionWait)
+								+ ", execute " + formatTimes(execution));
+			}
+			RetryStatistics retries = queryMetrics.retryStatistics();
+			sender().sendLiteralMessage(
+					"&7Transactions: " + retries.transactions() + ", retries: " + retries.retries()
+							+ ", exceeded retry count: " + retries.exhausted()
+							+ ", total back-off: " + retries.backoffMillis() + " ms");
+		}
+
+		private String formatTimes(LatencyHistogram histogram) {
+			return formatMillis(histogram.percentileMicros(50)) + '/'
+					+ formatMillis(histogram.percentileMicros(99)) + '/'
+					+ formatMillis(histogram.maxMicros());
+		}
+
+		private String formatMillis(long micros) {
+			return String.format(Locale.ROOT, "%.1f", micros / 1000D);
+		}
 		
 	}
 
@@ -132,8 +132,8 @@ public class CommandsCore implements Commands {
 		'/libertybans ban A248 30d' - argIndex is 1, again
 		 */
 		int argIndex = args.length - 2;
-		Stream<String> completions = subCommand.suggest(sender, firstArg, argIndex);
 		String lastArg = args[args.length - 1].toLowerCase(Locale.ROOT);
+		Stream<String> completions = subCommand.suggest(sender, firstArg, argIndex, lastArg);
 		if (!lastArg.isEmpty()) {
 			completions = completions.filter((completion) -> completion.toLowerCase(Locale.ROOT).startsWith(lastArg));
 		}
@@ -71,7 +71,7 @@ public class ImportCommands extends AbstractSubCommandGroup {
 	}
 
 	@Override
-	public Stream<String> suggest(CmdSender sender, String arg, int argIndex) {
+	public Stream<String> suggest(CmdSender sender, String arg, int argIndex, String prefix) {
 		if (argIndex == 0) {
 			return Stream.of("advancedban", "litebans", "vanilla", "self");
 		}
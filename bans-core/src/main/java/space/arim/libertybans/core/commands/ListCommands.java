@@ -68,11 +68,11 @@ public class ListCommands extends AbstractSubCommandGroup {
 	}
 	
 	@Override
-	public Stream<String> suggest(CmdSender sender, String arg, int argIndex) {
+	public Stream<String> suggest(CmdSender sender, String arg, int argIndex, String prefix) {
 		if (argIndex == 0) {
 			ListType listType = ListType.valueOf(arg.toUpperCase(Locale.ROOT));
 			if (listType.requiresTarget()) {
-				return tabCompletion.completeOfflinePlayerNames(sender);
+				return tabCompletion.completeOfflinePlayerNames(sender, prefix);
 			}
 		}
 		return Stream.empty();
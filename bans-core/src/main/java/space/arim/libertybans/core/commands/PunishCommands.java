@@ -76,14 +76,14 @@ abstract class PunishCommands extends AbstractSubCommandGroup implements PunishU
 	}
 
 	@Override
-	public final Stream<String> suggest(CmdSender sender, String arg, int argIndex) {
+	public final Stream<String> suggest(CmdSender sender, String arg, int argIndex, String prefix) {
 		PunishmentType type = parseType(arg.toUpperCase(Locale.ROOT));
 		if (argIndex == 0) {
 			if (type == PunishmentType.KICK) {
 				// Can only kick online players
 				return tabCompletion.completeOnlinePlayerNames(sender);
 			}
-			return tabCompletion.completeOfflinePlayerNames(sender);
+			return tabCompletion.completeOfflinePlayerNames(sender, prefix);
 		}
 		if (argIndex == 1) {
 			if (type == PunishmentType.KICK) {
@@ -58,8 +58,10 @@ interface SubCommandGroup {
 	 * @param sender the command sender
 	 * @param arg the argument matched to this sub command group, lowercased
 	 * @param argIndex the index of the furthest subcommand argument
+	 * @param prefix the furthest argument as typed so far, lowercased and possibly empty.
+	 *               Suggestions are filtered by this prefix afterward
 	 * @return tab complete suggestions
 	 */
-	Stream<String> suggest(CmdSender sender, String arg, int argIndex);
+	Stream<String> suggest(CmdSender sender, String arg, int argIndex, String prefix);
 	
 }
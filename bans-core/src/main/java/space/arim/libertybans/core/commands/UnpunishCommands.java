@@ -76,9 +76,9 @@ abstract class UnpunishCommands extends AbstractSubCommandGroup implements Punis
 	}
 	
 	@Override
-	public final Stream<String> suggest(CmdSender sender, String arg, int argIndex) {
+	public final Stream<String> suggest(CmdSender sender, String arg, int argIndex, String prefix) {
 		if (argIndex == 0) {
-			Stream<String> availableNames = tabCompletion.completeOfflinePlayerNames(sender);
+			Stream<String> availableNames = tabCompletion.completeOfflinePlayerNames(sender, prefix);
 			PunishmentType type = parseType(arg.toUpperCase(Locale.ROOT));
 			if (type == PunishmentType.BAN) {
 				// Online players are not banned, so exclude names of known online players
@@ -0,0 +1,97 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.commands.extra;
+
+import java.time.Instant;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Index of the names of players who have formerly joined, searchable by case-insensitive prefix. <br>
+ * <br>
+ * Names are kept sorted by their lowercase form, so that a prefix search visits only the
+ * names which match. The index is updated in place, so refreshing it does not copy the names
+ * already present.
+ *
+ */
+final class OfflineNameIndex {
+
+	private final ConcurrentNavigableMap<String, IndexedName> names = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Adds or updates a name
+	 *
+	 * @param name the player name
+	 * @param updated when the name was last used
+	 */
+	void update(String name, Instant updated) {
+		names.merge(name.toLowerCase(Locale.ROOT), new IndexedName(name, updated), IndexedName::later);
+	}
+
+	/**
+	 * Removes names which were last used before the given time
+	 *
+	 * @param cutoff the time before which names are removed
+	 */
+	void removeOlderThan(Instant cutoff) {
+		names.values().removeIf((indexedName) -> indexedName.updated.isBefore(cutoff));
+	}
+
+	/**
+	 * Finds names starting with the given prefix, ignoring case
+	 *
+	 * @param prefix the prefix, may be empty
+	 * @param limit the maximum amount of names to return
+	 * @return the matching names, in order of their lowercase form
+	 */
+	Stream<String> search(String prefix, int limit) {
+		String lowercasePrefix = prefix.toLowerCase(Locale.ROOT);
+		NavigableMap<String, IndexedName> matching;
+		if (lowercasePrefix.isEmpty()) {
+			matching = names;
+		} else {
+			matching = names.subMap(lowercasePrefix, true, lowercasePrefix + Character.MAX_VALUE, false);
+		}
+		return matching.values().stream().limit(limit).map((indexedName) -> indexedName.name);
+	}
+
+	int size() {
+		return names.size();
+	}
+
+	private static final class IndexedName {
+
+		final String name;
+		final Instant updated;
+
+		IndexedName(String name, Instant updated) {
+			this.name = name;
+			this.updated = updated;
+		}
+
+		static IndexedName later(IndexedName first, IndexedName second) {
+			return (second.updated.isBefore(first.updated)) ? first : second;
+		}
+	}
+
+}
@@ -19,11 +19,13 @@
 
 package space.arim.libertybans.core.commands.extra;
 
-import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
+import org.jooq.Cursor;
+import org.jooq.Record2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import space.arim.libertybans.api.PunishmentType;
 import space.arim.libertybans.core.config.Configs;
 import space.arim.libertybans.core.config.MainConfig;
@@ -31,11 +33,14 @@ import space.arim.libertybans.core.database.InternalDatabase;
 import space.arim.libertybans.core.database.execute.SQLFunction;
 import space.arim.libertybans.core.env.CmdSender;
 import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.ThisClass;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.DelayCalculators;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
+import space.arim.omnibus.util.concurrent.ScheduledTask;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Set;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
@@ -45,14 +50,31 @@ import static space.arim.libertybans.core.schema.tables.Names.NAMES;
 public final class StandardTabCompletion implements TabCompletion {
 
 	private final Configs configs;
+	private final EnhancedExecutor enhancedExecutor;
 	private final Provider<InternalDatabase> dbProvider;
 	private final Time time;
 
-	private AsyncLoadingCache<Boolean, Set<String>> nameCache;
+	private volatile OfflineNameIndex nameIndex;
+	private volatile Instant lastRefresh;
+	private ScheduledTask refreshTask;
+
+	/**
+	 * The maximum amount of offline player names suggested at once
+	 */
+	private static final int OFFLINE_NAME_SUGGESTION_LIMIT = 100;
+	/**
+	 * How far before the last refresh to look for updated names. This covers names which
+	 * were written after the refresh but with an earlier timestamp, such as by batched writes.
+	 */
+	private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1L);
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
 	@Inject
-	public StandardTabCompletion(Configs configs, Provider<InternalDatabase> dbProvider, Time time) {
+	public StandardTabCompletion(Configs configs, EnhancedExecutor enhancedExecutor,
+								 Provider<InternalDatabase> dbProvider, Time time) {
 		this.configs = configs;
+		this.enhancedExecutor = enhancedExecutor;
 		this.dbProvider = dbProvider;
 		this.time = time;
 	}
@@ -60,38 +82,80 @@ public final class StandardTabCompletion implements TabCompletion {
 	@Override
 	public void startup() {
 		var config = configs.getMainConfig().commands().tabCompletion().offlinePlayerNames();
-		if (config.enable()) {
-			Duration retention = Duration.ofMinutes(config.retentionMinutes());
-			Duration cacheRefresh = Duration.ofSeconds(config.cacheRefreshSeconds());
-			AsyncLoadingCache<Boolean, Set<String>> nameCache = Caffeine.newBuilder()
-					.refreshAfterWrite(cacheRefresh)
-					.buildAsync((key, executor) -> {
-						InternalDatabase database = dbProvider.get();
-						Instant currentTimeMinusRetention = time.currentTimestamp().minus(retention);
-						return database.query(SQLFunction.readOnly((context) -> {
-							return Set.copyOf(context
-									.select(NAMES.NAME)
-									.from(NAMES)
-									.where(NAMES.UPDATED.greaterThan(currentTimeMinusRetention))
-									.fetchSet(NAMES.NAME));
-						}));
-					});
-			// Load initial value
-			nameCache.get(Boolean.TRUE).join();
-			this.nameCache = nameCache;
-		} else {
-			nameCache = null;
+		if (!config.enable()) {
+			return;
 		}
+		Duration retention = Duration.ofMinutes(config.retentionMinutes());
+		Duration refreshInterval = Duration.ofSeconds(config.cacheRefreshSeconds());
+
+		OfflineNameIndex nameIndex = new OfflineNameIndex();
+		Instant currentTime = time.currentTimestamp();
+		// Load initial names
+		loadNames(nameIndex, currentTime.minus(retention), "TabCompletion.loadNames").join();
+		lastRefresh = currentTime;
+		this.nameIndex = nameIndex;
+
+		refreshTask = enhancedExecutor.scheduleRepeating(
+				() -> refresh(nameIndex, retention),
+				refreshInterval,
+				DelayCalculators.fixedDelay()
+		);
 	}
 
 	@Override
 	public void restart() {
+		shutdown();
 		startup();
 	}
 
 	@Override
 	public void shutdown() {
-		nameCache = null;
+		nameIndex = null;
+		if (refreshTask != null) {
+			refreshTask.cancel();
+			refreshTask = null;
+		}
+	}
+
+	private CentralisedFuture<?> loadNames(OfflineNameIndex nameIndex, Instant updatedAfter, String queryName) {
+		return dbProvider.get().query(SQLFunction.readOnly(queryName, (context) -> {
+			try (Cursor<Record2<String, Instant>> cursor = context
+					.select(NAMES.NAME, NAMES.UPDATED)
+					.from(NAMES)
+					.where(NAMES.UPDATED.greaterThan(updatedAfter))
+					.fetchLazy()) {
+				for (Record2<String, Instant> record : cursor) {
+					nameIndex.update(record.value1(), record.value2());
+				}
+			}
+			return null;
+		}));
+	}
+
+	/**
+	 * Loads names updated since the last refresh, and removes those no longer retained
+	 *
+	 * @param nameIndex the name index
+	 * @param retention how long names are retained
+	 */
+	private void refresh(OfflineNameIndex nameIndex, Duration retention) {
+		Instant currentTime = time.currentTimestamp();
+		try {
+			loadNames(nameIndex, lastRefresh.minus(REFRESH_OVERLAP), "TabCompletion.refreshNames").join();
+		} catch (RuntimeException ex) {
+			logger.warn("Failed to refresh offline player names for tab completion", ex);
+			return;
+		}
+		lastRefresh = currentTime;
+		nameIndex.removeOlderThan(currentTime.minus(retention));
+	}
+
+	@Override
+	public void recordJoin(String name, Instant currentTime) {
+		OfflineNameIndex nameIndex = this.nameIndex;
+		if (nameIndex != null) {
+			nameIndex.update(name, currentTime);
+		}
 	}
 
 	@Override
@@ -103,11 +167,12 @@ public final class StandardTabCompletion implements TabCompletion {
 	}
 
 	@Override
-	public Stream<String> completeOfflinePlayerNames(CmdSender sender) {
-		if (nameCache == null) {
+	public Stream<String> completeOfflinePlayerNames(CmdSender sender, String prefix) {
+		OfflineNameIndex nameIndex = this.nameIndex;
+		if (nameIndex == null) {
 			return completeOnlinePlayerNames(sender);
 		}
-		return nameCache.get(Boolean.TRUE).orTimeout(1L, TimeUnit.MILLISECONDS).join().stream();
+		return nameIndex.search(prefix, OFFLINE_NAME_SUGGESTION_LIMIT);
 	}
 
 	@Override
@@ -23,13 +23,33 @@ import space.arim.libertybans.api.PunishmentType;
 import space.arim.libertybans.core.Part;
 import space.arim.libertybans.core.env.CmdSender;
 
+import java.time.Instant;
 import java.util.stream.Stream;
 
 public interface TabCompletion extends Part {
 
+	/**
+	 * Records the name of a joining player, so that it may be completed without waiting
+	 * for the next refresh of offline player names
+	 *
+	 * @param name the player's name
+	 * @param currentTime the current time
+	 */
+	void recordJoin(String name, Instant currentTime);
+
 	Stream<String> completeOnlinePlayerNames(CmdSender sender);
 
-	Stream<String> completeOfflinePlayerNames(CmdSender sender);
+	/**
+	 * Completes the names of players who have formerly joined. If offline player names are
+	 * disabled, the names of online players are completed instead. <br>
+	 * <br>
+	 * The amount of offline player names suggested is limited.
+	 *
+	 * @param sender the command sender
+	 * @param prefix the start of the argument being completed, possibly empty
+	 * @return player names, which should be further filtered by the prefix
+	 */
+	Stream<String> completeOfflinePlayerNames(CmdSender sender, String prefix);
 
 	Stream<String> completePunishmentDurations(CmdSender sender, PunishmentType type);
 
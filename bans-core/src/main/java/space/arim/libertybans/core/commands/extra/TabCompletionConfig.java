@@ -56,7 +56,8 @@ public interface TabCompletionConfig {
 
 		@ConfKey("cache-refresh-seconds")
 		@ConfComments({
-				"This feature is implemented using a cache. How often should the cache be refreshed?",
+				"This feature is implemented using an index of names. How often should recently updated names",
+				"be loaded into the index? Names of players joining this server are added immediately.",
 				"Shorter times mean more accurate tab completion but use slightly more performance"})
 		@ConfDefault.DefaultLong(120)
 		long cacheRefreshSeconds();
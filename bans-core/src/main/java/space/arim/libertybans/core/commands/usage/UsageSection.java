@@ -45,6 +45,7 @@ enum UsageSection {
 			"&e/libertybans &7reload - reload config.yml and language configuration",
 			"&e/libertybans &7restart - perform a full restart, reloads everything including database connections",
 			"&e/libertybans &7debug - outputs debug information",
+			"&e/libertybans &7stats - shows database query statistics",
 			"&e/libertybans &7import - imports from another plugin");
 	
 	private final Component content;
@@ -18,6 +18,8 @@
  */
 package space.arim.libertybans.core.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import jakarta.inject.Inject;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.ComponentLike;
@@ -48,13 +50,11 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.StringJoiner;
 import java.util.UUID;
-import java.util.function.UnaryOperator;
 
 public class Formatter implements InternalFormatter {
 
@@ -65,7 +65,23 @@ public class Formatter implements InternalFormatter {
 	private final Time time;
 	private final ComponentSerializer<Component, ? extends Component, String> messageParser;
 
+	/**
+	 * Compiled templates by message. Messages are compared by identity, and lookups do not lock.
+	 */
+	private final Cache<ComponentText, MessageTemplate> templates = Caffeine.newBuilder().weakKeys().build();
+	private volatile SortedFragments sortedFragments;
+	/**
+	 * Punishment messages by punishment ID. Kept to a bounded size so that repeated join attempts
+	 * of banned players, such as from bots, require almost no work.
+	 */
+	private final Cache<Long, RenderedMessage> renderedMessages;
+
 	private static final long MARGIN_OF_INITIATION = 10; // seconds
+	private static final long RENDERED_MESSAGES_MAXIMUM_SIZE = 1000;
+	/**
+	 * Limits how long operator and victim names may be out of date
+	 */
+	private static final Duration RENDERED_MESSAGES_EXPIRY = Duration.ofMinutes(5L);
 	
 	@Inject
 	public Formatter(FactoryOfTheFuture futuresFactory, Configs configs, InternalScopeManager scopeManager,
@@ -81,6 +97,11 @@ public class Formatter implements InternalFormatter {
 		this.uuidManager = uuidManager;
 		this.time = time;
 		this.messageParser = messageParser;
+		renderedMessages = Caffeine.newBuilder()
+				.ticker(time.toCaffeineTicker())
+				.maximumSize(RENDERED_MESSAGES_MAXIMUM_SIZE)
+				.expireAfterWrite(RENDERED_MESSAGES_EXPIRY)
+				.build();
 	}
 	
 	private MessagesConfig messages() {
@@ -103,7 +124,65 @@ public class Formatter implements InternalFormatter {
 	
 	@Override
 	public CentralisedFuture<Component> getPunishmentMessage(Punishment punishment) {
-		return formatWithPunishment(messages().additions().forType(punishment.getType()).layout(), punishment);
+		MessagesConfig messages = messages();
+		MainConfig mainConfig = configs.getMainConfig();
+		MessageTemplate template = template(messages.additions().forType(punishment.getType()).layout());
+
+		long id = punishment.getIdentifier();
+		RenderedMessage rendered = renderedMessages.getIfPresent(id);
+		if (rendered != null && rendered.isCurrent(messages, mainConfig, template)) {
+			return futuresFactory.completedFuture(rendered.render(punishment));
+		}
+		return fixedValues(template, punishment, null).thenApply((fixedValues) -> {
+			RenderedMessage newlyRendered = new RenderedMessage(messages, mainConfig, template, fixedValues);
+			renderedMessages.put(id, newlyRendered);
+			return newlyRendered.render(punishment);
+		});
+	}
+
+	/**
+	 * A punishment message whose values, except those depending on the current time, are already computed. <br>
+	 * <br>
+	 * If the message does not use any time-dependent values, the whole message is kept rendered.
+	 *
+	 */
+	private final class RenderedMessage {
+
+		private final MessagesConfig messages;
+		private final MainConfig mainConfig;
+		private final MessageTemplate template;
+		private final String[] fixedValues;
+		private final Component fullyRendered;
+
+		RenderedMessage(MessagesConfig messages, MainConfig mainConfig, MessageTemplate template,
+						String[] fixedValues) {
+			this.messages = messages;
+			this.mainConfig = mainConfig;
+			this.template = template;
+			this.fixedValues = fixedValues;
+			fullyRendered = (usesTimeValues(template)) ? null : template.render(fixedValues);
+		}
+
+		/**
+		 * Whether this message was rendered with the current configuration
+		 *
+		 * @param messages the current messages config
+		 * @param mainConfig the current main config
+		 * @param template the current template
+		 * @return true if current, false if the configuration has been reloaded since
+		 */
+		boolean isCurrent(MessagesConfig messages, MainConfig mainConfig, MessageTemplate template) {
+			return this.messages == messages && this.mainConfig == mainConfig && this.template == template;
+		}
+
+		Component render(Punishment punishment) {
+			if (fullyRendered != null) {
+				return fullyRendered;
+			}
+			String[] values = fixedValues.clone();
+			putTimeValues(template, values, punishment);
+			return template.render(values);
+		}
 	}
 	
 	@Override
@@ -120,73 +199,152 @@ public class Formatter implements InternalFormatter {
 
 	private CentralisedFuture<Component> formatWithPunishment(ComponentText componentText,
 															  Punishment punishment, Operator unOperator) {
-		Map<FutureReplaceable, CentralisedFuture<String>> futureReplacements = new EnumMap<>(FutureReplaceable.class);
-		for (FutureReplaceable futureReplaceable : FutureReplaceable.values()) {
+		MessageTemplate template = template(componentText);
+		return fixedValues(template, punishment, unOperator).thenApply((values) -> {
+			putTimeValues(template, values, punishment);
+			return template.render(values);
+		});
+	}
 
-			if (unOperator == null && futureReplaceable == FutureReplaceable.UNOPERATOR) {
+	/**
+	 * Computes the values used by a template which do not depend on the current time
+	 *
+	 * @param template the template
+	 * @param punishment the punishment
+	 * @param unOperator the operator undoing the punishment, or {@code null}
+	 * @return a future yielding the values, indexed by variable ordinal
+	 */
+	private CentralisedFuture<String[]> fixedValues(MessageTemplate template,
+													Punishment punishment, Operator unOperator) {
+		String[] values = new String[PunishmentVariable.values().length];
+		putSimpleValues(template, values, punishment, unOperator);
+
+		List<PunishmentVariable> lookupVariables = new ArrayList<>(LOOKUP_VARIABLES.size());
+		List<CentralisedFuture<String>> lookups = new ArrayList<>(LOOKUP_VARIABLES.size());
+		for (PunishmentVariable variable : LOOKUP_VARIABLES) {
+
+			if (unOperator == null && variable == PunishmentVariable.UNOPERATOR) {
 				continue;
 			}
-			if (componentText.contains(futureReplaceable.getVariable())) {
-				CentralisedFuture<String> replacement = getFutureReplacement(futureReplaceable, punishment, unOperator);
-				futureReplacements.put(futureReplaceable, replacement);
+			if (template.uses(variable)) {
+				lookupVariables.add(variable);
+				lookups.add(lookupValue(variable, punishment, unOperator));
 			}
 		}
-		return futuresFactory.supplyAsync(() -> getSimpleReplacements(punishment, unOperator))
-				.thenCompose((simpleReplacements) -> {
-			return formatWithPunishment0(componentText, simpleReplacements, futureReplacements);
+		if (lookups.isEmpty()) {
+			return futuresFactory.completedFuture(values);
+		}
+		// Name lookups are usually complete already, in which case this completes immediately
+		return futuresFactory.allOf(lookups).thenApply((ignore) -> {
+			for (int n = 0; n < lookups.size(); n++) {
+				values[lookupVariables.get(n).ordinal()] = lookups.get(n).join();
+			}
+			return values;
 		});
 	}
-	
-	private enum SimpleReplaceable {
-		ID,
-		TYPE,
-		TYPE_VERB,
-		VICTIM_ID,
-		OPERATOR_ID,
-		UNOPERATOR_ID,
-		REASON,
-		SCOPE,
-		DURATION,
-		START_DATE,
-		TIME_PASSED,
-		TIME_PASSED_SIMPLE,
-		END_DATE,
-		TIME_REMAINING,
-		TIME_REMAINING_SIMPLE,
-		HAS_EXPIRED;
-		
-		String getVariable() {
-			return "%" + name() + "%";
-		}
-		
+
+	private static final List<PunishmentVariable> LOOKUP_VARIABLES = List.of(
+			PunishmentVariable.VICTIM, PunishmentVariable.OPERATOR, PunishmentVariable.UNOPERATOR);
+
+	/**
+	 * Gets the compiled template of a message. Templates are kept for as long as the message itself,
+	 * which for configured messages is until the configuration is reloaded.
+	 *
+	 * @param componentText the message
+	 * @return the compiled template
+	 */
+	private MessageTemplate template(ComponentText componentText) {
+		return templates.get(componentText, MessageTemplate::compile);
 	}
-	
-	private enum FutureReplaceable {
-		VICTIM,
-		OPERATOR,
-		UNOPERATOR;
 
-		String getVariable() {
-			return "%" + name() + "%";
+	private static void putValue(MessageTemplate template, String[] values,
+								 PunishmentVariable variable, String value) {
+		if (template.uses(variable)) {
+			values[variable.ordinal()] = value;
 		}
 	}
-	
-	private Map<SimpleReplaceable, String> getSimpleReplacements(Punishment punishment, Operator unOperator) {
 
+	private void putSimpleValues(MessageTemplate template, String[] values,
+								 Punishment punishment, Operator unOperator) {
+		putValue(template, values, PunishmentVariable.ID, Long.toString(punishment.getIdentifier()));
+		if (template.uses(PunishmentVariable.TYPE)) {
+			values[PunishmentVariable.TYPE.ordinal()] = formatPunishmentType(punishment.getType());
+		}
+		if (template.uses(PunishmentVariable.TYPE_VERB)) {
+			values[PunishmentVariable.TYPE_VERB.ordinal()] = formatPunishmentTypeVerb(punishment.getType());
+		}
+		if (template.uses(PunishmentVariable.VICTIM_ID)) {
+			values[PunishmentVariable.VICTIM_ID.ordinal()] = formatVictimId(punishment.getVictim());
+		}
+		if (template.uses(PunishmentVariable.OPERATOR_ID)) {
+			values[PunishmentVariable.OPERATOR_ID.ordinal()] = formatOperatorId(punishment.getOperator());
+		}
+		if (unOperator != null && template.uses(PunishmentVariable.UNOPERATOR_ID)) {
+			values[PunishmentVariable.UNOPERATOR_ID.ordinal()] = formatOperatorId(unOperator);
+		}
+		putValue(template, values, PunishmentVariable.REASON, punishment.getReason());
+		if (template.uses(PunishmentVariable.SCOPE)) {
+			values[PunishmentVariable.SCOPE.ordinal()] = formatScope(punishment.getScope());
+		}
+		if (template.uses(PunishmentVariable.START_DATE)) {
+			values[PunishmentVariable.START_DATE.ordinal()] = formatAbsoluteDate(punishment.getStartDate());
+		}
+		if (template.uses(PunishmentVariable.END_DATE)) {
+			values[PunishmentVariable.END_DATE.ordinal()] = formatAbsoluteDate(punishment.getEndDate());
+		}
+		if (template.uses(PunishmentVariable.DURATION)) {
+			String durationFormatted;
+			if (punishment.isPermanent()) {
+				durationFormatted = messages().formatting().permanentDisplay().duration();
+			} else {
+				durationFormatted = formatRelative(punishment.getEndDateSeconds() - punishment.getStartDateSeconds());
+			}
+			values[PunishmentVariable.DURATION.ordinal()] = durationFormatted;
+		}
+	}
+
+	private static boolean usesTimeValues(MessageTemplate template) {
+		return template.uses(PunishmentVariable.TIME_PASSED)
+				|| template.uses(PunishmentVariable.TIME_PASSED_SIMPLE)
+				|| template.uses(PunishmentVariable.TIME_REMAINING)
+				|| template.uses(PunishmentVariable.TIME_REMAINING_SIMPLE)
+				|| template.uses(PunishmentVariable.HAS_EXPIRED);
+	}
+
+	/**
+	 * Computes the values used by a template which depend on the current time
+	 *
+	 * @param template the template
+	 * @param values the values, indexed by variable ordinal
+	 * @param punishment the punishment
+	 */
+	private void putTimeValues(MessageTemplate template, String[] values, Punishment punishment) {
+		if (!usesTimeValues(template)) {
+			return;
+		}
 		final long now = time.currentTime();
 		final long start = punishment.getStartDateSeconds();
 
 		final long timePassed = now - start;
 
-		final String durationFormatted;
+		if (template.uses(PunishmentVariable.TIME_PASSED)) {
+			values[PunishmentVariable.TIME_PASSED.ordinal()] = formatRelative(timePassed);
+		}
+		if (template.uses(PunishmentVariable.TIME_PASSED_SIMPLE)) {
+			values[PunishmentVariable.TIME_PASSED_SIMPLE.ordinal()] = formatRelativeSimple(timePassed);
+		}
+		if (!template.uses(PunishmentVariable.TIME_REMAINING)
+				&& !template.uses(PunishmentVariable.TIME_REMAINING_SIMPLE)
+				&& !template.uses(PunishmentVariable.HAS_EXPIRED)) {
+			return;
+		}
+
 		final String relativeEndFormatted, relativeEndFormattedSimple;
 		boolean notExpired = false;
 
 		if (punishment.isPermanent()) {
 			// Permanent punishment
-			MessagesConfig.Formatting.PermanentDisplay display = messages().formatting().permanentDisplay();
-			durationFormatted = display.duration();
-			relativeEndFormatted = display.relative();
+			relativeEndFormatted = messages().formatting().permanentDisplay().relative();
 			relativeEndFormattedSimple = relativeEndFormatted;
 			notExpired = true;
 
@@ -195,12 +353,11 @@ public class Formatter implements InternalFormatter {
 			assert end != 0 : end;
 			// Temporary punishment
 			long duration = end - start;
-			durationFormatted = formatRelative(duration);
 
 			if (timePassed < MARGIN_OF_INITIATION) {
 				// Punishment recently enacted
 				// Using a margin of initiation prevents the "29 days, 23 hours, 59 minutes" issue
-				relativeEndFormatted = durationFormatted;
+				relativeEndFormatted = formatRelative(duration);
 				relativeEndFormattedSimple = formatRelativeSimple(duration);
 				notExpired = true;
 
@@ -216,58 +373,18 @@ public class Formatter implements InternalFormatter {
 				notExpired = true;
 			}
 		}
-
-		Map<SimpleReplaceable, String> simpleReplacements = new EnumMap<>(SimpleReplaceable.class);
-		simpleReplacements.put(SimpleReplaceable.ID, Long.toString(punishment.getIdentifier()));
-		simpleReplacements.put(SimpleReplaceable.TYPE, formatPunishmentType(punishment.getType()));
-		simpleReplacements.put(SimpleReplaceable.TYPE_VERB, formatPunishmentTypeVerb(punishment.getType()));
-		simpleReplacements.put(SimpleReplaceable.VICTIM_ID, formatVictimId(punishment.getVictim()));
-		simpleReplacements.put(SimpleReplaceable.OPERATOR_ID, formatOperatorId(punishment.getOperator()));
-		if (unOperator != null)
-			simpleReplacements.put(SimpleReplaceable.UNOPERATOR_ID, formatOperatorId(unOperator));
-		simpleReplacements.put(SimpleReplaceable.REASON, punishment.getReason());
-		simpleReplacements.put(SimpleReplaceable.SCOPE, formatScope(punishment.getScope()));
-		simpleReplacements.put(SimpleReplaceable.DURATION, durationFormatted);
-		simpleReplacements.put(SimpleReplaceable.START_DATE, formatAbsoluteDate(punishment.getStartDate()));
-		simpleReplacements.put(SimpleReplaceable.TIME_PASSED, formatRelative(timePassed));
-		simpleReplacements.put(SimpleReplaceable.TIME_PASSED_SIMPLE, formatRelativeSimple(timePassed));
-		simpleReplacements.put(SimpleReplaceable.END_DATE, formatAbsoluteDate(punishment.getEndDate()));
-		simpleReplacements.put(SimpleReplaceable.TIME_REMAINING, relativeEndFormatted);
-		simpleReplacements.put(SimpleReplaceable.TIME_REMAINING_SIMPLE, relativeEndFormattedSimple);
-		MessagesConfig.Formatting.PunishmentExpiredDisplay display = messages().formatting().punishmentExpiredDisplay();
-		simpleReplacements.put(SimpleReplaceable.HAS_EXPIRED, (notExpired) ? display.notExpired() : display.expired());
-
-		return simpleReplacements;
-	}
-
-	private CentralisedFuture<Component> formatWithPunishment0(ComponentText componentText,
-															   Map<SimpleReplaceable, String> simpleReplacements,
-															   Map<FutureReplaceable, CentralisedFuture<String>> futureReplacements) {
-		return futuresFactory.allOf(futureReplacements.values()).thenApply((ignore) -> {
-
-			class Replacer implements UnaryOperator<String> {
-				@Override
-				public String apply(String text) {
-					for (Map.Entry<SimpleReplaceable, String> simpleReplacement : simpleReplacements.entrySet()) {
-						text = text.replace(
-								simpleReplacement.getKey().getVariable(),
-								simpleReplacement.getValue());
-					}
-					for (Map.Entry<FutureReplaceable, CentralisedFuture<String>> futureReplacement : futureReplacements.entrySet()) {
-						text = text.replace(
-								futureReplacement.getKey().getVariable(),
-								futureReplacement.getValue().join());
-					}
-					return text;
-				}
-			}
-			return componentText.replaceText(new Replacer()).asComponent();
-		});
+		putValue(template, values, PunishmentVariable.TIME_REMAINING, relativeEndFormatted);
+		putValue(template, values, PunishmentVariable.TIME_REMAINING_SIMPLE, relativeEndFormattedSimple);
+		if (template.uses(PunishmentVariable.HAS_EXPIRED)) {
+			MessagesConfig.Formatting.PunishmentExpiredDisplay display =
+					messages().formatting().punishmentExpiredDisplay();
+			values[PunishmentVariable.HAS_EXPIRED.ordinal()] = (notExpired) ? display.notExpired() : display.expired();
+		}
 	}
-	
-	private CentralisedFuture<String> getFutureReplacement(FutureReplaceable futureReplaceable, Punishment punishment,
-			Operator unOperator) {
-		switch (futureReplaceable) {
+
+	private CentralisedFuture<String> lookupValue(PunishmentVariable variable, Punishment punishment,
+												  Operator unOperator) {
+		switch (variable) {
 		case VICTIM:
 			return formatVictim(punishment.getVictim());
 		case OPERATOR:
@@ -275,7 +392,7 @@ public class Formatter implements InternalFormatter {
 		case UNOPERATOR:
 			return formatOperator(unOperator);
 		default:
-			throw new IllegalArgumentException("Unknown replaceable " + futureReplaceable);
+			throw new IllegalArgumentException("Not a lookup variable " + variable);
 		}
 	}
 	
@@ -351,6 +468,44 @@ public class Formatter implements InternalFormatter {
 		return addressVictim.getAddress().toString();
 	}
 
+	/**
+	 * The configured time fragments, sorted from the largest unit to the smallest
+	 */
+	private static final class SortedFragments {
+
+		final Map<ChronoUnit, String> source;
+		final long[] unitLengths;
+		final String[] formats;
+
+		SortedFragments(Map<ChronoUnit, String> source) {
+			this.source = source;
+			List<Map.Entry<ChronoUnit, String>> fragments = new ArrayList<>(source.entrySet());
+			fragments.sort(Map.Entry.<ChronoUnit, String>comparingByKey().reversed());
+			unitLengths = new long[fragments.size()];
+			formats = new String[fragments.size()];
+			for (int n = 0; n < fragments.size(); n++) {
+				Map.Entry<ChronoUnit, String> fragment = fragments.get(n);
+				unitLengths[n] = fragment.getKey().getDuration().toSeconds();
+				formats[n] = fragment.getValue();
+			}
+		}
+
+		int size() {
+			return formats.length;
+		}
+	}
+
+	private SortedFragments sortedFragments(MessagesConfig.Misc.Time timeConfig) {
+		Map<ChronoUnit, String> fragments = timeConfig.fragments();
+		SortedFragments sorted = sortedFragments;
+		// The configured map is replaced when the configuration is reloaded
+		if (sorted == null || sorted.source != fragments) {
+			sorted = new SortedFragments(fragments);
+			sortedFragments = sorted;
+		}
+		return sorted;
+	}
+
 	/** Visible for testing */
 	String formatRelative(long diff) {
 		if (diff < 0) {
@@ -358,16 +513,15 @@ public class Formatter implements InternalFormatter {
 		}
 		MessagesConfig.Misc.Time timeConfig = messages().misc().time();
 
-		List<Map.Entry<ChronoUnit, String>> fragments = new ArrayList<>(timeConfig.fragments().entrySet());
-		fragments.sort(Map.Entry.<ChronoUnit, String>comparingByKey().reversed());
+		SortedFragments fragments = sortedFragments(timeConfig);
 		List<String> segments = new ArrayList<>(fragments.size());
 
-		for (Map.Entry<ChronoUnit, String> fragment : fragments) {
-			long unitLength = fragment.getKey().getDuration().toSeconds();
+		for (int n = 0; n < fragments.size(); n++) {
+			long unitLength = fragments.unitLengths[n];
 			if (diff >= unitLength) {
 				long amount = (diff / unitLength);
 				diff -= (amount * unitLength);
-				segments.add(fragment.getValue().replace("%VALUE%", Long.toString(amount)));
+				segments.add(fragments.formats[n].replace("%VALUE%", Long.toString(amount)));
 			}
 		}
 		if (segments.isEmpty()) {
@@ -393,16 +547,15 @@ public class Formatter implements InternalFormatter {
 		}
 		MessagesConfig.Misc.Time timeConfig = messages().misc().time();
 
-		List<Map.Entry<ChronoUnit, String>> fragments = new ArrayList<>(timeConfig.fragments().entrySet());
-		fragments.sort(Map.Entry.<ChronoUnit, String>comparingByKey().reversed());
+		SortedFragments fragments = sortedFragments(timeConfig);
 		String segment = "";
 
-		for (Map.Entry<ChronoUnit, String> fragment : fragments) {
-			long unitLength = fragment.getKey().getDuration().toSeconds();
+		for (int n = 0; n < fragments.size(); n++) {
+			long unitLength = fragments.unitLengths[n];
 			if (diff >= unitLength) {
 				long amount = Math.round(diff / (double) unitLength);
 				if (amount > 0) {
-					segment = fragment.getValue().replace("%VALUE%", Long.toString(amount));
+					segment = fragments.formats[n].replace("%VALUE%", Long.toString(amount));
 					break;
 				}
 			}
@@ -0,0 +1,256 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.config;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.format.Style;
+import space.arim.api.jsonchat.adventure.util.ComponentText;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A message compiled into literal text and {@link PunishmentVariable} slots. <br>
+ * <br>
+ * The text of each component, including its insertion, click event value, and hover text,
+ * is parsed once when the template is compiled. Rendering is then a single pass which appends
+ * literals and variable values. Components without any variables are reused as they are.
+ *
+ */
+final class MessageTemplate {
+
+	private final Component component;
+	/**
+	 * The compiled root, or {@code null} if the message has no variables
+	 */
+	private final Node root;
+	private final Set<PunishmentVariable> variables;
+
+	private MessageTemplate(Component component, Node root, Set<PunishmentVariable> variables) {
+		this.component = component;
+		this.root = root;
+		this.variables = variables;
+	}
+
+	static MessageTemplate compile(ComponentText message) {
+		return compile(message.asComponent());
+	}
+
+	static MessageTemplate compile(Component message) {
+		Set<PunishmentVariable> variables = EnumSet.noneOf(PunishmentVariable.class);
+		Node root = Node.compile(message, variables);
+		return new MessageTemplate(message, root, variables);
+	}
+
+	/**
+	 * Whether this template uses the given variable
+	 *
+	 * @param variable the variable
+	 * @return true if used
+	 */
+	boolean uses(PunishmentVariable variable) {
+		return variables.contains(variable);
+	}
+
+	/**
+	 * Renders this template
+	 *
+	 * @param values the variable values, indexed by ordinal. A {@code null} value leaves
+	 *               the variable in place
+	 * @return the rendered message
+	 */
+	Component render(String[] values) {
+		if (root == null) {
+			return component;
+		}
+		return root.render(values);
+	}
+
+	private static final class Node {
+
+		private final Component component;
+		private final Text content;
+		private final Text insertion;
+		private final Text clickValue;
+		private final Node hoverText;
+		/**
+		 * The compiled children, or {@code null} if no children have variables. Individual
+		 * elements are {@code null} for children without variables
+		 */
+		private final Node[] children;
+
+		private Node(Component component, Text content, Text insertion, Text clickValue,
+					 Node hoverText, Node[] children) {
+			this.component = component;
+			this.content = content;
+			this.insertion = insertion;
+			this.clickValue = clickValue;
+			this.hoverText = hoverText;
+			this.children = children;
+		}
+
+		/**
+		 * Compiles a component
+		 *
+		 * @param component the component
+		 * @param variables the set to which to add the variables used
+		 * @return the compiled node, or {@code null} if the component and its children have no variables
+		 */
+		static Node compile(Component component, Set<PunishmentVariable> variables) {
+			Text content = null;
+			if (component instanceof TextComponent) {
+				content = Text.parse(((TextComponent) component).content(), variables);
+			}
+			Style style = component.style();
+			String insertionValue = style.insertion();
+			Text insertion = (insertionValue == null) ? null : Text.parse(insertionValue, variables);
+			ClickEvent clickEvent = style.clickEvent();
+			Text clickValue = (clickEvent == null) ? null : Text.parse(clickEvent.value(), variables);
+			HoverEvent<?> hoverEvent = style.hoverEvent();
+			Node hoverText = null;
+			if (hoverEvent != null && hoverEvent.action() == HoverEvent.Action.SHOW_TEXT) {
+				hoverText = compile((Component) hoverEvent.value(), variables);
+			}
+			List<Component> childComponents = component.children();
+			Node[] children = null;
+			for (int n = 0; n < childComponents.size(); n++) {
+				Node child = compile(childComponents.get(n), variables);
+				if (child != null) {
+					if (children == null) {
+						children = new Node[childComponents.size()];
+					}
+					children[n] = child;
+				}
+			}
+			if (content == null && insertion == null && clickValue == null && hoverText == null && children == null) {
+				return null;
+			}
+			return new Node(component, content, insertion, clickValue, hoverText, children);
+		}
+
+		Component render(String[] values) {
+			Component result = component;
+			if (content != null) {
+				result = ((TextComponent) result).content(content.render(values));
+			}
+			if (insertion != null || clickValue != null || hoverText != null) {
+				Style style = result.style();
+				if (insertion != null) {
+					style = style.insertion(insertion.render(values));
+				}
+				if (clickValue != null) {
+					ClickEvent clickEvent = style.clickEvent();
+					style = style.clickEvent(ClickEvent.clickEvent(clickEvent.action(), clickValue.render(values)));
+				}
+				if (hoverText != null) {
+					style = style.hoverEvent(HoverEvent.showText(hoverText.render(values)));
+				}
+				result = result.style(style);
+			}
+			if (children != null) {
+				List<Component> childComponents = result.children();
+				List<Component> renderedChildren = new ArrayList<>(childComponents.size());
+				for (int n = 0; n < children.length; n++) {
+					Node child = children[n];
+					renderedChildren.add((child == null) ? childComponents.get(n) : child.render(values));
+				}
+				result = result.children(renderedChildren);
+			}
+			return result;
+		}
+	}
+
+	private static final class Text {
+
+		/**
+		 * The literals surrounding each variable. There is always one more literal than variables
+		 */
+		private final String[] literals;
+		private final PunishmentVariable[] variables;
+		private final int literalLength;
+
+		private Text(String[] literals, PunishmentVariable[] variables, int literalLength) {
+			this.literals = literals;
+			this.variables = variables;
+			this.literalLength = literalLength;
+		}
+
+		/**
+		 * Parses text
+		 *
+		 * @param text the text
+		 * @param usedVariables the set to which to add the variables used
+		 * @return the parsed text, or {@code null} if the text has no variables
+		 */
+		static Text parse(String text, Set<PunishmentVariable> usedVariables) {
+			List<String> literals = null;
+			List<PunishmentVariable> variables = null;
+			int literalLength = 0;
+			int literalStart = 0;
+			int searchFrom = 0;
+			int open;
+			while ((open = text.indexOf('%', searchFrom)) != -1) {
+				int close = text.indexOf('%', open + 1);
+				if (close == -1) {
+					break;
+				}
+				PunishmentVariable variable = PunishmentVariable.forName(text.substring(open + 1, close));
+				if (variable == null) {
+					// The closing percent sign may begin a variable
+					searchFrom = close;
+					continue;
+				}
+				if (variables == null) {
+					literals = new ArrayList<>();
+					variables = new ArrayList<>();
+				}
+				literals.add(text.substring(literalStart, open));
+				variables.add(variable);
+				usedVariables.add(variable);
+				literalLength += open - literalStart;
+				literalStart = searchFrom = close + 1;
+			}
+			if (variables == null) {
+				return null;
+			}
+			literals.add(text.substring(literalStart));
+			literalLength += text.length() - literalStart;
+			return new Text(
+					literals.toArray(String[]::new), variables.toArray(PunishmentVariable[]::new), literalLength);
+		}
+
+		String render(String[] values) {
+			StringBuilder builder = new StringBuilder(literalLength + 16 * variables.length);
+			for (int n = 0; n < variables.length; n++) {
+				builder.append(literals[n]);
+				PunishmentVariable variable = variables[n];
+				String value = values[variable.ordinal()];
+				builder.append((value == null) ? variable.variable() : value);
+			}
+			return builder.append(literals[variables.length]).toString();
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The variables which may be used in messages formatted with a punishment
+ *
+ */
+enum PunishmentVariable {
+	ID,
+	TYPE,
+	TYPE_VERB,
+	VICTIM,
+	VICTIM_ID,
+	OPERATOR,
+	OPERATOR_ID,
+	UNOPERATOR,
+	UNOPERATOR_ID,
+	REASON,
+	SCOPE,
+	DURATION,
+	START_DATE,
+	TIME_PASSED,
+	TIME_PASSED_SIMPLE,
+	END_DATE,
+	TIME_REMAINING,
+	TIME_REMAINING_SIMPLE,
+	HAS_EXPIRED;
+
+	private final String variable = "%" + name() + "%";
+
+	private static final Map<String, PunishmentVariable> BY_NAME = new HashMap<>();
+
+	static {
+		for (PunishmentVariable variable : values()) {
+			BY_NAME.put(variable.name(), variable);
+		}
+	}
+
+	/**
+	 * Gets the variable as it appears in messages, including the enclosing percent signs
+	 *
+	 * @return the variable text
+	 */
+	String variable() {
+		return variable;
+	}
+
+	/**
+	 * Finds a variable by its name, excluding the enclosing percent signs
+	 *
+	 * @param name the name
+	 * @return the variable, or {@code null} if there is no such variable
+	 */
+	static PunishmentVariable forName(String name) {
+		return BY_NAME.get(name);
+	}
+
+}
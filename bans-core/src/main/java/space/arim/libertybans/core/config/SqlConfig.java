@@ -20,13 +20,18 @@
 package space.arim.libertybans.core.config;
 
 import space.arim.dazzleconf.annote.ConfComments;
+import space.arim.dazzleconf.annote.ConfDefault.DefaultBoolean;
 import space.arim.dazzleconf.annote.ConfDefault.DefaultInteger;
 import space.arim.dazzleconf.annote.ConfDefault.DefaultString;
+import space.arim.dazzleconf.annote.ConfDefault.DefaultStrings;
 import space.arim.dazzleconf.annote.ConfHeader;
 import space.arim.dazzleconf.annote.ConfKey;
+import space.arim.dazzleconf.annote.NumericRange;
 import space.arim.dazzleconf.annote.SubSection;
 import space.arim.libertybans.core.database.DatabaseSettingsConfig;
 
+import java.util.List;
+
 @ConfHeader({
 		"",
 		"SQL Database settings",
@@ -92,12 +97,113 @@ public interface SqlConfig extends DatabaseSettingsConfig {
 		@DefaultString("EXPIRE_AFTER_ACCESS")
 		ExpirationSemantic expirationSemantic();
 
+		@ConfKey("synchronized-expiration-time-seconds")
+		@ConfComments({"Cached mutes are updated as soon as mutes are added or removed by this instance,",
+				"or by another instance through multi-instance synchronization.",
+				"",
+				"If you are using multi-instance synchronization, cached mutes therefore need not",
+				"expire quickly, and this longer expiration time is used instead of the one above.",
+				"It is only a safety net. Lower it if a third-party tool modifies mutes in the database."})
+		@DefaultInteger(900)
+		int synchronizedExpirationTimeSeconds();
+
 		enum ExpirationSemantic {
 			EXPIRE_AFTER_ACCESS,
 			EXPIRE_AFTER_WRITE
 		}
 	}
 
+	@ConfKey("active-punishment-index")
+	@SubSection
+	PunishmentIndex punishmentIndex();
+
+	@ConfHeader({"Keeps all active bans and mutes in memory, so that checking whether a player is",
+			"banned or muted does not require querying the database.",
+			"",
+			"The index is updated whenever punishments are made or undone by this instance,",
+			"or received through synchronization. It is reloaded periodically to catch any other changes.",
+			"The index is not used with the STRICT address strictness."})
+	interface PunishmentIndex {
+
+		@ConfComments("Whether to enable the active punishment index")
+		@DefaultBoolean(false)
+		boolean enable();
+
+		@ConfKey("refresh-interval-minutes")
+		@ConfComments({"How often the index is fully reloaded from the database, in minutes.",
+				"If any program other than LibertyBans modifies punishments in the database, lower this value."})
+		@DefaultInteger(10)
+		@NumericRange(min = 1)
+		int refreshIntervalMinutes();
+	}
+
+	@ConfKey("association-batching")
+	@SubSection
+	AssociationBatching associationBatching();
+
+	@ConfHeader({"When a player joins, LibertyBans records the player's name and address.",
+			"By default, these are written in the same transaction which checks whether the player is banned.",
+			"",
+			"If enabled, the records are instead queued and written in the background in batches,",
+			"so that the join check needs only to read from the database. Repeated joins by the same",
+			"player before a batch is written are combined into a single write.",
+			"",
+			"The ban check and connection limiter account for queued records. However, alt detection",
+			"will not consider a newly used address until it has been written."})
+	interface AssociationBatching {
+
+		@ConfComments("Whether to enable batched writing of join records")
+		@DefaultBoolean(false)
+		boolean enable();
+
+		@ConfKey("flush-interval-millis")
+		@ConfComments("How often queued records are written, in milliseconds")
+		@DefaultInteger(500)
+		int flushIntervalMillis();
+
+		@ConfKey("max-batch-size")
+		@ConfComments("Queued records are written immediately once this many players are queued")
+		@DefaultInteger(200)
+		int maxBatchSize();
+
+		@ConfKey("queue-capacity")
+		@ConfComments({"The maximum amount of queued records. If the queue is full, records are written",
+				"during the join check, as if batching were disabled."})
+		@DefaultInteger(5000)
+		int queueCapacity();
+	}
+
+	@ConfKey("query-metrics")
+	@SubSection
+	Metrics metrics();
+
+	@ConfHeader({"Statistics on database queries: how long each query waits for a connection and takes",
+			"to execute, how many rows it returns, and how often it is retried or fails.",
+			"Use '/libertybans stats' to view them."})
+	interface Metrics {
+
+		@ConfComments("Whether to record query statistics")
+		@DefaultBoolean(true)
+		boolean enable();
+
+		@ConfKey("slow-query-threshold-millis")
+		@ConfComments({"Queries taking at least this long, including time spent waiting for a connection,",
+				"are logged as slow queries. Set to 0 to disable the slow query log."})
+		@DefaultInteger(0)
+		int slowQueryThresholdMillis();
+
+		@ConfKey("export-interval-seconds")
+		@ConfComments("How often query statistics are exported, in seconds")
+		@DefaultInteger(300)
+		@NumericRange(min = 1)
+		int exportIntervalSeconds();
+
+		@ConfKey("log-summary")
+		@ConfComments("Whether to export query statistics by writing a summary to the server log")
+		@DefaultBoolean(false)
+		boolean logSummary();
+	}
+
 	@SubSection
 	Synchronization synchronization();
 
@@ -107,13 +213,17 @@ public interface SqlConfig extends DatabaseSettingsConfig {
 		@ConfComments({"Availalble synchronization options:",
 				"NONE - no synchronization",
 				"ANSI_SQL - uses your database to synchronize punishments (called ANSI_SQL because it uses standard SQL)",
+				"With PostgreSQL, messages may instead be pushed by the database; see postgres-listen-notify.",
+				"TCP_MESH - sends punishments directly to the other instances, configured in the tcp-mesh section.",
+				"The database is used only to catch up on messages missed while an instance was disconnected.",
 				"Other options may be added in the future, upon feature request."})
 		@DefaultString("NONE")
 		SyncMode mode();
 
 		enum SyncMode {
 			NONE,
-			ANSI_SQL
+			ANSI_SQL,
+			TCP_MESH
 		}
 
 		@ConfKey("poll-rate-millis")
@@ -125,8 +235,64 @@ public interface SqlConfig extends DatabaseSettingsConfig {
 				"This value MUST be less than 30 seconds."})
 		long pollRateMillis();
 
+		@ConfKey("postgres-listen-notify")
+		@ConfComments({"Applies to the ANSI_SQL mode when using PostgreSQL.",
+				"If enabled, messages are pushed to the other instances using LISTEN/NOTIFY,",
+				"and the database is polled only to catch up on messages missed while disconnected.",
+				"This uses one extra database connection per instance, opened outside the connection pool.",
+				"Do not enable this if you connect through a proxy which does not support LISTEN,",
+				"such as PgBouncer in transaction pooling mode."})
+		@DefaultBoolean(false)
+		boolean postgresListenNotify();
+
+		@ConfKey("embed-punishments")
+		@ConfComments({"Whether to include the full details of each punishment in the messages sent to the other instances.",
+				"This lets the other instances enforce punishments without first looking them up in the database.",
+				"Messages with embedded punishments use a newer protocol version, which older versions of LibertyBans",
+				"cannot read and will ignore. Enable this only once all of your instances are updated.",
+				"Instances always understand messages without embedded punishments, regardless of this setting."})
+		@DefaultBoolean(false)
+		boolean embedPunishments();
+
+		@ConfKey("tcp-mesh")
+		@SubSection
+		TcpMesh tcpMesh();
+
+		@ConfHeader({"Settings for the TCP_MESH synchronization mode.",
+				"Each instance listens for connections from the other instances, and connects to each of them.",
+				"With this mode, poll-rate-millis controls how soon missed messages are caught up on after reconnecting."})
+		interface TcpMesh {
+
+			@ConfKey("bind-address")
+			@ConfComments({"The address on which to listen for connections from the other instances.",
+					"Use 0.0.0.0 to listen on all interfaces."})
+			@DefaultString("127.0.0.1")
+			String bindAddress();
+
+			@ConfComments("The port on which to listen for connections from the other instances")
+			@DefaultInteger(26730)
+			int port();
+
+			@ConfComments({"The other instances, as host:port. The port is that on which the other instance listens.",
+					"Every instance should list all of the others."})
+			@DefaultStrings({})
+			List<String> peers();
+
+			@ConfKey("shared-secret")
+			@ConfComments({"A secret which all instances must share. Connections presenting a different secret",
+					"are refused. Leave blank to accept any connection, which is only safe if the port",
+					"cannot be reached by untrusted parties."})
+			@DefaultString("")
+			String sharedSecret();
+
+			@ConfKey("reconnect-interval-millis")
+			@ConfComments("How often to retry connecting to unreachable instances, in milliseconds")
+			@DefaultInteger(5000)
+			int reconnectIntervalMillis();
+		}
+
 		default boolean enabled() {
-			return mode() == SyncMode.ANSI_SQL;
+			return mode() != SyncMode.NONE;
 		}
 	}
 
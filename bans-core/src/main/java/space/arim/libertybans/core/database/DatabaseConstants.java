@@ -51,7 +51,8 @@ public final class DatabaseConstants {
 	public static Table<?>[] allTables(TableOrder tableOrder) {
 		// Referees first, referents last with respect to foreign keys
 		Table<?>[] tables = new Table[] {
-				NAMES, ADDRESSES, HISTORY, BANS, MUTES, WARNS, PUNISHMENTS, VICTIMS, MESSAGES, REVISION
+				NAMES, ADDRESSES, BAN_APPLICABILITY, MUTE_APPLICABILITY, WARN_APPLICABILITY,
+				HISTORY, BANS, MUTES, WARNS, PUNISHMENTS, VICTIMS, MESSAGES, REVISION
 		};
 		if (tableOrder == TableOrder.REFERENTS_FIRST) {
 			// Reverse array
@@ -24,6 +24,7 @@ import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 
+import space.arim.libertybans.core.database.execute.QueryMetrics;
 import space.arim.libertybans.core.punish.GlobalEnforcement;
 import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.concurrent.EnhancedExecutor;
@@ -43,29 +44,35 @@ public class DatabaseManager implements Part {
 	private final Configs configs;
 	private final Time time;
 	private final GlobalEnforcement globalEnforcement;
+	private final QueryMetrics queryMetrics;
 
 	private volatile StandardDatabase database;
 
 	@Inject
 	public DatabaseManager(@Named("folder") Path folder, FactoryOfTheFuture futuresFactory,
 						   EnhancedExecutor enhancedExecutor, Configs configs, Time time,
-						   GlobalEnforcement globalEnforcement) {
+						   GlobalEnforcement globalEnforcement, QueryMetrics queryMetrics) {
 		this.folder = folder;
 		this.futuresFactory = futuresFactory;
 		this.enhancedExecutor = enhancedExecutor;
 		this.configs = configs;
 		this.time = time;
 		this.globalEnforcement = globalEnforcement;
+		this.queryMetrics = queryMetrics;
 	}
 
 	public FactoryOfTheFuture futuresFactory() {
 		return futuresFactory;
 	}
 
-	EnhancedExecutor enhancedExecutor() {
+	public EnhancedExecutor enhancedExecutor() {
 		return enhancedExecutor;
 	}
 
+	public QueryMetrics queryMetrics() {
+		return queryMetrics;
+	}
+
 	Configs configs() {
 		return configs;
 	}
@@ -92,6 +99,7 @@ public class DatabaseManager implements Part {
 		}
 		database.startTasks(time);
 		this.database = database;
+		queryMetrics.start(configs.getSqlConfig().metrics(), enhancedExecutor);
 	}
 	
 	@Override
@@ -114,10 +122,13 @@ public class DatabaseManager implements Part {
 
 		database.startTasks(time);
 		this.database = database;
+		queryMetrics.stop();
+		queryMetrics.start(configs.getSqlConfig().metrics(), enhancedExecutor);
 	}
 
 	@Override
 	public void shutdown() {
+		queryMetrics.stop();
 		StandardDatabase database = this.database;
 		database.cancelTasks();
 		database.closeCompletely();
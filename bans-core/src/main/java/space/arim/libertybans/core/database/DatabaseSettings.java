@@ -26,14 +26,19 @@ import java.sql.Connection;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import javax.sql.DataSource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.util.DriverDataSource;
 
 import space.arim.libertybans.core.database.flyway.MigrateWithFlyway;
 import space.arim.libertybans.core.database.flyway.MigrationFailedException;
@@ -60,6 +65,7 @@ public class DatabaseSettings {
 	private DatabaseSettingsConfig config;
 	private Vendor vendor;
 	private HikariConfig hikariConf;
+	private String jdbcUrl;
 
 	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
@@ -102,14 +108,33 @@ public class DatabaseSettings {
 		HikariDataSource hikariDataSource = createDataSource(config);
 
 		JooqContext jooqContext = new JooqContext(vendor.dialect());
-		ExecutorService threadPool = Executors.newFixedThreadPool(
-				hikariConf.getMaximumPoolSize(),
-				SimpleThreadFactory.create("Database")
-		);
+		int poolSize = hikariConf.getMaximumPoolSize();
+		ExecutorService virtualThreads = null;
+		if (config.useVirtualThreads()) {
+			virtualThreads = VirtualThreads.newThreadPerTaskExecutor("Database").orElse(null);
+			if (virtualThreads == null) {
+				logger.warn("Virtual threads were enabled in the configuration, but they require Java 21 " +
+						"or greater. The database thread pool will be used instead.");
+			}
+		}
+		ExecutorService threadPool;
+		JooqQueryExecutor queryExecutor;
+		if (virtualThreads != null) {
+			// Any number of threads may be started, so limit concurrent queries to the pool size
+			threadPool = virtualThreads;
+			queryExecutor = new JooqQueryExecutor(
+					jooqContext, hikariDataSource, manager.futuresFactory(), manager.enhancedExecutor(),
+					manager.queryMetrics(), threadPool, new Semaphore(poolSize)
+			);
+		} else {
+			threadPool = Executors.newFixedThreadPool(poolSize, SimpleThreadFactory.create("Database"));
+			queryExecutor = new JooqQueryExecutor(
+					jooqContext, hikariDataSource, manager.futuresFactory(), manager.enhancedExecutor(),
+					manager.queryMetrics(), threadPool
+			);
+		}
 		StandardDatabase database  = new StandardDatabase(
-				manager, vendor, hikariDataSource,
-				new JooqQueryExecutor(jooqContext, hikariDataSource, manager.futuresFactory(), threadPool),
-				threadPool
+				manager, vendor, hikariDataSource, createDedicatedDataSource(), queryExecutor, threadPool
 		);
 
 		MigrateWithFlyway migrateWithFlyway = new MigrateWithFlyway(hikariDataSource, vendor);
@@ -179,7 +204,7 @@ public class DatabaseSettings {
 	}
 
 	private void setConfiguredDriver() {
-		String jdbcUrl = getBaseUrl() + getUrlProperties();
+		jdbcUrl = getBaseUrl() + getUrlProperties();
 		JdbcDriver jdbcDriver = vendor.driver();
 
 		if (config.useTraditionalJdbcUrl()) {
@@ -296,6 +321,26 @@ public class DatabaseSettings {
 		return vendor.driver().formatConnectionProperties(properties);
 	}
 	
+	/**
+	 * Creates a data source for connections outside the connection pool, such as those held
+	 * open indefinitely. Connections are opened using the driver, utilizing the context classloader
+	 *
+	 * @return the data source
+	 */
+	private DataSource createDedicatedDataSource() {
+		Thread currentThread = Thread.currentThread();
+		ClassLoader initialContextLoader = currentThread.getContextClassLoader();
+		currentThread.setContextClassLoader(getClass().getClassLoader());
+		try {
+			return new DriverDataSource(
+					jdbcUrl, vendor.driver().driverClassName(), new Properties(),
+					hikariConf.getUsername(), hikariConf.getPassword()
+			);
+		} finally {
+			currentThread.setContextClassLoader(initialContextLoader);
+		}
+	}
+
 	/**
 	 * Sets the driver class name utilizing the context classloader
 	 * 
@@ -56,6 +56,16 @@ public interface DatabaseSettingsConfig {
 	@ConfDefault.DefaultInteger(6)
 	int poolSize();
 
+	@ConfKey("use-virtual-threads")
+	@ConfComments({
+			"",
+			"Whether to run queries on virtual threads instead of the thread pool.",
+			"Queries waiting for a connection then no longer occupy a platform thread each.",
+			"The number of concurrent queries is still limited to the connection pool size.",
+			"Requires Java 21 or greater. On older Java versions, the thread pool is used regardless."})
+	@ConfDefault.DefaultBoolean(false)
+	boolean useVirtualThreads();
+
 	@SubSection
 	@ConfComments({
 			"",
@@ -49,4 +49,13 @@ public interface InternalDatabase extends QueryExecutor {
 	 * @throws SQLException if the connection could not be acquired
 	 */
 	Connection getConnection() throws SQLException;
+
+	/**
+	 * Opens a new JDBC connection outside the connection pool, for use over long periods.
+	 * The caller is responsible for closing the connection.
+	 *
+	 * @return the dedicated JDBC connection
+	 * @throws SQLException if the connection could not be opened
+	 */
+	Connection openDedicatedConnection() throws SQLException;
 }
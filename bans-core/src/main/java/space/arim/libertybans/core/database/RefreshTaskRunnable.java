@@ -72,13 +72,13 @@ class RefreshTaskRunnable implements Runnable {
 		// These DELETE queries may delete many rows. As such, they are run in single-query transactions
 		// Grouping them together in the same transaction would require unnecessary exertion from the RDMS
 		for (PunishmentType type : MiscUtil.punishmentTypesExcludingKick()) {
-			database.executeWithRetry(((context, transaction) -> {
+			database.executeWithRetry("RefreshTask.clearExpiredPunishments", ((context, transaction) -> {
 				Instant currentTime = time.currentTimestamp();
 				database.clearExpiredPunishments(context, type, currentTime);
 			})).join();
 		}
 		if (manager.configs().getSqlConfig().synchronization().enabled()) {
-			database.executeWithRetry((context, transaction) -> {
+			database.executeWithRetry("RefreshTask.clearExpiredMessages", (context, transaction) -> {
 				Instant deleteMessagesBefore = time.currentTimestamp().minus(MESSAGE_EXPIRATION_TIME);
 				context
 						.deleteFrom(MESSAGES)
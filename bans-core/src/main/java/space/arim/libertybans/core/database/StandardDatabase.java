@@ -40,6 +40,7 @@ import space.arim.omnibus.util.concurrent.DelayCalculators;
 import space.arim.omnibus.util.concurrent.EnhancedExecutor;
 import space.arim.omnibus.util.concurrent.ScheduledTask;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.Duration;
@@ -54,6 +55,7 @@ public final class StandardDatabase implements InternalDatabase, AutoCloseable {
 	private final DatabaseManager manager;
 	private final Vendor vendor;
 	private final HikariDataSource dataSource;
+	private final DataSource dedicatedDataSource;
 	private final QueryExecutor queryExecutor;
 	private final ExecutorService threadPool;
 	private final PunishmentDatabase external = new External();
@@ -64,10 +66,12 @@ public final class StandardDatabase implements InternalDatabase, AutoCloseable {
 	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
 	StandardDatabase(DatabaseManager manager, Vendor vendor,
-					 HikariDataSource dataSource, QueryExecutor queryExecutor, ExecutorService threadPool) {
+					 HikariDataSource dataSource, DataSource dedicatedDataSource,
+					 QueryExecutor queryExecutor, ExecutorService threadPool) {
 		this.manager = manager;
 		this.vendor = vendor;
 		this.dataSource = dataSource;
+		this.dedicatedDataSource = dedicatedDataSource;
 		this.queryExecutor = queryExecutor;
 		this.threadPool = threadPool;
 	}
@@ -179,6 +183,11 @@ public final class StandardDatabase implements InternalDatabase, AutoCloseable {
 		return dataSource.getConnection();
 	}
 
+	@Override
+	public Connection openDedicatedConnection() throws SQLException {
+		return dedicatedDataSource.getConnection();
+	}
+
 	private class External implements PunishmentDatabase {
 
 		@Override
@@ -68,6 +68,11 @@ public enum Vendor {
 		return driver == JdbcDriver.PG_JDBC;
 	}
 
+	public boolean hasListenNotify() {
+		// CockroachDB does not implement LISTEN/NOTIFY
+		return this == POSTGRES;
+	}
+
 	public SQLDialect dialect() {
 		switch (this) {
 		case HSQLDB:
@@ -166,6 +171,13 @@ public enum Vendor {
 		return "BLOB";
 	}
 
+	public String identityType() {
+		if (isMySQLLike()) {
+			return "BIGINT NOT NULL AUTO_INCREMENT";
+		}
+		return "BIGINT GENERATED BY DEFAULT AS IDENTITY";
+	}
+
 	String getConnectionInitSql() {
 		switch (this) {
 		case HSQLDB:
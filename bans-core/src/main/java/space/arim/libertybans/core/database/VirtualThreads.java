@@ -0,0 +1,72 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.omnibus.util.ThisClass;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual thread executors when the runtime supports them. Since the plugin is
+ * compiled for Java 11, the Java 21 API is accessed reflectively.
+ *
+ */
+final class VirtualThreads {
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	private VirtualThreads() {}
+
+	/**
+	 * Creates an executor which starts a new virtual thread for each task
+	 *
+	 * @param componentName the component name, used in thread names
+	 * @return the executor, or an empty optional if virtual threads are unavailable
+	 */
+	static Optional<ExecutorService> newThreadPerTaskExecutor(String componentName) {
+		if (Runtime.version().feature() < 21) {
+			// Virtual threads are a preview feature before Java 21
+			return Optional.empty();
+		}
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderClass.getMethod("name", String.class, long.class)
+					.invoke(builder, "LibertyBans-" + componentName + "-", 1L);
+			ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+			return Optional.of((ExecutorService) Executors.class
+					.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+					.invoke(null, threadFactory));
+		} catch (InvocationTargetException ex) {
+			logger.warn("Unable to create virtual thread executor", ex.getCause());
+			return Optional.empty();
+		} catch (ReflectiveOperationException ex) {
+			logger.warn("Virtual threads are not available on this runtime", ex);
+			return Optional.empty();
+		}
+	}
+
+}
@@ -21,16 +21,25 @@ package space.arim.libertybans.core.database.execute;
 
 import org.jooq.DSLContext;
 import org.jooq.exception.DataAccessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import space.arim.libertybans.core.database.jooq.JooqContext;
 import space.arim.omnibus.util.ArraysUtil;
+import space.arim.omnibus.util.ThisClass;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadLocalRandom;
 
 public final class JooqQueryExecutor implements QueryExecutor {
@@ -38,14 +47,61 @@ public final class JooqQueryExecutor implements QueryExecutor {
 	private final JooqContext jooqContext;
 	private final DataSource dataSource;
 	private final FactoryOfTheFuture futuresFactory;
+	private final EnhancedExecutor enhancedExecutor;
 	private final Executor threadPool;
+	private final QueryMetrics queryMetrics;
+	private final Semaphore connectionPermits;
 
-	public JooqQueryExecutor(JooqContext jooqContext, DataSource dataSource,
-							 FactoryOfTheFuture futuresFactory, Executor threadPool) {
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	/**
+	 * Creates from an executor whose own size limits the number of concurrent queries,
+	 * such as a fixed thread pool
+	 *
+	 * @param jooqContext the jooq context
+	 * @param dataSource the data source
+	 * @param futuresFactory the futures factory
+	 * @param enhancedExecutor the enhanced executor, used to schedule retries
+	 * @param queryMetrics the query metrics to record to
+	 * @param threadPool the thread pool
+	 */
+	public JooqQueryExecutor(JooqContext jooqContext, DataSource dataSource, FactoryOfTheFuture futuresFactory,
+							 EnhancedExecutor enhancedExecutor, QueryMetrics queryMetrics, Executor threadPool) {
+		this(jooqContext, dataSource, futuresFactory, enhancedExecutor, queryMetrics,
+				threadPool, new Semaphore(Integer.MAX_VALUE));
+	}
+
+	/**
+	 * Creates from an executor which may run any number of queries concurrently, such as
+	 * one which starts a virtual thread per task. A permit is held while a connection is in use.
+	 *
+	 * @param jooqContext the jooq context
+	 * @param dataSource the data source
+	 * @param futuresFactory the futures factory
+	 * @param enhancedExecutor the enhanced executor, used to schedule retries
+	 * @param queryMetrics the query metrics to record to
+	 * @param threadPool the executor
+	 * @param connectionPermits the permits limiting the number of concurrently used connections
+	 */
+	public JooqQueryExecutor(JooqContext jooqContext, DataSource dataSource, FactoryOfTheFuture futuresFactory,
+							 EnhancedExecutor enhancedExecutor, QueryMetrics queryMetrics,
+							 Executor threadPool, Semaphore connectionPermits) {
 		this.jooqContext = Objects.requireNonNull(jooqContext, "jooqContext");
 		this.dataSource = Objects.requireNonNull(dataSource, "dataSource");
 		this.futuresFactory = Objects.requireNonNull(futuresFactory, "futuresFactory");
+		this.enhancedExecutor = Objects.requireNonNull(enhancedExecutor, "enhancedExecutor");
+		this.queryMetrics = Objects.requireNonNull(queryMetrics, "queryMetrics");
 		this.threadPool = Objects.requireNonNull(threadPool, "threadPool");
+		this.connectionPermits = Objects.requireNonNull(connectionPermits, "connectionPermits");
+	}
+
+	private void acquirePermit() {
+		try {
+			connectionPermits.acquire();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new DataAccessException("Interrupted while waiting for a connection", ex);
+		}
 	}
 
 	private static <E extends Throwable> E rollbackBeforeThrow(Connection connection, E reason) throws E {
@@ -57,8 +113,29 @@ public final class JooqQueryExecutor implements QueryExecutor {
 		throw reason;
 	}
 
-	private <R> R obtainUnfailing(SQLFunction<R> command) {
+	/**
+	 * Approximates the number of rows returned by a query from its result
+	 *
+	 * @param value the query result
+	 * @return the row count
+	 */
+	private static long rowCount(Object value) {
+		if (value instanceof Collection) {
+			return ((Collection<?>) value).size();
+		}
+		if (value instanceof Map) {
+			return ((Map<?, ?>) value).size();
+		}
+		if (value instanceof Optional) {
+			return ((Optional<?>) value).isPresent() ? 1 : 0;
+		}
+		return (value == null) ? 0 : 1;
+	}
+
+	private <R> R obtainUnfailing(SQLFunction<R> command, QuerySample sample) {
+		acquirePermit();
 		try (Connection connection = dataSource.getConnection()) {
+			sample.connectionAcquired();
 			if (command.isReadOnly()) {
 				connection.setReadOnly(true);
 			}
@@ -71,10 +148,14 @@ public final class JooqQueryExecutor implements QueryExecutor {
 				throw rollbackBeforeThrow(connection, ex);
 			}
 			connection.commit();
+			sample.rows = rowCount(value);
 			return value;
 
 		} catch (SQLException ex) {
 			throw new DataAccessException("Miscellaneous failure", ex);
+		} finally {
+			sample.endAttempt();
+			connectionPermits.release();
 		}
 	}
 
@@ -93,68 +174,116 @@ public final class JooqQueryExecutor implements QueryExecutor {
 		return ex.getErrorCode() == 40001;
 	}
 
-	private static void exponentialBackoff(int retry) {
-		int sleepMs = 50 * ((int) Math.pow(2, retry)) + ThreadLocalRandom.current().nextInt(0, 100);
-		try {
-			Thread.sleep(sleepMs);
-		} catch (InterruptedException ex) {
-			Thread.currentThread().interrupt();
-			throw new RuntimeException("Interrupted during retry back-off", ex);
-		}
+	private static Duration exponentialBackoff(int retry) {
+		return Duration.ofMillis(50L * (1L << retry) + ThreadLocalRandom.current().nextInt(0, 100));
 	}
 
-	private <R> R obtainWithRetry(int retryCount, SQLTransactionalFunction<R> command) {
-		// Collect serialization failures and report them
-		Exception[] serializationFailures = new Exception[0];
+	private <R> CentralisedFuture<R> obtainWithRetry(int retry, int retryCount, SQLTransactionalFunction<R> command,
+													 QuerySample sample, Exception[] serializationFailures) {
+		// Time queued for a thread counts as waiting for a connection, since the pool is sized to match
+		sample.beginAttempt();
+		return futuresFactory.supplyAsync(() -> {
+			try {
+				return attemptTransaction(command, sample);
+			} catch (RuntimeException ex) {
+				sample.failed = true;
+				queryMetrics.record(sample);
+				throw ex;
+			}
+		}, threadPool).thenCompose((attempt) -> {
+			if (attempt.serializationFailure == null) {
+				sample.rows = rowCount(attempt.value);
+				queryMetrics.record(sample);
+				return futuresFactory.completedFuture(attempt.value);
+			}
+			// Collect serialization failures and report them
+			Exception[] failures = ArraysUtil.expandAndInsert(serializationFailures, attempt.serializationFailure, 0);
+			int nextRetry = retry + 1;
+			RetryStatistics retryStatistics = queryMetrics.retryStatistics();
+			if (nextRetry >= retryCount) {
+				retryStatistics.recordExhausted();
+				sample.failed = true;
+				queryMetrics.record(sample);
+				DataAccessException failure = new DataAccessException(
+						"Retry count exceeded. Here are the serialization failures in reverse order of occurrence.");
+				for (Exception serializationFailure : failures) {
+					failure.addSuppressed(serializationFailure);
+				}
+				return futuresFactory.failedFuture(failure);
+			}
+			/*
+			The connection was already released, so other queries can use it in the meantime.
+			Likewise, no thread is occupied while backing off.
+			 */
+			Duration backoff = exponentialBackoff(nextRetry);
+			retryStatistics.recordRetry(backoff.toMillis());
+			sample.retries++;
+			logger.debug("Serialization failure in {} on attempt {} of {}. Retrying in {} ms",
+					sample.name, nextRetry, retryCount, backoff.toMillis());
+			CentralisedFuture<Void> backoffFuture = futuresFactory.newIncompleteFuture();
+			enhancedExecutor.schedule(() -> backoffFuture.complete(null), backoff);
+			return backoffFuture.thenCompose(
+					(ignore) -> obtainWithRetry(nextRetry, retryCount, command, sample, failures));
+		});
+	}
 
+	private <R> Attempt<R> attemptTransaction(SQLTransactionalFunction<R> command, QuerySample sample) {
+		acquirePermit();
 		try (Connection connection = dataSource.getConnection()) {
+			sample.connectionAcquired();
 			DSLContext context = jooqContext.createContext(connection);
-
-			for (int retry = 0; retry < retryCount; retry++) {
-				if (retry != 0) {
-					// This is not the first attempt
+			RollbackTrackingTransaction transaction = new RollbackTrackingTransaction(context, connection);
+			R value;
+			try {
+				value = command.obtain(context, transaction);
+			} catch (DataAccessException ex) {
+				SQLException rootCause;
+				if ((rootCause = ex.getCause(SQLException.class)) != null && isSerializationFailure(rootCause)) {
 					connection.rollback();
-					exponentialBackoff(retry);
+					return Attempt.retry(ex);
 				}
-				RollbackTrackingTransaction transaction = new RollbackTrackingTransaction(context, connection);
-				R value;
+				throw rollbackBeforeThrow(connection, ex);
+			} catch (RuntimeException ex) {
+				throw rollbackBeforeThrow(connection, ex);
+			}
+			if (transaction.wasNotRolledBack()) {
 				try {
-					value = command.obtain(context, transaction);
-				} catch (DataAccessException ex) {
-					SQLException rootCause;
-					if ((rootCause = ex.getCause(SQLException.class)) != null && isSerializationFailure(rootCause)) {
-						// Retry
-						serializationFailures = ArraysUtil.expandAndInsert(serializationFailures, ex, 0);
-						continue;
+					connection.commit();
+				} catch (SQLException ex) {
+					if (isSerializationFailure(ex)) {
+						connection.rollback();
+						return Attempt.retry(ex);
 					}
-					throw rollbackBeforeThrow(connection, ex);
-				} catch (RuntimeException ex) {
-					throw rollbackBeforeThrow(connection, ex);
+					throw rollbackBeforeThrow(connection, new DataAccessException("Unable to commit", ex));
 				}
-				if (transaction.wasNotRolledBack()) {
-					try {
-						connection.commit();
-					} catch (SQLException ex) {
-						if (isSerializationFailure(ex)) {
-							// Retry
-							serializationFailures = ArraysUtil.expandAndInsert(serializationFailures, ex, 0);
-							continue;
-						}
-						throw rollbackBeforeThrow(connection, new DataAccessException("Unable to commit", ex));
-					}
-				}
-				return value;
 			}
+			return Attempt.success(value);
 
 		} catch (SQLException ex) {
 			throw new DataAccessException("Unable to manage connection", ex);
+		} finally {
+			sample.endAttempt();
+			connectionPermits.release();
+		}
+	}
+
+	private static final class Attempt<R> {
+
+		final R value;
+		final Exception serializationFailure;
+
+		private Attempt(R value, Exception serializationFailure) {
+			this.value = value;
+			this.serializationFailure = serializationFailure;
+		}
+
+		static <R> Attempt<R> success(R value) {
+			return new Attempt<>(value, null);
 		}
-		DataAccessException failure = new DataAccessException(
-				"Retry count exceeded. Here are the serialization failures in reverse order of occurrence.");
-		for (Exception serializationFailure : serializationFailures) {
-			failure.addSuppressed(serializationFailure);
+
+		static <R> Attempt<R> retry(Exception serializationFailure) {
+			return new Attempt<>(null, serializationFailure);
 		}
-		throw failure;
 	}
 
 	@Override
@@ -186,6 +315,11 @@ public final class JooqQueryExecutor implements QueryExecutor {
 				return command.isReadOnly();
 			}
 
+			@Override
+			public String name() {
+				return command.name();
+			}
+
 			@Override
 			public Void obtain(DSLContext context) throws RuntimeException {
 				command.run(context);
@@ -197,13 +331,29 @@ public final class JooqQueryExecutor implements QueryExecutor {
 
 	@Override
 	public <R> CentralisedFuture<R> query(SQLFunction<R> command) {
-		return futuresFactory.supplyAsync(() -> obtainUnfailing(command), threadPool);
+		QuerySample sample = new QuerySample(command.name());
+		sample.beginAttempt();
+		return futuresFactory.supplyAsync(() -> {
+			try {
+				return obtainUnfailing(command, sample);
+			} catch (RuntimeException ex) {
+				sample.failed = true;
+				throw ex;
+			} finally {
+				queryMetrics.record(sample);
+			}
+		}, threadPool);
 	}
 
 	@Override
 	public CentralisedFuture<Void> executeWithRetry(int retryCount, SQLTransactionalRunnable command) {
 		class RunnableAsFunction implements SQLTransactionalFunction<Void> {
 
+			@Override
+			public String name() {
+				return command.name();
+			}
+
 			@Override
 			public Void obtain(DSLContext context, Transaction transaction) throws RuntimeException {
 				command.run(context, transaction);
@@ -215,7 +365,9 @@ public final class JooqQueryExecutor implements QueryExecutor {
 
 	@Override
 	public <R> CentralisedFuture<R> queryWithRetry(int retryCount, SQLTransactionalFunction<R> command) {
-		return futuresFactory.supplyAsync(() -> obtainWithRetry(retryCount, command), threadPool);
+		queryMetrics.retryStatistics().recordTransaction();
+		QuerySample sample = new QuerySample(command.name());
+		return obtainWithRetry(0, retryCount, command, sample, new Exception[0]);
 	}
 
 }
@@ -0,0 +1,145 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.database.execute;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of durations, recorded in microseconds. <br>
+ * <br>
+ * Buckets are log-linear in the manner of HdrHistogram: each power of two is divided into
+ * 8 sub-buckets, so that percentiles are accurate to within 12.5%. Durations of several days
+ * or longer are counted in the last bucket.
+ *
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	/**
+	 * Values below this threshold are counted exactly
+	 */
+	private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+	private static final int MAX_EXPONENT = 38;
+	private static final int BUCKET_COUNT = LINEAR_LIMIT + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+	static int bucketIndex(long micros) {
+		if (micros < LINEAR_LIMIT) {
+			return (int) micros;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		if (exponent > MAX_EXPONENT) {
+			return BUCKET_COUNT - 1;
+		}
+		int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long bucketLowerBound(int index) {
+		if (index < LINEAR_LIMIT) {
+			return index;
+		}
+		int offset = index - LINEAR_LIMIT;
+		int exponent = offset / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+		int subBucket = offset % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + subBucket)) << (exponent - SUB_BUCKET_BITS);
+	}
+
+	/**
+	 * Records a duration
+	 *
+	 * @param nanos the duration in nanoseconds
+	 */
+	void record(long nanos) {
+		long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(nanos, 0L));
+		buckets.incrementAndGet(bucketIndex(micros));
+		count.increment();
+		sum.add(micros);
+		max.accumulate(micros);
+	}
+
+	/**
+	 * Gets the number of recorded durations
+	 *
+	 * @return the count
+	 */
+	public long count() {
+		return count.sum();
+	}
+
+	/**
+	 * Gets the mean of recorded durations
+	 *
+	 * @return the mean in microseconds, or 0 if nothing was recorded
+	 */
+	public long meanMicros() {
+		long count = count();
+		return (count == 0) ? 0L : sum.sum() / count;
+	}
+
+	/**
+	 * Gets the longest recorded duration
+	 *
+	 * @return the maximum in microseconds
+	 */
+	public long maxMicros() {
+		return max.get();
+	}
+
+	/**
+	 * Gets the duration at or below which the given proportion of durations were recorded.
+	 * Concurrent recording may skew the result slightly.
+	 *
+	 * @param percentile the percentile, from 0 to 100
+	 * @return the approximate percentile value in microseconds, or 0 if nothing was recorded
+	 */
+	public long percentileMicros(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100");
+		}
+		long total = 0;
+		long[] counts = new long[BUCKET_COUNT];
+		for (int n = 0; n < counts.length; n++) {
+			total += (counts[n] = buckets.get(n));
+		}
+		if (total == 0) {
+			return 0L;
+		}
+		long target = Math.max(1L, (long) Math.ceil(total * percentile / 100D));
+		long cumulative = 0;
+		for (int n = 0; n < counts.length; n++) {
+			cumulative += counts[n];
+			if (cumulative >= target) {
+				long upperBound = (n + 1 < BUCKET_COUNT) ? bucketLowerBound(n + 1) - 1 : Long.MAX_VALUE;
+				return Math.min(upperBound, maxMicros());
+			}
+		}
+		return maxMicros();
+	}
+
+}
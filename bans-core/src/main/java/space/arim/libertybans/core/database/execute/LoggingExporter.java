@@ -0,0 +1,60 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.database.execute;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.omnibus.util.ThisClass;
+
+import java.util.List;
+
+/**
+ * Writes a summary of query statistics to the server log
+ *
+ */
+final class LoggingExporter implements QueryMetricsExporter {
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	@Override
+	public void export(List<QueryStatistics> statistics, RetryStatistics retryStatistics) {
+		if (statistics.isEmpty()) {
+			return;
+		}
+		StringBuilder summary = new StringBuilder("Query statistics since startup:");
+		for (QueryStatistics query : statistics) {
+			LatencyHistogram connectionWait = query.connectionWait();
+			LatencyHistogram execution = query.execution();
+			summary.append("\n  ").append(query.name())
+					.append(": executions=").append(query.executions())
+					.append(", failures=").append(query.failures())
+					.append(", retries=").append(query.retries())
+					.append(", rows=").append(query.rows())
+					.append(", wait p50/p99=").append(connectionWait.percentileMicros(50))
+					.append('/').append(connectionWait.percentileMicros(99)).append("us")
+					.append(", execution p50/p99/max=").append(execution.percentileMicros(50))
+					.append('/').append(execution.percentileMicros(99))
+					.append('/').append(execution.maxMicros()).append("us");
+		}
+		summary.append("\n  ").append(retryStatistics);
+		logger.info(summary.toString());
+	}
+
+}
@@ -76,6 +76,17 @@ public interface QueryExecutor {
 		return executeWithRetry(DEFAULT_RETRIES, command);
 	}
 
+	/**
+	 * Retrieves a command until it succeeds, recording its statistics under the given name
+	 *
+	 * @param name the query name
+	 * @param command the operation to run
+	 * @return a future completed once the command is successfully run
+	 */
+	default CentralisedFuture<Void> executeWithRetry(String name, SQLTransactionalRunnable command) {
+		return executeWithRetry(SQLTransactionalRunnable.named(name, command));
+	}
+
 	/**
 	 * Retrieves a command until it succeeds
 	 *
@@ -96,4 +107,16 @@ public interface QueryExecutor {
 	default <R> CentralisedFuture<R> queryWithRetry(SQLTransactionalFunction<R> command) {
 		return queryWithRetry(DEFAULT_RETRIES, command);
 	}
+
+	/**
+	 * Retrieves a command until it succeeds, recording its statistics under the given name
+	 *
+	 * @param name the query name
+	 * @param command the operation to run
+	 * @param <R> the return value
+	 * @return a future completed once the command is successfully run
+	 */
+	default <R> CentralisedFuture<R> queryWithRetry(String name, SQLTransactionalFunction<R> command) {
+		return queryWithRetry(SQLTransactionalFunction.named(name, command));
+	}
 }
@@ -0,0 +1,204 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.database.execute;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.omnibus.util.ThisClass;
+import space.arim.omnibus.util.concurrent.DelayCalculators;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
+import space.arim.omnibus.util.concurrent.ScheduledTask;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the statistics of each named query run by the {@link JooqQueryExecutor}. <br>
+ * <br>
+ * Queries are named using {@link SQLFunction#name()} and its counterparts. Unnamed queries
+ * are grouped by the class which submitted them.
+ *
+ */
+@Singleton
+public final class QueryMetrics {
+
+	private final Map<String, QueryStatistics> statistics = new ConcurrentHashMap<>();
+	private final RetryStatistics retryStatistics = new RetryStatistics();
+	private final Set<QueryMetricsExporter> exporters = new CopyOnWriteArraySet<>();
+
+	private volatile boolean enabled = true;
+	private volatile long slowQueryThresholdNanos;
+
+	private LoggingExporter loggingExporter;
+	private ScheduledTask exportTask;
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	@Inject
+	public QueryMetrics() {}
+
+	/**
+	 * Applies the configuration and begins exporting statistics periodically
+	 *
+	 * @param config the configuration
+	 * @param enhancedExecutor the executor with which to schedule exports
+	 */
+	public synchronized void start(SqlConfig.Metrics config, EnhancedExecutor enhancedExecutor) {
+		enabled = config.enable();
+		slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(config.slowQueryThresholdMillis());
+		if (!enabled) {
+			return;
+		}
+		if (config.logSummary()) {
+			addExporter(loggingExporter = new LoggingExporter());
+		}
+		exportTask = enhancedExecutor.scheduleRepeating(
+				this::export,
+				Duration.ofSeconds(config.exportIntervalSeconds()),
+				DelayCalculators.fixedDelay()
+		);
+	}
+
+	/**
+	 * Stops exporting statistics. Statistics are kept
+	 *
+	 */
+	public synchronized void stop() {
+		if (exportTask != null) {
+			exportTask.cancel();
+			exportTask = null;
+		}
+		if (loggingExporter != null) {
+			removeExporter(loggingExporter);
+			loggingExporter = null;
+		}
+	}
+
+	void record(QuerySample sample) {
+		long slowQueryThresholdNanos = this.slowQueryThresholdNanos;
+		if (slowQueryThresholdNanos > 0) {
+			long elapsedNanos = sample.elapsedNanos();
+			if (elapsedNanos >= slowQueryThresholdNanos) {
+				logger.warn("Slow query {} took {} ms, of which {} ms was spent waiting for a connection " +
+								"and {} ms executing. Retries: {}. Failed: {}",
+						sample.name, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+						TimeUnit.NANOSECONDS.toMillis(sample.connectionWaitNanos),
+						TimeUnit.NANOSECONDS.toMillis(sample.executionNanos), sample.retries, sample.failed);
+			}
+		}
+		if (enabled) {
+			statistics.computeIfAbsent(sample.name, QueryStatistics::new).record(sample);
+		}
+	}
+
+	/**
+	 * Gets the statistics of each named query
+	 *
+	 * @return the statistics, sorted by query name
+	 */
+	public List<QueryStatistics> statistics() {
+		List<QueryStatistics> sorted = new ArrayList<>(statistics.values());
+		sorted.sort(Comparator.comparing(QueryStatistics::name));
+		return sorted;
+	}
+
+	/**
+	 * Gets the statistics of a single query
+	 *
+	 * @param name the query name
+	 * @return the statistics if the query was executed
+	 */
+	public Optional<QueryStatistics> statistics(String name) {
+		return Optional.ofNullable(statistics.get(name));
+	}
+
+	/**
+	 * Gets overall statistics on transaction retries
+	 *
+	 * @return the retry statistics
+	 */
+	public RetryStatistics retryStatistics() {
+		return retryStatistics;
+	}
+
+	public void addExporter(QueryMetricsExporter exporter) {
+		exporters.add(exporter);
+	}
+
+	public void removeExporter(QueryMetricsExporter exporter) {
+		exporters.remove(exporter);
+	}
+
+	/**
+	 * Passes the current statistics to all exporters
+	 *
+	 */
+	public void export() {
+		Collection<QueryMetricsExporter> exporters = this.exporters;
+		if (exporters.isEmpty()) {
+			return;
+		}
+		List<QueryStatistics> statistics = statistics();
+		for (QueryMetricsExporter exporter : exporters) {
+			try {
+				exporter.export(statistics, retryStatistics);
+			} catch (RuntimeException ex) {
+				logger.warn("Exception while exporting query statistics with {}", exporter, ex);
+			}
+		}
+	}
+
+	private static final ClassValue<String> DERIVED_NAMES = new ClassValue<>() {
+		@Override
+		protected String computeValue(Class<?> type) {
+			String name = type.getName();
+			name = name.substring(name.lastIndexOf('.') + 1);
+			// Lambdas, anonymous classes, and nested classes are attributed to the outermost class
+			int nestedIndex = name.indexOf('$');
+			if (nestedIndex > 0) {
+				name = name.substring(0, nestedIndex);
+			}
+			return name;
+		}
+	};
+
+	/**
+	 * Derives the name of an unnamed query from the class which implements it
+	 *
+	 * @param commandClass the command class
+	 * @return the derived query name
+	 */
+	static String deriveName(Class<?> commandClass) {
+		return DERIVED_NAMES.get(commandClass);
+	}
+
+}
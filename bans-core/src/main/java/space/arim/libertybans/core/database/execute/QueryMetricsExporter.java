@@ -0,0 +1,41 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.database.execute;
+
+import java.util.List;
+
+/**
+ * Receives query statistics periodically, for example to send them to a monitoring system.
+ * Exporters are registered with {@link QueryMetrics#addExporter(QueryMetricsExporter)}.
+ *
+ */
+public interface QueryMetricsExporter {
+
+	/**
+	 * Exports statistics. Statistics are cumulative since startup. <br>
+	 * <br>
+	 * Called on a background thread. Implementations should not block for long.
+	 *
+	 * @param statistics the statistics of each named query, sorted by name
+	 * @param retryStatistics overall statistics on transaction retries
+	 */
+	void export(List<QueryStatistics> statistics, RetryStatistics retryStatistics);
+
+}
@@ -0,0 +1,75 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.database.execute;
+
+/**
+ * Measurements of a single query execution, including all its retries. Not thread safe,
+ * but attempts run sequentially, each one happening-before the next.
+ *
+ */
+final class QuerySample {
+
+	final String name;
+	private final long startTime = System.nanoTime();
+	private long connectionTime;
+	private boolean holdingConnection;
+
+	long connectionWaitNanos;
+	long executionNanos;
+	long rows;
+	int retries;
+	boolean failed;
+
+	QuerySample(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Begins an attempt. Should be called when the attempt is submitted, so that time spent
+	 * queued for a thread is counted as waiting for a connection
+	 *
+	 */
+	void beginAttempt() {
+		connectionTime = System.nanoTime();
+	}
+
+	void connectionAcquired() {
+		long now = System.nanoTime();
+		connectionWaitNanos += now - connectionTime;
+		connectionTime = now;
+		holdingConnection = true;
+	}
+
+	void endAttempt() {
+		long now = System.nanoTime();
+		if (holdingConnection) {
+			executionNanos += now - connectionTime;
+			holdingConnection = false;
+		} else {
+			// Failed to acquire a connection
+			connectionWaitNanos += now - connectionTime;
+		}
+	}
+
+	long elapsedNanos() {
+		return System.nanoTime() - startTime;
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.database.execute;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics for one named query, accumulated since startup. Thread safe.
+ *
+ */
+public final class QueryStatistics {
+
+	private final String name;
+	private final LatencyHistogram connectionWait = new LatencyHistogram();
+	private final LatencyHistogram execution = new LatencyHistogram();
+	private final LongAdder rows = new LongAdder();
+	private final LongAdder retries = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+
+	QueryStatistics(String name) {
+		this.name = Objects.requireNonNull(name, "name");
+	}
+
+	void record(QuerySample sample) {
+		connectionWait.record(sample.connectionWaitNanos);
+		execution.record(sample.executionNanos);
+		rows.add(sample.rows);
+		retries.add(sample.retries);
+		if (sample.failed) {
+			failures.increment();
+		}
+	}
+
+	/**
+	 * The name of the query
+	 *
+	 * @return the query name
+	 */
+	public String name() {
+		return name;
+	}
+
+	/**
+	 * How many times the query was executed, including failed executions
+	 *
+	 * @return the number of executions
+	 */
+	public long executions() {
+		return execution.count();
+	}
+
+	/**
+	 * Time spent waiting for a database connection, summed across retries. This includes time
+	 * spent queued for a thread on which to run the query
+	 *
+	 * @return the connection wait time histogram
+	 */
+	public LatencyHistogram connectionWait() {
+		return connectionWait;
+	}
+
+	/**
+	 * Time spent executing the query while holding a connection, summed across retries
+	 *
+	 * @return the execution time histogram
+	 */
+	public LatencyHistogram execution() {
+		return execution;
+	}
+
+	/**
+	 * The total number of rows returned
+	 *
+	 * @return the row count
+	 */
+	public long rows() {
+		return rows.sum();
+	}
+
+	/**
+	 * The total number of retries after transaction serialization failure
+	 *
+	 * @return the retry count
+	 */
+	public long retries() {
+		return retries.sum();
+	}
+
+	/**
+	 * How many executions failed with an exception
+	 *
+	 * @return the failure count
+	 */
+	public long failures() {
+		return failures.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "QueryStatistics{" +
+				"name='" + name + '\'' +
+				", executions=" + executions() +
+				", rows=" + rows +
+				", retries=" + retries +
+				", failures=" + failures +
+				'}';
+	}
+}
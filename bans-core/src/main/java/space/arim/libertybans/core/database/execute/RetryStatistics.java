@@ -0,0 +1,94 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.database.execute;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the retries of transactions which failed due to transaction serialization failure.
+ * Thread safe.
+ *
+ */
+public final class RetryStatistics {
+
+	private final LongAdder transactions = new LongAdder();
+	private final LongAdder retries = new LongAdder();
+	private final LongAdder exhausted = new LongAdder();
+	private final LongAdder backoffMillis = new LongAdder();
+
+	void recordTransaction() {
+		transactions.increment();
+	}
+
+	void recordRetry(long backoffMillis) {
+		retries.increment();
+		this.backoffMillis.add(backoffMillis);
+	}
+
+	void recordExhausted() {
+		exhausted.increment();
+	}
+
+	/**
+	 * Gets the number of transactions which were started, not counting retries
+	 *
+	 * @return the number of transactions
+	 */
+	public long transactions() {
+		return transactions.sum();
+	}
+
+	/**
+	 * Gets the number of retries after serialization failure
+	 *
+	 * @return the number of retries
+	 */
+	public long retries() {
+		return retries.sum();
+	}
+
+	/**
+	 * Gets the number of transactions which failed because the retry count was exceeded
+	 *
+	 * @return the number of transactions which exhausted their retries
+	 */
+	public long exhausted() {
+		return exhausted.sum();
+	}
+
+	/**
+	 * Gets the total time spent backing off before retries, in milliseconds
+	 *
+	 * @return the total back-off time
+	 */
+	public long backoffMillis() {
+		return backoffMillis.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "RetryStatistics{" +
+				"transactions=" + transactions +
+				", retries=" + retries +
+				", exhausted=" + exhausted +
+				", backoffMillis=" + backoffMillis +
+				'}';
+	}
+}
@@ -21,20 +21,51 @@ package space.arim.libertybans.core.database.execute;
 
 import org.jooq.DSLContext;
 
+import java.util.Objects;
+
 public interface SQLFunction<R> {
 
 	default boolean isReadOnly() {
 		return false;
 	}
 
+	/**
+	 * The name under which the query's statistics are recorded. Defaults to the name of
+	 * the class which submitted the query
+	 *
+	 * @return the query name
+	 */
+	default String name() {
+		return QueryMetrics.deriveName(getClass());
+	}
+
 	R obtain(DSLContext context) throws RuntimeException;
 
 	static <R> SQLFunction<R> readOnly(SQLFunction<R> command) {
+		return readOnly(command.name(), command);
+	}
+
+	static <R> SQLFunction<R> readOnly(String name, SQLFunction<R> command) {
+		return wrap(name, true, command);
+	}
+
+	static <R> SQLFunction<R> named(String name, SQLFunction<R> command) {
+		return wrap(name, command.isReadOnly(), command);
+	}
+
+	private static <R> SQLFunction<R> wrap(String name, boolean readOnly, SQLFunction<R> command) {
+		Objects.requireNonNull(name, "name");
+		Objects.requireNonNull(command, "command");
 		return new SQLFunction<>() {
 
 			@Override
 			public boolean isReadOnly() {
-				return true;
+				return readOnly;
+			}
+
+			@Override
+			public String name() {
+				return name;
 			}
 
 			@Override
@@ -21,20 +21,51 @@ package space.arim.libertybans.core.database.execute;
 
 import org.jooq.DSLContext;
 
+import java.util.Objects;
+
 public interface SQLRunnable {
 
 	default boolean isReadOnly() {
 		return false;
 	}
 
+	/**
+	 * The name under which the query's statistics are recorded. Defaults to the name of
+	 * the class which submitted the query
+	 *
+	 * @return the query name
+	 */
+	default String name() {
+		return QueryMetrics.deriveName(getClass());
+	}
+
 	void run(DSLContext context) throws RuntimeException;
 
 	static SQLRunnable readOnly(SQLRunnable command) {
+		return readOnly(command.name(), command);
+	}
+
+	static SQLRunnable readOnly(String name, SQLRunnable command) {
+		return wrap(name, true, command);
+	}
+
+	static SQLRunnable named(String name, SQLRunnable command) {
+		return wrap(name, command.isReadOnly(), command);
+	}
+
+	private static SQLRunnable wrap(String name, boolean readOnly, SQLRunnable command) {
+		Objects.requireNonNull(name, "name");
+		Objects.requireNonNull(command, "command");
 		return new SQLRunnable() {
 
 			@Override
 			public boolean isReadOnly() {
-				return true;
+				return readOnly;
+			}
+
+			@Override
+			public String name() {
+				return name;
 			}
 
 			@Override
@@ -21,7 +21,36 @@ package space.arim.libertybans.core.database.execute;
 
 import org.jooq.DSLContext;
 
+import java.util.Objects;
+
 public interface SQLTransactionalFunction<R> {
 
+	/**
+	 * The name under which the query's statistics are recorded. Defaults to the name of
+	 * the class which submitted the query
+	 *
+	 * @return the query name
+	 */
+	default String name() {
+		return QueryMetrics.deriveName(getClass());
+	}
+
 	R obtain(DSLContext context, Transaction transaction) throws RuntimeException;
+
+	static <R> SQLTransactionalFunction<R> named(String name, SQLTransactionalFunction<R> command) {
+		Objects.requireNonNull(name, "name");
+		Objects.requireNonNull(command, "command");
+		return new SQLTransactionalFunction<>() {
+
+			@Override
+			public String name() {
+				return name;
+			}
+
+			@Override
+			public R obtain(DSLContext context, Transaction transaction) throws RuntimeException {
+				return command.obtain(context, transaction);
+			}
+		};
+	}
 }
@@ -21,7 +21,36 @@ package space.arim.libertybans.core.database.execute;
 
 import org.jooq.DSLContext;
 
+import java.util.Objects;
+
 public interface SQLTransactionalRunnable {
 
+	/**
+	 * The name under which the query's statistics are recorded. Defaults to the name of
+	 * the class which submitted the query
+	 *
+	 * @return the query name
+	 */
+	default String name() {
+		return QueryMetrics.deriveName(getClass());
+	}
+
 	void run(DSLContext context, Transaction transaction) throws RuntimeException;
+
+	static SQLTransactionalRunnable named(String name, SQLTransactionalRunnable command) {
+		Objects.requireNonNull(name, "name");
+		Objects.requireNonNull(command, "command");
+		return new SQLTransactionalRunnable() {
+
+			@Override
+			public String name() {
+				return name;
+			}
+
+			@Override
+			public void run(DSLContext context, Transaction transaction) throws RuntimeException {
+				command.run(context, transaction);
+			}
+		};
+	}
 }
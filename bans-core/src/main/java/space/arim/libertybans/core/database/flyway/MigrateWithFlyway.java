@@ -64,7 +64,8 @@ public final class MigrateWithFlyway {
 						"extratableoptions", vendor.getExtraTableOptions(),
 						"uuidtype", vendor.uuidType(),
 						"inettype", vendor.inetType(),
-						"arbitrarybinarytype", vendor.arbitraryBinaryType()
+						"arbitrarybinarytype", vendor.arbitraryBinaryType(),
+						"identitytype", vendor.identityType()
 				))
 				.locations("classpath:database-migrations")
 				// Override classpath scanning
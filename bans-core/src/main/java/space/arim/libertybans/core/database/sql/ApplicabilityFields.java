@@ -0,0 +1,57 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.database.sql;
+
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Record2;
+import org.jooq.Table;
+
+import java.util.Objects;
+import java.util.UUID;
+
+public final class ApplicabilityFields<R extends Record2<UUID, Long>> implements TableFieldAccessor {
+
+	private final Table<R> applicabilityTable;
+
+	public ApplicabilityFields(Table<R> applicabilityTable) {
+		this.applicabilityTable = Objects.requireNonNull(applicabilityTable, "applicabilityTable");
+	}
+
+	@Override
+	public Table<? extends Record> table() {
+		return applicabilityTable;
+	}
+
+	public Field<UUID> uuid() {
+		return applicabilityTable.newRecord().field1();
+	}
+
+	public Field<Long> id() {
+		return applicabilityTable.newRecord().field2();
+	}
+
+	@Override
+	public String toString() {
+		return "ApplicabilityFields{" +
+				"applicabilityTable=" + applicabilityTable +
+				'}';
+	}
+}
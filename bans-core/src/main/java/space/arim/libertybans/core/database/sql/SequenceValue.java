@@ -39,25 +39,42 @@ public final class SequenceValue<R extends Number> {
 
 	public Field<R> nextValue(DSLContext context) {
 		if (context.family() == SQLDialect.MYSQL) {
-			Table<?> emulationTable = DSL.table(sequence.getName());
-			Field<R> valueField = DSL.field("value", sequence.getDataType());
-
-			R sequenceValue = context
-					.select(valueField)
-					.from(emulationTable)
-					.fetchSingle(valueField);
-			context
-					.update(emulationTable)
-					.set(valueField, valueField.plus(1))
-					.execute();
-			lastValueForMySQL = sequenceValue;
-
-			return DSL.val(sequenceValue, sequence.getDataType());
+			return DSL.val(nextValueForMySQL(context), sequence.getDataType());
 		} else {
 			return sequence.nextval();
 		}
 	}
 
+	/**
+	 * Retrieves the next value of the sequence, rather than using it in another statement
+	 *
+	 * @param context the query source
+	 * @return the next value
+	 */
+	public R fetchNextValue(DSLContext context) {
+		if (context.family() == SQLDialect.MYSQL) {
+			return nextValueForMySQL(context);
+		} else {
+			return context.select(sequence.nextval()).fetchSingle().value1();
+		}
+	}
+
+	private R nextValueForMySQL(DSLContext context) {
+		Table<?> emulationTable = DSL.table(sequence.getName());
+		Field<R> valueField = DSL.field("value", sequence.getDataType());
+
+		R sequenceValue = context
+				.select(valueField)
+				.from(emulationTable)
+				.fetchSingle(valueField);
+		context
+				.update(emulationTable)
+				.set(valueField, valueField.plus(1))
+				.execute();
+		lastValueForMySQL = sequenceValue;
+		return sequenceValue;
+	}
+
 	public Field<R> lastValueInSession(DSLContext context) {
 		if (context.family() == SQLDialect.MYSQL) {
 			if (lastValueForMySQL == null) {
@@ -32,11 +32,14 @@ import space.arim.libertybans.core.punish.MiscUtil;
 import space.arim.libertybans.core.schema.tables.ApplicableBans;
 import space.arim.libertybans.core.schema.tables.ApplicableMutes;
 import space.arim.libertybans.core.schema.tables.ApplicableWarns;
+import space.arim.libertybans.core.schema.tables.BanApplicability;
 import space.arim.libertybans.core.schema.tables.Bans;
+import space.arim.libertybans.core.schema.tables.MuteApplicability;
 import space.arim.libertybans.core.schema.tables.Mutes;
 import space.arim.libertybans.core.schema.tables.SimpleBans;
 import space.arim.libertybans.core.schema.tables.SimpleMutes;
 import space.arim.libertybans.core.schema.tables.SimpleWarns;
+import space.arim.libertybans.core.schema.tables.WarnApplicability;
 import space.arim.libertybans.core.schema.tables.Warns;
 
 import java.time.Instant;
@@ -122,6 +125,25 @@ public final class TableForType {
 		}
 	}
 
+	public ApplicabilityFields<? extends Record2<UUID, Long>> applicabilityTable() {
+		return new ApplicabilityFields<>(applicabilityTable0());
+	}
+
+	private Table<? extends Record2<UUID, Long>> applicabilityTable0() {
+		switch (type) {
+		case BAN:
+			return BanApplicability.BAN_APPLICABILITY;
+		case MUTE:
+			return MuteApplicability.MUTE_APPLICABILITY;
+		case WARN:
+			return WarnApplicability.WARN_APPLICABILITY;
+		case KICK:
+			throw new UnsupportedOperationException("Does not exist for kicks");
+		default:
+			throw MiscUtil.unknownType(type);
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "TableForType{" +
@@ -22,6 +22,7 @@ import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.ComponentLike;
 import space.arim.api.env.AudienceRepresenter;
 import space.arim.libertybans.core.config.InternalFormatter;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
 
 import java.util.Objects;
 
@@ -40,11 +41,11 @@ public abstract class AbstractEnvEnforcer<C, P extends C> implements EnvEnforcer
 	}
 	
 	@Override
-	public final void sendToThoseWithPermission(String permission, ComponentLike message) {
-		sendToThoseWithPermissionNoPrefix(permission, formatter.prefix(message).asComponent());
+	public final CentralisedFuture<Void> sendToThoseWithPermission(String permission, ComponentLike message) {
+		return sendToThoseWithPermissionNoPrefix(permission, formatter.prefix(message).asComponent());
 	}
 	
-	protected abstract void sendToThoseWithPermissionNoPrefix(String permission, Component message);
+	protected abstract CentralisedFuture<Void> sendToThoseWithPermissionNoPrefix(String permission, Component message);
 
 	@Override
 	public void sendMessageNoPrefix(P player, ComponentLike message) {
@@ -20,7 +20,9 @@
 package space.arim.libertybans.core.env;
 
 import java.net.InetAddress;
+import java.util.HashSet;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Consumer;
 
@@ -39,6 +41,17 @@ public final class AdditionalUUIDTargetMatcher<P> implements TargetMatcher<P> {
 		return this.uuid.equals(uuid) || delegate.matches(uuid, address);
 	}
 
+	@Override
+	public Set<UUID> candidates(OnlinePlayerRegistry registry) {
+		Set<UUID> delegateCandidates = delegate.candidates(registry);
+		if (!registry.isOnline(uuid) || delegateCandidates.contains(uuid)) {
+			return delegateCandidates;
+		}
+		Set<UUID> candidates = new HashSet<>(delegateCandidates);
+		candidates.add(uuid);
+		return candidates;
+	}
+
 	@Override
 	public Consumer<P> callback() {
 		return delegate.callback();
@@ -25,9 +25,13 @@ import java.util.function.Consumer;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.ComponentLike;
 import space.arim.api.env.annote.PlatformPlayer;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
 
 /**
- * Platform specific enforcer
+ * Platform specific enforcer. <br>
+ * <br>
+ * Methods which act upon online players return futures rather than waiting for the players
+ * to be accessed, which on some platforms requires the main thread.
  * 
  * @param <P> the player object type
  */
@@ -39,16 +43,18 @@ public interface EnvEnforcer<@PlatformPlayer P> {
 	 * 
 	 * @param permission the permission
 	 * @param message the message
+	 * @return a future completed once the message is sent
 	 */
-	void sendToThoseWithPermission(String permission, ComponentLike message);
+	CentralisedFuture<Void> sendToThoseWithPermission(String permission, ComponentLike message);
 	
 	/**
 	 * Searches for a player with the given uuid, if found, invokes the callback
 	 * 
 	 * @param uuid the uuid
 	 * @param callback the callback
+	 * @return a future completed once the callback has run, or once the player is found to be offline
 	 */
-	void doForPlayerIfOnline(UUID uuid, Consumer<P> callback);
+	CentralisedFuture<Void> doForPlayerIfOnline(UUID uuid, Consumer<P> callback);
 
 	/**
 	 * Kicks the given player
@@ -70,8 +76,9 @@ public interface EnvEnforcer<@PlatformPlayer P> {
 	 * Enforces a target matcher, invoking its callback for players matching its uuid or address set
 	 * 
 	 * @param matcher the target matcher
+	 * @return a future completed once the callback has run for all matching players
 	 */
-	void enforceMatcher(TargetMatcher<P> matcher);
+	CentralisedFuture<Void> enforceMatcher(TargetMatcher<P> matcher);
 	
 	/**
 	 * Gets the uuid of a player
@@ -19,6 +19,7 @@
 package space.arim.libertybans.core.env;
 
 import java.net.InetAddress;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Consumer;
 
@@ -44,6 +45,11 @@ public class ExactTargetMatcher<@PlatformPlayer P> extends AbstractTargetMatcher
 		return this.address.equals(address);
 	}
 
+	@Override
+	public Set<UUID> candidates(OnlinePlayerRegistry registry) {
+		return registry.playersAt(NetworkAddress.of(address));
+	}
+
 	@Override
 	public String toString() {
 		return "ExactTargetMatcher{" +
@@ -0,0 +1,102 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.env;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Queues tasks which must run on the main thread, for platforms whose players may only be
+ * accessed there. <br>
+ * <br>
+ * Callers receive a future rather than waiting for the main thread. Tasks queued before the
+ * main thread gets to them are run together, so that many enforcements need only one
+ * synchronous task.
+ *
+ */
+@Singleton
+public final class MainThreadQueue {
+
+	private final FactoryOfTheFuture futuresFactory;
+
+	private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+
+	@Inject
+	public MainThreadQueue(FactoryOfTheFuture futuresFactory) {
+		this.futuresFactory = futuresFactory;
+	}
+
+	/**
+	 * Queues a task to run on the main thread
+	 *
+	 * @param task the task
+	 * @return a future completed once the task has run
+	 */
+	public CentralisedFuture<Void> run(Runnable task) {
+		return supply(() -> {
+			task.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Queues a task to run on the main thread
+	 *
+	 * @param task the task
+	 * @param <T> the result type
+	 * @return a future completed with the result of the task once it has run
+	 */
+	public <T> CentralisedFuture<T> supply(Supplier<T> task) {
+		CentralisedFuture<T> future = futuresFactory.newIncompleteFuture();
+		pending.offer(() -> {
+			T result;
+			try {
+				result = task.get();
+			} catch (Throwable ex) {
+				// Even errors must complete the future, and must not prevent the rest of the batch from running
+				future.completeExceptionally(ex);
+				return;
+			}
+			future.complete(result);
+		});
+		if (scheduled.compareAndSet(false, true)) {
+			futuresFactory.executeSync(this::runPending);
+		}
+		return future;
+	}
+
+	private void runPending() {
+		// Reset first, so that tasks queued from now on schedule another run if this one misses them
+		scheduled.set(false);
+		Runnable task;
+		while ((task = pending.poll()) != null) {
+			task.run();
+		}
+	}
+
+}
@@ -0,0 +1,185 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.env;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Cache of the online players holding each notification permission, so that sending staff
+ * notifications does not require checking the permission of every online player. <br>
+ * <br>
+ * Cached audiences are updated whenever a player joins or quits. Because there is no platform-wide
+ * event for permission changes, audiences also expire shortly after being computed, regardless
+ * of such updates.
+ *
+ */
+@Singleton
+public final class NotificationAudiences {
+
+	private final FactoryOfTheFuture futuresFactory;
+	private final Cache<String, Set<UUID>> audiences;
+	/**
+	 * Incremented upon each join, quit, or invalidation, so that audiences computed beforehand are not cached
+	 */
+	private final AtomicLong generation = new AtomicLong();
+
+	/**
+	 * Limits how long a permission change may go unnoticed
+	 */
+	private static final Duration AUDIENCE_EXPIRY = Duration.ofSeconds(5L);
+
+	@Inject
+	public NotificationAudiences(FactoryOfTheFuture futuresFactory, Time time) {
+		this.futuresFactory = futuresFactory;
+		audiences = Caffeine.newBuilder()
+				.ticker(time.toCaffeineTicker())
+				.expireAfter(new ExpireAfterComputed())
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * Expires audiences after they are computed. Unlike {@code expireAfterWrite}, adding or removing a
+	 * single player does not extend the lifetime of an audience
+	 *
+	 */
+	private static final class ExpireAfterComputed implements Expiry<String, Set<UUID>> {
+
+		@Override
+		public long expireAfterCreate(String key, Set<UUID> value, long currentTime) {
+			return AUDIENCE_EXPIRY.toNanos();
+		}
+
+		@Override
+		public long expireAfterUpdate(String key, Set<UUID> value, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+
+		@Override
+		public long expireAfterRead(String key, Set<UUID> value, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+	}
+
+	/**
+	 * Gets the players holding the given permission, computing them if not cached
+	 *
+	 * @param permission the permission
+	 * @param computer computes the uuids of the online players holding a permission. May complete
+	 *                 on another thread if permissions can only be checked there
+	 * @return a future of the uuids of the players holding the permission
+	 */
+	public CentralisedFuture<Set<UUID>> audience(String permission,
+												 Function<String, CentralisedFuture<Set<UUID>>> computer) {
+		Set<UUID> audience = audiences.getIfPresent(permission);
+		if (audience != null) {
+			return futuresFactory.completedFuture(audience);
+		}
+		long generation = this.generation.get();
+		return computer.apply(permission).thenApply((computed) -> {
+			Set<UUID> uuids = Set.copyOf(computed);
+			audiences.put(permission, uuids);
+			if (this.generation.get() != generation) {
+				// A player joined or quit while computing
+				audiences.invalidate(permission);
+			}
+			return uuids;
+		});
+	}
+
+	/**
+	 * Adds a player to the cached audiences whose permission the player has. Should be called
+	 * when a player joins
+	 *
+	 * @param uuid the uuid of the player
+	 * @param hasPermission whether the player has a permission
+	 */
+	public void addPlayer(UUID uuid, Predicate<String> hasPermission) {
+		generation.incrementAndGet();
+		for (String permission : audiences.asMap().keySet()) {
+			if (!hasPermission.test(permission)) {
+				continue;
+			}
+			audiences.asMap().computeIfPresent(permission, (p, audience) -> {
+				if (audience.contains(uuid)) {
+					return audience;
+				}
+				Set<UUID> updated = new HashSet<>(audience);
+				updated.add(uuid);
+				return Set.copyOf(updated);
+			});
+		}
+	}
+
+	/**
+	 * Removes a player from all cached audiences. Should be called when a player quits
+	 *
+	 * @param uuid the uuid of the player
+	 */
+	public void removePlayer(UUID uuid) {
+		generation.incrementAndGet();
+		for (String permission : audiences.asMap().keySet()) {
+			audiences.asMap().computeIfPresent(permission, (p, audience) -> {
+				if (!audience.contains(uuid)) {
+					return audience;
+				}
+				Set<UUID> updated = new HashSet<>(audience);
+				updated.remove(uuid);
+				return Set.copyOf(updated);
+			});
+		}
+	}
+
+	/**
+	 * Invalidates all audiences. Should be called when the online players are no longer tracked
+	 *
+	 */
+	public void invalidateAll() {
+		generation.incrementAndGet();
+		audiences.invalidateAll();
+	}
+
+	/**
+	 * Gets the statistics of the audience cache. Hits are notifications sent without
+	 * checking any permissions; misses are notifications for which the audience was computed
+	 *
+	 * @return the cache statistics
+	 */
+	public CacheStats statistics() {
+		return audiences.stats();
+	}
+
+}
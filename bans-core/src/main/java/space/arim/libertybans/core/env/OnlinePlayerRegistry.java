@@ -0,0 +1,132 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.env;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import space.arim.libertybans.api.NetworkAddress;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Registry of the players online on this instance, indexed by UUID and by address. <br>
+ * <br>
+ * Platform listeners register players when they join and unregister them when they quit.
+ * Target matchers use the registry to find the players they match without iterating
+ * every online player.
+ *
+ */
+@Singleton
+public final class OnlinePlayerRegistry {
+
+	// Guarded by this
+	private final Map<UUID, NetworkAddress> addressesByUuid = new HashMap<>();
+	private final Map<NetworkAddress, Set<UUID>> uuidsByAddress = new HashMap<>();
+
+	@Inject
+	public OnlinePlayerRegistry() {}
+
+	/**
+	 * Registers an online player, replacing any previous registration of the same player
+	 *
+	 * @param uuid the player's uuid
+	 * @param address the player's address
+	 */
+	public synchronized void register(UUID uuid, NetworkAddress address) {
+		Objects.requireNonNull(address, "address");
+		NetworkAddress previousAddress = addressesByUuid.put(uuid, address);
+		if (previousAddress != null) {
+			removeFromAddress(uuid, previousAddress);
+		}
+		uuidsByAddress.computeIfAbsent(address, (a) -> new HashSet<>(2)).add(uuid);
+	}
+
+	/**
+	 * Unregisters a player who is no longer online
+	 *
+	 * @param uuid the player's uuid
+	 */
+	public synchronized void unregister(UUID uuid) {
+		NetworkAddress address = addressesByUuid.remove(uuid);
+		if (address != null) {
+			removeFromAddress(uuid, address);
+		}
+	}
+
+	private void removeFromAddress(UUID uuid, NetworkAddress address) {
+		Set<UUID> uuids = uuidsByAddress.get(address);
+		uuids.remove(uuid);
+		if (uuids.isEmpty()) {
+			uuidsByAddress.remove(address);
+		}
+	}
+
+	/**
+	 * Unregisters all players
+	 *
+	 */
+	public synchronized void clear() {
+		addressesByUuid.clear();
+		uuidsByAddress.clear();
+	}
+
+	/**
+	 * Determines whether a player is online
+	 *
+	 * @param uuid the player's uuid
+	 * @return true if online
+	 */
+	public synchronized boolean isOnline(UUID uuid) {
+		return addressesByUuid.containsKey(uuid);
+	}
+
+	/**
+	 * Gets the players online with the given address
+	 *
+	 * @param address the address
+	 * @return the uuids of the players online with the address, an immutable copy
+	 */
+	public synchronized Set<UUID> playersAt(NetworkAddress address) {
+		Set<UUID> uuids = uuidsByAddress.get(address);
+		return (uuids == null) ? Set.of() : Set.copyOf(uuids);
+	}
+
+	/**
+	 * Gets those of the given players who are online
+	 *
+	 * @param uuids the uuids of the players
+	 * @return the uuids of the online players, a new mutable set
+	 */
+	public synchronized Set<UUID> onlineAmong(Set<UUID> uuids) {
+		Set<UUID> online = new HashSet<>();
+		for (UUID uuid : uuids) {
+			if (addressesByUuid.containsKey(uuid)) {
+				online.add(uuid);
+			}
+		}
+		return online;
+	}
+
+}
@@ -21,12 +21,24 @@ package space.arim.libertybans.core.env;
 import space.arim.api.env.annote.PlatformPlayer;
 
 import java.net.InetAddress;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Consumer;
 
 public interface TargetMatcher<@PlatformPlayer P> {
 
 	boolean matches(UUID uuid, InetAddress address);
+
+	/**
+	 * Finds the online players who may match, by looking them up in the registry. Every online player
+	 * who matches is included, though the result may also include players who no longer match
+	 * if they have since changed. Enforcers should therefore still check each candidate with
+	 * {@link #matches(UUID, InetAddress)}
+	 *
+	 * @param registry the online player registry
+	 * @return the uuids of the candidate players
+	 */
+	Set<UUID> candidates(OnlinePlayerRegistry registry);
 	
 	Consumer<P> callback();
 	
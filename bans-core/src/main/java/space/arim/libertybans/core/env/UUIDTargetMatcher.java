@@ -39,6 +39,11 @@ public class UUIDTargetMatcher<@PlatformPlayer P> extends AbstractTargetMatcher<
 		return uuids.contains(uuid);
 	}
 
+	@Override
+	public Set<UUID> candidates(OnlinePlayerRegistry registry) {
+		return registry.onlineAmong(uuids);
+	}
+
 	@Override
 	public String toString() {
 		return "UUIDTargetMatcher{" +
@@ -60,7 +60,7 @@ public class AdvancedBanImportSource implements ImportSource {
 	public Stream<PortablePunishment> sourcePunishments() {
 
 		DatabaseStream databaseStream = new DatabaseStream(
-				config.advancedBan().toConnectionSource(), config.retrievalSize());
+				config.advancedBan().toConnectionSource(), config.retrievalSize(), config.readParallelism());
 
 		// Map active punishments first. Stream.of has guaranteed order
 		return Stream.of(new RowMapper(true), new RowMapper(false))
@@ -84,6 +84,11 @@ public class AdvancedBanImportSource implements ImportSource {
 			return "SELECT * FROM " + (active ? "Punishments" : "PunishmentHistory");
 		}
 
+		@Override
+		public Optional<String> rangeColumn() {
+			return Optional.of("id");
+		}
+
 		@Override
 		public Optional<PortablePunishment> mapRow(ResultSet resultSet) throws SQLException {
 			return mapType(resultSet).map((advancedBanType) -> {
@@ -51,7 +51,7 @@ public class BanManagerImportSource implements ImportSource {
 
 	private DatabaseStream databaseStream() {
 		return new DatabaseStream(
-				config.banManager().toConnectionSource(), config.retrievalSize());
+				config.banManager().toConnectionSource(), config.retrievalSize(), config.readParallelism());
 	}
 
 	@Override
@@ -90,6 +90,11 @@ public class BanManagerImportSource implements ImportSource {
 			return "SELECT * FROM \"" + tableName + '"';
 		}
 
+		@Override
+		public Optional<String> rangeColumn() {
+			return Optional.of("\"id\"");
+		}
+
 		@Override
 		public Optional<PortablePunishment> mapRow(ResultSet resultSet) throws SQLException {
 			int id = resultSet.getInt("id");
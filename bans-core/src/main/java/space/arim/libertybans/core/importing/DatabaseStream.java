@@ -22,6 +22,7 @@ package space.arim.libertybans.core.importing;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.stream.Stream;
@@ -31,13 +32,47 @@ class DatabaseStream {
 
 	private final ConnectionSource connectionSource;
 	private final int retrievalSize;
+	private final int parallelism;
 
-	DatabaseStream(ConnectionSource connectionSource, int retrievalSize) {
+	DatabaseStream(ConnectionSource connectionSource, int retrievalSize, int parallelism) {
 		this.connectionSource = Objects.requireNonNull(connectionSource);
 		this.retrievalSize = retrievalSize;
+		this.parallelism = parallelism;
+	}
+
+	DatabaseStream(ConnectionSource connectionSource, int retrievalSize) {
+		this(connectionSource, retrievalSize, 1);
 	}
 
 	<T> Stream<T> streamRows(SchemaRowMapper<T> schemaRowMapper) {
+		Optional<String> rangeColumn = schemaRowMapper.rangeColumn();
+		if (parallelism > 1 && rangeColumn.isPresent()) {
+			Optional<RangeReader<T>> rangeReader;
+			try {
+				rangeReader = RangeReader.create(
+						connectionSource, schemaRowMapper, rangeColumn.get(), retrievalSize, parallelism);
+			} catch (SQLException ex) {
+				throw new ImportException("Unable to select range of imported data", ex);
+			}
+			if (rangeReader.isPresent()) {
+				return streamRanges(rangeReader.get());
+			}
+		}
+		return streamRowsSequentially(schemaRowMapper);
+	}
+
+	private <T> Stream<T> streamRanges(RangeReader<T> rangeReader) {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(rangeReader, Spliterator.IMMUTABLE), false)
+				.onClose(() -> {
+					try {
+						rangeReader.close();
+					} catch (SQLException ex) {
+						throw new ImportException("Failure closing import connections", ex);
+					}
+				});
+	}
+
+	private <T> Stream<T> streamRowsSequentially(SchemaRowMapper<T> schemaRowMapper) {
 		Connection connection;
 		try {
 			connection = connectionSource.openConnection();
@@ -70,5 +105,4 @@ class DatabaseStream {
 				});
 	}
 
-
 }
@@ -64,6 +64,34 @@ public interface ImportConfig {
 	@IntegerRange(min = 1)
 	int retrievalSize();
 
+	@ConfKey("commit-size")
+	@ConfComments({
+			"How many punishments, or name and address records, to write to the database at once.",
+			"Each such batch is committed in a single transaction. Larger batches import faster,",
+			"but hold the transaction open for longer."})
+	@ConfDefault.DefaultInteger(500)
+	@IntegerRange(min = 1)
+	int commitSize();
+
+	@ConfKey("read-parallelism")
+	@ConfComments({
+			"How many connections to read with at once when importing from AdvancedBan, LiteBans,",
+			"or BanManager. Large tables are read in ranges of retrieval-size IDs, several ranges",
+			"at once, although punishments are still written in their original order.",
+			"Set this to 1 to read each table with a single query."})
+	@ConfDefault.DefaultInteger(4)
+	@IntegerRange(min = 1)
+	int readParallelism();
+
+	@ConfKey("self-import-parallelism")
+	@ConfComments({
+			"How many tables, or ranges of a large table, to copy at once when importing from",
+			"another LibertyBans database. Each copies retrieval-size rows at a time, committing",
+			"after each, using its own connections to both databases."})
+	@ConfDefault.DefaultInteger(4)
+	@IntegerRange(min = 1)
+	int selfImportParallelism();
+
 	@ConfKey("advancedban")
 	@SubSection
 	AdvancedBanSettings advancedBan();
@@ -176,6 +204,7 @@ public interface ImportConfig {
 			"-- Importing from another LibertyBans database --",
 			"",
 			"NOTICE: The current database MUST be empty when the import is performed.",
+			"The only exception is an interrupted self-import: running it again resumes where it stopped.",
 			"",
 			"The self-import process is different from the import process for other plugins.",
 			"It is a direct transfer, which is why the current database must be empty. Also, punishment IDs are preserved.",
@@ -24,6 +24,7 @@ import jakarta.inject.Provider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.core.config.Configs;
 import space.arim.libertybans.core.service.Time;
 import space.arim.libertybans.core.database.InternalDatabase;
 import space.arim.libertybans.core.punish.Enaction;
@@ -32,7 +33,6 @@ import space.arim.omnibus.util.ThisClass;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
-import java.sql.SQLException;
 import java.time.Instant;
 import java.util.Objects;
 import java.util.Optional;
@@ -42,6 +42,7 @@ import java.util.stream.Stream;
 public class ImportExecutor {
 
 	private final FactoryOfTheFuture futuresFactory;
+	private final Configs configs;
 	private final ImportFunction importFunction;
 	private final Provider<InternalDatabase> dbProvider;
 	private final PunishmentCreator creator;
@@ -50,9 +51,10 @@ public class ImportExecutor {
 	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
 	@Inject
-	public ImportExecutor(FactoryOfTheFuture futuresFactory, ImportFunction importFunction,
+	public ImportExecutor(FactoryOfTheFuture futuresFactory, Configs configs, ImportFunction importFunction,
 						  Provider<InternalDatabase> dbProvider, PunishmentCreator creator, Time time) {
 		this.futuresFactory = futuresFactory;
+		this.configs = configs;
 		this.importFunction = importFunction;
 		this.dbProvider = dbProvider;
 		this.creator = creator;
@@ -75,15 +77,19 @@ public class ImportExecutor {
 
 	private ImportStatistics runImport(ImportSource importSource) {
 		ImportStatistics statistics = new ImportStatistics();
-		try (BatchOperationExecutor batchExecutor = new BatchOperationExecutor(dbProvider.get())) {
+		try {
+			// Resolve names before writing anything
+			ImportFunction.ResolvedNames resolvedNames = importFunction.resolveNames(importSource);
 
-			ImportSink importSink = new ImportSink(batchExecutor, statistics);
-			transferPunishments(importSource, importSink);
+			int commitSize = configs.getImportConfig().commitSize();
+			ImportSink importSink = new ImportSink(dbProvider.get(), statistics, commitSize);
+			transferPunishments(importSource, resolvedNames, importSink);
 			transferExplicitNameAddressRecords(importSource, importSink);
+			importSink.flush();
 
 			logger.info("Import completed successfully. {}", statistics);
 
-		} catch (ImportException | SQLException ex) {
+		} catch (ImportException ex) {
 			logger.error(
 					"Unable to complete import successfully. It is recommended to remove " +
 							"the partially completed data, investigate the cause of failure, and " +
@@ -93,10 +99,12 @@ public class ImportExecutor {
 		return statistics;
 	}
 
-	private void transferPunishments(ImportSource importSource, ImportSink importSink) {
+	private void transferPunishments(ImportSource importSource, ImportFunction.ResolvedNames resolvedNames,
+									 ImportSink importSink) {
 		try (Stream<PortablePunishment> punishmentStream = importSource.sourcePunishments()) {
 			punishmentStream.forEach(punishment -> {
-				Optional<Enaction.OrderDetails> enactionOrder = importFunction.createOrder(punishment, importSink);
+				Optional<Enaction.OrderDetails> enactionOrder = importFunction.createOrder(
+						punishment, resolvedNames, importSink);
 				if (enactionOrder.isEmpty()) {
 					logger.info("Skipped imported punishment with ID {} applying to victim {}",
 							punishment.foreignId(), punishment.victimInfo());
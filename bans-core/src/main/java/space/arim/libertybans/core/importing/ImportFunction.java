@@ -34,8 +34,14 @@ import space.arim.libertybans.core.service.Time;
 import space.arim.libertybans.core.uuid.UUIDManager;
 import space.arim.omnibus.util.ThisClass;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public class ImportFunction {
 
@@ -50,12 +56,86 @@ public class ImportFunction {
 		this.time = time;
 	}
 
-	Optional<Enaction.OrderDetails> createOrder(PortablePunishment punishment, ImportSink importSink) {
-		Victim victim = toVictim(punishment.victimInfo(), importSink);
+	/**
+	 * Resolves the uuids of all victims and operators which are identified only by name. <br>
+	 * <br>
+	 * This reads the punishments of the import source an extra time. Names are looked up once
+	 * each, and before any data is written, so that lookups cannot deadlock with the import.
+	 * Names whose uuids are known from the import source itself are not looked up.
+	 *
+	 * @param importSource the import source
+	 * @return the resolved names
+	 */
+	ResolvedNames resolveNames(ImportSource importSource) {
+		// Keyed by lowercase name, like lookups of stored names
+		Map<String, UUID> knownNames = new HashMap<>();
+		// Offline uuids depend on the exact name
+		Set<String> unknownNames = new HashSet<>();
+		try (Stream<PortablePunishment> punishmentStream = importSource.sourcePunishments()) {
+			punishmentStream.forEach((punishment) -> {
+				PortablePunishment.VictimInfo victimInfo = punishment.victimInfo();
+				if (victimInfo.overrideVictim().isEmpty()) {
+					// The name is only needed when the victim has neither a uuid nor an address
+					collectName(victimInfo.uuid(), victimInfo.name(),
+							victimInfo.address().isEmpty(), knownNames, unknownNames);
+				}
+				PortablePunishment.OperatorInfo operatorInfo = punishment.operatorInfo();
+				if (!operatorInfo.console()) {
+					collectName(operatorInfo.uuid(), operatorInfo.name(), true, knownNames, unknownNames);
+				}
+			});
+		}
+		unknownNames.removeIf((name) -> knownNames.containsKey(name.toLowerCase(Locale.ROOT)));
+		logger.info("Looking up the uuids of {} player names", unknownNames.size());
+
+		Map<String, UUID> lookedUpNames = new HashMap<>();
+		for (String name : unknownNames) {
+			uuidManager.lookupUUIDFromExactName(name).join().ifPresent((uuid) -> lookedUpNames.put(name, uuid));
+		}
+		return new ResolvedNames(knownNames, lookedUpNames);
+	}
+
+	private static void collectName(Optional<UUID> uuid, Optional<String> name, boolean nameNeeded,
+									Map<String, UUID> knownNames, Set<String> unknownNames) {
+		if (name.isEmpty()) {
+			return;
+		}
+		if (uuid.isPresent()) {
+			knownNames.put(name.get().toLowerCase(Locale.ROOT), uuid.get());
+		} else if (nameNeeded) {
+			unknownNames.add(name.get());
+		}
+	}
+
+	static final class ResolvedNames {
+
+		private final Map<String, UUID> knownNames;
+		private final Map<String, UUID> lookedUpNames;
+
+		ResolvedNames(Map<String, UUID> knownNames, Map<String, UUID> lookedUpNames) {
+			this.knownNames = knownNames;
+			this.lookedUpNames = lookedUpNames;
+		}
+
+		/**
+		 * Gets the uuid of a name
+		 *
+		 * @param name the name
+		 * @return the uuid, or null if it could not be resolved
+		 */
+		UUID lookupUUID(String name) {
+			UUID knownUuid = knownNames.get(name.toLowerCase(Locale.ROOT));
+			return (knownUuid != null) ? knownUuid : lookedUpNames.get(name);
+		}
+	}
+
+	Optional<Enaction.OrderDetails> createOrder(PortablePunishment punishment, ResolvedNames resolvedNames,
+												ImportSink importSink) {
+		Victim victim = toVictim(punishment.victimInfo(), resolvedNames, importSink);
 		if (victim == null) {
 			return Optional.empty();
 		}
-		Operator operator = toOperator(punishment.operatorInfo(), importSink);
+		Operator operator = toOperator(punishment.operatorInfo(), resolvedNames, importSink);
 		if (operator == null) {
 			return Optional.empty();
 		}
@@ -66,7 +146,8 @@ public class ImportFunction {
 				knownDetails.start(), knownDetails.end()));
 	}
 
-	private Victim toVictim(PortablePunishment.VictimInfo victimInfo, ImportSink importSink) {
+	private Victim toVictim(PortablePunishment.VictimInfo victimInfo, ResolvedNames resolvedNames,
+							ImportSink importSink) {
 		Optional<Victim> overrideVictim = victimInfo.overrideVictim();
 		if (overrideVictim.isPresent()) {
 			return overrideVictim.get();
@@ -81,7 +162,7 @@ public class ImportFunction {
 		}
 		String name = victimInfo.name()
 				.orElseThrow(() -> new ImportException("Victim name must be present if uuid is not"));
-		UUID foundUUID = uuidManager.lookupUUIDFromExactName(name).join().orElse(null);
+		UUID foundUUID = resolvedNames.lookupUUID(name);
 		if (foundUUID == null) {
 			logger.warn("Skipping punishment because victim uuid could not be found for name {}", victimInfo.name());
 			return null;
@@ -90,7 +171,8 @@ public class ImportFunction {
 		return PlayerVictim.of(foundUUID);
 	}
 
-	private Operator toOperator(PortablePunishment.OperatorInfo operatorInfo, ImportSink importSink) {
+	private Operator toOperator(PortablePunishment.OperatorInfo operatorInfo, ResolvedNames resolvedNames,
+								ImportSink importSink) {
 		if (operatorInfo.console()) {
 			return ConsoleOperator.INSTANCE;
 		}
@@ -100,7 +182,7 @@ public class ImportFunction {
 		}
 		String name = operatorInfo.name()
 				.orElseThrow(() -> new ImportException("Operator name must be present if uuid is not"));
-		UUID foundUUID = uuidManager.lookupUUIDFromExactName(name).join().orElse(null);
+		UUID foundUUID = resolvedNames.lookupUUID(name);
 		if (foundUUID == null) {
 			logger.warn("Skipping punishment because operator uuid could not be found for name {}", name);
 			return null;
@@ -19,39 +19,125 @@
 
 package space.arim.libertybans.core.importing;
 
+import org.jooq.DSLContext;
+import org.jooq.Query;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.core.database.InternalDatabase;
+import space.arim.libertybans.core.database.execute.Transaction;
 import space.arim.libertybans.core.punish.Association;
 import space.arim.libertybans.core.punish.Enaction;
 import space.arim.omnibus.util.ThisClass;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Writes imported data in batches, each committed in a single transaction. NOT thread safe. <br>
+ * <br>
+ * Nothing else may look up data while a batch is written, since the open transaction could
+ * deadlock with the lookup. For this reason, player names are resolved before writing starts.
+ *
+ */
 class ImportSink {
 
-	private final BatchOperationExecutor batchExecutor;
+	private final InternalDatabase database;
 	private final ImportStatistics statistics;
+	private final int commitSize;
+
+	private List<PendingWrite> pendingWrites;
 
 	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
-	ImportSink(BatchOperationExecutor batchExecutor, ImportStatistics statistics) {
-		this.batchExecutor = batchExecutor;
+	ImportSink(InternalDatabase database, ImportStatistics statistics, int commitSize) {
+		this.database = database;
 		this.statistics = statistics;
+		this.commitSize = commitSize;
+		pendingWrites = new ArrayList<>(commitSize);
 	}
 
 	void addActivePunishment(Enaction enaction) {
-		addPunishment(enaction, true);
+		addWrite(new PunishmentWrite(enaction, true));
 		statistics.transferredActive();
 	}
 
 	void addHistoricalPunishment(Enaction enaction) {
-		addPunishment(enaction, false);
+		addWrite(new PunishmentWrite(enaction, false));
 		statistics.transferredHistorical();
 	}
 
-	private void addPunishment(Enaction enaction, boolean active) {
-		batchExecutor.runOperation((context, transaction) -> {
+	void addNameAddressRecord(NameAddressRecord nameAddressRecord) {
+		addWrite(new NameAddressWrite(nameAddressRecord));
+		statistics.transferredNameAddressRecord();
+	}
+
+	private void addWrite(PendingWrite write) {
+		pendingWrites.add(write);
+		if (pendingWrites.size() == commitSize) {
+			flush();
+		}
+	}
+
+	/**
+	 * Writes all pending data
+	 *
+	 */
+	void flush() {
+		if (pendingWrites.isEmpty()) {
+			return;
+		}
+		List<PendingWrite> writes = pendingWrites;
+		pendingWrites = new ArrayList<>(commitSize);
+		try {
+			database.executeWithRetry((context, transaction) -> {
+				// Consecutive name and address records are sent to the database together
+				List<Query> batchedQueries = new ArrayList<>();
+				for (PendingWrite write : writes) {
+					write.write(context, transaction, batchedQueries);
+				}
+				executeBatch(context, batchedQueries);
+			}).join();
+		} catch (RuntimeException ex) {
+			throw new ImportException("Failed to write batch of imported data", ex);
+		}
+	}
+
+	private static void executeBatch(DSLContext context, List<Query> batchedQueries) {
+		if (!batchedQueries.isEmpty()) {
+			context.batch(batchedQueries).execute();
+			batchedQueries.clear();
+		}
+	}
+
+	private interface PendingWrite {
+
+		/**
+		 * Writes data, or adds queries to the batch
+		 *
+		 * @param context the database context
+		 * @param transaction the transaction
+		 * @param batchedQueries the current batch of queries
+		 */
+		void write(DSLContext context, Transaction transaction, List<Query> batchedQueries);
+
+	}
+
+	private static final class PunishmentWrite implements PendingWrite {
+
+		private final Enaction enaction;
+		private final boolean active;
+
+		PunishmentWrite(Enaction enaction, boolean active) {
+			this.enaction = enaction;
+			this.active = active;
+		}
+
+		@Override
+		public void write(DSLContext context, Transaction transaction, List<Query> batchedQueries) {
+			// Preserve the order of writes
+			executeBatch(context, batchedQueries);
 			if (active) {
 				Punishment enacted = transaction.executeNested(enaction::enactActive);
 				if (enacted == null) {
@@ -63,17 +149,28 @@ class ImportSink {
 			} else {
 				enaction.enactHistorical(context);
 			}
-		});
+		}
 	}
 
-	void addNameAddressRecord(NameAddressRecord nameAddressRecord) {
-		batchExecutor.runOperation((context, transaction) -> {
+	private static final class NameAddressWrite implements PendingWrite {
+
+		private final NameAddressRecord nameAddressRecord;
+
+		NameAddressWrite(NameAddressRecord nameAddressRecord) {
+			this.nameAddressRecord = nameAddressRecord;
+		}
+
+		@Override
+		public void write(DSLContext context, Transaction transaction, List<Query> batchedQueries) {
 			Association association = new Association(nameAddressRecord.uuid(), context);
 			Instant timeRecorded = nameAddressRecord.timeRecorded();
-			nameAddressRecord.name().ifPresent((name) -> association.associatePastName(name, timeRecorded));
-			nameAddressRecord.address().ifPresent((address) -> association.associatePastAddress(address, timeRecorded));
-		});
-		statistics.transferredNameAddressRecord();
+			nameAddressRecord.name().ifPresent((name) -> {
+				batchedQueries.add(association.pastNameQuery(name, timeRecorded));
+			});
+			nameAddressRecord.address().ifPresent((address) -> {
+				batchedQueries.addAll(association.pastAddressQueries(address, timeRecorded));
+			});
+		}
 	}
 
 }
@@ -62,7 +62,7 @@ public class LiteBansImportSource implements ImportSource {
 
 	private DatabaseStream databaseStream() {
 		return new DatabaseStream(
-				config.litebans().toConnectionSource(), config.retrievalSize());
+				config.litebans().toConnectionSource(), config.retrievalSize(), config.readParallelism());
 	}
 
 	@Override
@@ -86,6 +86,11 @@ public class LiteBansImportSource implements ImportSource {
 			return "SELECT * FROM " + config.litebans().tablePrefix() + table;
 		}
 
+		@Override
+		public Optional<String> rangeColumn() {
+			return Optional.of("id");
+		}
+
 		@Override
 		public Optional<PortablePunishment> mapRow(ResultSet resultSet) throws SQLException {
 			Integer id = resultSet.getInt("id");
@@ -221,7 +226,12 @@ public class LiteBansImportSource implements ImportSource {
 
 		@Override
 		public String selectStatement() {
-			return "SELECT uuid, name, ip, date FROM " + config.litebans().tablePrefix() + "history";
+			return "SELECT id, uuid, name, ip, date FROM " + config.litebans().tablePrefix() + "history";
+		}
+
+		@Override
+		public Optional<String> rangeColumn() {
+			return Optional.of("id");
 		}
 
 		@Override
@@ -0,0 +1,239 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.importing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.core.service.SimpleThreadFactory;
+import space.arim.omnibus.util.ThisClass;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the rows of a table in ranges of its ID column, several ranges at once. Each reader
+ * thread uses its own connection and maps its rows through the {@link SchemaRowMapper}. <br>
+ * <br>
+ * Rows are nonetheless returned in the order of the ID column. Only a limited number of ranges
+ * are read ahead of the consumer, which bounds the rows held in memory.
+ *
+ * @param <T> the row type
+ */
+final class RangeReader<T> implements Iterator<T>, AutoCloseable {
+
+	private final ConnectionSource connectionSource;
+	private final SchemaRowMapper<T> schemaRowMapper;
+	private final String rangeStatement;
+	private final int retrievalSize;
+
+	private final ExecutorService readers;
+	private final int readAheadLimit;
+	private final Deque<Future<List<T>>> readAhead;
+	private long nextStart;
+	private final long end;
+
+	private final Queue<Connection> idleConnections = new ConcurrentLinkedQueue<>();
+	private final Queue<Connection> openConnections = new ConcurrentLinkedQueue<>();
+
+	private Iterator<T> currentRange = Collections.emptyIterator();
+
+	// Statistics
+	private int totalCount;
+	private final AtomicInteger skipped = new AtomicInteger();
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	private RangeReader(ConnectionSource connectionSource, SchemaRowMapper<T> schemaRowMapper, String rangeColumn,
+						int retrievalSize, int parallelism, long start, long end) {
+		this.connectionSource = connectionSource;
+		this.schemaRowMapper = schemaRowMapper;
+		rangeStatement = schemaRowMapper.selectStatement()
+				+ " WHERE " + rangeColumn + " BETWEEN ? AND ? ORDER BY " + rangeColumn;
+		this.retrievalSize = retrievalSize;
+
+		readers = Executors.newFixedThreadPool(parallelism, SimpleThreadFactory.create("ImportReader"));
+		readAheadLimit = 2 * parallelism;
+		readAhead = new ArrayDeque<>(readAheadLimit);
+		nextStart = start;
+		this.end = end;
+	}
+
+	/**
+	 * Creates a range reader if the table spans more than one range of IDs
+	 *
+	 * @param connectionSource the connection source
+	 * @param schemaRowMapper the row mapper
+	 * @param rangeColumn the ID column of the row mapper
+	 * @param retrievalSize how many IDs each range covers
+	 * @param parallelism how many ranges to read at once
+	 * @return the range reader, or an empty optional if the table is better read in a single query
+	 * @throws SQLException if determining the range of IDs failed
+	 */
+	static <T> Optional<RangeReader<T>> create(ConnectionSource connectionSource, SchemaRowMapper<T> schemaRowMapper,
+											   String rangeColumn, int retrievalSize, int parallelism)
+			throws SQLException {
+		String boundsStatement = "SELECT MIN(" + rangeColumn + "), MAX(" + rangeColumn + ") "
+				+ "FROM (" + schemaRowMapper.selectStatement() + ") bounds";
+		long start;
+		long end;
+		try (Connection connection = connectionSource.openConnection();
+			 PreparedStatement prepStmt = connection.prepareStatement(boundsStatement);
+			 ResultSet resultSet = prepStmt.executeQuery()) {
+
+			resultSet.next();
+			start = resultSet.getLong(1);
+			if (resultSet.wasNull()) {
+				// Empty table
+				return Optional.empty();
+			}
+			end = resultSet.getLong(2);
+		}
+		if (end - start < retrievalSize) {
+			return Optional.empty();
+		}
+		logger.debug("Reading IDs {} to {} in ranges of {}", start, end, retrievalSize);
+		return Optional.of(new RangeReader<>(
+				connectionSource, schemaRowMapper, rangeColumn, retrievalSize, parallelism, start, end
+		));
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!currentRange.hasNext()) {
+			readAheadRanges();
+			Future<List<T>> nextRange = readAhead.pollFirst();
+			if (nextRange == null) {
+				return false;
+			}
+			if (totalCount > 0) {
+				logger.info("Iterated over " + totalCount + " rows so far. Iterating further...");
+			}
+			List<T> rows = awaitRange(nextRange);
+			totalCount += rows.size();
+			currentRange = rows.iterator();
+		}
+		return true;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return currentRange.next();
+	}
+
+	private void readAheadRanges() {
+		while (readAhead.size() < readAheadLimit && nextStart <= end) {
+			long rangeStart = nextStart;
+			long rangeEnd = Math.min(rangeStart + retrievalSize - 1, end);
+			readAhead.addLast(readers.submit(() -> readRange(rangeStart, rangeEnd)));
+			nextStart = rangeEnd + 1;
+		}
+	}
+
+	private List<T> readRange(long rangeStart, long rangeEnd) throws SQLException {
+		Connection connection = idleConnections.poll();
+		if (connection == null) {
+			connection = connectionSource.openConnection();
+			openConnections.offer(connection);
+		}
+		try (PreparedStatement prepStmt = connection.prepareStatement(rangeStatement)) {
+			prepStmt.setLong(1, rangeStart);
+			prepStmt.setLong(2, rangeEnd);
+			prepStmt.setFetchSize(retrievalSize);
+			try (ResultSet resultSet = prepStmt.executeQuery()) {
+				List<T> rows = new ArrayList<>();
+				while (resultSet.next()) {
+					schemaRowMapper.mapRow(resultSet).ifPresentOrElse(rows::add, skipped::incrementAndGet);
+				}
+				return rows;
+			}
+		} finally {
+			idleConnections.offer(connection);
+		}
+	}
+
+	private List<T> awaitRange(Future<List<T>> range) {
+		try {
+			return range.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new ImportException("Interrupted while reading import source", ex);
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new ImportException("Unable to select imported data", cause);
+		}
+	}
+
+	@Override
+	public void close() throws SQLException {
+		readAhead.forEach((range) -> range.cancel(true));
+		readAhead.clear();
+		readers.shutdownNow();
+		try {
+			if (!readers.awaitTermination(30L, TimeUnit.SECONDS)) {
+				logger.warn("Import reader threads did not terminate in time");
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		SQLException failure = null;
+		for (Connection connection : openConnections) {
+			try {
+				connection.close();
+			} catch (SQLException ex) {
+				if (failure == null) {
+					failure = ex;
+				} else {
+					failure.addSuppressed(ex);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		int skipped = this.skipped.get();
+		if (skipped > 0) {
+			logger.info("Skipping " + skipped + " rows.");
+		}
+	}
+}
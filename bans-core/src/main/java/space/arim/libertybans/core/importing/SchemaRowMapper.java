@@ -36,4 +36,15 @@ public interface SchemaRowMapper<T> {
 	 */
 	Optional<T> mapRow(ResultSet resultSet) throws SQLException;
 
+	/**
+	 * Gets the integer ID column by which rows may be read in ranges, several ranges at once.
+	 * If present, the select statement must be a plain select from a single table, to which
+	 * a range condition can be appended, and {@link #mapRow(ResultSet)} must be thread safe.
+	 *
+	 * @return the ID column, or an empty optional to read all rows in a single query
+	 */
+	default Optional<String> rangeColumn() {
+		return Optional.empty();
+	}
+
 }
@@ -22,8 +22,6 @@ package space.arim.libertybans.core.importing;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.inject.Provider;
-import org.jooq.DSLContext;
-import org.jooq.Field;
 import org.jooq.Table;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,15 +32,21 @@ import space.arim.libertybans.core.database.DatabaseResult;
 import space.arim.libertybans.core.database.DatabaseSettings;
 import space.arim.libertybans.core.database.StandardDatabase;
 import space.arim.libertybans.core.database.execute.QueryExecutor;
-import space.arim.libertybans.core.database.jooq.BatchTransfer;
+import space.arim.libertybans.core.service.SimpleThreadFactory;
 import space.arim.omnibus.util.ThisClass;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import static space.arim.libertybans.core.schema.tables.Messages.MESSAGES;
 import static space.arim.libertybans.core.schema.tables.Revision.REVISION;
@@ -51,16 +55,18 @@ public final class SelfImportProcess {
 
 	private final Path folder;
 	private final Configs configs;
+	private final FactoryOfTheFuture futuresFactory;
 	private final DatabaseManager databaseManager;
 	private final Provider<QueryExecutor> queryExecutor;
 
 	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
 	@Inject
-	public SelfImportProcess(@Named("folder") Path folder, Configs configs,
+	public SelfImportProcess(@Named("folder") Path folder, Configs configs, FactoryOfTheFuture futuresFactory,
 							 DatabaseManager databaseManager, Provider<QueryExecutor> queryExecutor) {
 		this.folder = folder;
 		this.configs = configs;
+		this.futuresFactory = futuresFactory;
 		this.databaseManager = databaseManager;
 		this.queryExecutor = queryExecutor;
 	}
@@ -72,83 +78,100 @@ public final class SelfImportProcess {
 	public CentralisedFuture<Void> transferAllData(Path folder) {
 		logger.info("Beginning self-import process");
 
-		return queryExecutor.get().execute((target) -> {
-			ImportConfig importConfig = configs.getImportConfig();
-			DatabaseResult dbResult = new DatabaseSettings(folder, databaseManager).create(importConfig.self());
-
-			try (StandardDatabase database = dbResult.database()) {
-
-				if (!dbResult.success()) {
-					logger.warn("Failed to connect to import source");
-					return;
-				}
-				database.execute((source) -> {
-					new SelfImport(source, target, importConfig.retrievalSize()).runTransfer();
-				}).join();
+		ImportConfig importConfig = configs.getImportConfig();
+		int parallelism = importConfig.selfImportParallelism();
+		ExecutorService workers = Executors.newFixedThreadPool(parallelism, SimpleThreadFactory.create("SelfImport"));
+
+		return futuresFactory.supplyAsync(() -> {
+			return new DatabaseSettings(folder, databaseManager).create(importConfig.self());
+		}, workers).thenCompose((dbResult) -> {
+			StandardDatabase database = dbResult.database();
+			if (!dbResult.success()) {
+				logger.warn("Failed to connect to import source");
+				database.close();
+				return futuresFactory.completedFuture(null);
 			}
-			logger.info("Completed self-import process");
-		});
+			SelfImport selfImport = new SelfImport(
+					database, queryExecutor.get(), importConfig.retrievalSize(), parallelism, workers
+			);
+			return selfImport.runTransfer().whenComplete((ignore, ex) -> database.close());
+		}).whenComplete((ignore, ex) -> workers.shutdown());
 	}
 
-	private static final class SelfImport {
+	private final class SelfImport {
 
-		private final DSLContext source;
-		private final DSLContext target;
-		private final int maxBatchSize;
+		private final QueryExecutor source;
+		private final QueryExecutor target;
+		private final int chunkSize;
+		private final int parallelism;
+		private final ExecutorService workers;
 
-		private SelfImport(DSLContext source, DSLContext target, int maxBatchSize) {
+		private final AtomicBoolean aborted = new AtomicBoolean();
+
+		private SelfImport(QueryExecutor source, QueryExecutor target, int chunkSize,
+						   int parallelism, ExecutorService workers) {
 			this.source = source;
 			this.target = target;
-			this.maxBatchSize = maxBatchSize;
+			this.chunkSize = chunkSize;
+			this.parallelism = parallelism;
+			this.workers = workers;
 		}
 
-		private void runTransfer() {
+		private CentralisedFuture<Void> runTransfer() {
+			List<Table<?>> tables = new ArrayList<>();
 			for (Table<?> table : DatabaseConstants.allTables(DatabaseConstants.TableOrder.REFERENTS_FIRST)) {
 				if (table.equals(REVISION) || table.equals(MESSAGES)) {
 					continue;
 				}
-				logger.info("Beginning transfer of data from table: {}", table.getName());
-				transferTable(table);
-				logger.info("Finished transfer of data from table: {}", table.getName());
+				tables.add(table);
+			}
+			// Tables of the same level do not refer to each other
+			TreeMap<Integer, List<TableTransfer<?, ?>>> levels = new TreeMap<>();
+			for (Table<?> table : tables) {
+				TableTransfer<?, ?> tableTransfer = TableTransfer.create(table);
+				levels.computeIfAbsent(tableTransfer.level(tables), (l) -> new ArrayList<>()).add(tableTransfer);
+			}
+			CentralisedFuture<?> future = futuresFactory.completedFuture(null);
+			for (List<TableTransfer<?, ?>> level : levels.values()) {
+				future = future.thenCompose((ignore) -> transferLevel(level));
 			}
+			return future.thenRun(() -> logger.info("Completed self-import process"));
 		}
 
-		private <R extends org.jooq.Record> void transferTable(Table<R> table) {
-
-			// Table fields
-			Field<?>[] fields;
-			{
-				// Exclude generated columns from transferred fields
-				Set<String> forbiddenNames = Set.of("lower_name");
-
-				List<Field<?>> fieldList = new ArrayList<>(Arrays.asList(table.newRecord().fields()));
-				fieldList.removeIf((field) -> forbiddenNames.contains(field.getName()));
-				fields = fieldList.toArray(Field[]::new);
-				/*
-				Note: JOOQ's OSS edition currently does not have the "read-only" column feature,
-				which applies to generated columns. However, the commercial editions have this
-				feature. If the feature ever becomes part of the OSS edition, switch to it here.
-				 */
+		private CentralisedFuture<?> transferLevel(List<TableTransfer<?, ?>> level) {
+			logger.info("Beginning transfer of data from tables: {}", level.stream()
+					.map((tableTransfer) -> tableTransfer.table().getName())
+					.collect(Collectors.joining(", ")));
+
+			List<CentralisedFuture<List<? extends TableTransfer<?, ?>.Partition>>> partitionings = new ArrayList<>();
+			for (TableTransfer<?, ?> tableTransfer : level) {
+				partitionings.add(futuresFactory.supplyAsync(
+						() -> tableTransfer.partition(source, parallelism), workers
+				));
 			}
+			return futuresFactory.allOf(partitionings).thenCompose((ignore) -> {
+				Queue<TableTransfer<?, ?>.Partition> partitions = new ConcurrentLinkedQueue<>();
+				for (var partitioning : partitionings) {
+					partitions.addAll(partitioning.join());
+				}
+				List<CentralisedFuture<?>> lanes = new ArrayList<>(parallelism);
+				for (int n = 0; n < parallelism; n++) {
+					lanes.add(futuresFactory.runAsync(() -> runLane(partitions), workers));
+				}
+				return futuresFactory.allOf(lanes.toArray(CentralisedFuture<?>[]::new));
+			});
+		}
 
-			// Dummy null values for use with the batch API
-			Object[] emptyValues = new Object[fields.length];
-
-			new BatchTransfer<>(
-					source.selectFrom(table).fetchLazy(),
-					() -> target.batch(target
-							.insertInto(table)
-							.columns(fields)
-							.values(emptyValues)
-					),
-					(batch, record) -> {
-						Object[] bindValues = emptyValues.clone();
-						for (int n = 0; n < fields.length; n++) {
-							bindValues[n] = record.get(fields[n]);
-						}
-						return batch.bind(bindValues);
-					}
-			).transferData(maxBatchSize);
+		private void runLane(Queue<TableTransfer<?, ?>.Partition> partitions) {
+			TableTransfer<?, ?>.Partition partition;
+			while (!aborted.get() && (partition = partitions.poll()) != null) {
+				try {
+					partition.transfer(source, target, chunkSize, aborted::get);
+				} catch (RuntimeException ex) {
+					aborted.set(true);
+					throw ex;
+				}
+			}
 		}
 	}
 }
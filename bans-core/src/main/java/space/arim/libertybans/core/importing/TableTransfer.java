@@ -0,0 +1,348 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.importing;
+
+import org.jooq.BatchBindStep;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.InsertValuesStepN;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.Table;
+import org.jooq.TableField;
+import org.jooq.UniqueKey;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.core.database.execute.QueryExecutor;
+import space.arim.omnibus.util.ThisClass;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Copies a single table from one database to another, in chunks ordered by a unique key. <br>
+ * <br>
+ * Large tables are split into partitions by the leading column of the key, which may be
+ * copied concurrently. Each chunk is committed separately. Because every partition is copied
+ * in key order, the rows already in the target describe how far a partition got; an interrupted
+ * transfer resumes from there, without a separate record of its progress.
+ *
+ * @param <R> the record type
+ * @param <T> the type of the leading key column
+ */
+final class TableTransfer<R extends org.jooq.Record, T> {
+
+	private final Table<R> table;
+	private final Field<?>[] fields;
+	private final TableField<R, ?>[] keyFields;
+	private final Field<T> leadingKey;
+
+	private final AtomicInteger remainingPartitions = new AtomicInteger();
+	private final AtomicLong rowsTransferred = new AtomicLong();
+	private volatile long rowsTotal;
+
+	/**
+	 * Rows per partition below which a table is not split further
+	 */
+	private static final int MINIMUM_PARTITION_ROWS = 50_000;
+	/**
+	 * Bind values per insert statement, kept under the PostgreSQL limit of 32767
+	 */
+	private static final int MAXIMUM_BIND_VALUES = 30_000;
+	private static final int MAXIMUM_ROWS_PER_STATEMENT = 1_000;
+	private static final long PROGRESS_INTERVAL = 100_000;
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	private TableTransfer(Table<R> table, Field<?>[] fields, TableField<R, ?>[] keyFields, Field<T> leadingKey) {
+		this.table = table;
+		this.fields = fields;
+		this.keyFields = keyFields;
+		this.leadingKey = leadingKey;
+	}
+
+	static <R extends org.jooq.Record> TableTransfer<R, ?> create(Table<R> table) {
+		// Order by the narrowest unique key
+		UniqueKey<R> key = table.getKeys().stream()
+				.min(Comparator.comparingInt((uniqueKey) -> uniqueKey.getFields().size()))
+				.orElseThrow(() -> new IllegalStateException("Table " + table.getName() + " has no unique key"));
+		@SuppressWarnings("unchecked")
+		TableField<R, ?>[] keyFields = key.getFields().toArray(TableField[]::new);
+
+		// Exclude generated columns from transferred fields
+		Set<String> forbiddenNames = Set.of("lower_name");
+
+		List<Field<?>> fieldList = new ArrayList<>(Arrays.asList(table.newRecord().fields()));
+		fieldList.removeIf((field) -> forbiddenNames.contains(field.getName()));
+		Field<?>[] fields = fieldList.toArray(Field[]::new);
+		/*
+		Note: JOOQ's OSS edition currently does not have the "read-only" column feature,
+		which applies to generated columns. However, the commercial editions have this
+		feature. If the feature ever becomes part of the OSS edition, switch to it here.
+		 */
+		return create(table, fields, keyFields, keyFields[0]);
+	}
+
+	private static <R extends org.jooq.Record, T> TableTransfer<R, T> create(Table<R> table, Field<?>[] fields,
+																			 TableField<R, ?>[] keyFields,
+																			 TableField<R, T> leadingKey) {
+		return new TableTransfer<>(table, fields, keyFields, leadingKey);
+	}
+
+	Table<R> table() {
+		return table;
+	}
+
+	/**
+	 * Determines the level of this table with respect to the others being transferred. Tables
+	 * of the same level do not refer to each other, and may be transferred at the same time.
+	 *
+	 * @param transferring all the tables being transferred
+	 * @return 0 if this table refers to none of the others, otherwise 1 more than the
+	 * level of the tables it refers to
+	 */
+	int level(List<Table<?>> transferring) {
+		return level(table, transferring);
+	}
+
+	private static int level(Table<?> table, List<Table<?>> transferring) {
+		int level = 0;
+		for (var reference : table.getReferences()) {
+			Table<?> referenced = reference.getKey().getTable();
+			if (!referenced.equals(table) && transferring.contains(referenced)) {
+				level = Math.max(level, 1 + level(referenced, transferring));
+			}
+		}
+		return level;
+	}
+
+	/**
+	 * Splits this table into partitions of its leading key column, based on the source data
+	 *
+	 * @param source the source database
+	 * @param maxPartitions the maximum number of partitions
+	 * @return the partitions, in key order
+	 */
+	List<Partition> partition(QueryExecutor source, int maxPartitions) {
+		return source.query((context) -> {
+			int count = context.fetchCount(table);
+			rowsTotal = count;
+			int partitionCount = Math.max(1, Math.min(maxPartitions, count / MINIMUM_PARTITION_ROWS));
+
+			List<T> boundaries = new ArrayList<>(partitionCount - 1);
+			for (int n = 1; n < partitionCount; n++) {
+				T boundary = context
+						.select(leadingKey)
+						.from(table)
+						.orderBy(leadingKey)
+						.limit(1)
+						.offset((int) ((long) count * n / partitionCount))
+						.fetchOne(leadingKey);
+				if (boundary != null && (boundaries.isEmpty()
+						|| !boundary.equals(boundaries.get(boundaries.size() - 1)))) {
+					boundaries.add(boundary);
+				}
+			}
+			List<Partition> partitions = new ArrayList<>(boundaries.size() + 1);
+			T lowerBound = null;
+			for (T upperBound : boundaries) {
+				partitions.add(new Partition(lowerBound, upperBound));
+				lowerBound = upperBound;
+			}
+			partitions.add(new Partition(lowerBound, null));
+			remainingPartitions.set(partitions.size());
+			return partitions;
+		}).join();
+	}
+
+	/**
+	 * A range of the leading key column, including the lower bound and excluding the upper bound
+	 *
+	 */
+	final class Partition {
+
+		private final T lowerBound;
+		private final T upperBound;
+
+		private Partition(T lowerBound, T upperBound) {
+			this.lowerBound = lowerBound;
+			this.upperBound = upperBound;
+		}
+
+		private Condition range() {
+			Condition range = DSL.noCondition();
+			if (lowerBound != null) {
+				range = range.and(leadingKey.greaterOrEqual(lowerBound));
+			}
+			if (upperBound != null) {
+				range = range.and(leadingKey.lessThan(upperBound));
+			}
+			return range;
+		}
+
+		/**
+		 * Copies this partition, committing after each chunk
+		 *
+		 * @param source the source database
+		 * @param target the target database
+		 * @param chunkSize the number of rows to copy at once
+		 * @param aborted whether to stop early, because another partition failed
+		 */
+		void transfer(QueryExecutor source, QueryExecutor target, int chunkSize, BooleanSupplier aborted) {
+			Condition range = range();
+			Condition position = resumePosition(source, target, range);
+			while (position != null && !aborted.getAsBoolean()) {
+				Condition chunkPosition = position;
+				Result<R> chunk = source.query((context) -> {
+					return context
+							.selectFrom(table)
+							.where(chunkPosition)
+							.orderBy(keyFields)
+							.limit(chunkSize)
+							.fetch();
+				}).join();
+				if (chunk.isEmpty()) {
+					break;
+				}
+				target.execute((context) -> insertChunk(context, chunk)).join();
+				recordProgress(chunk.size());
+
+				if (chunk.size() < chunkSize) {
+					break;
+				}
+				R lastRecord = chunk.get(chunk.size() - 1);
+				Object[] lastKey = new Object[keyFields.length];
+				for (int n = 0; n < keyFields.length; n++) {
+					lastKey[n] = lastRecord.get(keyFields[n]);
+				}
+				position = range.and(DSL.row(keyFields).gt(lastKey));
+			}
+			if (!aborted.getAsBoolean() && remainingPartitions.decrementAndGet() == 0) {
+				logger.info("Finished transfer of data from table: {}", table.getName());
+			}
+		}
+
+		/**
+		 * Finds where to start copying this partition. If a previous transfer was interrupted, the
+		 * rows with the greatest leading key already copied may be incomplete, so they are deleted
+		 * and copied again. Only the leading key column is compared across databases, since
+		 * databases may order text differently.
+		 *
+		 * @return the condition on rows to copy, or null if the partition is already copied
+		 */
+		private Condition resumePosition(QueryExecutor source, QueryExecutor target, Condition range) {
+			int existingRows = target.query((context) -> context.fetchCount(table, range)).join();
+			if (existingRows == 0) {
+				return range;
+			}
+			int sourceRows = source.query((context) -> context.fetchCount(table, range)).join();
+			if (existingRows == sourceRows) {
+				logger.info("Skipping {} rows of table {} which were already transferred", existingRows, table.getName());
+				recordProgress(existingRows);
+				return null;
+			}
+			T resumeFrom = target.query((context) -> {
+				return context
+						.select(leadingKey)
+						.from(table)
+						.where(range)
+						.orderBy(leadingKey.desc())
+						.limit(1)
+						.fetchSingle(leadingKey);
+			}).join();
+			int deleted = target.query((context) -> {
+				return context
+						.deleteFrom(table)
+						.where(range)
+						.and(leadingKey.eq(resumeFrom))
+						.execute();
+			}).join();
+			logger.info("Resuming transfer of table {} after {} rows", table.getName(), existingRows - deleted);
+			recordProgress(existingRows - deleted);
+			return range.and(leadingKey.greaterOrEqual(resumeFrom));
+		}
+
+		@Override
+		public String toString() {
+			return "Partition{" +
+					"table=" + table.getName() +
+					", lowerBound=" + lowerBound +
+					", upperBound=" + upperBound +
+					'}';
+		}
+	}
+
+	/**
+	 * Inserts rows. For server databases, multi-row VALUES statements save round trips. HSQLDB
+	 * runs in the same process and parses long statements slowly, so it uses a JDBC batch.
+	 *
+	 * @param context the target database
+	 * @param chunk the rows
+	 */
+	private void insertChunk(DSLContext context, Result<R> chunk) {
+		if (context.family() == SQLDialect.HSQLDB) {
+			BatchBindStep batch = context.batch(context
+					.insertInto(table)
+					.columns(fields)
+					.values(new Object[fields.length])
+			);
+			for (R record : chunk) {
+				batch = batch.bind(valuesOf(record));
+			}
+			batch.execute();
+			return;
+		}
+		int rowsPerStatement = Math.max(1, Math.min(MAXIMUM_ROWS_PER_STATEMENT, MAXIMUM_BIND_VALUES / fields.length));
+		for (int start = 0; start < chunk.size(); start += rowsPerStatement) {
+			int end = Math.min(chunk.size(), start + rowsPerStatement);
+
+			InsertValuesStepN<R> insert = context.insertInto(table).columns(fields);
+			for (R record : chunk.subList(start, end)) {
+				insert = insert.values(valuesOf(record));
+			}
+			insert.execute();
+		}
+	}
+
+	private Object[] valuesOf(R record) {
+		Object[] values = new Object[fields.length];
+		for (int n = 0; n < fields.length; n++) {
+			values[n] = record.get(fields[n]);
+		}
+		return values;
+	}
+
+	private void recordProgress(int rows) {
+		long previous = rowsTransferred.getAndAdd(rows);
+		long current = previous + rows;
+		if (previous / PROGRESS_INTERVAL != current / PROGRESS_INTERVAL) {
+			logger.info("Transferred {} of {} rows from table {}", current, rowsTotal, table.getName());
+		}
+	}
+
+}
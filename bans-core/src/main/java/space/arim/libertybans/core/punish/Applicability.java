@@ -0,0 +1,163 @@
+/*
+ * LibertyBans
+ * Copyright © 2020 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.punish;
+
+import org.jooq.DSLContext;
+import org.jooq.Query;
+import space.arim.libertybans.api.AddressVictim;
+import space.arim.libertybans.api.CompositeVictim;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
+import space.arim.libertybans.core.database.sql.TableForType;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.jooq.impl.DSL.val;
+import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
+
+/**
+ * Maintains the applicability tables, which record the users to whom each active punishment
+ * applies. Rows are added when punishments are enacted and when users are associated with
+ * punished addresses. They are deleted alongside the punishment itself.
+ *
+ */
+public final class Applicability {
+
+	private static final List<PunishmentType> TYPES = List.of(
+			PunishmentType.BAN, PunishmentType.MUTE, PunishmentType.WARN
+	);
+
+	private Applicability() {}
+
+	/**
+	 * Records the users to whom a newly enacted active punishment applies
+	 *
+	 * @param context the query source
+	 * @param type the punishment type, which may not be a kick
+	 * @param id the punishment ID
+	 * @param victim the punishment's victim
+	 */
+	static void applyPunishment(DSLContext context, PunishmentType type, long id, Victim victim) {
+		var applicability = new TableForType(type).applicabilityTable();
+		UUID uuid;
+		NetworkAddress address;
+		switch (victim.getType()) {
+		case PLAYER:
+			uuid = ((PlayerVictim) victim).getUUID();
+			address = null;
+			break;
+		case ADDRESS:
+			uuid = null;
+			address = ((AddressVictim) victim).getAddress();
+			break;
+		case COMPOSITE:
+			uuid = ((CompositeVictim) victim).getUUID();
+			address = ((CompositeVictim) victim).getAddress();
+			break;
+		default:
+			throw MiscUtil.unknownVictimType(victim.getType());
+		}
+		if (uuid != null) {
+			context
+					.insertInto(applicability.table())
+					.columns(applicability.uuid(), applicability.id())
+					.values(uuid, id)
+					.execute();
+		}
+		if (address != null) {
+			var usersOfAddress = context
+					.select(ADDRESSES.UUID, val(id, applicability.id()))
+					.from(ADDRESSES)
+					.where(ADDRESSES.ADDRESS.eq(address));
+			if (uuid != null) {
+				usersOfAddress = usersOfAddress.and(ADDRESSES.UUID.notEqual(uuid));
+			}
+			context
+					.insertInto(applicability.table())
+					.columns(applicability.uuid(), applicability.id())
+					.select(usersOfAddress)
+					.execute();
+		}
+	}
+
+	/**
+	 * Creates the queries which record that the active punishments of the given address
+	 * apply to a user associated with it
+	 *
+	 * @param context the query source
+	 * @param uuid the user's uuid
+	 * @param address the address
+	 * @return the queries, one for each punishment type
+	 */
+	static Query[] linkAddressQueries(DSLContext context, UUID uuid, NetworkAddress address) {
+		Query[] queries = new Query[TYPES.size()];
+		for (int n = 0; n < queries.length; n++) {
+			var tableForType = new TableForType(TYPES.get(n));
+			var simpleView = tableForType.simpleView();
+			var applicability = tableForType.applicabilityTable();
+			queries[n] = context
+					.insertInto(applicability.table())
+					.columns(applicability.uuid(), applicability.id())
+					.select(context
+							.select(val(uuid, applicability.uuid()), simpleView.id())
+							.from(simpleView.table())
+							.where(simpleView.victimType().notEqual(Victim.VictimType.PLAYER))
+							.and(simpleView.victimAddress().eq(address))
+					)
+					.onDuplicateKeyIgnore();
+		}
+		return queries;
+	}
+
+	/**
+	 * Creates the queries which remove the applicability of the active punishments of the given
+	 * address to a user who is no longer associated with it. Applicability to the user derived
+	 * from the user's own uuid, as with player and composite victims, is retained.
+	 *
+	 * @param context the query source
+	 * @param uuid the user's uuid
+	 * @param address the address
+	 * @return the queries, one for each punishment type
+	 */
+	public static Query[] unlinkAddressQueries(DSLContext context, UUID uuid, NetworkAddress address) {
+		Query[] queries = new Query[TYPES.size()];
+		for (int n = 0; n < queries.length; n++) {
+			var tableForType = new TableForType(TYPES.get(n));
+			var simpleView = tableForType.simpleView();
+			var applicability = tableForType.applicabilityTable();
+			queries[n] = context
+					.deleteFrom(applicability.table())
+					.where(applicability.uuid().eq(uuid))
+					.and(applicability.id().in(context
+							.select(simpleView.id())
+							.from(simpleView.table())
+							.where(simpleView.victimType().notEqual(Victim.VictimType.PLAYER))
+							.and(simpleView.victimAddress().eq(address))
+							.and(simpleView.victimType().notEqual(Victim.VictimType.COMPOSITE)
+									.or(simpleView.victimUuid().notEqual(uuid)))
+					));
+		}
+		return queries;
+	}
+
+}
@@ -20,9 +20,12 @@
 package space.arim.libertybans.core.punish;
 
 import org.jooq.DSLContext;
+import org.jooq.Query;
 import space.arim.libertybans.api.NetworkAddress;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -42,51 +45,91 @@ public final class Association {
 	public void associateCurrentName(String name, Instant currentTime) {
 		Objects.requireNonNull(name, "name");
 		Objects.requireNonNull(currentTime, "currentTime");
-		context
+		currentNameQuery(context, uuid, name, currentTime).execute();
+	}
+
+	static Query currentNameQuery(DSLContext context, UUID uuid, String name, Instant currentTime) {
+		return context
 				.insertInto(NAMES)
 				.columns(NAMES.UUID, NAMES.NAME, NAMES.UPDATED)
 				.values(uuid, name, currentTime)
 				.onConflict(NAMES.UUID, NAMES.NAME)
 				.doUpdate()
-				.set(NAMES.UPDATED, currentTime)
-				.execute();
+				.set(NAMES.UPDATED, currentTime);
 	}
 
 	public void associatePastName(String name, Instant pastTime) {
+		pastNameQuery(name, pastTime).execute();
+	}
+
+	/**
+	 * Creates the query which {@link #associatePastName(String, Instant)} executes, for use in a batch
+	 *
+	 * @param name the past name
+	 * @param pastTime the time the name was used
+	 * @return the query
+	 */
+	public Query pastNameQuery(String name, Instant pastTime) {
 		Objects.requireNonNull(name, "name");
 		Objects.requireNonNull(pastTime, "pastTime");
-		context
+		return context
 				.insertInto(NAMES)
 				.columns(NAMES.UUID, NAMES.NAME, NAMES.UPDATED)
 				.values(uuid, name, pastTime)
 				.onConflict(NAMES.UUID, NAMES.NAME)
-				.doNothing()
-				.execute();
+				.doNothing();
 	}
 
 	public void associateCurrentAddress(NetworkAddress address, Instant currentTime) {
 		Objects.requireNonNull(address, "address");
 		Objects.requireNonNull(currentTime, "currentTime");
-		context
+		currentAddressQuery(context, uuid, address, currentTime).execute();
+		linkAddressToPunishments(address);
+	}
+
+	static Query currentAddressQuery(DSLContext context, UUID uuid, NetworkAddress address, Instant currentTime) {
+		return context
 				.insertInto(ADDRESSES)
 				.columns(ADDRESSES.UUID, ADDRESSES.ADDRESS, ADDRESSES.UPDATED)
 				.values(uuid, address, currentTime)
 				.onConflict(ADDRESSES.UUID, ADDRESSES.ADDRESS)
 				.doUpdate()
-				.set(ADDRESSES.UPDATED, currentTime)
-				.execute();
+				.set(ADDRESSES.UPDATED, currentTime);
 	}
 
 	public void associatePastAddress(NetworkAddress address, Instant pastTime) {
+		for (Query query : pastAddressQueries(address, pastTime)) {
+			query.execute();
+		}
+	}
+
+	/**
+	 * Creates the queries which {@link #associatePastAddress(NetworkAddress, Instant)} executes,
+	 * for use in a batch. They must be executed in order.
+	 *
+	 * @param address the past address
+	 * @param pastTime the time the address was used
+	 * @return the queries
+	 */
+	public List<Query> pastAddressQueries(NetworkAddress address, Instant pastTime) {
 		Objects.requireNonNull(address, "address");
 		Objects.requireNonNull(pastTime, "pastTime");
-		context
+		Query[] linkQueries = Applicability.linkAddressQueries(context, uuid, address);
+		List<Query> queries = new ArrayList<>(1 + linkQueries.length);
+		queries.add(context
 				.insertInto(ADDRESSES)
 				.columns(ADDRESSES.UUID, ADDRESSES.ADDRESS, ADDRESSES.UPDATED)
 				.values(uuid, address, pastTime)
 				.onConflict(ADDRESSES.UUID, ADDRESSES.ADDRESS)
-				.doNothing()
-				.execute();
+				.doNothing());
+		queries.addAll(List.of(linkQueries));
+		return queries;
+	}
+
+	private void linkAddressToPunishments(NetworkAddress address) {
+		for (Query query : Applicability.linkAddressQueries(context, uuid, address)) {
+			query.execute();
+		}
 	}
 
 	@Override
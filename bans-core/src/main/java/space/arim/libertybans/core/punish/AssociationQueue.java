@@ -0,0 +1,285 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.punish;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+import org.jooq.DSLContext;
+import org.jooq.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.core.Part;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.libertybans.core.database.execute.QueryExecutor;
+import space.arim.omnibus.util.ThisClass;
+import space.arim.omnibus.util.concurrent.DelayCalculators;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
+import space.arim.omnibus.util.concurrent.ScheduledTask;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Write-behind queue for the name and address associations recorded when players join. <br>
+ * <br>
+ * Queued associations are coalesced by key, such that only the latest timestamp of each
+ * is written. They are written in batches, either periodically or once enough have accumulated,
+ * and all pending associations are written on shutdown.
+ *
+ */
+@Singleton
+public final class AssociationQueue implements Part {
+
+	private final Configs configs;
+	private final EnhancedExecutor enhancedExecutor;
+	private final Provider<QueryExecutor> queryExecutor;
+
+	private final Object lock = new Object();
+	// Guarded by lock
+	private Map<NameKey, Instant> pendingNames = new HashMap<>();
+	private Map<AddressKey, Instant> pendingAddresses = new HashMap<>();
+	private boolean flushTriggered;
+
+	private volatile Settings settings;
+	private ScheduledTask flushTask;
+
+	/**
+	 * Ensures batches are written in order, so that timestamps are never overwritten with older ones
+	 */
+	private final Object flushLock = new Object();
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	@Inject
+	public AssociationQueue(Configs configs, EnhancedExecutor enhancedExecutor, Provider<QueryExecutor> queryExecutor) {
+		this.configs = configs;
+		this.enhancedExecutor = enhancedExecutor;
+		this.queryExecutor = queryExecutor;
+	}
+
+	private static final class Settings {
+
+		final int maxBatchSize;
+		final int queueCapacity;
+
+		Settings(int maxBatchSize, int queueCapacity) {
+			this.maxBatchSize = maxBatchSize;
+			this.queueCapacity = queueCapacity;
+		}
+	}
+
+	@Override
+	public void startup() {
+		SqlConfig.AssociationBatching batchingConfig = configs.getSqlConfig().associationBatching();
+		if (!batchingConfig.enable()) {
+			return;
+		}
+		settings = new Settings(batchingConfig.maxBatchSize(), batchingConfig.queueCapacity());
+		flushTask = enhancedExecutor.scheduleRepeating(
+				this::flush,
+				Duration.ofMillis(batchingConfig.flushIntervalMillis()),
+				DelayCalculators.fixedDelay()
+		);
+	}
+
+	@Override
+	public void restart() {
+		shutdown();
+		startup();
+	}
+
+	@Override
+	public void shutdown() {
+		settings = null;
+		if (flushTask != null) {
+			flushTask.cancel();
+			flushTask = null;
+		}
+		flush();
+	}
+
+	/**
+	 * Queues the associations of a joining player
+	 *
+	 * @param uuid the player's uuid
+	 * @param name the player's name
+	 * @param address the player's address
+	 * @param currentTime the current time
+	 * @return true if queued, false if the caller should write the associations itself
+	 * because batching is disabled or the queue is full
+	 */
+	public boolean enqueue(UUID uuid, String name, NetworkAddress address, Instant currentTime) {
+		Settings settings = this.settings;
+		if (settings == null) {
+			return false;
+		}
+		NameKey nameKey = new NameKey(uuid, name);
+		AddressKey addressKey = new AddressKey(uuid, address);
+		boolean triggerFlush;
+		synchronized (lock) {
+			int size = pendingAddresses.size();
+			if (size >= settings.queueCapacity
+					&& !(pendingNames.containsKey(nameKey) && pendingAddresses.containsKey(addressKey))) {
+				return false;
+			}
+			pendingNames.merge(nameKey, currentTime, AssociationQueue::later);
+			pendingAddresses.merge(addressKey, currentTime, AssociationQueue::later);
+			triggerFlush = !flushTriggered && pendingAddresses.size() >= settings.maxBatchSize;
+			if (triggerFlush) {
+				flushTriggered = true;
+			}
+		}
+		if (triggerFlush) {
+			enhancedExecutor.execute(this::flush);
+		}
+		return true;
+	}
+
+	private static Instant later(Instant time1, Instant time2) {
+		return (time1.isAfter(time2)) ? time1 : time2;
+	}
+
+	/**
+	 * Writes all pending associations, blocking until complete
+	 *
+	 */
+	void flush() {
+		synchronized (flushLock) {
+			Map<NameKey, Instant> names;
+			Map<AddressKey, Instant> addresses;
+			synchronized (lock) {
+				names = pendingNames;
+				addresses = pendingAddresses;
+				pendingNames = new HashMap<>();
+				pendingAddresses = new HashMap<>();
+				flushTriggered = false;
+			}
+			if (names.isEmpty() && addresses.isEmpty()) {
+				return;
+			}
+			try {
+				queryExecutor.get().executeWithRetry((context, transaction) -> {
+					context.batch(batchQueries(context, names, addresses)).execute();
+				}).join();
+				logger.trace("Wrote {} name and {} address associations", names.size(), addresses.size());
+			} catch (RuntimeException ex) {
+				logger.warn("Failed to write batch of {} name and {} address associations. " +
+						"They will be retried in the next batch.", names.size(), addresses.size(), ex);
+				requeue(names, addresses);
+			}
+		}
+	}
+
+	private static List<Query> batchQueries(DSLContext context,
+											Map<NameKey, Instant> names, Map<AddressKey, Instant> addresses) {
+		List<Query> queries = new ArrayList<>(names.size() + 4 * addresses.size());
+		names.forEach((key, time) -> {
+			queries.add(Association.currentNameQuery(context, key.uuid, key.name, time));
+		});
+		addresses.forEach((key, time) -> {
+			queries.add(Association.currentAddressQuery(context, key.uuid, key.address, time));
+			queries.addAll(List.of(Applicability.linkAddressQueries(context, key.uuid, key.address)));
+		});
+		return queries;
+	}
+
+	private void requeue(Map<NameKey, Instant> names, Map<AddressKey, Instant> addresses) {
+		if (settings == null) {
+			// Shutting down; there is no later batch
+			logger.warn("Discarding {} name and {} address associations which could not be written",
+					names.size(), addresses.size());
+			return;
+		}
+		synchronized (lock) {
+			names.forEach((key, time) -> pendingNames.merge(key, time, AssociationQueue::later));
+			addresses.forEach((key, time) -> pendingAddresses.merge(key, time, AssociationQueue::later));
+		}
+	}
+
+	private static final class NameKey {
+
+		final UUID uuid;
+		final String name;
+
+		NameKey(UUID uuid, String name) {
+			this.uuid = Objects.requireNonNull(uuid, "uuid");
+			this.name = Objects.requireNonNull(name, "name");
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (this == object) {
+				return true;
+			}
+			if (!(object instanceof NameKey)) {
+				return false;
+			}
+			NameKey other = (NameKey) object;
+			return uuid.equals(other.uuid) && name.equals(other.name);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = uuid.hashCode();
+			result = 31 * result + name.hashCode();
+			return result;
+		}
+	}
+
+	private static final class AddressKey {
+
+		final UUID uuid;
+		final NetworkAddress address;
+
+		AddressKey(UUID uuid, NetworkAddress address) {
+			this.uuid = Objects.requireNonNull(uuid, "uuid");
+			this.address = Objects.requireNonNull(address, "address");
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (this == object) {
+				return true;
+			}
+			if (!(object instanceof AddressKey)) {
+				return false;
+			}
+			AddressKey other = (AddressKey) object;
+			return uuid.equals(other.uuid) && address.equals(other.address);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = uuid.hashCode();
+			result = 31 * result + address.hashCode();
+			return result;
+		}
+	}
+
+}
@@ -20,7 +20,6 @@
 package space.arim.libertybans.core.punish;
 
 import org.jooq.DSLContext;
-import org.jooq.Field;
 import space.arim.libertybans.api.Operator;
 import space.arim.libertybans.api.PunishmentType;
 import space.arim.libertybans.api.Victim;
@@ -28,22 +27,12 @@ import space.arim.libertybans.api.punish.Punishment;
 import space.arim.libertybans.api.scope.ServerScope;
 import space.arim.libertybans.core.database.execute.Transaction;
 import space.arim.libertybans.core.database.sql.FixedVictimData;
-import space.arim.libertybans.core.database.sql.SequenceValue;
 import space.arim.libertybans.core.database.sql.SerializedVictim;
-import space.arim.libertybans.core.database.sql.TableForType;
-import space.arim.libertybans.core.database.sql.VictimCondition;
 import space.arim.libertybans.core.database.sql.VictimData;
-import space.arim.libertybans.core.database.sql.VictimTableFields;
 
 import java.time.Instant;
 
 import static java.util.Objects.requireNonNull;
-import static org.jooq.impl.DSL.val;
-import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_PUNISHMENT_IDS;
-import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_VICTIM_IDS;
-import static space.arim.libertybans.core.schema.tables.History.HISTORY;
-import static space.arim.libertybans.core.schema.tables.Punishments.PUNISHMENTS;
-import static space.arim.libertybans.core.schema.tables.Victims.VICTIMS;
 
 public class Enaction {
 
@@ -79,76 +68,22 @@ public class Enaction {
 
 		MiscUtil.checkNoCompositeVictimWildcards(victim);
 
-		SequenceValue<Long> punishmentIdSequence = new SequenceValue<>(LIBERTYBANS_PUNISHMENT_IDS);
-		SequenceValue<Integer> victimIdSequence = new SequenceValue<>(LIBERTYBANS_VICTIM_IDS);
-		context
-				.insertInto(PUNISHMENTS)
-				.columns(
-						PUNISHMENTS.ID, PUNISHMENTS.TYPE,
-						PUNISHMENTS.OPERATOR, PUNISHMENTS.REASON,
-						PUNISHMENTS.SCOPE, PUNISHMENTS.START, PUNISHMENTS.END)
-				.values(
-						punishmentIdSequence.nextValue(context), val(type, PUNISHMENTS.TYPE),
-						val(operator, PUNISHMENTS.OPERATOR), val(reason, PUNISHMENTS.REASON),
-						val(scope, PUNISHMENTS.SCOPE), val(start, PUNISHMENTS.START), val(end, PUNISHMENTS.END))
-				.execute();
-
-		Field<Long> punishmentIdField = punishmentIdSequence.lastValueInSession(context);
-		Field<Integer> victimIdField;
-		{
-			VictimData victimData = FixedVictimData.from(new SerializedVictim(victim));
-			Integer existingVictimId = context
-					.select(VICTIMS.ID)
-					.from(VICTIMS)
-					.where(new VictimCondition(new VictimTableFields()).matchesVictim(victimData))
-					.fetchOne(VICTIMS.ID);
-			if (existingVictimId == null) {
-				context
-						.insertInto(VICTIMS)
-						.columns(VICTIMS.ID, VICTIMS.TYPE, VICTIMS.UUID, VICTIMS.ADDRESS)
-						.values(
-								victimIdSequence.nextValue(context),
-								val(victimData.type(), VICTIMS.TYPE),
-								val(victimData.uuid(), VICTIMS.UUID),
-								val(victimData.address(), VICTIMS.ADDRESS)
-						)
-						.execute();
-				victimIdField = victimIdSequence.lastValueInSession(context);
-			} else {
-				victimIdField = val(existingVictimId, VICTIMS.ID);
+		EnactionStatements statements = EnactionStatements.forContext(context);
+		long id = statements.insertPunishment(context, type, operator, reason, scope, start, end);
+
+		VictimData victimData = FixedVictimData.from(new SerializedVictim(victim));
+		statements.insertVictimIfAbsent(context, victimData);
+		if (active && type != PunishmentType.KICK) {
+			if (!statements.insertData(context, type, id, victimData)) {
+				// There is already a punishment of this type for this victim
+				transaction.rollback();
+				return null;
 			}
 		}
+		statements.insertHistory(context, id, victimData);
 		if (active && type != PunishmentType.KICK) {
-			var dataTable = new TableForType(type).dataTable();
-			if (type.isSingular()) {
-				int updateCount = context
-						.insertInto(dataTable.table())
-						.columns(dataTable.id(), dataTable.victimId())
-						.values(punishmentIdField, victimIdField)
-						.onDuplicateKeyIgnore()
-						.execute();
-				if (updateCount == 0) {
-					// There is already a punishment of this type for this victim
-					transaction.rollback();
-					return null;
-				}
-			} else {
-				context
-						.insertInto(dataTable.table())
-						.columns(dataTable.id(), dataTable.victimId())
-						.values(punishmentIdField, victimIdField)
-						.execute();
-			}
+			Applicability.applyPunishment(context, type, id, victim);
 		}
-		context
-				.insertInto(HISTORY)
-				.columns(HISTORY.ID, HISTORY.VICTIM)
-				.values(punishmentIdField, victimIdField)
-				.execute();
-		long id = context
-				.select(punishmentIdField)
-				.fetchSingle()
-				.value1();
 		Punishment punishment = creator.createPunishment(id, type, victim, operator, reason, scope, start, end);
 		if (punishment == null) { // Shouldn't happen
 			throw new IllegalStateException("Internal error: Unable to create punishment for id " + id);
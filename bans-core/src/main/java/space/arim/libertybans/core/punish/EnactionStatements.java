@@ -0,0 +1,234 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.punish;
+
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Param;
+import org.jooq.Query;
+import org.jooq.SQLDialect;
+import space.arim.libertybans.api.Operator;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.scope.ServerScope;
+import space.arim.libertybans.core.database.sql.SequenceValue;
+import space.arim.libertybans.core.database.sql.TableForType;
+import space.arim.libertybans.core.database.sql.VictimData;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.jooq.impl.DSL.param;
+import static org.jooq.impl.DSL.select;
+import static org.jooq.impl.DSL.selectOne;
+import static org.jooq.impl.DSL.val;
+import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_PUNISHMENT_IDS;
+import static space.arim.libertybans.core.schema.Sequences.LIBERTYBANS_VICTIM_IDS;
+import static space.arim.libertybans.core.schema.tables.History.HISTORY;
+import static space.arim.libertybans.core.schema.tables.Punishments.PUNISHMENTS;
+import static space.arim.libertybans.core.schema.tables.Victims.VICTIMS;
+
+/**
+ * The statements used to enact punishments, rendered once for each SQL dialect and thereafter
+ * executed with bind values. <br>
+ * <br>
+ * The victim is identified in each statement by its type, uuid, and address, which together are
+ * unique. This way, the victim's ID never needs to be retrieved.
+ *
+ */
+final class EnactionStatements {
+
+	private static final Map<SQLDialect, EnactionStatements> STATEMENTS = new ConcurrentHashMap<>();
+
+	/**
+	 * Whether the punishment insert generates its own ID and returns it
+	 */
+	private final boolean returnsPunishmentId;
+	private final String insertPunishment;
+	/**
+	 * Inserts the victim unless it exists. Null for MySQL, which lacks sequences
+	 */
+	private final String insertVictimIfAbsent;
+	private final String selectVictimId;
+	private final String insertVictim;
+	private final Map<PunishmentType, String> insertData = new EnumMap<>(PunishmentType.class);
+	private final String insertHistory;
+
+	private EnactionStatements(DSLContext context) {
+		SQLDialect family = context.family();
+		returnsPunishmentId = family == SQLDialect.POSTGRES;
+		insertPunishment = context.render(insertPunishmentQuery(context));
+		if (family == SQLDialect.MYSQL) {
+			insertVictimIfAbsent = null;
+		} else {
+			insertVictimIfAbsent = context.render(context
+					.insertInto(VICTIMS)
+					.columns(VICTIMS.ID, VICTIMS.TYPE, VICTIMS.UUID, VICTIMS.ADDRESS)
+					.select(select(
+							LIBERTYBANS_VICTIM_IDS.nextval(),
+							param(VICTIMS.TYPE), param(VICTIMS.UUID), param(VICTIMS.ADDRESS)
+					).whereNotExists(selectOne().from(VICTIMS).where(matchesVictim()))));
+		}
+		selectVictimId = context.render(context
+				.select(VICTIMS.ID)
+				.from(VICTIMS)
+				.where(matchesVictim()));
+		insertVictim = context.render(context
+				.insertInto(VICTIMS)
+				.columns(VICTIMS.ID, VICTIMS.TYPE, VICTIMS.UUID, VICTIMS.ADDRESS)
+				.values(param(VICTIMS.ID), param(VICTIMS.TYPE), param(VICTIMS.UUID), param(VICTIMS.ADDRESS)));
+		for (PunishmentType type : PunishmentType.values()) {
+			if (type == PunishmentType.KICK) {
+				continue;
+			}
+			var dataTable = new TableForType(type).dataTable();
+			var insert = context
+					.insertInto(dataTable.table())
+					.columns(dataTable.id(), dataTable.victimId())
+					.select(select(param(dataTable.id()), VICTIMS.ID).from(VICTIMS).where(matchesVictim()));
+			insertData.put(type, context.render((type.isSingular()) ? insert.onDuplicateKeyIgnore() : insert));
+		}
+		insertHistory = context.render(context
+				.insertInto(HISTORY)
+				.columns(HISTORY.ID, HISTORY.VICTIM)
+				.select(select(param(HISTORY.ID), VICTIMS.ID).from(VICTIMS).where(matchesVictim())));
+	}
+
+	private Query insertPunishmentQuery(DSLContext context) {
+		var insert = context
+				.insertInto(PUNISHMENTS)
+				.columns(
+						PUNISHMENTS.ID, PUNISHMENTS.TYPE,
+						PUNISHMENTS.OPERATOR, PUNISHMENTS.REASON,
+						PUNISHMENTS.SCOPE, PUNISHMENTS.START, PUNISHMENTS.END);
+		Field<Long> id = (returnsPunishmentId) ? LIBERTYBANS_PUNISHMENT_IDS.nextval() : param(PUNISHMENTS.ID);
+		var values = insert.values(
+				id, param(PUNISHMENTS.TYPE),
+				param(PUNISHMENTS.OPERATOR), param(PUNISHMENTS.REASON),
+				param(PUNISHMENTS.SCOPE), param(PUNISHMENTS.START), param(PUNISHMENTS.END));
+		return (returnsPunishmentId) ? values.returningResult(PUNISHMENTS.ID) : values;
+	}
+
+	private static Condition matchesVictim() {
+		return VICTIMS.TYPE.eq(param(VICTIMS.TYPE))
+				.and(VICTIMS.UUID.eq(param(VICTIMS.UUID)))
+				.and(VICTIMS.ADDRESS.eq(param(VICTIMS.ADDRESS)));
+	}
+
+	/**
+	 * Gets the statements for the dialect of the given context
+	 *
+	 * @param context the context, which is used to render the statements the first time
+	 * @return the statements
+	 */
+	static EnactionStatements forContext(DSLContext context) {
+		return STATEMENTS.computeIfAbsent(context.dialect(), (dialect) -> new EnactionStatements(context));
+	}
+
+	/**
+	 * Inserts a punishment
+	 *
+	 * @param context the query source
+	 * @return the ID of the punishment
+	 */
+	long insertPunishment(DSLContext context, PunishmentType type, Operator operator, String reason,
+						  ServerScope scope, Instant start, Instant end) {
+		Param<?>[] values = {
+				val(type, PUNISHMENTS.TYPE),
+				val(operator, PUNISHMENTS.OPERATOR), val(reason, PUNISHMENTS.REASON),
+				val(scope, PUNISHMENTS.SCOPE), val(start, PUNISHMENTS.START), val(end, PUNISHMENTS.END)
+		};
+		if (returnsPunishmentId) {
+			return context
+					.resultQuery(insertPunishment, (Object[]) values)
+					.fetchSingle()
+					.get(PUNISHMENTS.ID.getName(), Long.class);
+		}
+		long id = new SequenceValue<>(LIBERTYBANS_PUNISHMENT_IDS).fetchNextValue(context);
+		Object[] valuesWithId = new Object[values.length + 1];
+		valuesWithId[0] = val(id, PUNISHMENTS.ID);
+		System.arraycopy(values, 0, valuesWithId, 1, values.length);
+		context.execute(insertPunishment, valuesWithId);
+		return id;
+	}
+
+	/**
+	 * Inserts a victim if it does not already exist
+	 *
+	 * @param context the query source
+	 * @param victim the victim
+	 */
+	void insertVictimIfAbsent(DSLContext context, VictimData victim) {
+		Object[] victimValues = victimValues(victim);
+		if (insertVictimIfAbsent != null) {
+			Object[] victimValuesTwice = new Object[2 * victimValues.length];
+			System.arraycopy(victimValues, 0, victimValuesTwice, 0, victimValues.length);
+			System.arraycopy(victimValues, 0, victimValuesTwice, victimValues.length, victimValues.length);
+			context.execute(insertVictimIfAbsent, victimValuesTwice);
+			return;
+		}
+		if (context.fetchValue(selectVictimId, victimValues) == null) {
+			Integer victimId = new SequenceValue<>(LIBERTYBANS_VICTIM_IDS).fetchNextValue(context);
+			context.execute(insertVictim, withId(val(victimId, VICTIMS.ID), victimValues));
+		}
+	}
+
+	/**
+	 * Inserts into the data table of a punishment type. For singular punishment types,
+	 * nothing is inserted if the victim already has a punishment of the type.
+	 *
+	 * @param context the query source
+	 * @param type the punishment type, which may not be a kick
+	 * @param id the punishment ID
+	 * @param victim the victim, which must exist
+	 * @return true if inserted, false if the victim already has a singular punishment of the type
+	 */
+	boolean insertData(DSLContext context, PunishmentType type, long id, VictimData victim) {
+		var dataTable = new TableForType(type).dataTable();
+		return context.execute(insertData.get(type), withId(val(id, dataTable.id()), victimValues(victim))) != 0;
+	}
+
+	/**
+	 * Inserts into the punishment history
+	 *
+	 * @param context the query source
+	 * @param id the punishment ID
+	 * @param victim the victim, which must exist
+	 */
+	void insertHistory(DSLContext context, long id, VictimData victim) {
+		context.execute(insertHistory, withId(val(id, HISTORY.ID), victimValues(victim)));
+	}
+
+	private static Object[] victimValues(VictimData victim) {
+		return new Object[] {
+				val(victim.type(), VICTIMS.TYPE), val(victim.uuid(), VICTIMS.UUID), val(victim.address(), VICTIMS.ADDRESS)
+		};
+	}
+
+	private static Object[] withId(Param<?> id, Object[] victimValues) {
+		Object[] values = new Object[victimValues.length + 1];
+		values[0] = id;
+		System.arraycopy(victimValues, 0, values, 1, victimValues.length);
+		return values;
+	}
+
+}
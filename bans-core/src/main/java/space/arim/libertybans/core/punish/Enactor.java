@@ -29,6 +29,7 @@ import space.arim.libertybans.api.punish.Punishment;
 import space.arim.libertybans.api.punish.PunishmentDrafter;
 import space.arim.libertybans.core.database.InternalDatabase;
 import space.arim.libertybans.core.scope.InternalScopeManager;
+import space.arim.libertybans.core.selector.cache.ActivePunishmentIndex;
 import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 
@@ -41,14 +42,16 @@ public class Enactor implements PunishmentDrafter {
 	private final InternalScopeManager scopeManager;
 	private final Provider<InternalDatabase> dbProvider;
 	private final PunishmentCreator creator;
+	private final ActivePunishmentIndex punishmentIndex;
 	private final Time time;
 
 	@Inject
 	public Enactor(InternalScopeManager scopeManager, Provider<InternalDatabase> dbProvider,
-				   PunishmentCreator creator, Time time) {
+				   PunishmentCreator creator, ActivePunishmentIndex punishmentIndex, Time time) {
 		this.scopeManager = scopeManager;
 		this.dbProvider = dbProvider;
 		this.creator = creator;
+		this.punishmentIndex = punishmentIndex;
 		this.time = time;
 	}
 
@@ -81,6 +84,11 @@ public class Enactor implements PunishmentDrafter {
 				database.clearExpiredPunishments(context, type, start);
 			}
 			return enaction.enactActive(context, transaction);
+		}).thenApply((punishment) -> {
+			if (punishment != null) {
+				punishmentIndex.addActive(punishment);
+			}
+			return punishment;
 		});
 	}
 
@@ -36,6 +36,7 @@ import space.arim.libertybans.core.database.sql.EndTimeCondition;
 import space.arim.libertybans.core.database.sql.TableForType;
 import space.arim.libertybans.core.database.sql.VictimCondition;
 import space.arim.libertybans.core.database.sql.VictimFields;
+import space.arim.libertybans.core.selector.cache.ActivePunishmentIndex;
 import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.ThisClass;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
@@ -55,17 +56,20 @@ public class Revoker implements InternalRevoker {
 	private final Provider<InternalDatabase> dbProvider;
 	private final PunishmentCreator creator;
 	private final GlobalEnforcement enforcement;
+	private final ActivePunishmentIndex punishmentIndex;
 	private final Time time;
 
 	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
 	@Inject
 	public Revoker(FactoryOfTheFuture futuresFactory, Provider<InternalDatabase> dbProvider,
-				   PunishmentCreator creator, GlobalEnforcement enforcement, Time time) {
+				   PunishmentCreator creator, GlobalEnforcement enforcement,
+				   ActivePunishmentIndex punishmentIndex, Time time) {
 		this.futuresFactory = futuresFactory;
 		this.dbProvider = dbProvider;
 		this.creator = creator;
 		this.enforcement = enforcement;
+		this.punishmentIndex = punishmentIndex;
 		this.time = time;
 	}
 
@@ -157,14 +161,26 @@ public class Revoker implements InternalRevoker {
 		return result;
 	}
 
+	private Punishment removeFromIndex(Punishment punishment) {
+		if (punishment != null) {
+			punishmentIndex.removeActive(punishment.getIdentifier());
+		}
+		return punishment;
+	}
+
 	CentralisedFuture<Boolean> undoPunishmentByIdAndType(final long id, final PunishmentType type) {
 		if (type == PunishmentType.KICK) {
 			// Kicks are never active
 			return futuresFactory.completedFuture(false);
 		}
 		InternalDatabase database = dbProvider.get();
-		return database.queryWithRetry((context, transaction) -> {
+		return database.queryWithRetry("Revoker.undoByIdAndType", (context, transaction) -> {
 			return deleteActivePunishmentByIdAndType(context, id, type);
+		}).thenApply((undone) -> {
+			if (undone) {
+				punishmentIndex.removeActive(id);
+			}
+			return undone;
 		});
 	}
 
@@ -174,14 +190,14 @@ public class Revoker implements InternalRevoker {
 			return futuresFactory.completedFuture(null);
 		}
 		InternalDatabase database = dbProvider.get();
-		return database.queryWithRetry((context, transaction) -> {
+		return database.queryWithRetry("Revoker.undoAndGetByIdAndType", (context, transaction) -> {
 			return deleteAndGetActivePunishmentByIdAndType(context, id, type);
-		});
+		}).thenApply(this::removeFromIndex);
 	}
 
 	CentralisedFuture<PunishmentType> undoPunishmentById(final long id) {
 		InternalDatabase database = dbProvider.get();
-		return database.queryWithRetry((context, transaction) -> {
+		return database.queryWithRetry("Revoker.undoById", (context, transaction) -> {
 			PunishmentType type = context
 					.select(SIMPLE_ACTIVE.TYPE)
 					.from(SIMPLE_ACTIVE)
@@ -192,12 +208,17 @@ public class Revoker implements InternalRevoker {
 				return null;
 			}
 			return type;
+		}).thenApply((type) -> {
+			if (type != null) {
+				punishmentIndex.removeActive(id);
+			}
+			return type;
 		});
 	}
 
 	CentralisedFuture<Punishment> undoAndGetPunishmentById(final long id) {
 		InternalDatabase database = dbProvider.get();
-		return database.queryWithRetry((context, transaction) -> {
+		return database.queryWithRetry("Revoker.undoAndGetById", (context, transaction) -> {
 			PunishmentType type = context
 					.select(SIMPLE_ACTIVE.TYPE)
 					.from(SIMPLE_ACTIVE)
@@ -208,7 +229,7 @@ public class Revoker implements InternalRevoker {
 				return null;
 			}
 			return deleteAndGetActivePunishmentByIdAndType(context, id, type);
-		});
+		}).thenApply(this::removeFromIndex);
 	}
 
 	private static Condition matchesAnyVictim(VictimFields victimFields, List<Victim> victims) {
@@ -225,7 +246,7 @@ public class Revoker implements InternalRevoker {
 	CentralisedFuture<Long> undoPunishmentByTypeAndPossibleVictims(final PunishmentType type, 
 																   final List<Victim> victims) {
 		InternalDatabase database = dbProvider.get();
-		return database.queryWithRetry((context, transaction) -> {
+		return database.queryWithRetry("Revoker.undoByVictims", (context, transaction) -> {
 			var simpleView = new TableForType(type).simpleView();
 			Long id = context
 					.select(simpleView.id())
@@ -237,13 +258,18 @@ public class Revoker implements InternalRevoker {
 				return null;
 			}
 			return id;
+		}).thenApply((id) -> {
+			if (id != null) {
+				punishmentIndex.removeActive(id);
+			}
+			return id;
 		});
 	}
 
 	CentralisedFuture<Punishment> undoAndGetPunishmentByTypeAndPossibleVictims(final PunishmentType type, 
 																			   final List<Victim> victims) {
 		InternalDatabase database = dbProvider.get();
-		return database.queryWithRetry((context, transaction) -> {
+		return database.queryWithRetry("Revoker.undoAndGetByVictims", (context, transaction) -> {
 			var simpleView = new TableForType(type).simpleView();
 			Long id = context
 					.select(simpleView.id())
@@ -255,7 +281,7 @@ public class Revoker implements InternalRevoker {
 				return null;
 			}
 			return deleteAndGetActivePunishmentByIdAndType(context, id, type);
-		});
+		}).thenApply(this::removeFromIndex);
 	}
 	
 }
@@ -66,7 +66,7 @@ public final class StandardGlobalEnforcement implements GlobalEnforcement {
 		return handleSynchronizedEnforcement(
 				() -> enforcer.enforceWithoutSynchronization(punishment, enforcementOptions),
 				enforcementOptions,
-				new SynchronizationMessage(punishment, Mode.DO, enforcementOptions)
+				() -> new SynchronizationMessage(punishment, Mode.DO, enforcementOptions, embedPunishments())
 		);
 	}
 
@@ -76,7 +76,7 @@ public final class StandardGlobalEnforcement implements GlobalEnforcement {
 		return handleSynchronizedEnforcement(
 				() -> enforcer.unenforceWithoutSynchronization(punishment, enforcementOptions),
 				enforcementOptions,
-				new SynchronizationMessage(punishment, Mode.UNDO, enforcementOptions)
+				() -> new SynchronizationMessage(punishment, Mode.UNDO, enforcementOptions, embedPunishments())
 		);
 	}
 
@@ -86,20 +86,25 @@ public final class StandardGlobalEnforcement implements GlobalEnforcement {
 		return handleSynchronizedEnforcement(
 				() -> enforcer.unenforceWithoutSynchronization(id, type, enforcementOptions),
 				enforcementOptions,
-				new SynchronizationMessage(id, type, Mode.UNDO, enforcementOptions)
+				() -> new SynchronizationMessage(id, type, Mode.UNDO, enforcementOptions)
 		);
 	}
 
+	private boolean embedPunishments() {
+		return configs.getSqlConfig().synchronization().embedPunishments();
+	}
+
 	private CentralisedFuture<?> handleSynchronizedEnforcement(Supplier<CentralisedFuture<?>> localEnforcement,
 															   EnforcementOptions enforcementOptions,
-															   SynchronizationMessage message) {
+															   Supplier<SynchronizationMessage> message) {
 		EnforcementOptions.Enforcement enforcement = enforcementOptions.enforcement();
 		switch (enforcement) {
 		case GLOBAL:
 			if (configs.getSqlConfig().synchronization().enabled()) {
 				// Need to dispatch message to other instances
 				return localEnforcement.get().thenCompose((ignore) -> {
-					return synchronizationMessenger.get().dispatch(synchronizationProtocol.serializeMessage(message));
+					byte[] messageData = synchronizationProtocol.serializeMessage(message.get());
+					return synchronizationMessenger.get().dispatch(messageData);
 				});
 			}
 			return localEnforcement.get();
@@ -120,24 +125,6 @@ public final class StandardGlobalEnforcement implements GlobalEnforcement {
 	}
 
 	ReactionStage<?> receiveAllMessages(byte[][] messages) {
-		// Receive the messages in order
-		ReactionStage<?> future = null;
-		for (int n = 0; n < messages.length; n++) {
-			if (future == null) {
-				future = receiveMessage(messages[n]);
-			} else {
-				int finalIndex = n;
-				future = future.thenCompose((ignore) -> receiveMessage(messages[finalIndex]));
-			}
-		}
-		if (future == null) {
-			// Empty
-			return futuresFactory.completedFuture(null);
-		}
-		return future;
-	}
-
-	private ReactionStage<?> receiveMessage(byte[] message) {
-		return synchronizationProtocol.receiveMessage(message, messageReceiver);
+		return synchronizationProtocol.receiveMessages(messages, messageReceiver);
 	}
 }
@@ -43,6 +43,7 @@ import space.arim.libertybans.core.config.InternalFormatter;
 import space.arim.libertybans.core.config.RemovalsSection;
 import space.arim.libertybans.core.database.execute.QueryExecutor;
 import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.libertybans.core.database.sql.TableForType;
 import space.arim.libertybans.core.env.AdditionalUUIDTargetMatcher;
 import space.arim.libertybans.core.env.EnvEnforcer;
 import space.arim.libertybans.core.env.ExactTargetMatcher;
@@ -56,6 +57,7 @@ import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 
 import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
@@ -103,9 +105,9 @@ public final class StandardLocalEnforcer implements LocalEnforcer {
 					enforcementOptions.replaceTargetArgument(section.successNotification()),
 					punishment
 			);
-		}).thenAccept((notification) -> {
+		}).thenCompose((notification) -> {
 			boolean silent = enforcementOptions.broadcasting() == Broadcasting.SILENT;
-			envEnforcer.sendToThoseWithPermission(
+			return envEnforcer.sendToThoseWithPermission(
 					new PunishmentPermission(
 							punishment.getType(), Mode.DO
 					).notifyPermission(silent),
@@ -137,9 +139,9 @@ public final class StandardLocalEnforcer implements LocalEnforcer {
 				futureNotify = formatter.formatWithPunishmentAndUnoperator(successNotification, punishment, unOperator.get());
 			}
 		}
-		return futureNotify.thenAccept((notification) -> {
+		return futureNotify.thenCompose((notification) -> {
 			boolean silent = enforcementOptions.broadcasting() == EnforcementOptions.Broadcasting.SILENT;
-			envEnforcer.sendToThoseWithPermission(
+			return envEnforcer.sendToThoseWithPermission(
 					new PunishmentPermission(
 							punishment.getType(), Mode.UNDO
 					).notifyPermission(silent),
@@ -205,14 +207,15 @@ public final class StandardLocalEnforcer implements LocalEnforcer {
 			switch (victim.getType()) {
 			case PLAYER:
 				uuid = ((PlayerVictim) victim).getUUID();
-				return futureMessage.thenAccept((message) -> {
-					envEnforcer.doForPlayerIfOnline(uuid, enforcementCallback(punishment, message));
+				return futureMessage.thenCompose((message) -> {
+					clearCachedMutes(punishment, (targetUuid, targetAddress) -> targetUuid.equals(uuid));
+					return envEnforcer.doForPlayerIfOnline(uuid, enforcementCallback(punishment, message));
 				});
 			case ADDRESS:
 				address = ((AddressVictim) victim).getAddress();
 				return futureMessage
 						.thenCompose((message) -> matchAddressPunishment(punishment, message, address))
-						.thenAccept(envEnforcer::enforceMatcher);
+						.thenCompose((matcher) -> enforceMatcher(punishment, matcher));
 			case COMPOSITE:
 				CompositeVictim compositeVictim = (CompositeVictim) victim;
 				address = compositeVictim.getAddress();
@@ -220,12 +223,27 @@ public final class StandardLocalEnforcer implements LocalEnforcer {
 				return futureMessage
 						.thenCompose((message) -> matchAddressPunishment(punishment, message, address))
 						.thenApply((addressMatcher) -> new AdditionalUUIDTargetMatcher<>(uuid, addressMatcher))
-						.thenAccept(envEnforcer::enforceMatcher);
+						.thenCompose((matcher) -> enforceMatcher(punishment, matcher));
 			default:
 				throw MiscUtil.unknownVictimType(victim.getType());
 			}
 		}
 
+		private CentralisedFuture<Void> enforceMatcher(Punishment punishment, TargetMatcher<P> matcher) {
+			clearCachedMutes(punishment, (uuid, address) -> matcher.matches(uuid, address.toInetAddress()));
+			return envEnforcer.enforceMatcher(matcher);
+		}
+
+		/*
+		 * Cached mutes of all affected users, including those who are not online, must be cleared
+		 * before online players receive the new mute
+		 */
+		private void clearCachedMutes(Punishment punishment, BiPredicate<UUID, NetworkAddress> affected) {
+			if (punishment.getType() == PunishmentType.MUTE) {
+				muteCache.clearCachedMutes(affected);
+			}
+		}
+
 		private Consumer<P> enforcementCallback(Punishment punishment, Component message) {
 			PunishmentType type = punishment.getType();
 			boolean shouldKick = shouldKick(type);
@@ -276,12 +294,22 @@ public final class StandardLocalEnforcer implements LocalEnforcer {
 
 		private CentralisedFuture<TargetMatcher<P>> matchAddressPunishmentNormal(
 				NetworkAddress address, Punishment punishment, Component message) {
+			PunishmentType type = punishment.getType();
 			return queryExecutor.get().query(SQLFunction.readOnly((context) -> {
+				if (type == PunishmentType.KICK) {
+					// Kicks are never active, so they have no applicability
+					return context
+							.select(ADDRESSES.UUID)
+							.from(ADDRESSES)
+							.where(ADDRESSES.ADDRESS.eq(address))
+							.fetchSet(ADDRESSES.UUID);
+				}
+				var applicability = new TableForType(type).applicabilityTable();
 				return context
-						.select(ADDRESSES.UUID)
-						.from(ADDRESSES)
-						.where(ADDRESSES.ADDRESS.eq(address))
-						.fetchSet(ADDRESSES.UUID);
+						.select(applicability.uuid())
+						.from(applicability.table())
+						.where(applicability.id().eq(punishment.getIdentifier()))
+						.fetchSet(applicability.uuid());
 			})).thenApply((uuids) -> {
 				return new UUIDTargetMatcher<>(uuids, enforcementCallback(punishment, message));
 			});
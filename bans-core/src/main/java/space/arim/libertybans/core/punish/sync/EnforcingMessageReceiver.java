@@ -24,31 +24,109 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import space.arim.libertybans.api.punish.EnforcementOptions;
 import space.arim.libertybans.api.punish.Punishment;
-import space.arim.libertybans.api.select.PunishmentSelector;
 import space.arim.libertybans.core.punish.EnforcementOpts;
 import space.arim.libertybans.core.punish.LocalEnforcer;
 import space.arim.libertybans.core.punish.Mode;
+import space.arim.libertybans.core.punish.PunishmentCreator;
+import space.arim.libertybans.core.selector.InternalSelector;
+import space.arim.libertybans.core.selector.cache.ActivePunishmentIndex;
 import space.arim.omnibus.util.ThisClass;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 import space.arim.omnibus.util.concurrent.ReactionStage;
 
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
 public final class EnforcingMessageReceiver implements MessageReceiver {
 
 	private final FactoryOfTheFuture futuresFactory;
-	private final PunishmentSelector selector;
+	private final InternalSelector selector;
 	private final LocalEnforcer enforcer;
+	private final ActivePunishmentIndex punishmentIndex;
+	private final PunishmentCreator creator;
 
 	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 
 	@Inject
-	public EnforcingMessageReceiver(FactoryOfTheFuture futuresFactory, PunishmentSelector selector, LocalEnforcer enforcer) {
+	public EnforcingMessageReceiver(FactoryOfTheFuture futuresFactory, InternalSelector selector,
+									LocalEnforcer enforcer, ActivePunishmentIndex punishmentIndex,
+									PunishmentCreator creator) {
 		this.futuresFactory = futuresFactory;
 		this.selector = selector;
 		this.enforcer = enforcer;
+		this.punishmentIndex = punishmentIndex;
+		this.creator = creator;
 	}
 
 	@Override
 	public ReactionStage<?> onReception(SynchronizationMessage message) {
+		if (message.punishment != null) {
+			// The punishment is embedded in the message, so there is no need to look it up
+			return handle(message, message.punishment.toPunishment(creator, message.id, message.type));
+		}
+		if (undoesWithoutDetails(message)) {
+			// Optimization: We do not need the full punishment details to simply undo a punishment
+			return handle(message, null);
+		}
+		return selector.getHistoricalPunishmentByIdAndType(message.id, message.type).thenCompose((optPunishment) -> {
+			return handle(message, optPunishment.orElse(null));
+		});
+	}
+
+	@Override
+	public ReactionStage<?> onBatchReception(List<SynchronizationMessage> messages) {
+		Set<Long> idsToLookup = new HashSet<>();
+		for (SynchronizationMessage message : messages) {
+			if (message.punishment == null && !undoesWithoutDetails(message)) {
+				idsToLookup.add(message.id);
+			}
+		}
+		return selector.getHistoricalPunishmentsByIds(idsToLookup).thenCompose((punishments) -> {
+			// Messages for the same victim are handled in order, and those for different victims concurrently
+			Map<Object, ReactionStage<?>> victimQueues = new LinkedHashMap<>();
+			for (SynchronizationMessage message : messages) {
+				Punishment punishment;
+				if (message.punishment != null) {
+					punishment = message.punishment.toPunishment(creator, message.id, message.type);
+				} else {
+					punishment = punishments.get(message.id);
+					if (punishment != null && punishment.getType() != message.type) {
+						punishment = null;
+					}
+				}
+				// Without the punishment, the victim is unknown, so order by the punishment ID instead
+				Object victimKey = (punishment == null) ? Long.valueOf(message.id) : punishment.getVictim();
+				Punishment finalPunishment = punishment;
+				victimQueues.compute(victimKey, (key, previous) -> {
+					if (previous == null) {
+						return handle(message, finalPunishment);
+					}
+					return previous.thenCompose((ignore) -> handle(message, finalPunishment));
+				});
+			}
+			CompletableFuture<?>[] futures = victimQueues.values().stream()
+					.map(ReactionStage::toCompletableFuture)
+					.toArray(CompletableFuture[]::new);
+			return futuresFactory.copyFuture(CompletableFuture.allOf(futures));
+		});
+	}
+
+	private static boolean undoesWithoutDetails(SynchronizationMessage message) {
+		return message.broadcasting == EnforcementOptions.Broadcasting.NONE && message.mode == Mode.UNDO;
+	}
+
+	/**
+	 * Handles a received message
+	 *
+	 * @param message the message
+	 * @param punishment the punishment, or null if it was not needed or could not be found
+	 * @return a future completed once handled
+	 */
+	private ReactionStage<?> handle(SynchronizationMessage message, Punishment punishment) {
 		EnforcementOpts enforcementOptions = EnforcementOpts
 				.builder()
 				.enforcement(EnforcementOptions.Enforcement.SINGLE_SERVER_ONLY)
@@ -56,23 +134,23 @@ public final class EnforcingMessageReceiver implements MessageReceiver {
 				.targetArgument(message.targetArgument)
 				.unOperator(message.unOperator)
 				.build();
-		if (message.broadcasting == EnforcementOptions.Broadcasting.NONE && message.mode == Mode.UNDO) {
-			// Optimization: We do not need the full punishment details to simply undo a punishment
-			return enforcer.unenforceWithoutSynchronization(message.id, message.type, enforcementOptions);
-		}
-		return selector.getHistoricalPunishmentByIdAndType(message.id, message.type).thenCompose((optPunishment) -> {
-			if (optPunishment.isEmpty()) {
-				logger.warn("Received punishment which does not exist: id {} and type {}", message.id, message.type);
-				return futuresFactory.completedFuture(null);
-			}
-			Punishment punishment = optPunishment.get();
-			if (message.mode == Mode.UNDO) {
-				// Unenforce this punishment
-				return enforcer.unenforceWithoutSynchronization(punishment, enforcementOptions);
+		if (message.mode == Mode.UNDO) {
+			punishmentIndex.removeActive(message.id);
+			if (message.broadcasting == EnforcementOptions.Broadcasting.NONE) {
+				return enforcer.unenforceWithoutSynchronization(message.id, message.type, enforcementOptions);
 			}
-			// Enforce this punishment
-			assert message.mode == Mode.DO : "Mode " + message.mode;
-			return enforcer.enforceWithoutSynchronization(punishment, enforcementOptions);
-		});
+		}
+		if (punishment == null) {
+			logger.warn("Received punishment which does not exist: id {} and type {}", message.id, message.type);
+			return futuresFactory.completedFuture(null);
+		}
+		if (message.mode == Mode.UNDO) {
+			// Unenforce this punishment
+			return enforcer.unenforceWithoutSynchronization(punishment, enforcementOptions);
+		}
+		// Enforce this punishment
+		assert message.mode == Mode.DO : "Mode " + message.mode;
+		punishmentIndex.addActive(punishment);
+		return enforcer.enforceWithoutSynchronization(punishment, enforcementOptions);
 	}
 }
@@ -0,0 +1,219 @@
+/*
+ * LibertyBans
+ * Copyright © 2021 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.punish.sync;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.core.service.SimpleThreadFactory;
+import space.arim.omnibus.util.ThisClass;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accepts incoming connections from the other instances in the TCP mesh, and reads the
+ * messages they send. Each connection is read on its own thread, so that the messages
+ * of each instance are received in the order sent. Connecting instances send heartbeats,
+ * so a connection which stays silent for too long is treated as lost.
+ *
+ */
+final class MeshListener implements Closeable {
+
+	private final byte[] sharedSecret;
+	private final Handler handler;
+	private final int readTimeoutMillis;
+
+	private final ServerSocket serverSocket;
+	private final ExecutorService threadPool = Executors.newCachedThreadPool(SimpleThreadFactory.create("Synchronization"));
+	private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+	private volatile boolean closed;
+
+	private static final int HANDSHAKE_TIMEOUT_MILLIS = 10_000;
+	private static final long CLOSE_TIMEOUT_SECONDS = 5L;
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	private MeshListener(byte[] sharedSecret, Handler handler, int readTimeoutMillis, ServerSocket serverSocket) {
+		this.sharedSecret = Objects.requireNonNull(sharedSecret, "sharedSecret");
+		this.handler = Objects.requireNonNull(handler, "handler");
+		this.readTimeoutMillis = readTimeoutMillis;
+		this.serverSocket = serverSocket;
+	}
+
+	/**
+	 * Handler of connection events and messages. Instances are identified by their address
+	 * and the identity they present, which remains the same when an instance restarts.
+	 *
+	 */
+	interface Handler {
+
+		/**
+		 * Called when another instance has connected
+		 *
+		 * @param peer the identity of the instance
+		 */
+		void onConnect(String peer);
+
+		/**
+		 * Called on the connection's thread when a message is received
+		 *
+		 * @param peer the identity of the instance
+		 * @param message the message
+		 */
+		void onMessage(String peer, byte[] message);
+
+		/**
+		 * Called when a connection from another instance has been lost
+		 *
+		 * @param peer the identity of the instance
+		 */
+		void onDisconnect(String peer);
+	}
+
+	/**
+	 * Binds to the given address and begins accepting connections
+	 *
+	 * @param bindAddress the address to listen on
+	 * @param sharedSecret the secret which connecting instances must present
+	 * @param handler the handler of connection events and messages
+	 * @return the listener
+	 * @throws IOException if binding failed
+	 */
+	static MeshListener start(InetSocketAddress bindAddress, byte[] sharedSecret, Handler handler) throws IOException {
+		return start(bindAddress, sharedSecret, handler, MessageFrames.READ_TIMEOUT_MILLIS);
+	}
+
+	/** Visible for testing */
+	static MeshListener start(InetSocketAddress bindAddress, byte[] sharedSecret, Handler handler,
+							  int readTimeoutMillis) throws IOException {
+		ServerSocket serverSocket = new ServerSocket();
+		try {
+			serverSocket.bind(bindAddress);
+		} catch (IOException ex) {
+			serverSocket.close();
+			throw ex;
+		}
+		MeshListener listener = new MeshListener(sharedSecret, handler, readTimeoutMillis, serverSocket);
+		listener.threadPool.execute(listener::acceptConnections);
+		return listener;
+	}
+
+	private void acceptConnections() {
+		while (!closed) {
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (IOException ex) {
+				if (!closed) {
+					logger.warn("Failed to accept synchronization connection", ex);
+				}
+				continue;
+			}
+			connections.add(socket);
+			if (closed) {
+				connections.remove(socket);
+				closeQuietly(socket);
+				break;
+			}
+			threadPool.execute(() -> readConnection(socket));
+		}
+	}
+
+	private void readConnection(Socket socket) {
+		String peer = null;
+		try (socket) {
+			socket.setKeepAlive(true);
+			socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+			DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			if (!MessageDigest.isEqual(sharedSecret, MessageFrames.readFrame(input))) {
+				logger.warn("Refused synchronization connection from {} presenting the wrong shared secret",
+						socket.getRemoteSocketAddress());
+				return;
+			}
+			String identity = new String(MessageFrames.readFrame(input), StandardCharsets.UTF_8);
+			socket.setSoTimeout(readTimeoutMillis);
+			peer = socket.getInetAddress().getHostAddress() + '/' + identity;
+			logger.info("Accepted synchronization connection from {}", peer);
+			handler.onConnect(peer);
+			while (!closed) {
+				byte[] frame = MessageFrames.readFrame(input);
+				if (!MessageFrames.isHeartbeat(frame)) {
+					handler.onMessage(peer, frame);
+				}
+			}
+		} catch (EOFException | SocketException ex) {
+			logger.debug("Synchronization connection from {} closed", socket.getRemoteSocketAddress(), ex);
+		} catch (SocketTimeoutException ex) {
+			logger.warn("Synchronization connection from {} timed out", socket.getRemoteSocketAddress());
+		} catch (IOException ex) {
+			logger.warn("Error reading synchronization connection from {}", socket.getRemoteSocketAddress(), ex);
+		} finally {
+			connections.remove(socket);
+			if (peer != null && !closed) {
+				logger.info("Lost synchronization connection from {}", peer);
+				handler.onDisconnect(peer);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			serverSocket.close();
+		} catch (IOException ex) {
+			logger.warn("Failed to close synchronization listener", ex);
+		}
+		for (Socket socket : connections) {
+			closeQuietly(socket);
+		}
+		threadPool.shutdown();
+		// The port is released only once the accepting thread has exited, and may be bound again on restart
+		try {
+			if (!threadPool.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				logger.warn("Synchronization listener threads did not terminate in time");
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void closeQuietly(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException ex) {
+			logger.trace("Failed to close socket", ex);
+		}
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ * LibertyBans
+ * Copyright © 2021 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.punish.sync;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.core.service.SimpleThreadFactory;
+import space.arim.omnibus.util.ThisClass;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Outgoing connection to another instance in the TCP mesh. Messages are sent on a single
+ * thread per peer, so that the peer receives them in the order dispatched.
+ *
+ */
+final class MeshPeer {
+
+	private final String host;
+	private final int port;
+	private final byte[] sharedSecret;
+	private final byte[] identity;
+	private final ExecutorService sendThread = Executors.newSingleThreadExecutor(
+			SimpleThreadFactory.create("Synchronization"));
+
+	// Guarded by this
+	private Socket socket;
+	private DataOutputStream output;
+	private boolean closed;
+
+	private static final int CONNECT_TIMEOUT_MILLIS = 3_000;
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	MeshPeer(String host, int port, byte[] sharedSecret, byte[] identity) {
+		this.host = Objects.requireNonNull(host, "host");
+		this.port = port;
+		this.sharedSecret = Objects.requireNonNull(sharedSecret, "sharedSecret");
+		this.identity = Objects.requireNonNull(identity, "identity");
+	}
+
+	/**
+	 * Parses a peer from its configured form, host:port
+	 *
+	 * @param hostAndPort the host and port
+	 * @param sharedSecret the shared secret to present when connecting
+	 * @param identity the identity of this instance to present when connecting
+	 * @return the peer
+	 * @throws IllegalArgumentException if the host and port are malformed
+	 */
+	static MeshPeer parse(String hostAndPort, byte[] sharedSecret, byte[] identity) {
+		int separator = hostAndPort.lastIndexOf(':');
+		if (separator <= 0 || separator == hostAndPort.length() - 1) {
+			throw new IllegalArgumentException("Expected host:port but found " + hostAndPort);
+		}
+		String host = hostAndPort.substring(0, separator);
+		if (host.startsWith("[") && host.endsWith("]")) {
+			// IPv6 literal
+			host = host.substring(1, host.length() - 1);
+		}
+		int port;
+		try {
+			port = Integer.parseInt(hostAndPort.substring(separator + 1));
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("Invalid port in " + hostAndPort, ex);
+		}
+		if (port <= 0 || port > 65535) {
+			throw new IllegalArgumentException("Port out of range in " + hostAndPort);
+		}
+		return new MeshPeer(host, port, sharedSecret, identity);
+	}
+
+	synchronized boolean isConnected() {
+		return socket != null;
+	}
+
+	private synchronized boolean needsConnection() {
+		return socket == null && !closed;
+	}
+
+	/**
+	 * Connects to the peer if not already connected. Blocks until connected or failed.
+	 *
+	 * @return true if newly connected
+	 */
+	boolean connectIfNecessary() {
+		if (!needsConnection()) {
+			return false;
+		}
+		Socket socket = new Socket();
+		DataOutputStream output;
+		try {
+			socket.setTcpNoDelay(true);
+			socket.setKeepAlive(true);
+			socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+			output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			MessageFrames.writeFrame(output, sharedSecret);
+			MessageFrames.writeFrame(output, identity);
+		} catch (IOException ex) {
+			logger.debug("Unable to connect to {}", this, ex);
+			closeQuietly(socket);
+			return false;
+		}
+		synchronized (this) {
+			if (this.socket != null || closed) {
+				// Connected concurrently, or closed meanwhile
+				closeQuietly(socket);
+				return false;
+			}
+			this.socket = socket;
+			this.output = output;
+		}
+		logger.info("Connected to synchronization peer {}", this);
+		return true;
+	}
+
+	/**
+	 * Queues a message to be sent to the peer. Messages are sent in the order queued.
+	 *
+	 * @param message the message
+	 * @return a future yielding true if sent, false if not connected or sending failed
+	 */
+	CompletableFuture<Boolean> sendInOrder(byte[] message) {
+		try {
+			return CompletableFuture.supplyAsync(() -> send(message), sendThread);
+		} catch (RejectedExecutionException ex) {
+			// Closed
+			return CompletableFuture.completedFuture(false);
+		}
+	}
+
+	/**
+	 * Queues a heartbeat, which tells the peer the connection is still alive. If the connection
+	 * has silently failed, sending the heartbeat eventually fails and the connection is closed.
+	 *
+	 */
+	void sendHeartbeat() {
+		sendInOrder(MessageFrames.HEARTBEAT);
+	}
+
+	/**
+	 * Sends a message to the peer if connected. If sending fails, the connection is closed
+	 * so that it may be re-established later.
+	 *
+	 * @param message the message
+	 * @return true if sent, false if not connected or sending failed
+	 */
+	private synchronized boolean send(byte[] message) {
+		if (socket == null) {
+			return false;
+		}
+		try {
+			MessageFrames.writeFrame(output, message);
+			return true;
+		} catch (IOException ex) {
+			logger.warn("Lost connection to synchronization peer {}", this, ex);
+			disconnect();
+			return false;
+		}
+	}
+
+	/**
+	 * Closes the connection permanently
+	 *
+	 */
+	void close() {
+		synchronized (this) {
+			closed = true;
+			disconnect();
+		}
+		sendThread.shutdown();
+	}
+
+	private void disconnect() {
+		assert Thread.holdsLock(this);
+		if (socket != null) {
+			closeQuietly(socket);
+			socket = null;
+			output = null;
+		}
+	}
+
+	private static void closeQuietly(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException ex) {
+			logger.trace("Failed to close socket", ex);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return host + ':' + port;
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * LibertyBans
+ * Copyright © 2021 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.punish.sync;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Length-prefixed frames used to send synchronization messages over a stream
+ *
+ */
+final class MessageFrames {
+
+	/** Messages are far smaller than this; larger frames indicate a misbehaving connection */
+	static final int MAX_LENGTH = 1 << 16;
+	/** An empty frame, sent periodically so that a connection which has silently failed is noticed */
+	static final byte[] HEARTBEAT = new byte[0];
+	static final long HEARTBEAT_INTERVAL_MILLIS = 5_000L;
+	/** A connection which has been silent for several heartbeat intervals is considered lost */
+	static final int READ_TIMEOUT_MILLIS = 3 * (int) HEARTBEAT_INTERVAL_MILLIS;
+
+	private MessageFrames() {}
+
+	static void writeFrame(DataOutputStream output, byte[] payload) throws IOException {
+		output.writeInt(payload.length);
+		output.write(payload);
+		output.flush();
+	}
+
+	static boolean isHeartbeat(byte[] frame) {
+		return frame.length == 0;
+	}
+
+	static byte[] readFrame(DataInputStream input) throws IOException {
+		int length = input.readInt();
+		if (length < 0 || length > MAX_LENGTH) {
+			throw new IOException("Invalid frame length " + length);
+		}
+		byte[] payload = new byte[length];
+		input.readFully(payload);
+		return payload;
+	}
+}
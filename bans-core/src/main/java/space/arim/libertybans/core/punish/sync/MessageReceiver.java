@@ -21,7 +21,26 @@ package space.arim.libertybans.core.punish.sync;
 
 import space.arim.omnibus.util.concurrent.ReactionStage;
 
+import java.util.List;
+
 public interface MessageReceiver {
 
 	ReactionStage<?> onReception(SynchronizationMessage message);
+
+	/**
+	 * Receives several messages at once, such as those obtained by a single poll. <br>
+	 * <br>
+	 * By default, each message is received after the previous one is fully handled.
+	 *
+	 * @param messages the messages, in the order they were sent. Never empty
+	 * @return a future completed once all messages are handled
+	 */
+	default ReactionStage<?> onBatchReception(List<SynchronizationMessage> messages) {
+		ReactionStage<?> future = onReception(messages.get(0));
+		for (int n = 1; n < messages.size(); n++) {
+			SynchronizationMessage message = messages.get(n);
+			future = future.thenCompose((ignore) -> onReception(message));
+		}
+		return future;
+	}
 }
@@ -0,0 +1,108 @@
+/*
+ * LibertyBans
+ * Copyright © 2021 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.punish.sync;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Listens for notifications on a dedicated PostgreSQL connection. <br>
+ * <br>
+ * The PostgreSQL driver is only available at runtime, so its notification API is accessed reflectively.
+ *
+ */
+final class PostgresNotifications {
+
+	private final Object pgConnection;
+	private final Method getNotifications;
+	private final Method getParameter;
+
+	private static final String[] NO_NOTIFICATIONS = new String[] {};
+
+	private PostgresNotifications(Object pgConnection, Method getNotifications, Method getParameter) {
+		this.pgConnection = pgConnection;
+		this.getNotifications = getNotifications;
+		this.getParameter = getParameter;
+	}
+
+	/**
+	 * Begins listening on the given channel
+	 *
+	 * @param connection the dedicated connection, which must not be used for anything else
+	 * @param channel the channel name, which must be a valid SQL identifier
+	 * @return the notifications
+	 * @throws SQLException if listening failed, including if the connection is not a PostgreSQL connection
+	 */
+	static PostgresNotifications listen(Connection connection, String channel) throws SQLException {
+		PostgresNotifications notifications;
+		try {
+			ClassLoader driverClassLoader = connection.getClass().getClassLoader();
+			Class<?> pgConnectionClass = Class.forName("org.postgresql.PGConnection", true, driverClassLoader);
+			Class<?> pgNotificationClass = Class.forName("org.postgresql.PGNotification", true, driverClassLoader);
+			notifications = new PostgresNotifications(
+					connection.unwrap(pgConnectionClass),
+					pgConnectionClass.getMethod("getNotifications", int.class),
+					pgNotificationClass.getMethod("getParameter")
+			);
+		} catch (ClassNotFoundException | NoSuchMethodException ex) {
+			throw new SQLException("The PostgreSQL driver does not support notifications", ex);
+		}
+		connection.setAutoCommit(true);
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("LISTEN " + channel);
+		}
+		return notifications;
+	}
+
+	/**
+	 * Waits for notifications, returning once any are received or the timeout elapses
+	 *
+	 * @param timeoutMillis the maximum time to wait
+	 * @return the payloads of the received notifications, empty if there were none
+	 * @throws SQLException if the connection failed
+	 */
+	String[] await(int timeoutMillis) throws SQLException {
+		Object[] received = (Object[]) invoke(getNotifications, pgConnection, timeoutMillis);
+		if (received == null) {
+			return NO_NOTIFICATIONS;
+		}
+		String[] payloads = new String[received.length];
+		for (int n = 0; n < received.length; n++) {
+			payloads[n] = (String) invoke(getParameter, received[n]);
+		}
+		return payloads;
+	}
+
+	private static Object invoke(Method method, Object target, Object...arguments) throws SQLException {
+		try {
+			return method.invoke(target, arguments);
+		} catch (IllegalAccessException ex) {
+			throw new SQLException(ex);
+		} catch (InvocationTargetException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			}
+			throw new SQLException(cause);
+		}
+	}
+}
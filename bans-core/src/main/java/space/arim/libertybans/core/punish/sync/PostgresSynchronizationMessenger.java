@@ -0,0 +1,284 @@
+/*
+ * LibertyBans
+ * Copyright © 2021 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.punish.sync;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.core.Part;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.libertybans.core.database.InternalDatabase;
+import space.arim.libertybans.core.database.execute.SQLRunnable;
+import space.arim.libertybans.core.service.SimpleThreadFactory;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.ThisClass;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Synchronization messenger which pushes messages to the other instances using PostgreSQL's
+ * LISTEN/NOTIFY. <br>
+ * <br>
+ * Messages are written to the database and a notification is sent in the same transaction.
+ * Notifications are received on a dedicated connection outside the connection pool. The
+ * database is polled only to catch up on messages which may have been missed while that
+ * connection was not listening, once after it is re-established.
+ *
+ */
+@Singleton
+public final class PostgresSynchronizationMessenger implements SynchronizationMessenger, Part {
+
+	private final Configs configs;
+	private final FactoryOfTheFuture futuresFactory;
+	private final Provider<InternalDatabase> database;
+	private final SQLSynchronizationMessenger sqlMessenger;
+	private final SynchronizationProtocol synchronizationProtocol;
+	private final MessageReceiver messageReceiver;
+	private final Time time;
+
+	private final RecentMessages recentMessages = new RecentMessages(MESSAGE_RETENTION);
+	private volatile Listener listener;
+
+	// Guarded by this
+	private boolean listening;
+	private Instant catchUpSince;
+
+	private static final String CHANNEL = "libertybans_messages";
+	/** Notification payloads must be shorter than 8000 bytes */
+	private static final int MAX_PAYLOAD_LENGTH = 7999;
+	/** Corresponds to the time after which messages are deleted from the database */
+	private static final Duration MESSAGE_RETENTION = Duration.ofMinutes(1L);
+	/** Allows for clock differences between instances when catching up */
+	private static final Duration CATCH_UP_LENIENCY = Duration.ofSeconds(5L);
+	private static final Duration RECONNECT_DELAY = Duration.ofSeconds(5L);
+	private static final int AWAIT_TIMEOUT_MILLIS = 500;
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	@Inject
+	public PostgresSynchronizationMessenger(Configs configs, FactoryOfTheFuture futuresFactory,
+											Provider<InternalDatabase> database, SQLSynchronizationMessenger sqlMessenger,
+											SynchronizationProtocol synchronizationProtocol,
+											MessageReceiver messageReceiver, Time time) {
+		this.configs = configs;
+		this.futuresFactory = futuresFactory;
+		this.database = database;
+		this.sqlMessenger = sqlMessenger;
+		this.synchronizationProtocol = synchronizationProtocol;
+		this.messageReceiver = messageReceiver;
+		this.time = time;
+	}
+
+	// Lifecycle
+
+	@Override
+	public void startup() {
+		SqlConfig.Synchronization synchronizationConf = configs.getSqlConfig().synchronization();
+		if (synchronizationConf.mode() != SqlConfig.Synchronization.SyncMode.ANSI_SQL
+				|| !synchronizationConf.postgresListenNotify()) {
+			return;
+		}
+		InternalDatabase database = this.database.get();
+		if (!database.getVendor().hasListenNotify()) {
+			return;
+		}
+		synchronized (this) {
+			// Catch up on anything dispatched before the connection begins listening
+			listening = false;
+			catchUpSince = time.currentTimestamp();
+		}
+		listener = new Listener(database);
+	}
+
+	@Override
+	public void restart() {
+		shutdown();
+		startup();
+	}
+
+	@Override
+	public void shutdown() {
+		Listener listener = this.listener;
+		if (listener != null) {
+			this.listener = null;
+			listener.close();
+		}
+		synchronized (this) {
+			listening = false;
+			catchUpSince = null;
+		}
+	}
+
+	/**
+	 * Whether this messenger is in use. It is in use if enabled and supported by the database vendor
+	 *
+	 * @return true if active
+	 */
+	public boolean isActive() {
+		return listener != null;
+	}
+
+	// Dispatch
+
+	@Override
+	public CentralisedFuture<?> dispatch(byte[] message) {
+		String payload = Base64.getEncoder().encodeToString(message);
+		if (payload.length() > MAX_PAYLOAD_LENGTH) {
+			// Receivers will catch up on the message from the database
+			payload = "";
+		}
+		String notificationPayload = payload;
+		return database.get().execute(SQLRunnable.named("Synchronization.dispatch", (context) -> {
+			sqlMessenger.insertMessage(context, message);
+			context
+					.select(DSL.function("pg_notify", String.class, DSL.val(CHANNEL), DSL.val(notificationPayload)))
+					.execute();
+		}));
+	}
+
+	// Reception
+
+	@Override
+	public CentralisedFuture<byte[][]> poll() {
+		Instant catchUpSince;
+		synchronized (this) {
+			catchUpSince = this.catchUpSince;
+			if (catchUpSince == null) {
+				return futuresFactory.completedFuture(new byte[][] {});
+			}
+			// Keep catching up until listening resumes
+			this.catchUpSince = (listening) ? null : time.currentTimestamp().minus(CATCH_UP_LENIENCY);
+		}
+		logger.debug("Catching up on synchronization messages since {}", catchUpSince);
+		return sqlMessenger.catchUp(catchUpSince).thenApply((messages) -> {
+			return recentMessages.retainUnseen(messages, time.currentTimestamp());
+		});
+	}
+
+	private void requestCatchUp() {
+		assert Thread.holdsLock(this);
+		if (catchUpSince == null) {
+			catchUpSince = time.currentTimestamp().minus(CATCH_UP_LENIENCY);
+		}
+	}
+
+	private void onNotification(String payload) {
+		if (payload.isEmpty()) {
+			synchronized (this) {
+				requestCatchUp();
+			}
+			return;
+		}
+		byte[] message;
+		try {
+			message = Base64.getDecoder().decode(payload);
+		} catch (IllegalArgumentException ex) {
+			logger.warn("Ignoring malformed synchronization notification", ex);
+			return;
+		}
+		if (!recentMessages.markSeen(message, time.currentTimestamp())) {
+			return;
+		}
+		try {
+			synchronizationProtocol.receiveMessage(message, messageReceiver).toCompletableFuture().join();
+		} catch (RuntimeException ex) {
+			logger.warn("Failed to handle synchronization message", ex);
+		}
+	}
+
+	private final class Listener implements Runnable {
+
+		private final InternalDatabase database;
+		private final ExecutorService thread = Executors.newSingleThreadExecutor(
+				SimpleThreadFactory.create("Synchronization")
+		);
+		private volatile boolean closed;
+
+		Listener(InternalDatabase database) {
+			this.database = database;
+			thread.execute(this);
+		}
+
+		@Override
+		public void run() {
+			while (!closed) {
+				try (Connection connection = database.openDedicatedConnection()) {
+					PostgresNotifications notifications = PostgresNotifications.listen(connection, CHANNEL);
+					onListen();
+					logger.debug("Listening for synchronization notifications");
+					while (!closed) {
+						for (String payload : notifications.await(AWAIT_TIMEOUT_MILLIS)) {
+							onNotification(payload);
+						}
+					}
+				} catch (SQLException | RuntimeException ex) {
+					if (closed) {
+						break;
+					}
+					onConnectionLost();
+					logger.warn("Unable to listen for synchronization notifications. Retrying in {} seconds; " +
+							"meanwhile, the database will be polled instead.", RECONNECT_DELAY.toSeconds(), ex);
+				}
+				if (closed) {
+					break;
+				}
+				try {
+					Thread.sleep(RECONNECT_DELAY.toMillis());
+				} catch (InterruptedException ex) {
+					break;
+				}
+			}
+		}
+
+		private void onListen() {
+			synchronized (PostgresSynchronizationMessenger.this) {
+				if (!closed) {
+					listening = true;
+				}
+			}
+		}
+
+		private void onConnectionLost() {
+			synchronized (PostgresSynchronizationMessenger.this) {
+				if (!closed) {
+					listening = false;
+					requestCatchUp();
+				}
+			}
+		}
+
+		void close() {
+			closed = true;
+			thread.shutdownNow();
+		}
+	}
+
+}
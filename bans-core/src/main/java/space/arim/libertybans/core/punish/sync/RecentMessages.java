@@ -0,0 +1,82 @@
+/*
+ * LibertyBans
+ * Copyright © 2021 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.punish.sync;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers recently received messages, so that a message received through more than
+ * one channel is processed only once
+ *
+ */
+final class RecentMessages {
+
+	private final Duration retention;
+	// Guarded by this. In order of insertion, which is also the order of time seen
+	private final Map<ByteBuffer, Instant> seen = new LinkedHashMap<>();
+
+	RecentMessages(Duration retention) {
+		this.retention = retention;
+	}
+
+	/**
+	 * Marks a message as seen
+	 *
+	 * @param message the message
+	 * @param currentTime the current time
+	 * @return true if the message had not been seen recently
+	 */
+	synchronized boolean markSeen(byte[] message, Instant currentTime) {
+		purgeBefore(currentTime.minus(retention));
+		return seen.putIfAbsent(ByteBuffer.wrap(message), currentTime) == null;
+	}
+
+	/**
+	 * Marks each message as seen, retaining only those which had not been seen recently
+	 *
+	 * @param messages the messages
+	 * @param currentTime the current time
+	 * @return the messages not seen recently, in the same order
+	 */
+	synchronized byte[][] retainUnseen(byte[][] messages, Instant currentTime) {
+		List<byte[]> unseen = new ArrayList<>(messages.length);
+		for (byte[] message : messages) {
+			if (markSeen(message, currentTime)) {
+				unseen.add(message);
+			}
+		}
+		return unseen.toArray(new byte[][] {});
+	}
+
+	private void purgeBefore(Instant cutoff) {
+		for (Iterator<Instant> iterator = seen.values().iterator(); iterator.hasNext(); ) {
+			if (!iterator.next().isBefore(cutoff)) {
+				break;
+			}
+			iterator.remove();
+		}
+	}
+}
@@ -16,77 +16,205 @@
  * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
  * and navigate to version 3 of the GNU Affero General Public License.
  */
-
 package space.arim.libertybans.core.punish.sync;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
 import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Record2;
+import org.jooq.Result;
 import space.arim.libertybans.core.database.execute.QueryExecutor;
 import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.libertybans.core.database.execute.SQLRunnable;
 import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
-import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+import static org.jooq.impl.DSL.max;
 import static space.arim.libertybans.core.schema.tables.Messages.MESSAGES;
 
+/**
+ * Synchronization messenger which polls the database for new messages. <br>
+ * <br>
+ * Messages are identified by an increasing ID, and polling retrieves those with an ID higher
+ * than any received so far. Because IDs are not necessarily committed in order, an ID skipped
+ * over is remembered as a gap and checked again in subsequent polls, until it is filled or
+ * enough time has passed that it will never be.
+ *
+ */
 @Singleton
 public final class SQLSynchronizationMessenger implements SynchronizationMessenger {
 
-	private final FactoryOfTheFuture futuresFactory;
 	private final Provider<QueryExecutor> queryExecutor;
 	private final Time time;
 
-	private Instant lastTimestamp;
+	// Guarded by this
+	private Position position;
+
+	private static final int POLL_BATCH_SIZE = 200;
+	/** Prevents an unexpected jump in IDs from being tracked as many gaps */
+	private static final int MAX_GAPS = 500;
+	/** Ample time for a transaction to commit its message */
+	private static final Duration GAP_TIMEOUT = Duration.ofSeconds(30L);
 
 	@Inject
-	public SQLSynchronizationMessenger(FactoryOfTheFuture futuresFactory,
-									   Provider<QueryExecutor> queryExecutor, Time time) {
-		this.futuresFactory = futuresFactory;
+	public SQLSynchronizationMessenger(Provider<QueryExecutor> queryExecutor, Time time) {
 		this.queryExecutor = queryExecutor;
 		this.time = time;
 	}
 
 	@Override
 	public CentralisedFuture<?> dispatch(byte[] message) {
-		return queryExecutor.get().execute((context) -> {
-			context
-					.insertInto(MESSAGES)
-					.columns(MESSAGES.MESSAGE, MESSAGES.TIME)
-					.values(message, time.currentTimestamp())
-					.execute();
-		});
+		return queryExecutor.get().execute(SQLRunnable.named(
+				"Synchronization.dispatch", (context) -> insertMessage(context, message)
+		));
+	}
+
+	/**
+	 * Records a message in the database. Used by other messengers which dispatch messages
+	 * in the same transaction.
+	 *
+	 * @param context the query context
+	 * @param message the message
+	 */
+	void insertMessage(DSLContext context, byte[] message) {
+		context
+				.insertInto(MESSAGES)
+				.columns(MESSAGES.MESSAGE, MESSAGES.TIME)
+				.values(message, time.currentTimestamp())
+				.execute();
 	}
 
 	@Override
 	public CentralisedFuture<byte[][]> poll() {
-		Instant currentTime = time.currentTimestamp();
-		if (lastTimestamp == null) {
+		return queryExecutor.get().query(SQLFunction.readOnly("Synchronization.poll", this::pollMessages));
+	}
+
+	private synchronized byte[][] pollMessages(DSLContext context) {
+		if (position == null) {
 			// The server has recently started up or LibertyBans has restarted
-			lastTimestamp = currentTime;
-			return futuresFactory.completedFuture(new byte[][] {});
+			position = new Position(selectHighestId(context));
+			return new byte[][] {};
+		}
+		Instant currentTime = time.currentTimestamp();
+		// The position is only updated once all queries have succeeded
+		Position newPosition = new Position(position);
+		newPosition.expireGaps(currentTime.minus(GAP_TIMEOUT));
+
+		List<byte[]> messages = new ArrayList<>();
+		if (!newPosition.gaps.isEmpty()) {
+			Result<Record2<Long, byte[]>> filledGaps = context
+					.select(MESSAGES.ID, MESSAGES.MESSAGE)
+					.from(MESSAGES)
+					.where(MESSAGES.ID.in(newPosition.gaps.keySet()))
+					.orderBy(MESSAGES.ID.asc())
+					.fetch();
+			for (Record2<Long, byte[]> filledGap : filledGaps) {
+				newPosition.gaps.remove(filledGap.value1());
+				messages.add(filledGap.value2());
+			}
 		}
-		Condition timeCondition = MESSAGES.TIME.lessOrEqual(currentTime).and(MESSAGES.TIME.greaterThan(lastTimestamp));
-		var future = queryExecutor.get().query(SQLFunction.readOnly((context) -> {
+		int batchSize;
+		do {
+			Result<Record2<Long, byte[]>> batch = context
+					.select(MESSAGES.ID, MESSAGES.MESSAGE)
+					.from(MESSAGES)
+					.where(MESSAGES.ID.greaterThan(newPosition.highestId))
+					.orderBy(MESSAGES.ID.asc())
+					.limit(POLL_BATCH_SIZE)
+					.fetch();
+			for (Record2<Long, byte[]> record : batch) {
+				newPosition.advanceTo(record.value1(), currentTime);
+				messages.add(record.value2());
+			}
+			batchSize = batch.size();
+		} while (batchSize == POLL_BATCH_SIZE);
+
+		position = newPosition;
+		return messages.toArray(new byte[][] {});
+	}
+
+	private static long selectHighestId(DSLContext context) {
+		Long highestId = context
+				.select(max(MESSAGES.ID))
+				.from(MESSAGES)
+				.fetchSingle()
+				.value1();
+		return (highestId == null) ? 0L : highestId;
+	}
+
+	/**
+	 * Retrieves all messages dispatched since the given time, without affecting the state used for polling.
+	 * Used by other messengers to catch up on messages they may have missed.
+	 *
+	 * @param since the time after which to retrieve messages
+	 * @return a future of the messages in order of dispatch
+	 */
+	CentralisedFuture<byte[][]> catchUp(Instant since) {
+		Condition timeCondition = MESSAGES.TIME.greaterThan(since);
+		return queryExecutor.get().query(SQLFunction.readOnly("Synchronization.catchUp", (context) -> {
 			return context
 					.select(MESSAGES.MESSAGE)
 					.from(MESSAGES)
 					.where(timeCondition)
-					.orderBy(MESSAGES.TIME.asc())
+					.orderBy(MESSAGES.ID.asc())
 					.fetchArray(MESSAGES.MESSAGE);
 		}));
-		lastTimestamp = currentTime;
-		return future;
 	}
 
-	public void setInitialTimestamp() {
-		lastTimestamp = time.currentTimestamp();
+	/**
+	 * Positions polling at the latest message, such that the next poll retrieves only
+	 * messages dispatched afterward
+	 *
+	 */
+	public void setInitialPosition() {
+		long highestId = queryExecutor.get().query(SQLFunction.readOnly(
+				"Synchronization.setInitialPosition", SQLSynchronizationMessenger::selectHighestId)).join();
+		synchronized (this) {
+			position = new Position(highestId);
+		}
+	}
+
+	public synchronized void resetPosition() {
+		position = null;
 	}
 
-	public void resetLastTimestamp() {
-		lastTimestamp = null;
+	private static final class Position {
+
+		long highestId;
+		/** IDs lower than the highest ID which have not been received, and when they were first skipped */
+		final Map<Long, Instant> gaps;
+
+		Position(long highestId) {
+			this.highestId = highestId;
+			gaps = new LinkedHashMap<>();
+		}
+
+		Position(Position copyFrom) {
+			highestId = copyFrom.highestId;
+			gaps = new LinkedHashMap<>(copyFrom.gaps);
+		}
+
+		void expireGaps(Instant skippedBefore) {
+			gaps.values().removeIf((skippedAt) -> skippedAt.isBefore(skippedBefore));
+		}
+
+		void advanceTo(long id, Instant currentTime) {
+			if (id - highestId - 1 <= MAX_GAPS) {
+				for (long skipped = highestId + 1; skipped < id; skipped++) {
+					gaps.put(skipped, currentTime);
+				}
+			}
+			highestId = id;
+		}
 	}
+
 }
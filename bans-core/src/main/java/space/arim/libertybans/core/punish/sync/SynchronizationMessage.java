@@ -21,23 +21,42 @@ package space.arim.libertybans.core.punish.sync;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import space.arim.libertybans.api.NetworkAddress;
 import space.arim.libertybans.api.Operator;
 import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
 import space.arim.libertybans.api.punish.EnforcementOptions;
 import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.api.scope.ServerScope;
+import space.arim.libertybans.core.database.jooq.EndInstantConverter;
 import space.arim.libertybans.core.database.jooq.OperatorBinding;
+import space.arim.libertybans.core.database.jooq.ServerScopeConverter;
+import space.arim.libertybans.core.database.sql.DeserializedVictim;
+import space.arim.libertybans.core.database.sql.EmptyData;
+import space.arim.libertybans.core.database.sql.SerializedVictim;
 import space.arim.libertybans.core.punish.EnforcementOpts;
 import space.arim.libertybans.core.punish.Mode;
+import space.arim.libertybans.core.punish.PunishmentCreator;
 import space.arim.omnibus.util.ThisClass;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.time.Instant;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 
+/**
+ * A message telling other instances to enforce or unenforce a punishment. <br>
+ * <br>
+ * Version 1 messages carry only the punishment ID and type, so receivers must look up the punishment
+ * in the database. Version 2 messages also embed the punishment itself, letting receivers enforce it
+ * directly. Version 2 is written only when the punishment is embedded, so that instances which only
+ * understand version 1 can still read every other message.
+ *
+ */
 public final class SynchronizationMessage {
 
 	final long id;
@@ -46,20 +65,32 @@ public final class SynchronizationMessage {
 	final EnforcementOptions.Broadcasting broadcasting;
 	final String targetArgument;
 	final Operator unOperator;
+	/** The embedded punishment, or {@code null} if receivers must look it up */
+	final EmbeddedPunishment punishment;
 
 	private static final byte PROTOCOL_VERSION = (byte) 1;
+	private static final byte EMBEDDED_PROTOCOL_VERSION = (byte) 2;
 	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
 	private static final OperatorBinding operatorBinding = new OperatorBinding();
+	private static final ServerScopeConverter scopeConverter = new ServerScopeConverter();
+	private static final EndInstantConverter endConverter = new EndInstantConverter();
 
-	public SynchronizationMessage(long id, PunishmentType type,
-								  Mode mode, EnforcementOptions.Broadcasting broadcasting,
-								  String targetArgument, Operator unOperator) {
+	SynchronizationMessage(long id, PunishmentType type,
+						   Mode mode, EnforcementOptions.Broadcasting broadcasting,
+						   String targetArgument, Operator unOperator, EmbeddedPunishment punishment) {
 		this.id = id;
 		this.type = Objects.requireNonNull(type, "type");
 		this.mode = Objects.requireNonNull(mode, "mode");
 		this.broadcasting = Objects.requireNonNull(broadcasting, "broadcasting");
 		this.targetArgument = targetArgument;
 		this.unOperator = unOperator;
+		this.punishment = punishment;
+	}
+
+	public SynchronizationMessage(long id, PunishmentType type,
+								  Mode mode, EnforcementOptions.Broadcasting broadcasting,
+								  String targetArgument, Operator unOperator) {
+		this(id, type, mode, broadcasting, targetArgument, unOperator, null);
 	}
 
 	public SynchronizationMessage(long id, PunishmentType type, Mode mode, EnforcementOpts enforcementOptions) {
@@ -73,17 +104,143 @@ public final class SynchronizationMessage {
 		);
 	}
 
-	public SynchronizationMessage(Punishment punishment, Mode mode, EnforcementOpts enforcementOptions) {
+	/**
+	 * Creates a message for a punishment
+	 *
+	 * @param punishment the punishment
+	 * @param mode whether to enforce or unenforce
+	 * @param enforcementOptions the enforcement options
+	 * @param embedPunishment whether to embed the punishment in the message. Only instances
+	 *                        which understand version 2 of the protocol can read such messages
+	 */
+	public SynchronizationMessage(Punishment punishment, Mode mode, EnforcementOpts enforcementOptions,
+								  boolean embedPunishment) {
 		this(
 				punishment.getIdentifier(),
 				punishment.getType(),
 				mode,
 				enforcementOptions.broadcasting(),
 				enforcementOptions.targetArgument().orElse(null),
-				enforcementOptions.unOperator().orElse(null)
+				enforcementOptions.unOperator().orElse(null),
+				(embedPunishment) ? new EmbeddedPunishment(punishment) : null
 		);
 	}
 
+	public SynchronizationMessage(Punishment punishment, Mode mode, EnforcementOpts enforcementOptions) {
+		this(punishment, mode, enforcementOptions, false);
+	}
+
+	/**
+	 * The details of a punishment needed to enforce it, aside its ID and type
+	 *
+	 */
+	static final class EmbeddedPunishment {
+
+		final Victim victim;
+		final Operator operator;
+		final String reason;
+		final ServerScope scope;
+		final Instant start;
+		final Instant end;
+
+		EmbeddedPunishment(Victim victim, Operator operator, String reason,
+						   ServerScope scope, Instant start, Instant end) {
+			this.victim = Objects.requireNonNull(victim, "victim");
+			this.operator = Objects.requireNonNull(operator, "operator");
+			this.reason = Objects.requireNonNull(reason, "reason");
+			this.scope = Objects.requireNonNull(scope, "scope");
+			this.start = Objects.requireNonNull(start, "start");
+			this.end = Objects.requireNonNull(end, "end");
+		}
+
+		EmbeddedPunishment(Punishment punishment) {
+			this(
+					punishment.getVictim(), punishment.getOperator(), punishment.getReason(),
+					punishment.getScope(), punishment.getStartDate(), punishment.getEndDate()
+			);
+		}
+
+		Punishment toPunishment(PunishmentCreator creator, long id, PunishmentType type) {
+			return creator.createPunishment(id, type, victim, operator, reason, scope, start, end);
+		}
+
+		void writeTo(DataOutputStream dataOutputStream) throws IOException {
+			SerializedVictim serializedVictim = new SerializedVictim(victim);
+			Victim.VictimType victimType = serializedVictim.type();
+			dataOutputStream.writeByte(victimType.ordinal());
+			if (victimType != Victim.VictimType.ADDRESS) {
+				writeUUID(dataOutputStream, serializedVictim.uuid());
+			}
+			if (victimType != Victim.VictimType.PLAYER) {
+				byte[] rawAddress = serializedVictim.address().getRawAddress();
+				dataOutputStream.writeByte(rawAddress.length);
+				dataOutputStream.write(rawAddress);
+			}
+			writeUUID(dataOutputStream, operatorBinding.operatorToUuid(operator));
+			dataOutputStream.writeUTF(reason);
+			dataOutputStream.writeUTF(scopeConverter.to(scope));
+			dataOutputStream.writeLong(start.getEpochSecond());
+			dataOutputStream.writeLong(endConverter.to(end));
+		}
+
+		static EmbeddedPunishment readFrom(DataInputStream dataInputStream) throws IOException {
+			Victim.VictimType victimType = Victim.VictimType.values()[dataInputStream.readByte()];
+			UUID uuid = EmptyData.UUID;
+			NetworkAddress address = EmptyData.ADDRESS;
+			if (victimType != Victim.VictimType.ADDRESS) {
+				uuid = readUUID(dataInputStream);
+			}
+			if (victimType != Victim.VictimType.PLAYER) {
+				byte[] rawAddress = new byte[dataInputStream.readUnsignedByte()];
+				dataInputStream.readFully(rawAddress);
+				address = NetworkAddress.of(rawAddress);
+			}
+			Victim victim = new DeserializedVictim(uuid, address).victim(victimType);
+			Operator operator = operatorBinding.uuidToOperator(readUUID(dataInputStream));
+			String reason = dataInputStream.readUTF();
+			ServerScope scope = scopeConverter.from(dataInputStream.readUTF());
+			Instant start = Instant.ofEpochSecond(dataInputStream.readLong());
+			Instant end = endConverter.from(dataInputStream.readLong());
+			return new EmbeddedPunishment(victim, operator, reason, scope, start, end);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			EmbeddedPunishment that = (EmbeddedPunishment) o;
+			return victim.equals(that.victim)
+					&& operator.equals(that.operator)
+					&& reason.equals(that.reason)
+					&& scope.equals(that.scope)
+					&& start.equals(that.start)
+					&& end.equals(that.end);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = victim.hashCode();
+			result = 31 * result + operator.hashCode();
+			result = 31 * result + reason.hashCode();
+			result = 31 * result + scope.hashCode();
+			result = 31 * result + start.hashCode();
+			result = 31 * result + end.hashCode();
+			return result;
+		}
+
+		@Override
+		public String toString() {
+			return "EmbeddedPunishment{" +
+					"victim=" + victim +
+					", operator=" + operator +
+					", reason='" + reason + '\'' +
+					", scope=" + scope +
+					", start=" + start +
+					", end=" + end +
+					'}';
+		}
+	}
+
 	private static void writeUUID(DataOutputStream dataOutputStream, UUID uuid) throws IOException {
 		dataOutputStream.writeLong(uuid.getMostSignificantBits());
 		dataOutputStream.writeLong(uuid.getLeastSignificantBits());
@@ -104,7 +261,7 @@ public final class SynchronizationMessage {
 	}
 
 	void writeTo(UUID instanceId, DataOutputStream dataOutputStream) throws IOException {
-		dataOutputStream.writeByte(PROTOCOL_VERSION);
+		dataOutputStream.writeByte((punishment == null) ? PROTOCOL_VERSION : EMBEDDED_PROTOCOL_VERSION);
 		writeUUID(dataOutputStream, instanceId);
 		dataOutputStream.writeLong(id);
 		dataOutputStream.writeByte(type.ordinal());
@@ -120,12 +277,15 @@ public final class SynchronizationMessage {
 					operatorBinding.operatorToUuid(unOperator)
 			);
 		}
+		if (punishment != null) {
+			punishment.writeTo(dataOutputStream);
+		}
 	}
 
 	static Optional<SynchronizationMessage> readFrom(UUID instanceId, DataInputStream dataInputStream) throws IOException {
 
 		byte protocolVersion = dataInputStream.readByte();
-		if (protocolVersion != PROTOCOL_VERSION) {
+		if (protocolVersion != PROTOCOL_VERSION && protocolVersion != EMBEDDED_PROTOCOL_VERSION) {
 			// We do not know how to handle this message
 			logger.warn("Received message with newer protocol version: {}", protocolVersion);
 			return Optional.empty();
@@ -146,12 +306,20 @@ public final class SynchronizationMessage {
 		} else {
 			unOperator = null;
 		}
+		EmbeddedPunishment punishment;
+		if (protocolVersion == EMBEDDED_PROTOCOL_VERSION) {
+			punishment = EmbeddedPunishment.readFrom(dataInputStream);
+		} else {
+			punishment = null;
+		}
 
 		long remainingBytes = dataInputStream.transferTo(OutputStream.nullOutputStream());
 		if (remainingBytes != 0) {
 			throw new IllegalStateException("Stream must be empty after all data has been read");
 		}
-		return Optional.of(new SynchronizationMessage(id, type, mode, broadcasting, targetArgument, unOperator));
+		return Optional.of(new SynchronizationMessage(
+				id, type, mode, broadcasting, targetArgument, unOperator, punishment
+		));
 	}
 
 	@Override
@@ -164,7 +332,8 @@ public final class SynchronizationMessage {
 				&& mode == message.mode
 				&& broadcasting == message.broadcasting
 				&& Objects.equals(targetArgument, message.targetArgument)
-				&& Objects.equals(unOperator, message.unOperator);
+				&& Objects.equals(unOperator, message.unOperator)
+				&& Objects.equals(punishment, message.punishment);
 	}
 
 	@Override
@@ -175,6 +344,7 @@ public final class SynchronizationMessage {
 		result = 31 * result + broadcasting.hashCode();
 		result = 31 * result + (targetArgument != null ? targetArgument.hashCode() : 0);
 		result = 31 * result + (unOperator != null ? unOperator.hashCode() : 0);
+		result = 31 * result + (punishment != null ? punishment.hashCode() : 0);
 		return result;
 	}
 
@@ -187,6 +357,7 @@ public final class SynchronizationMessage {
 				", broadcasting=" + broadcasting +
 				", targetArgument='" + targetArgument + '\'' +
 				", unOperator=" + unOperator +
+				", punishment=" + punishment +
 				'}';
 	}
 }
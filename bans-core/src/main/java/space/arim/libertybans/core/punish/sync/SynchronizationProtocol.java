@@ -30,6 +30,8 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -58,16 +60,19 @@ public final class SynchronizationProtocol {
 		}
 	}
 
-	public ReactionStage<?> receiveMessage(byte[] messageData, MessageReceiver messageReceiver) {
-		Optional<SynchronizationMessage> optMessage;
+	private Optional<SynchronizationMessage> deserializeMessage(byte[] messageData) {
 		try (ByteArrayInputStream messageInput = new ByteArrayInputStream(messageData);
 			 DataInputStream dataInputStream = new DataInputStream(messageInput)) {
 
-			optMessage = SynchronizationMessage.readFrom(instanceId, dataInputStream);
+			return SynchronizationMessage.readFrom(instanceId, dataInputStream);
 
 		} catch (IOException ex) {
 			throw new UncheckedIOException("Failed to read synchronization message data", ex);
 		}
+	}
+
+	public ReactionStage<?> receiveMessage(byte[] messageData, MessageReceiver messageReceiver) {
+		Optional<SynchronizationMessage> optMessage = deserializeMessage(messageData);
 		if (optMessage.isEmpty()) {
 			return futuresFactory.completedFuture(null);
 		}
@@ -75,4 +80,22 @@ public final class SynchronizationProtocol {
 		return messageReceiver.onReception(message);
 	}
 
+	/**
+	 * Receives many messages together, allowing the receiver to handle them as a batch
+	 *
+	 * @param messageData the serialized messages, in the order they were sent
+	 * @param messageReceiver the message receiver
+	 * @return a future completed once all messages are handled
+	 */
+	public ReactionStage<?> receiveMessages(byte[][] messageData, MessageReceiver messageReceiver) {
+		List<SynchronizationMessage> messages = new ArrayList<>(messageData.length);
+		for (byte[] singleMessageData : messageData) {
+			deserializeMessage(singleMessageData).ifPresent(messages::add);
+		}
+		if (messages.isEmpty()) {
+			return futuresFactory.completedFuture(null);
+		}
+		return messageReceiver.onBatchReception(messages);
+	}
+
 }
@@ -0,0 +1,320 @@
+/*
+ * LibertyBans
+ * Copyright © 2021 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.punish.sync;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.bootstrap.StartupException;
+import space.arim.libertybans.core.Part;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.ThisClass;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.DelayCalculators;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.ScheduledTask;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Synchronization messenger which pushes messages directly to the other instances over TCP. <br>
+ * <br>
+ * Messages are also written to the database, but the database is read only to catch up on
+ * messages which may have been missed. Because a message written to a broken connection may
+ * be lost without error, each instance catches up whenever another connects to it, from when
+ * it last received a message from that instance. While a connection remains lost, polling
+ * continues to catch up on the messages of the disconnected instance.
+ *
+ */
+@Singleton
+public final class TcpSynchronizationMessenger implements SynchronizationMessenger, Part {
+
+	private final Configs configs;
+	private final FactoryOfTheFuture futuresFactory;
+	private final EnhancedExecutor enhancedExecutor;
+	private final SQLSynchronizationMessenger sqlMessenger;
+	private final SynchronizationProtocol synchronizationProtocol;
+	private final MessageReceiver messageReceiver;
+	private final Time time;
+
+	private final RecentMessages recentMessages = new RecentMessages(MESSAGE_RETENTION);
+	private volatile Mesh mesh;
+
+	// Guarded by this
+	private final Map<String, PeerState> peerStates = new HashMap<>();
+	private Instant meshStarted;
+
+	/** Corresponds to the time after which messages are deleted from the database */
+	private static final Duration MESSAGE_RETENTION = Duration.ofMinutes(1L);
+	/** Allows for clock differences between instances when catching up */
+	private static final Duration CATCH_UP_LENIENCY = Duration.ofSeconds(5L);
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	@Inject
+	public TcpSynchronizationMessenger(Configs configs, FactoryOfTheFuture futuresFactory,
+									   EnhancedExecutor enhancedExecutor, SQLSynchronizationMessenger sqlMessenger,
+									   SynchronizationProtocol synchronizationProtocol,
+									   MessageReceiver messageReceiver, Time time) {
+		this.configs = configs;
+		this.futuresFactory = futuresFactory;
+		this.enhancedExecutor = enhancedExecutor;
+		this.sqlMessenger = sqlMessenger;
+		this.synchronizationProtocol = synchronizationProtocol;
+		this.messageReceiver = messageReceiver;
+		this.time = time;
+	}
+
+	private static final class PeerState {
+
+		int connections;
+		/** When a message was last received from the peer, or null if none have been */
+		Instant lastSeen;
+		/** The time from which to catch up on the peer's messages, or null if not necessary */
+		Instant catchUpSince;
+
+		void catchUpFrom(Instant since) {
+			if (catchUpSince == null || since.isBefore(catchUpSince)) {
+				catchUpSince = since;
+			}
+		}
+	}
+
+	private static final class Mesh {
+
+		private final MeshListener listener;
+		private final List<MeshPeer> peers;
+		private final ScheduledTask reconnectTask;
+		private final ScheduledTask heartbeatTask;
+
+		Mesh(MeshListener listener, List<MeshPeer> peers, ScheduledTask reconnectTask, ScheduledTask heartbeatTask) {
+			this.listener = listener;
+			this.peers = peers;
+			this.reconnectTask = reconnectTask;
+			this.heartbeatTask = heartbeatTask;
+		}
+
+		CompletableFuture<?> sendToAll(byte[] message) {
+			CompletableFuture<?>[] sends = new CompletableFuture<?>[peers.size()];
+			for (int n = 0; n < sends.length; n++) {
+				MeshPeer peer = peers.get(n);
+				sends[n] = peer.sendInOrder(message).thenAccept((sent) -> {
+					if (!sent) {
+						logger.debug("Synchronization peer {} will catch up on message after reconnecting", peer);
+					}
+				});
+			}
+			return CompletableFuture.allOf(sends);
+		}
+
+		void close() {
+			reconnectTask.cancel();
+			heartbeatTask.cancel();
+			listener.close();
+			for (MeshPeer peer : peers) {
+				peer.close();
+			}
+		}
+	}
+
+	// Lifecycle
+
+	@Override
+	public void startup() {
+		SqlConfig.Synchronization synchronizationConf = configs.getSqlConfig().synchronization();
+		if (synchronizationConf.mode() != SqlConfig.Synchronization.SyncMode.TCP_MESH) {
+			return;
+		}
+		SqlConfig.Synchronization.TcpMesh meshConf = synchronizationConf.tcpMesh();
+		byte[] sharedSecret = meshConf.sharedSecret().getBytes(StandardCharsets.UTF_8);
+		// Together with our address, identifies us to peers across restarts
+		byte[] identity = Integer.toString(meshConf.port()).getBytes(StandardCharsets.UTF_8);
+		List<MeshPeer> peers = new ArrayList<>(meshConf.peers().size());
+		for (String peer : meshConf.peers()) {
+			try {
+				peers.add(MeshPeer.parse(peer, sharedSecret, identity));
+			} catch (IllegalArgumentException ex) {
+				logger.warn("Ignoring invalid synchronization peer: {}", ex.getMessage());
+			}
+		}
+		InetSocketAddress bindAddress = new InetSocketAddress(meshConf.bindAddress(), meshConf.port());
+		synchronized (this) {
+			meshStarted = time.currentTimestamp();
+		}
+		MeshListener listener;
+		try {
+			listener = MeshListener.start(bindAddress, sharedSecret, new ReceptionHandler());
+		} catch (IOException ex) {
+			throw new StartupException("Unable to listen for synchronization on " + bindAddress, ex);
+		}
+		Runnable connectAll = () -> {
+			for (MeshPeer peer : peers) {
+				peer.connectIfNecessary();
+			}
+		};
+		ScheduledTask reconnectTask = enhancedExecutor.scheduleRepeating(
+				connectAll,
+				Duration.ofMillis(meshConf.reconnectIntervalMillis()),
+				DelayCalculators.fixedDelay()
+		);
+		ScheduledTask heartbeatTask = enhancedExecutor.scheduleRepeating(
+				() -> peers.forEach(MeshPeer::sendHeartbeat),
+				Duration.ofMillis(MessageFrames.HEARTBEAT_INTERVAL_MILLIS),
+				DelayCalculators.fixedDelay()
+		);
+		mesh = new Mesh(listener, List.copyOf(peers), reconnectTask, heartbeatTask);
+		enhancedExecutor.execute(connectAll);
+	}
+
+	@Override
+	public void restart() {
+		shutdown();
+		startup();
+	}
+
+	@Override
+	public void shutdown() {
+		Mesh mesh = this.mesh;
+		if (mesh != null) {
+			this.mesh = null;
+			mesh.close();
+		}
+		synchronized (this) {
+			// Retain when peers were last seen, so that they are caught up on after restarting
+			for (PeerState state : peerStates.values()) {
+				state.connections = 0;
+			}
+		}
+	}
+
+	// Dispatch
+
+	@Override
+	public CentralisedFuture<?> dispatch(byte[] message) {
+		// Record the message so that other instances may catch up on it
+		CentralisedFuture<?> persisted = sqlMessenger.dispatch(message);
+		Mesh mesh = this.mesh;
+		if (mesh == null) {
+			return persisted;
+		}
+		CentralisedFuture<?> sent = futuresFactory.copyFuture(mesh.sendToAll(message));
+		return futuresFactory.allOf(persisted, sent);
+	}
+
+	// Reception
+
+	@Override
+	public CentralisedFuture<byte[][]> poll() {
+		Instant currentTime = time.currentTimestamp();
+		Instant catchUpSince = null;
+		synchronized (this) {
+			for (PeerState state : peerStates.values()) {
+				if (state.catchUpSince == null) {
+					continue;
+				}
+				if (catchUpSince == null || state.catchUpSince.isBefore(catchUpSince)) {
+					catchUpSince = state.catchUpSince;
+				}
+				// Keep catching up on peers which remain disconnected, from this poll onward
+				state.catchUpSince = (state.connections == 0) ? currentTime.minus(CATCH_UP_LENIENCY) : null;
+			}
+		}
+		if (catchUpSince == null) {
+			return futuresFactory.completedFuture(new byte[][] {});
+		}
+		// Older messages have been deleted, and may no longer be recognized as seen
+		Instant retained = currentTime.minus(MESSAGE_RETENTION);
+		if (catchUpSince.isBefore(retained)) {
+			catchUpSince = retained;
+		}
+		logger.debug("Catching up on synchronization messages since {}", catchUpSince);
+		return sqlMessenger.catchUp(catchUpSince).thenApply((messages) -> {
+			return recentMessages.retainUnseen(messages, time.currentTimestamp());
+		});
+	}
+
+	/** Visible for testing */
+	MeshListener.Handler receptionHandler() {
+		return new ReceptionHandler();
+	}
+
+	private final class ReceptionHandler implements MeshListener.Handler {
+
+		private Instant catchUpPoint(PeerState state) {
+			Instant lastSeen = (state.lastSeen == null) ? meshStarted : state.lastSeen;
+			return lastSeen.minus(CATCH_UP_LENIENCY);
+		}
+
+		@Override
+		public void onConnect(String peer) {
+			synchronized (TcpSynchronizationMessenger.this) {
+				PeerState state = peerStates.computeIfAbsent(peer, (p) -> new PeerState());
+				state.connections++;
+				// Messages sent before the peer noticed a broken connection may have been lost
+				state.catchUpFrom(catchUpPoint(state));
+			}
+		}
+
+		@Override
+		public void onMessage(String peer, byte[] message) {
+			Instant currentTime = time.currentTimestamp();
+			synchronized (TcpSynchronizationMessenger.this) {
+				PeerState state = peerStates.get(peer);
+				if (state != null) {
+					state.lastSeen = currentTime;
+				}
+			}
+			if (!recentMessages.markSeen(message, currentTime)) {
+				return;
+			}
+			try {
+				synchronizationProtocol.receiveMessage(message, messageReceiver).toCompletableFuture().join();
+			} catch (RuntimeException ex) {
+				logger.warn("Failed to handle synchronization message", ex);
+			}
+		}
+
+		@Override
+		public void onDisconnect(String peer) {
+			synchronized (TcpSynchronizationMessenger.this) {
+				PeerState state = peerStates.get(peer);
+				if (state == null || state.connections == 0) {
+					return;
+				}
+				if (--state.connections == 0) {
+					state.catchUpFrom(catchUpPoint(state));
+				}
+			}
+		}
+	}
+
+}
@@ -36,6 +36,8 @@ import space.arim.libertybans.core.database.sql.TableForType;
 import space.arim.libertybans.core.database.sql.VictimCondition;
 import space.arim.libertybans.core.punish.MiscUtil;
 import space.arim.libertybans.core.punish.PunishmentCreator;
+import space.arim.libertybans.core.selector.cache.ActivePunishmentIndex;
+import space.arim.libertybans.core.selector.cache.IndexedPunishments;
 import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
@@ -43,7 +45,9 @@ import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 import java.time.Instant;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Function;
 
+import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
 import static space.arim.libertybans.core.schema.tables.StrictLinks.STRICT_LINKS;
 
 @Singleton
@@ -53,84 +57,218 @@ public class ApplicableImpl {
 	private final FactoryOfTheFuture futuresFactory;
 	private final Provider<InternalDatabase> dbProvider;
 	private final PunishmentCreator creator;
+	private final ActivePunishmentIndex punishmentIndex;
 
 	private final Time time;
 
+	private final InFlightLookups<LookupKey, Punishment> inFlightLookups;
+
 	@Inject
 	public ApplicableImpl(Configs configs, FactoryOfTheFuture futuresFactory,
 						  Provider<InternalDatabase> dbProvider, PunishmentCreator creator,
-						  Time time) {
+						  ActivePunishmentIndex punishmentIndex, Time time) {
 		this.configs = configs;
 		this.futuresFactory = futuresFactory;
 		this.dbProvider = dbProvider;
 		this.creator = creator;
+		this.punishmentIndex = punishmentIndex;
 		this.time = time;
+		inFlightLookups = new InFlightLookups<>(futuresFactory);
 	}
 
+	/**
+	 * Selects the applicable punishment for a player
+	 *
+	 * @param context the query source
+	 * @param uuid the player's uuid
+	 * @param address the player's current address
+	 * @param type the punishment type
+	 * @param currentTime the current time
+	 * @param associationPending whether the association of the player with the current address
+	 *                           may not yet have been written, in which case it is accounted for
+	 * @return the applicable punishment or null if there is none
+	 */
 	Punishment selectApplicable(DSLContext context,
 								UUID uuid, NetworkAddress address,
-								PunishmentType type, final Instant currentTime) {
-		var applView = new TableForType(type).applicableView();
-
+								PunishmentType type, final Instant currentTime,
+								boolean associationPending) {
 		AddressStrictness strictness = configs.getMainConfig().enforcement().addressStrictness();
+		IndexedPunishments indexed = punishmentIndex.current();
+		if (indexed == null) {
+			return selectFromDatabase(context, uuid, address, type, currentTime, associationPending, strictness);
+		}
+		return indexed.selectApplicable(uuid, address, type, strictness, currentTime, Function.identity(), () -> {
+			return selectFromDatabase(context, uuid, address, type, currentTime, associationPending, strictness);
+		});
+	}
+
+	private Punishment selectFromDatabase(DSLContext context,
+										  UUID uuid, NetworkAddress address,
+										  PunishmentType type, final Instant currentTime,
+										  boolean associationPending, AddressStrictness strictness) {
+		var tableForType = new TableForType(type);
+		var applView = tableForType.applicableView();
 		switch (strictness) {
 		case LENIENT:
-			var simpleView = new TableForType(type).simpleView();
-			return context
+			return selectSimplyMatching(context, uuid, address, type, currentTime);
+		case NORMAL:
+			var simpleView = tableForType.simpleView();
+			var applicability = tableForType.applicabilityTable();
+			Punishment normal = context
 					.select(
 							simpleView.id(),
 							simpleView.victimType(), simpleView.victimUuid(), simpleView.victimAddress(),
 							simpleView.operator(), simpleView.reason(),
 							simpleView.scope(), simpleView.start(), simpleView.end()
-					)
-					.from(simpleView.table())
-					.where(new VictimCondition(simpleView).simplyMatches(DSL.val(uuid), DSL.val(address)))
+					).from(applicability.table())
+					.innerJoin(simpleView.table())
+					.on(simpleView.id().eq(applicability.id()))
+					.where(applicability.uuid().eq(uuid))
 					.and(new EndTimeCondition(simpleView).isNotExpired(currentTime))
 					.orderBy(new EndTimeOrdering(simpleView).expiresLeastSoon())
 					.limit(1)
 					.fetchOne(creator.punishmentMapper(type));
-		case NORMAL:
-			return context
-					.select(
-							applView.id(),
-							applView.victimType(), applView.victimUuid(), applView.victimAddress(),
-							applView.operator(), applView.reason(),
-							applView.scope(), applView.start(), applView.end()
-					).from(applView.table())
-					.where(applView.uuid().eq(uuid))
-					.and(new EndTimeCondition(applView).isNotExpired(currentTime))
-					.orderBy(new EndTimeOrdering(applView).expiresLeastSoon())
-					.limit(1)
-					.fetchOne(creator.punishmentMapper(type));
+			if (!associationPending) {
+				return normal;
+			}
+			return expiresLeastSoon(normal, selectSimplyMatching(context, uuid, address, type, currentTime));
 		case STRICT:
-			return context
+			if (!associationPending) {
+				return context
+						.select(
+								applView.id(),
+								applView.victimType(), applView.victimUuid(), applView.victimAddress(),
+								applView.operator(), applView.reason(),
+								applView.scope(), applView.start(), applView.end()
+						).from(applView.table())
+						.innerJoin(STRICT_LINKS)
+						.on(applView.uuid().eq(STRICT_LINKS.UUID1))
+						.where(STRICT_LINKS.UUID2.eq(uuid))
+						.and(new EndTimeCondition(applView).isNotExpired(currentTime))
+						.orderBy(new EndTimeOrdering(applView).expiresLeastSoon())
+						.limit(1)
+						.fetchOne(creator.punishmentMapper(type));
+			}
+			// Include users linked through the current address
+			Punishment strict = context
 					.select(
 							applView.id(),
 							applView.victimType(), applView.victimUuid(), applView.victimAddress(),
 							applView.operator(), applView.reason(),
 							applView.scope(), applView.start(), applView.end()
 					).from(applView.table())
-					.innerJoin(STRICT_LINKS)
-					.on(applView.uuid().eq(STRICT_LINKS.UUID1))
-					.where(STRICT_LINKS.UUID2.eq(uuid))
+					.where(applView.uuid().in(context
+							.select(STRICT_LINKS.UUID1)
+							.from(STRICT_LINKS)
+							.where(STRICT_LINKS.UUID2.eq(uuid))
+							.union(context
+									.select(ADDRESSES.UUID)
+									.from(ADDRESSES)
+									.where(ADDRESSES.ADDRESS.eq(address)))
+					))
 					.and(new EndTimeCondition(applView).isNotExpired(currentTime))
 					.orderBy(new EndTimeOrdering(applView).expiresLeastSoon())
 					.limit(1)
 					.fetchOne(creator.punishmentMapper(type));
+			return expiresLeastSoon(strict, selectSimplyMatching(context, uuid, address, type, currentTime));
 		default:
 			throw MiscUtil.unknownAddressStrictness(strictness);
 		}
 	}
 
+	private Punishment selectSimplyMatching(DSLContext context,
+											UUID uuid, NetworkAddress address,
+											PunishmentType type, final Instant currentTime) {
+		var simpleView = new TableForType(type).simpleView();
+		return context
+				.select(
+						simpleView.id(),
+						simpleView.victimType(), simpleView.victimUuid(), simpleView.victimAddress(),
+						simpleView.operator(), simpleView.reason(),
+						simpleView.scope(), simpleView.start(), simpleView.end()
+				)
+				.from(simpleView.table())
+				.where(new VictimCondition(simpleView).simplyMatches(DSL.val(uuid), DSL.val(address)))
+				.and(new EndTimeCondition(simpleView).isNotExpired(currentTime))
+				.orderBy(new EndTimeOrdering(simpleView).expiresLeastSoon())
+				.limit(1)
+				.fetchOne(creator.punishmentMapper(type));
+	}
+
+	private static Punishment expiresLeastSoon(Punishment punishment1, Punishment punishment2) {
+		if (punishment1 == null) {
+			return punishment2;
+		}
+		if (punishment2 == null) {
+			return punishment1;
+		}
+		return (punishment2.getEndDate().isAfter(punishment1.getEndDate())) ? punishment2 : punishment1;
+	}
+
 	CentralisedFuture<Punishment> getApplicablePunishment(UUID uuid, NetworkAddress address, PunishmentType type) {
 		Objects.requireNonNull(type, "type");
 		if (type == PunishmentType.KICK) {
 			// Kicks are never active
 			return futuresFactory.completedFuture(null);
 		}
-		return dbProvider.get().query(SQLFunction.readOnly((context) -> {
-			return selectApplicable(context, uuid, address, type, time.currentTimestamp());
-		}));
+		AddressStrictness strictness = configs.getMainConfig().enforcement().addressStrictness();
+		IndexedPunishments indexed = punishmentIndex.current();
+		if (indexed == null) {
+			return lookupInDatabase(uuid, address, type, strictness);
+		}
+		return indexed.selectApplicable(uuid, address, type, strictness, time.currentTimestamp(),
+				futuresFactory::completedFuture, () -> lookupInDatabase(uuid, address, type, strictness));
+	}
+
+	private CentralisedFuture<Punishment> lookupInDatabase(UUID uuid, NetworkAddress address, PunishmentType type,
+														   AddressStrictness strictness) {
+		return inFlightLookups.lookup(new LookupKey(uuid, address, type), () -> {
+			return dbProvider.get().query(SQLFunction.readOnly("ApplicableImpl.selectApplicable", (context) -> {
+				return selectFromDatabase(context, uuid, address, type, time.currentTimestamp(), false, strictness);
+			}));
+		});
+	}
+
+	/**
+	 * Gets the lookups coalesced while in flight, for the purpose of statistics
+	 *
+	 * @return the in flight lookups
+	 */
+	public InFlightLookups<?, ?> inFlightLookups() {
+		return inFlightLookups;
+	}
+
+	private static final class LookupKey {
+
+		private final UUID uuid;
+		private final NetworkAddress address;
+		private final PunishmentType type;
+
+		LookupKey(UUID uuid, NetworkAddress address, PunishmentType type) {
+			this.uuid = Objects.requireNonNull(uuid, "uuid");
+			this.address = Objects.requireNonNull(address, "address");
+			this.type = type;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (this == object) {
+				return true;
+			}
+			if (!(object instanceof LookupKey)) {
+				return false;
+			}
+			LookupKey other = (LookupKey) object;
+			return uuid.equals(other.uuid) && address.equals(other.address) && type == other.type;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = uuid.hashCode();
+			result = 31 * result + address.hashCode();
+			result = 31 * result + type.hashCode();
+			return result;
+		}
 	}
 
 }
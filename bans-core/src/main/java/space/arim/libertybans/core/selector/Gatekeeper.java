@@ -29,10 +29,13 @@ import space.arim.libertybans.core.alts.AltDetection;
 import space.arim.libertybans.core.alts.AltNotification;
 import space.arim.libertybans.core.alts.ConnectionLimiter;
 import space.arim.libertybans.core.alts.DetectedAlt;
+import space.arim.libertybans.core.commands.extra.TabCompletion;
 import space.arim.libertybans.core.config.Configs;
 import space.arim.libertybans.core.config.InternalFormatter;
 import space.arim.libertybans.core.database.execute.QueryExecutor;
 import space.arim.libertybans.core.punish.Association;
+import space.arim.libertybans.core.punish.AssociationQueue;
+import space.arim.libertybans.core.selector.cache.ActivePunishmentIndex;
 import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
@@ -53,11 +56,16 @@ public final class Gatekeeper {
 	private final Time time;
 
 	private final ApplicableImpl applicableImpl;
+	private final ActivePunishmentIndex punishmentIndex;
+	private final AssociationQueue associationQueue;
+	private final TabCompletion tabCompletion;
 
 	@Inject
 	public Gatekeeper(Configs configs, FactoryOfTheFuture futuresFactory, Provider<QueryExecutor> queryExecutor,
 					  InternalFormatter formatter, ConnectionLimiter connectionLimiter, AltDetection altDetection,
-					  AltNotification altNotification, Time time, ApplicableImpl applicableImpl) {
+					  AltNotification altNotification, Time time, ApplicableImpl applicableImpl,
+					  ActivePunishmentIndex punishmentIndex, AssociationQueue associationQueue,
+					  TabCompletion tabCompletion) {
 		this.configs = configs;
 		this.futuresFactory = futuresFactory;
 		this.queryExecutor = queryExecutor;
@@ -67,21 +75,30 @@ public final class Gatekeeper {
 		this.altNotification = altNotification;
 		this.time = time;
 		this.applicableImpl = applicableImpl;
+		this.punishmentIndex = punishmentIndex;
+		this.associationQueue = associationQueue;
+		this.tabCompletion = tabCompletion;
 	}
 
 	CentralisedFuture<Component> executeAndCheckConnection(UUID uuid, String name, NetworkAddress address) {
-		return queryExecutor.get().queryWithRetry((context, transaction) -> {
+		return queryExecutor.get().queryWithRetry("Gatekeeper.checkConnection", (context, transaction) -> {
 			Instant currentTime = time.currentTimestamp();
 
-			Association association = new Association(uuid, context);
-			association.associateCurrentName(name, currentTime);
-			association.associateCurrentAddress(address, currentTime);
+			boolean associationPending = associationQueue.enqueue(uuid, name, address, currentTime);
+			if (!associationPending) {
+				Association association = new Association(uuid, context);
+				association.associateCurrentName(name, currentTime);
+				association.associateCurrentAddress(address, currentTime);
+			}
+			punishmentIndex.associateAddress(uuid, address);
+			tabCompletion.recordJoin(name, currentTime);
 
-			Punishment ban = applicableImpl.selectApplicable(context, uuid, address, PunishmentType.BAN, currentTime);
+			Punishment ban = applicableImpl.selectApplicable(
+					context, uuid, address, PunishmentType.BAN, currentTime, associationPending);
 			if (ban != null) {
 				return ban;
 			}
-			Component connectionLimitMessage = connectionLimiter.hasExceededLimit(context, address, currentTime);
+			Component connectionLimitMessage = connectionLimiter.hasExceededLimit(context, uuid, address, currentTime);
 			if (connectionLimitMessage != null) {
 				return connectionLimitMessage;
 			}
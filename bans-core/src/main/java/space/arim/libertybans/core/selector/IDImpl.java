@@ -33,6 +33,10 @@ import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 import static space.arim.libertybans.core.schema.tables.SimpleActive.SIMPLE_ACTIVE;
 import static space.arim.libertybans.core.schema.tables.SimpleHistory.SIMPLE_HISTORY;
 
@@ -122,4 +126,26 @@ public class IDImpl {
 					.fetchOne(creator.punishmentMapper(id, type));
 		}));
 	}
+
+	CentralisedFuture<Map<Long, Punishment>> getHistoricalPunishmentsByIds(Collection<Long> ids) {
+		if (ids.isEmpty()) {
+			return futuresFactory.completedFuture(Map.of());
+		}
+		InternalDatabase database = dbProvider.get();
+		return database.query(SQLFunction.readOnly("IDImpl.getHistoricalPunishmentsByIds", (context) -> {
+			Map<Long, Punishment> punishments = new HashMap<>(ids.size() * 2);
+			context
+					.select(
+							SIMPLE_HISTORY.ID, SIMPLE_HISTORY.TYPE,
+							SIMPLE_HISTORY.VICTIM_TYPE, SIMPLE_HISTORY.VICTIM_UUID, SIMPLE_HISTORY.VICTIM_ADDRESS,
+							SIMPLE_HISTORY.OPERATOR, SIMPLE_HISTORY.REASON,
+							SIMPLE_HISTORY.SCOPE, SIMPLE_HISTORY.START, SIMPLE_HISTORY.END
+					)
+					.from(SIMPLE_HISTORY)
+					.where(SIMPLE_HISTORY.ID.in(ids))
+					.fetch(creator.punishmentMapper())
+					.forEach((punishment) -> punishments.put(punishment.getIdentifier(), punishment));
+			return punishments;
+		}));
+	}
 }
@@ -0,0 +1,119 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.selector;
+
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical lookups which are in flight at the same time. The first lookup for a key
+ * is performed, and further lookups for the same key made before it completes share its result.
+ * Once complete, the result is forgotten, so that later lookups are performed anew.
+ *
+ * @param <K> the key type
+ * @param <V> the result type
+ */
+public final class InFlightLookups<K, V> {
+
+	private final FactoryOfTheFuture futuresFactory;
+	private final Map<K, CentralisedFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	private final LongAdder lookups = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+
+	public InFlightLookups(FactoryOfTheFuture futuresFactory) {
+		this.futuresFactory = futuresFactory;
+	}
+
+	/**
+	 * Performs the lookup unless an identical one is already in flight
+	 *
+	 * @param key the lookup key
+	 * @param lookup performs the lookup
+	 * @return a future completed with the result of the lookup
+	 */
+	public CentralisedFuture<V> lookup(K key, Supplier<CentralisedFuture<V>> lookup) {
+		lookups.increment();
+		CentralisedFuture<V> shared = futuresFactory.newIncompleteFuture();
+		CentralisedFuture<V> existing = inFlight.putIfAbsent(key, shared);
+		if (existing != null) {
+			coalesced.increment();
+			return existing;
+		}
+		CentralisedFuture<V> result;
+		try {
+			result = lookup.get();
+		} catch (RuntimeException ex) {
+			inFlight.remove(key, shared);
+			throw ex;
+		}
+		result.whenComplete((value, ex) -> {
+			// Forget the lookup before completing it, so that dependent actions start anew
+			inFlight.remove(key, shared);
+			if (ex == null) {
+				shared.complete(value);
+			} else {
+				shared.completeExceptionally(ex);
+			}
+		});
+		return shared;
+	}
+
+	/**
+	 * Gets the total number of lookups requested
+	 *
+	 * @return the number of lookups
+	 */
+	public long lookupCount() {
+		return lookups.sum();
+	}
+
+	/**
+	 * Gets the number of lookups which shared the result of one already in flight
+	 *
+	 * @return the number of coalesced lookups
+	 */
+	public long coalescedCount() {
+		return coalesced.sum();
+	}
+
+	/**
+	 * Gets the proportion of lookups which were coalesced
+	 *
+	 * @return the hit rate, between 0 and 1
+	 */
+	public double hitRate() {
+		long lookupCount = lookupCount();
+		return (lookupCount == 0) ? 0D : (double) coalescedCount() / lookupCount;
+	}
+
+	@Override
+	public String toString() {
+		return "InFlightLookups{" +
+				"inFlight=" + inFlight.size() +
+				", lookups=" + lookupCount() +
+				", coalesced=" + coalescedCount() +
+				'}';
+	}
+}
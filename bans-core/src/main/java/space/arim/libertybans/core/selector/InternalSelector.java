@@ -19,6 +19,8 @@
 
 package space.arim.libertybans.core.selector;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 
 import net.kyori.adventure.text.Component;
@@ -43,4 +45,12 @@ public interface InternalSelector extends PunishmentSelector {
 
 	CentralisedFuture<Punishment> getApplicableMute(UUID uuid, NetworkAddress address);
 
+	/**
+	 * Gets many punishments by ID in a single query, whether active or not
+	 *
+	 * @param ids the punishment IDs
+	 * @return a future which yields the punishments found, keyed by ID. IDs not found are absent
+	 */
+	CentralisedFuture<Map<Long, Punishment>> getHistoricalPunishmentsByIds(Collection<Long> ids);
+
 }
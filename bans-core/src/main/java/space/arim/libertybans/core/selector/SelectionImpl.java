@@ -226,6 +226,17 @@ public class SelectionImpl {
 		}
 	}
 
+	/**
+	 * Builds the query for a selection, without executing it. Used for benchmarking
+	 *
+	 * @param selection the selection
+	 * @param context the context with which to build the query
+	 * @return the query
+	 */
+	ResultQuery<org.jooq.Record> buildQuery(SelectionOrder selection, DSLContext context) {
+		return selectMatchingPunishments(selection, getPunishmentFieldsToUse(selection), context, false);
+	}
+
 	private static boolean selectActiveKicks(SelectionOrder selection) {
 		return selection.selectActiveOnly()
 				&& selection.getTypes().isSimpleEquality()
@@ -238,7 +249,7 @@ public class SelectionImpl {
 			return futuresFactory.completedFuture(null);
 		}
 		InternalDatabase database = dbProvider.get();
-		return database.query(SQLFunction.readOnly((context) -> {
+		return database.query(SQLFunction.readOnly("SelectionImpl.getFirstSpecificPunishment", (context) -> {
 			PunishmentFields fields = getPunishmentFieldsToUse(selection);
 			return selectMatchingPunishments(selection, fields, context, true)
 					.fetchOne((record) -> fromRecordAndSelection(record, selection, fields));
@@ -251,7 +262,7 @@ public class SelectionImpl {
 			return futuresFactory.completedFuture(List.of());
 		}
 		InternalDatabase database = dbProvider.get();
-		return database.query(SQLFunction.readOnly((context) -> {
+		return database.query(SQLFunction.readOnly("SelectionImpl.getSpecificPunishments", (context) -> {
 			PunishmentFields fields = getPunishmentFieldsToUse(selection);
 			return selectMatchingPunishments(selection, fields, context, false)
 					.fetch((record) -> fromRecordAndSelection(record, selection, fields));
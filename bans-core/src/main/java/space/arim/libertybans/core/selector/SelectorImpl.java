@@ -19,7 +19,9 @@
 
 package space.arim.libertybans.core.selector;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
@@ -103,6 +105,11 @@ public class SelectorImpl implements InternalSelector {
 		return idImpl.getHistoricalPunishmentByIdAndType(id, type).thenApply(Optional::ofNullable);
 	}
 
+	@Override
+	public CentralisedFuture<Map<Long, Punishment>> getHistoricalPunishmentsByIds(Collection<Long> ids) {
+		return idImpl.getHistoricalPunishmentsByIds(ids);
+	}
+
 	/*
 	 * 
 	 * Applicability methods
@@ -0,0 +1,313 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector.cache;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+import org.jooq.DSLContext;
+import org.jooq.Record2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import space.arim.libertybans.api.AddressVictim;
+import space.arim.libertybans.api.CompositeVictim;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.core.Part;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.libertybans.core.database.execute.QueryExecutor;
+import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.libertybans.core.database.sql.EndTimeCondition;
+import space.arim.libertybans.core.database.sql.TableForType;
+import space.arim.libertybans.core.punish.PunishmentCreator;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.ThisClass;
+import space.arim.omnibus.util.concurrent.DelayCalculators;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
+import space.arim.omnibus.util.concurrent.ScheduledTask;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static space.arim.libertybans.core.schema.tables.Addresses.ADDRESSES;
+
+/**
+ * Optional resident index of active bans and mutes, used to answer applicability
+ * lookups without querying the database. <br>
+ * <br>
+ * The index is loaded from the database when enabled, and thereafter kept current by
+ * punishments enacted and revoked through this instance and by received synchronization
+ * messages. It is periodically reloaded to account for any other changes. Until it has
+ * been loaded, the index is cold and lookups must use the database.
+ *
+ */
+@Singleton
+public final class ActivePunishmentIndex implements Part {
+
+	private final Configs configs;
+	private final EnhancedExecutor enhancedExecutor;
+	private final Provider<QueryExecutor> queryExecutor;
+	private final PunishmentCreator creator;
+	private final Time time;
+
+	private volatile boolean enabled;
+	private volatile IndexedPunishments current;
+	// Guarded by this
+	private IndexedPunishments loading;
+	private ScheduledTask refreshTask;
+
+	private static final PunishmentType[] INDEXED_TYPES = {PunishmentType.BAN, PunishmentType.MUTE};
+
+	private static final Logger logger = LoggerFactory.getLogger(ThisClass.get());
+
+	@Inject
+	public ActivePunishmentIndex(Configs configs, EnhancedExecutor enhancedExecutor,
+								 Provider<QueryExecutor> queryExecutor, PunishmentCreator creator, Time time) {
+		this.configs = configs;
+		this.enhancedExecutor = enhancedExecutor;
+		this.queryExecutor = queryExecutor;
+		this.creator = creator;
+		this.time = time;
+	}
+
+	// Lifecycle
+
+	@Override
+	public void startup() {
+		restart();
+	}
+
+	@Override
+	public synchronized void restart() {
+		stop();
+		SqlConfig.PunishmentIndex indexConfig = configs.getSqlConfig().punishmentIndex();
+		if (!indexConfig.enable()) {
+			return;
+		}
+		enabled = true;
+		refreshTask = enhancedExecutor.scheduleRepeating(
+				this::refresh,
+				Duration.ofMinutes(indexConfig.refreshIntervalMinutes()),
+				DelayCalculators.fixedDelay()
+		);
+		refresh();
+	}
+
+	@Override
+	public synchronized void shutdown() {
+		stop();
+	}
+
+	private void stop() {
+		enabled = false;
+		current = null;
+		loading = null;
+		if (refreshTask != null) {
+			refreshTask.cancel();
+			refreshTask = null;
+		}
+	}
+
+	private void refresh() {
+		IndexedPunishments fresh = new IndexedPunishments();
+		synchronized (this) {
+			if (!enabled) {
+				return;
+			}
+			loading = fresh;
+		}
+		var query = SQLFunction.readOnly("ActivePunishmentIndex.load", this::loadFromDatabase);
+		queryExecutor.get().query(query).thenAccept((loaded) -> {
+			synchronized (this) {
+				if (loading != fresh) {
+					// Superseded or stopped
+					return;
+				}
+				loaded.populate(fresh);
+				loading = null;
+				current = fresh;
+			}
+			logger.debug("Loaded active punishment index {}", fresh);
+		}).exceptionally((ex) -> {
+			logger.warn("Failed to load the active punishment index. Lookups will use the database.", ex);
+			return null;
+		});
+	}
+
+	private Loaded loadFromDatabase(DSLContext context) {
+		final Instant currentTime = time.currentTimestamp();
+		List<Punishment> punishments = new ArrayList<>();
+		List<Record2<UUID, NetworkAddress>> links = new ArrayList<>();
+		for (PunishmentType type : INDEXED_TYPES) {
+			var simpleView = new TableForType(type).simpleView();
+			punishments.addAll(context
+					.select(
+							simpleView.id(),
+							simpleView.victimType(), simpleView.victimUuid(), simpleView.victimAddress(),
+							simpleView.operator(), simpleView.reason(),
+							simpleView.scope(), simpleView.start(), simpleView.end()
+					)
+					.from(simpleView.table())
+					.where(new EndTimeCondition(simpleView).isNotExpired(currentTime))
+					.fetch(creator.punishmentMapper(type)));
+			links.addAll(context
+					.select(ADDRESSES.UUID, ADDRESSES.ADDRESS)
+					.from(ADDRESSES)
+					.where(ADDRESSES.ADDRESS.in(context
+							.select(simpleView.victimAddress())
+							.from(simpleView.table())
+							.where(simpleView.victimType().notEqual(Victim.VictimType.PLAYER))
+							.and(new EndTimeCondition(simpleView).isNotExpired(currentTime))
+					))
+					.fetch());
+		}
+		return new Loaded(punishments, links);
+	}
+
+	private static final class Loaded {
+
+		private final List<Punishment> punishments;
+		private final List<Record2<UUID, NetworkAddress>> links;
+
+		Loaded(List<Punishment> punishments, List<Record2<UUID, NetworkAddress>> links) {
+			this.punishments = punishments;
+			this.links = links;
+		}
+
+		void populate(IndexedPunishments indexed) {
+			for (Punishment punishment : punishments) {
+				indexed.addPunishment(punishment);
+			}
+			for (Record2<UUID, NetworkAddress> link : links) {
+				NetworkAddress address = link.value2();
+				if (indexed.isAddressPunished(address)) {
+					indexed.linkAddress(link.value1(), address);
+				}
+			}
+		}
+	}
+
+	// Lookups
+
+	/**
+	 * Gets the current index data
+	 *
+	 * @return the index data, or null if the index is disabled or cold
+	 */
+	public IndexedPunishments current() {
+		return current;
+	}
+
+	// Updates
+
+	/**
+	 * Adds an active punishment to the index, if the index is enabled
+	 *
+	 * @param punishment the punishment
+	 */
+	public void addActive(Punishment punishment) {
+		if (!enabled || !IndexedPunishments.isIndexedType(punishment.getType())) {
+			return;
+		}
+		synchronized (this) {
+			forEachIndex((indexed) -> indexed.addPunishment(punishment));
+		}
+		Victim victim = punishment.getVictim();
+		NetworkAddress address;
+		if (victim instanceof AddressVictim) {
+			address = ((AddressVictim) victim).getAddress();
+		} else if (victim instanceof CompositeVictim) {
+			address = ((CompositeVictim) victim).getAddress();
+		} else {
+			return;
+		}
+		// Discover which users have used the punished address
+		queryExecutor.get().query(SQLFunction.readOnly("ActivePunishmentIndex.selectAddressUsers", (context) -> {
+			return context
+					.select(ADDRESSES.UUID)
+					.from(ADDRESSES)
+					.where(ADDRESSES.ADDRESS.eq(address))
+					.fetch(ADDRESSES.UUID);
+		})).thenAccept((uuids) -> {
+			for (UUID uuid : uuids) {
+				associateAddress(uuid, address);
+			}
+		}).exceptionally((ex) -> {
+			logger.warn("Failed to link users of address {} in the active punishment index", address, ex);
+			return null;
+		});
+	}
+
+	/**
+	 * Removes an active punishment from the index, if the index is enabled
+	 *
+	 * @param id the punishment ID
+	 */
+	public void removeActive(long id) {
+		if (!enabled) {
+			return;
+		}
+		synchronized (this) {
+			if (current != null) {
+				current.removePunishment(id);
+			}
+			if (loading != null) {
+				loading.removePunishmentWhileLoading(id);
+			}
+		}
+	}
+
+	/**
+	 * Notifies the index that the given user has used the given address
+	 *
+	 * @param uuid the user's uuid
+	 * @param address the address
+	 */
+	public void associateAddress(UUID uuid, NetworkAddress address) {
+		if (!enabled) {
+			return;
+		}
+		synchronized (this) {
+			forEachIndex((indexed) -> {
+				if (indexed.isAddressPunished(address)) {
+					indexed.linkAddress(uuid, address);
+				}
+			});
+		}
+	}
+
+	private void forEachIndex(Consumer<IndexedPunishments> action) {
+		assert Thread.holdsLock(this);
+		if (current != null) {
+			action.accept(current);
+		}
+		if (loading != null) {
+			action.accept(loading);
+		}
+	}
+
+}
@@ -33,11 +33,13 @@ import space.arim.libertybans.core.service.Time;
 import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
+import java.time.Clock;
 import java.time.Duration;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 
 /**
@@ -45,7 +47,15 @@ import java.util.function.Predicate;
  * For offline players no such guarantee is made. <br>
  * <br>
  * This is used for platforms such as Bukkit and Sponge where mute information must be available
- * synchronously.
+ * synchronously. <br>
+ * <br>
+ * Cached values are read without locking or allocation: each online player has a single entry,
+ * whose value (including the completed futures handed to callers) is replaced wholesale when
+ * it is updated. A stale entry is refreshed in the background by whichever reader first claims
+ * its refresh flag, while readers continue to see the previous value. <br>
+ * <br>
+ * Cached mutes are updated as soon as mutes are added or removed. A refresh which overlaps with
+ * such a change is discarded and repeated, since it may have read the database before the change.
  *
  */
 @Singleton
@@ -54,7 +64,9 @@ public final class AlwaysAvailableMuteCache extends BaseMuteCache {
 	private final FactoryOfTheFuture futuresFactory;
 	private final InternalFormatter formatter;
 	private final Time time;
+	private final Clock clock;
 
+	private final CachedValue noMute;
 	private volatile Cache cache;
 
 	@Inject
@@ -64,6 +76,8 @@ public final class AlwaysAvailableMuteCache extends BaseMuteCache {
 		this.futuresFactory = futuresFactory;
 		this.formatter = formatter;
 		this.time = time;
+		clock = time.toJdkClock();
+		noMute = new CachedValue(null, futuresFactory);
 	}
 
 	@Override
@@ -89,63 +103,126 @@ public final class AlwaysAvailableMuteCache extends BaseMuteCache {
 				.thenApply((message) -> new MuteAndMessage(mute, message));
 	}
 
+	private CachedValue toCachedValue(@Nullable MuteAndMessage muteAndMessage) {
+		return (muteAndMessage == null) ? noMute : new CachedValue(muteAndMessage, futuresFactory);
+	}
+
 	@Override
 	public CentralisedFuture<Optional<Punishment>> getCachedMute(UUID uuid, NetworkAddress address) {
-		return cacheRequestTo(uuid, address, MuteAndMessage::mute);
+		CachedValue cachedValue = cacheRequest(uuid, address);
+		if (cachedValue == null) {
+			return queryPunishment(new MuteCacheKey(uuid, address));
+		}
+		return cachedValue.futureMute;
 	}
 
 	@Override
 	public CentralisedFuture<Optional<Component>> getCachedMuteMessage(UUID uuid, NetworkAddress address) {
-		return cacheRequestTo(uuid, address, MuteAndMessage::message);
-	}
-
-	private <T> CentralisedFuture<Optional<T>> cacheRequestTo(UUID uuid, NetworkAddress address,
-															  Function<MuteAndMessage, T> toWhich) {
-		return cacheRequest(new MuteCacheKey(uuid, address))
-				.thenApply((muteAndMessage) -> muteAndMessage.map(toWhich));
+		CachedValue cachedValue = cacheRequest(uuid, address);
+		if (cachedValue == null) {
+			return queryPunishmentAndMessage(new MuteCacheKey(uuid, address))
+					.thenApply((muteAndMessage) -> Optional.ofNullable(muteAndMessage).map(MuteAndMessage::message));
+		}
+		return cachedValue.futureMessage;
 	}
 
-	private CentralisedFuture<Optional<MuteAndMessage>> cacheRequest(MuteCacheKey cacheKey) {
+	/**
+	 * Gets the cached value for an online player, refreshing it in the background if it is stale
+	 * or if the cached mute has expired
+	 *
+	 * @param uuid the player's uuid
+	 * @param address the player's address
+	 * @return the cached value, or null if the player is offline
+	 */
+	private @Nullable CachedValue cacheRequest(UUID uuid, NetworkAddress address) {
 		Cache cache = this.cache;
-		Entry cacheEntry = cache.map.computeIfPresent(cacheKey, (key, entry) -> {
-
-			MuteAndMessage currentValue = entry.currentValue;
-			long lastUpdated = entry.lastUpdated;
-			CentralisedFuture<MuteAndMessage> nextValue = entry.nextValue;
+		Entry entry = cache.map.get(uuid);
+		if (entry == null || !entry.key.address().equals(address)) {
+			// The player is offline. This should only happen through an API request.
+			// In that case, the caller queries the database and skips caching
+			return null;
+		}
+		final long currentTime = nanoTime();
+		CachedValue value = entry.value;
+		MuteAndMessage muteAndMessage = value.muteAndMessage;
+		if (muteAndMessage != null && muteAndMessage.mute().isExpired(clock)) {
+			// The mute ended before the next refresh was due. Treat it as absent until the refresh completes
+			refreshNow(cache, entry);
+			return noMute;
+		}
+		if (currentTime - entry.lastUpdated >= cache.expirationTimeNanos
+				&& entry.refreshing.compareAndSet(false, true)) {
+			refresh(cache, entry, currentTime);
+		}
+		return value;
+	}
 
-			// If the next value is ready, replace the current value with it
-			if (nextValue != null && nextValue.isDone()) {
-				currentValue = nextValue.join();
-				nextValue = null;
+	/**
+	 * Refreshes an entry. The caller must have claimed the entry's refresh flag
+	 *
+	 * @param cache the cache
+	 * @param entry the entry
+	 * @param currentTime the current nano time
+	 */
+	private void refresh(Cache cache, Entry entry, long currentTime) {
+		// Push back the next refresh, so that a failed query is retried only after another expiration period
+		entry.lastUpdated = currentTime;
+		long changes = cache.changes.get();
+		queryPunishmentAndMessage(entry.key).whenComplete((muteAndMessage, ex) -> {
+			boolean superseded = false;
+			if (ex == null) {
+				CachedValue value = toCachedValue(muteAndMessage);
+				synchronized (entry) {
+					if (cache.changes.get() == changes) {
+						entry.value = value;
+					} else {
+						superseded = true;
+					}
+				}
 			}
-			// If the current value is old, begin to compute a new value for it
-			final long currentTime = nanoTime();
-			long updatedAgo = currentTime - lastUpdated;
-			if (updatedAgo >= cache.expirationTimeNanos) {
-				nextValue = queryPunishmentAndMessage(key);
-				lastUpdated = currentTime;
+			entry.refreshing.set(false);
+			if (superseded) {
+				refreshNow(cache, entry);
 			}
-			return new Entry(currentValue, lastUpdated, nextValue);
 		});
-		if (cacheEntry == null) {
-			// The player is offline. This should only happen through an API request.
-			// In that case, we query the database and skip caching
-			return queryPunishmentAndMessage(cacheKey).thenApply(Optional::ofNullable);
+	}
+
+	private void refreshNow(Cache cache, Entry entry) {
+		if (entry.refreshing.compareAndSet(false, true)) {
+			refresh(cache, entry, nanoTime());
 		}
-		return futuresFactory.completedFuture(Optional.ofNullable(cacheEntry.currentValue));
 	}
 
 	@Override
 	void clearCachedMuteIf(Predicate<Punishment> removeIfMatches) {
-		// Do nothing - the mute will automatically expire in due time
+		Cache cache = this.cache;
+		cache.changes.incrementAndGet();
+		// The mute must remain available until the refreshed value arrives
+		for (Entry entry : cache.map.values()) {
+			MuteAndMessage currentValue = entry.value.muteAndMessage;
+			if (currentValue != null && removeIfMatches.test(currentValue.mute())) {
+				refreshNow(cache, entry);
+			}
+		}
+	}
+
+	@Override
+	void clearCachedMutesIf(Predicate<MuteCacheKey> affected) {
+		// Every entry belongs to an online player, who will receive the new mute through setCachedMute
+		// Only logins and refreshes which are in progress need to be repeated
+		cache.changes.incrementAndGet();
 	}
 
 	@Override
 	public CentralisedFuture<?> cacheOnLogin(UUID uuid, NetworkAddress address) {
 		MuteCacheKey key = new MuteCacheKey(uuid, address);
+		Cache initialCache = this.cache;
+		long changes = initialCache.changes.get();
 		return queryPunishmentAndMessage(key).thenAccept((value) -> {
 			// Add to cache
-			Entry previousEntry = cache.map.put(key, new Entry(value, nanoTime(), null));
+			Cache cache = this.cache;
+			Entry entry = new Entry(key, toCachedValue(value), nanoTime());
+			Entry previousEntry = cache.map.put(uuid, entry);
 			// Sanity check
 			if (previousEntry != null) {
 				// Very bad if this is happening
@@ -154,73 +231,93 @@ public final class AlwaysAvailableMuteCache extends BaseMuteCache {
 						"Found an existing mute cache entry for player " + uuid + ". " +
 								"Maybe the player is already logged in? Last updated " + updatedAgo);
 			}
+			if (cache != initialCache || cache.changes.get() != changes) {
+				// Mutes were changed during the query, which may therefore be outdated
+				refreshNow(cache, entry);
+			}
 		});
 	}
 
 	@Override
 	public void uncacheOnQuit(UUID uuid, NetworkAddress address) {
-		// Clean removal - stops any in-progress computation, too
-		Entry removed = cache.map.remove(new MuteCacheKey(uuid, address));
+		var map = cache.map;
+		Entry entry = map.get(uuid);
 		// Sanity check
-		if (removed == null) {
+		if (entry == null || !entry.key.address().equals(address) || !map.remove(uuid, entry)) {
 			throw new IllegalStateException("Expected there to be a mute cache entry for player " + uuid);
 		}
 	}
 
 	@Override
 	void setCachedMute(MuteCacheKey cacheKey, Punishment mute) {
-		cache.map.compute(cacheKey, (key, entry) -> {
-			// If there is no existing entry, store the new entry
-			if (entry == null) {
-				return new Entry(null, nanoTime(), formatMessage(mute));
-			}
-
-			// Update the old entry, if needed, with the new mute
-			MuteAndMessage currentValue = entry.currentValue;
-			long lastUpdated = entry.lastUpdated;
-			CentralisedFuture<MuteAndMessage> nextValue = entry.nextValue;
-
-			if (nextValue != null) {
-				// If the next value is ready, replace the current value with it
-				if (nextValue.isDone()) {
-					currentValue = nextValue.join();
-					nextValue = null;
-				} else {
-					// There is a next value in-progress but not yet ready
-					// Keep it, as it will be more accurate in case there are multiple applicable mutes
-					return entry;
+		Cache cache = this.cache;
+		// Any refresh in progress is repeated, as it will be more accurate in case there are multiple applicable mutes
+		cache.changes.incrementAndGet();
+		Entry entry = cache.map.get(cacheKey.uuid());
+		if (entry == null || !entry.key.address().equals(cacheKey.address())) {
+			// The player is offline. The mute will be loaded if and when the player logs in
+			return;
+		}
+		formatMessage(mute).thenAccept((muteAndMessage) -> {
+			CachedValue value = toCachedValue(muteAndMessage);
+			synchronized (entry) {
+				MuteAndMessage currentValue = entry.value.muteAndMessage;
+				// If there is no current mute, or the new mute will expire less soon, use the new mute
+				if (currentValue == null || mute.getEndDate().isAfter(currentValue.mute().getEndDate())) {
+					entry.value = value;
+					entry.lastUpdated = nanoTime();
 				}
 			}
-			// If there is no current mute, or the new mute will expire less soon, use the new mute
-			if (currentValue == null || mute.getEndDate().isAfter(currentValue.mute().getEndDate())) {
-				nextValue = formatMessage(mute);
-				lastUpdated = nanoTime();
-			}
-			return new Entry(currentValue, lastUpdated, nextValue);
 		});
 	}
 
 	private static final class Cache {
 
-		private final ConcurrentHashMap<MuteCacheKey, Entry> map = new ConcurrentHashMap<>();
+		private final ConcurrentHashMap<UUID, Entry> map = new ConcurrentHashMap<>();
 		private final long expirationTimeNanos;
+		/**
+		 * Incremented whenever mutes are changed
+		 */
+		private final AtomicLong changes = new AtomicLong();
 
 		private Cache(Duration expirationTime) {
 			this.expirationTimeNanos = expirationTime.toNanos();
 		}
 	}
 
+	/**
+	 * The cache entry of an online player. Writers synchronize on the entry; readers do not
+	 *
+	 */
 	private static final class Entry {
 
-		private final @Nullable MuteAndMessage currentValue;
-		private final long lastUpdated;
-		private final @Nullable CentralisedFuture<@Nullable MuteAndMessage> nextValue;
+		private final MuteCacheKey key;
+		private volatile CachedValue value;
+		private volatile long lastUpdated;
+		private final AtomicBoolean refreshing = new AtomicBoolean();
 
-		private Entry(@Nullable MuteAndMessage currentValue, long lastUpdated,
-					  @Nullable CentralisedFuture<@Nullable MuteAndMessage> nextValue) {
-			this.currentValue = currentValue;
+		private Entry(MuteCacheKey key, CachedValue value, long lastUpdated) {
+			this.key = key;
+			this.value = value;
 			this.lastUpdated = lastUpdated;
-			this.nextValue = nextValue;
+		}
+	}
+
+	/**
+	 * An immutable cached value, holding the already completed futures returned to callers
+	 *
+	 */
+	private static final class CachedValue {
+
+		private final @Nullable MuteAndMessage muteAndMessage;
+		private final CentralisedFuture<Optional<Punishment>> futureMute;
+		private final CentralisedFuture<Optional<Component>> futureMessage;
+
+		private CachedValue(@Nullable MuteAndMessage muteAndMessage, FactoryOfTheFuture futuresFactory) {
+			this.muteAndMessage = muteAndMessage;
+			Optional<MuteAndMessage> optValue = Optional.ofNullable(muteAndMessage);
+			futureMute = futuresFactory.completedFuture(optValue.map(MuteAndMessage::mute));
+			futureMessage = futuresFactory.completedFuture(optValue.map(MuteAndMessage::message));
 		}
 	}
 }
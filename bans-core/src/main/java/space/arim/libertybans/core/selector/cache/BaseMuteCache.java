@@ -31,6 +31,7 @@ import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import java.time.Duration;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.BiPredicate;
 import java.util.function.Predicate;
 
 abstract class BaseMuteCache implements MuteCache {
@@ -55,12 +56,15 @@ abstract class BaseMuteCache implements MuteCache {
 		SqlConfig sqlConfig = configs.getSqlConfig();
 		SqlConfig.MuteCaching muteCaching = sqlConfig.muteCaching();
 
-		Duration expirationTime = Duration.ofSeconds(muteCaching.expirationTimeSeconds());
+		Duration expirationTime;
 		ExpirationSemantic expirationSemantic;
 		if (sqlConfig.synchronization().enabled()) {
 			// If synchronization is enabled, always use expire-after-write semantics
+			// Changes on other instances are received as they happen, so the expiration time is only a safety net
+			expirationTime = Duration.ofSeconds(muteCaching.synchronizedExpirationTimeSeconds());
 			expirationSemantic = ExpirationSemantic.EXPIRE_AFTER_WRITE;
 		} else {
+			expirationTime = Duration.ofSeconds(muteCaching.expirationTimeSeconds());
 			expirationSemantic = muteCaching.expirationSemantic();
 		}
 		installCache(expirationTime, expirationSemantic);
@@ -96,6 +100,13 @@ abstract class BaseMuteCache implements MuteCache {
 
 	abstract void clearCachedMuteIf(Predicate<Punishment> removeIfMatches);
 
+	@Override
+	public void clearCachedMutes(BiPredicate<UUID, NetworkAddress> affected) {
+		clearCachedMutesIf((key) -> affected.test(key.uuid(), key.address()));
+	}
+
+	abstract void clearCachedMutesIf(Predicate<MuteCacheKey> affected);
+
 	@Override
 	public final void setCachedMute(UUID uuid, NetworkAddress address, Punishment punishment) {
 		if (punishment.getType() != PunishmentType.MUTE) {
@@ -0,0 +1,267 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector.cache;
+
+import space.arim.libertybans.api.AddressVictim;
+import space.arim.libertybans.api.CompositeVictim;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.core.punish.MiscUtil;
+import space.arim.libertybans.core.selector.AddressStrictness;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The data of the {@link ActivePunishmentIndex}. Reads may happen from any thread
+ * without locking, but writes must be externally synchronized. <br>
+ * <br>
+ * Active punishments are stored by victim UUID and by victim address. To answer
+ * {@link AddressStrictness#NORMAL} lookups, the index additionally keeps, for each punished
+ * address, the users who have been seen with that address.
+ *
+ */
+public final class IndexedPunishments {
+
+	private final Map<Long, Punishment> byId = new ConcurrentHashMap<>();
+	private final Map<UUID, Set<Punishment>> byUuid = new ConcurrentHashMap<>();
+	private final Map<NetworkAddress, Set<Punishment>> byAddress = new ConcurrentHashMap<>();
+	private final Map<NetworkAddress, Set<UUID>> usersOfPunishedAddress = new ConcurrentHashMap<>();
+	private final Map<UUID, Set<NetworkAddress>> punishedAddressesOfUser = new ConcurrentHashMap<>();
+
+	/**
+	 * Identifiers removed while this index was being loaded. Prevents the load from resurrecting them
+	 */
+	private final Set<Long> tombstones = new HashSet<>();
+
+	IndexedPunishments() {}
+
+	/**
+	 * Selects the applicable punishment in the same manner as the database would. Of all matching
+	 * punishments, the one which expires least soon is chosen. <br>
+	 * <br>
+	 * Lookups which the index cannot answer fall back to the database. These are lookups for
+	 * types which are not indexed, and lookups with {@link AddressStrictness#STRICT}, for which the
+	 * links between users are not indexed.
+	 *
+	 * @param uuid the player's uuid
+	 * @param address the player's current address
+	 * @param type the punishment type
+	 * @param strictness the address strictness
+	 * @param currentTime the current time
+	 * @param fromIndex converts the punishment selected from the index, or null if there is none,
+	 *                  to the result
+	 * @param databaseLookup performs the lookup against the database
+	 * @param <R> the result type
+	 * @return the result from the index, or of the database lookup
+	 */
+	public <R> R selectApplicable(UUID uuid, NetworkAddress address, PunishmentType type,
+								  AddressStrictness strictness, Instant currentTime,
+								  Function<Punishment, R> fromIndex, Supplier<R> databaseLookup) {
+		if (!isIndexedType(type)) {
+			return databaseLookup.get();
+		}
+		Selection selection = new Selection(type, currentTime);
+		selection.considerAll(byUuid.get(uuid));
+		selection.considerAll(byAddress.get(address));
+		switch (strictness) {
+		case LENIENT:
+			break;
+		case NORMAL:
+			Set<NetworkAddress> pastAddresses = punishedAddressesOfUser.get(uuid);
+			if (pastAddresses != null) {
+				for (NetworkAddress pastAddress : pastAddresses) {
+					selection.considerAll(byAddress.get(pastAddress));
+				}
+			}
+			break;
+		case STRICT:
+			return databaseLookup.get();
+		default:
+			throw MiscUtil.unknownAddressStrictness(strictness);
+		}
+		return fromIndex.apply(selection.result);
+	}
+
+	static boolean isIndexedType(PunishmentType type) {
+		return type == PunishmentType.BAN || type == PunishmentType.MUTE;
+	}
+
+	/**
+	 * Whether the given address is the victim of any indexed punishment
+	 *
+	 * @param address the address
+	 * @return true if punished
+	 */
+	boolean isAddressPunished(NetworkAddress address) {
+		return byAddress.containsKey(address);
+	}
+
+	// Modification
+
+	void addPunishment(Punishment punishment) {
+		long id = punishment.getIdentifier();
+		if (tombstones.contains(id) || byId.putIfAbsent(id, punishment) != null) {
+			return;
+		}
+		Victim victim = punishment.getVictim();
+		switch (victim.getType()) {
+		case PLAYER:
+			addTo(byUuid, ((PlayerVictim) victim).getUUID(), punishment);
+			break;
+		case ADDRESS:
+			addTo(byAddress, ((AddressVictim) victim).getAddress(), punishment);
+			break;
+		case COMPOSITE:
+			CompositeVictim compositeVictim = (CompositeVictim) victim;
+			addTo(byUuid, compositeVictim.getUUID(), punishment);
+			addTo(byAddress, compositeVictim.getAddress(), punishment);
+			break;
+		default:
+			throw MiscUtil.unknownVictimType(victim.getType());
+		}
+	}
+
+	void removePunishment(long id) {
+		Punishment punishment = byId.remove(id);
+		if (punishment == null) {
+			return;
+		}
+		Victim victim = punishment.getVictim();
+		switch (victim.getType()) {
+		case PLAYER:
+			removeFrom(byUuid, ((PlayerVictim) victim).getUUID(), punishment);
+			break;
+		case ADDRESS:
+			removeAddressPunishment(((AddressVictim) victim).getAddress(), punishment);
+			break;
+		case COMPOSITE:
+			CompositeVictim compositeVictim = (CompositeVictim) victim;
+			removeFrom(byUuid, compositeVictim.getUUID(), punishment);
+			removeAddressPunishment(compositeVictim.getAddress(), punishment);
+			break;
+		default:
+			throw MiscUtil.unknownVictimType(victim.getType());
+		}
+	}
+
+	void removePunishmentWhileLoading(long id) {
+		tombstones.add(id);
+		removePunishment(id);
+	}
+
+	private void removeAddressPunishment(NetworkAddress address, Punishment punishment) {
+		removeFrom(byAddress, address, punishment);
+		if (byAddress.containsKey(address)) {
+			return;
+		}
+		// No more punishments for this address, so its users need not be tracked
+		Set<UUID> users = usersOfPunishedAddress.remove(address);
+		if (users != null) {
+			for (UUID user : users) {
+				removeFrom(punishedAddressesOfUser, user, address);
+			}
+		}
+	}
+
+	void linkAddress(UUID uuid, NetworkAddress address) {
+		addTo(usersOfPunishedAddress, address, uuid);
+		addTo(punishedAddressesOfUser, uuid, address);
+	}
+
+	private static <K, V> void addTo(Map<K, Set<V>> map, K key, V value) {
+		map.compute(key, (k, existing) -> {
+			if (existing == null) {
+				return Set.of(value);
+			}
+			if (existing.contains(value)) {
+				return existing;
+			}
+			Set<V> updated = new HashSet<>(existing);
+			updated.add(value);
+			return Set.copyOf(updated);
+		});
+	}
+
+	private static <K, V> void removeFrom(Map<K, Set<V>> map, K key, V value) {
+		map.computeIfPresent(key, (k, existing) -> {
+			if (!existing.contains(value)) {
+				return existing;
+			}
+			Set<V> updated = new HashSet<>(existing);
+			updated.remove(value);
+			return (updated.isEmpty()) ? null : Set.copyOf(updated);
+		});
+	}
+
+	int size() {
+		return byId.size();
+	}
+
+	private static final class Selection {
+
+		private final PunishmentType type;
+		private final Instant currentTime;
+		private Punishment result;
+
+		Selection(PunishmentType type, Instant currentTime) {
+			this.type = type;
+			this.currentTime = currentTime;
+		}
+
+		void considerAll(Set<Punishment> punishments) {
+			if (punishments == null) {
+				return;
+			}
+			for (Punishment punishment : punishments) {
+				if (punishment.getType() != type) {
+					continue;
+				}
+				Instant end = punishment.getEndDate();
+				if (!punishment.isPermanent() && !end.isAfter(currentTime)) {
+					// Expired
+					continue;
+				}
+				// Permanent punishments, having the maximum end date, always win
+				if (result == null || end.isAfter(result.getEndDate())) {
+					result = punishment;
+				}
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "IndexedPunishments{" +
+				"size=" + byId.size() +
+				", punishedAddresses=" + byAddress.size() +
+				", trackedUsers=" + punishedAddressesOfUser.size() +
+				'}';
+	}
+}
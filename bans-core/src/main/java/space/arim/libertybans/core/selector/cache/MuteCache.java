@@ -27,6 +27,7 @@ import space.arim.omnibus.util.concurrent.CentralisedFuture;
 
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.BiPredicate;
 
 public interface MuteCache extends Part {
 
@@ -57,4 +58,15 @@ public interface MuteCache extends Part {
 
 	void clearCachedMute(long id);
 
+	/**
+	 * Clears the cached mutes of all users matching the given predicate, because a mute
+	 * which may apply to them has been enacted. Their mutes are re-fetched as needed. <br>
+	 * <br>
+	 * This should be called before the new mute is set for any online users through
+	 * {@link #setCachedMute(UUID, NetworkAddress, Punishment)}
+	 *
+	 * @param affected the predicate determining which users are affected
+	 */
+	void clearCachedMutes(BiPredicate<UUID, NetworkAddress> affected);
+
 }
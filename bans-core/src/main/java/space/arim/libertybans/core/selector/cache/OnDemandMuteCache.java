@@ -25,6 +25,7 @@ import com.github.benmanes.caffeine.cache.Scheduler;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import net.kyori.adventure.text.Component;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.LoggerFactory;
 import space.arim.libertybans.api.NetworkAddress;
 import space.arim.libertybans.api.punish.Punishment;
@@ -43,7 +44,9 @@ import java.util.function.Predicate;
 
 /**
  * Mute cache used for Velocity and BungeeCord which queries for mutes as needed,
- * using a layer of caching for efficiency.
+ * using a layer of caching for efficiency. <br>
+ * <br>
+ * Cached mutes are cleared as soon as mutes which may affect them are added or removed.
  *
  */
 @Singleton
@@ -123,11 +126,21 @@ public final class OnDemandMuteCache extends BaseMuteCache {
 
 	@Override
 	void clearCachedMuteIf(Predicate<Punishment> removeIfMatches) {
-		cache.synchronous().asMap().values().removeIf((mute) -> {
+		cache.asMap().values().removeIf((muteFuture) -> {
+			if (!muteFuture.isDone()) {
+				// The computation may have begun before the mute was removed
+				return true;
+			}
+			Optional<Punishment> mute = muteFuture.getNow(Optional.empty());
 			return mute.isPresent() && removeIfMatches.test(mute.get());
 		});
 	}
 
+	@Override
+	void clearCachedMutesIf(Predicate<MuteCacheKey> affected) {
+		cache.asMap().keySet().removeIf(affected);
+	}
+
 	@Override
 	public CentralisedFuture<?> cacheOnLogin(UUID uuid, NetworkAddress address) {
 		return futuresFactory.completedFuture(null);
@@ -144,16 +157,21 @@ public final class OnDemandMuteCache extends BaseMuteCache {
 				return futuresFactory.completedFuture(Optional.of(mute));
 			}
 			if (!future.isDone()) {
-				// Keep the existing computation:
-				// it will be more accurate in case there are multiple applicable mutes
-				return future;
+				// Keep the existing computation, since it will be more accurate in case there are
+				// multiple applicable mutes. However, it may have begun before the new mute was added
+				return future.thenApply((oldMute) -> laterMute(oldMute.orElse(null), mute));
 			}
 			Punishment oldMute = future.join().orElse(null);
-			// If there is no current mute, or the new mute will expire less soon, use the new mute
-			if (oldMute == null || mute.getEndDate().isAfter(oldMute.getEndDate())) {
-				return futuresFactory.completedFuture(Optional.of(mute));
-			}
-			return future;
+			Optional<Punishment> newMute = laterMute(oldMute, mute);
+			return (newMute.get() == oldMute) ? future : futuresFactory.completedFuture(newMute);
 		});
 	}
+
+	private static Optional<Punishment> laterMute(@Nullable Punishment oldMute, Punishment mute) {
+		// If there is no current mute, or the new mute will expire less soon, use the new mute
+		if (oldMute == null || mute.getEndDate().isAfter(oldMute.getEndDate())) {
+			return Optional.of(mute);
+		}
+		return Optional.of(oldMute);
+	}
 }
@@ -0,0 +1,48 @@
+
+-- Precomputed applicability of active punishments
+-- Each row records that a punishment applies to a user, either directly or through an address the user has used
+-- The rows of a punishment are deleted with the punishment, whether it is revoked or expired
+
+CREATE TABLE "${tableprefix}ban_applicability" (
+  "uuid" ${uuidtype} NOT NULL,
+  "id" BIGINT NOT NULL,
+  CONSTRAINT "${tableprefix}ban_applicability_uniqueness" UNIQUE ("uuid", "id"),
+  CONSTRAINT "${tableprefix}ban_applicability_id_validity" FOREIGN KEY ("id") REFERENCES "${tableprefix}bans" ("id") ON DELETE CASCADE
+)${extratableoptions};
+
+CREATE INDEX "${tableprefix}ban_applicability_id_index" ON "${tableprefix}ban_applicability" ("id");
+
+CREATE TABLE "${tableprefix}mute_applicability" (
+  "uuid" ${uuidtype} NOT NULL,
+  "id" BIGINT NOT NULL,
+  CONSTRAINT "${tableprefix}mute_applicability_uniqueness" UNIQUE ("uuid", "id"),
+  CONSTRAINT "${tableprefix}mute_applicability_id_validity" FOREIGN KEY ("id") REFERENCES "${tableprefix}mutes" ("id") ON DELETE CASCADE
+)${extratableoptions};
+
+CREATE INDEX "${tableprefix}mute_applicability_id_index" ON "${tableprefix}mute_applicability" ("id");
+
+CREATE TABLE "${tableprefix}warn_applicability" (
+  "uuid" ${uuidtype} NOT NULL,
+  "id" BIGINT NOT NULL,
+  CONSTRAINT "${tableprefix}warn_applicability_uniqueness" UNIQUE ("uuid", "id"),
+  CONSTRAINT "${tableprefix}warn_applicability_id_validity" FOREIGN KEY ("id") REFERENCES "${tableprefix}warns" ("id") ON DELETE CASCADE
+)${extratableoptions};
+
+CREATE INDEX "${tableprefix}warn_applicability_id_index" ON "${tableprefix}warn_applicability" ("id");
+
+-- Populate from existing punishments
+
+INSERT INTO "${tableprefix}ban_applicability" ("uuid", "id")
+  SELECT "uuid", "id" FROM "${tableprefix}applicable_bans"
+  UNION
+  SELECT "victim_uuid", "id" FROM "${tableprefix}simple_bans" WHERE "victim_type" <> 1;
+
+INSERT INTO "${tableprefix}mute_applicability" ("uuid", "id")
+  SELECT "uuid", "id" FROM "${tableprefix}applicable_mutes"
+  UNION
+  SELECT "victim_uuid", "id" FROM "${tableprefix}simple_mutes" WHERE "victim_type" <> 1;
+
+INSERT INTO "${tableprefix}warn_applicability" ("uuid", "id")
+  SELECT "uuid", "id" FROM "${tableprefix}applicable_warns"
+  UNION
+  SELECT "victim_uuid", "id" FROM "${tableprefix}simple_warns" WHERE "victim_type" <> 1;
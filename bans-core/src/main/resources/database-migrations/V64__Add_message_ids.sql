@@ -0,0 +1,15 @@
+
+-- Identify messages by a monotonically increasing ID
+-- Each instance tracks the highest ID it has received, rather than relying on its own clock
+-- Messages are retained only briefly, so the table is recreated rather than altered
+
+DROP TABLE "${tableprefix}messages";
+
+CREATE TABLE "${tableprefix}messages" (
+  "id" ${identitytype},
+  "message" ${arbitrarybinarytype} NOT NULL,
+  "time" BIGINT NOT NULL,
+  CONSTRAINT "${tableprefix}message_id_uniqueness" PRIMARY KEY ("id")
+);
+
+CREATE INDEX "${tableprefix}messages_time_index" ON "${tableprefix}messages" ("time");
@@ -59,7 +59,8 @@ public class ListCommandsTest {
 	@Test
 	public void suggest(@Mock CmdSender sender) {
 		Set<String> playerNames = Set.of("player1", "player2");
-		when(tabCompletion.completeOfflinePlayerNames(sender)).thenReturn(playerNames.stream());
-		assertEquals(playerNames, listCommands.suggest(sender, "history", 0).collect(Collectors.toUnmodifiableSet()));
+		when(tabCompletion.completeOfflinePlayerNames(sender, "pl")).thenReturn(playerNames.stream());
+		assertEquals(playerNames,
+				listCommands.suggest(sender, "history", 0, "pl").collect(Collectors.toUnmodifiableSet()));
 	}
 }
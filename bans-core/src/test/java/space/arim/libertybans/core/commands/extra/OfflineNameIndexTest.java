@@ -0,0 +1,78 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.commands.extra;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OfflineNameIndexTest {
+
+	private final OfflineNameIndex index = new OfflineNameIndex();
+
+	private List<String> search(String prefix, int limit) {
+		return index.search(prefix, limit).collect(Collectors.toUnmodifiableList());
+	}
+
+	@Test
+	public void searchByPrefixIgnoringCase() {
+		index.update("A248", Instant.EPOCH);
+		index.update("aurelian", Instant.EPOCH);
+		index.update("Bob", Instant.EPOCH);
+		index.update("ab", Instant.EPOCH);
+
+		assertEquals(List.of("A248", "ab", "aurelian"), search("a", 10));
+		assertEquals(List.of("aurelian"), search("AU", 10));
+		assertEquals(List.of(), search("c", 10));
+		assertEquals(List.of("A248", "ab", "aurelian", "Bob"), search("", 10));
+	}
+
+	@Test
+	public void limitResults() {
+		for (int n = 0; n < 10; n++) {
+			index.update("Player" + n, Instant.EPOCH);
+		}
+		assertEquals(List.of("Player0", "Player1", "Player2"), search("player", 3));
+	}
+
+	@Test
+	public void keepLatestUse() {
+		index.update("A248", Instant.ofEpochSecond(20L));
+		index.update("a248", Instant.ofEpochSecond(10L));
+		assertEquals(List.of("A248"), search("a", 10));
+
+		index.update("a248", Instant.ofEpochSecond(30L));
+		assertEquals(List.of("a248"), search("a", 10));
+		assertEquals(1, index.size());
+	}
+
+	@Test
+	public void removeOlderNames() {
+		index.update("Old", Instant.ofEpochSecond(10L));
+		index.update("Recent", Instant.ofEpochSecond(100L));
+		index.removeOlderThan(Instant.ofEpochSecond(50L));
+		assertEquals(List.of("Recent"), search("", 10));
+	}
+
+}
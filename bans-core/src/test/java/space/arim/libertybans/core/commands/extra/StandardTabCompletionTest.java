@@ -30,6 +30,7 @@ import space.arim.libertybans.core.config.MainConfig;
 import space.arim.libertybans.core.database.InternalDatabase;
 import space.arim.libertybans.core.env.CmdSender;
 import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
 
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -43,21 +44,23 @@ import static org.mockito.Mockito.when;
 public class StandardTabCompletionTest {
 
 	private final Configs configs;
+	private final EnhancedExecutor enhancedExecutor;
 	private final Provider<InternalDatabase> dbProvider;
 	private final Time time;
 
 	private TabCompletion tabCompletion;
 
-	public StandardTabCompletionTest(@Mock Configs configs, @Mock Provider<InternalDatabase> dbProvider,
-									 @Mock Time time) {
+	public StandardTabCompletionTest(@Mock Configs configs, @Mock EnhancedExecutor enhancedExecutor,
+									 @Mock Provider<InternalDatabase> dbProvider, @Mock Time time) {
 		this.configs = configs;
+		this.enhancedExecutor = enhancedExecutor;
 		this.dbProvider = dbProvider;
 		this.time = time;
 	}
 
 	@BeforeEach
 	public void setTabCompletion() {
-		tabCompletion = new StandardTabCompletion(configs, dbProvider, time);
+		tabCompletion = new StandardTabCompletion(configs, enhancedExecutor, dbProvider, time);
 	}
 
 	private void setUseOnlyPlayersOnSameServer(boolean useOnlyPlayersOnSameServer) {
@@ -56,6 +56,8 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -196,7 +198,8 @@ public class FormatterTest {
 
 		String layout = "%TYPE% > %OPERATOR% enacted against %VICTIM% for %DURATION% due to %REASON%. " +
 				"Starts on %START_DATE%. Ends on %END_DATE%. Remaining time is %TIME_REMAINING%. " +
-				"Time passed is %TIME_PASSED%. Operator ID is %OPERATOR_ID%; Victim ID is %VICTIM_ID%.";
+				"Time passed is %TIME_PASSED%. Operator ID is %OPERATOR_ID%; Victim ID is %VICTIM_ID%. " +
+				"Scope is %SCOPE%.";
 		String expectedFormat = testInfo.formatVariables(layout)
 				.replace("%DURATION%", "4 days, 2 hours, and 15 minutes")
 				.replace("%TIME_REMAINING%", "2 hours, and 15 minutes")
@@ -227,7 +230,8 @@ public class FormatterTest {
 
 		String layout = "%TYPE% > %OPERATOR% enacted against %VICTIM% for %DURATION% due to %REASON%. " +
 				"Starts on %START_DATE%. Ends on %END_DATE%. Remaining time is %TIME_REMAINING%. " +
-				"Time passed is %TIME_PASSED%. Operator ID is %OPERATOR_ID%; Victim ID is %VICTIM_ID%.";
+				"Time passed is %TIME_PASSED%. Operator ID is %OPERATOR_ID%; Victim ID is %VICTIM_ID%. " +
+				"Scope is %SCOPE%.";
 		String expectedFormat = testInfo.formatVariables(layout)
 				.replace("%DURATION%", "3 hours")
 				.replace("%TIME_REMAINING%", "3 hours")
@@ -240,26 +244,69 @@ public class FormatterTest {
 
 	@Test
 	public void noTimeRemaining() {
-		setupSimpleDefaults();
-
-		FormatterTestInfo testInfo = new FormatterTestInfo(
-				PunishmentType.BAN,
-				DisplayableVictim.ObWolf, DisplayableOperator.CONSOLE,
-				"global", "this ban has expired");
+		setTimeConf(simpleTimeConf());
+		setSimpleMessagesFormatting();
 
 		// Start punishment 4 hours ago and end it 1 hour ago, for a duration of 3 hours
 		Instant start = INSTANT_2021_01_05.minus(Duration.ofHours(4L));
 		Instant end = start.plus(Duration.ofHours(3L));
-		Punishment punishment = punishmentFor(testInfo, start, end);
+		Punishment punishment = mock(Punishment.class);
+		setStartAndEndSeconds(punishment, start, end);
 
 		String layout = "Remaining time is %TIME_REMAINING%. Time passed is %TIME_PASSED%.";
-		String expectedFormat = testInfo.formatVariables(layout)
-				.replace("%TIME_REMAINING%", "(No time remaining)")
-				.replace("%TIME_PASSED%", "4 hours");
+		String expectedFormat = "Remaining time is (No time remaining). Time passed is 4 hours.";
 
 		assertEquals(expectedFormat, format(punishment, layout));
 	}
 
+	private void setLayout(MessagesConfig messagesConfig, PunishmentType type, String layout) {
+		AdditionsSection additions = mock(AdditionsSection.class);
+		AdditionsSection.PunishmentAddition addition = mock(AdditionsSection.PunishmentAddition.class);
+		when(messagesConfig.additions()).thenReturn(additions);
+		when(additions.forType(type)).thenReturn(addition);
+		when(addition.layout()).thenReturn(ComponentText.create(Component.text(layout)));
+	}
+
+	private String punishmentMessage(Punishment punishment) {
+		return PlainComponentSerializer.plain().serialize(formatter.getPunishmentMessage(punishment).join());
+	}
+
+	@Test
+	public void reusePunishmentMessage() {
+		setTimeConf(simpleTimeConf());
+
+		Instant start = INSTANT_2021_01_01;
+		Instant end = INSTANT_2021_01_05.plus(Duration.ofHours(2L));
+		Punishment punishment = mock(Punishment.class);
+		when(punishment.getType()).thenReturn(PunishmentType.BAN);
+		setVictim(punishment, DisplayableVictim.ObWolf);
+		setOperator(punishment, DisplayableOperator.A248);
+		setStartAndEndSeconds(punishment, start, end);
+		setLayout(messagesConfig, PunishmentType.BAN,
+				"%OPERATOR% banned %VICTIM%. Remaining time is %TIME_REMAINING%.");
+
+		String expectedMessage = "A248 banned " + DisplayableVictim.ObWolf.display() + ". Remaining time is 2 hours.";
+		assertEquals(expectedMessage, punishmentMessage(punishment));
+		assertEquals(expectedMessage, punishmentMessage(punishment));
+		// Once for the victim and once for the operator
+		verify(uuidManager, times(2)).lookupName(any());
+	}
+
+	@Test
+	public void renderPunishmentMessageAgainAfterReload() {
+		Punishment punishment = mock(Punishment.class);
+		when(punishment.getType()).thenReturn(PunishmentType.MUTE);
+		when(punishment.getReason()).thenReturn("spamming");
+
+		setLayout(messagesConfig, PunishmentType.MUTE, "Muted for %REASON%");
+		assertEquals("Muted for spamming", punishmentMessage(punishment));
+
+		MessagesConfig reloadedMessagesConfig = mock(MessagesConfig.class);
+		when(configs.getMessagesConfig()).thenReturn(reloadedMessagesConfig);
+		setLayout(reloadedMessagesConfig, PunishmentType.MUTE, "You are muted: %REASON%");
+		assertEquals("You are muted: spamming", punishmentMessage(punishment));
+	}
+
 	private String format(Punishment punishment, String layout) {
 		ComponentText layoutMessage = ComponentText.create(Component.text(layout));
 		var formatFuture = formatter.formatWithPunishment(layoutMessage, punishment);
@@ -317,6 +364,10 @@ public class FormatterTest {
 	private void setStartAndEnd(Punishment punishment, Instant start, Instant end) {
 		when(punishment.getStartDate()).thenReturn(start);
 		when(punishment.getEndDate()).thenReturn(end);
+		setStartAndEndSeconds(punishment, start, end);
+	}
+
+	private void setStartAndEndSeconds(Punishment punishment, Instant start, Instant end) {
 		when(punishment.getStartDateSeconds()).thenReturn(start.getEpochSecond());
 		when(punishment.getEndDateSeconds()).thenReturn(end.getEpochSecond());
 		when(punishment.isPermanent()).thenReturn(end.equals(Instant.MAX));
@@ -66,7 +66,8 @@ final class FormatterTestInfo {
 				.replace("%VICTIM_ID%", victim.displayId())
 				.replace("%OPERATOR%", operator.display())
 				.replace("%OPERATOR_ID%", operator.displayId())
-				.replace("%REASON%", reason);
+				.replace("%REASON%", reason)
+				.replace("%SCOPE%", serverScope);
 	}
 
 	@Override
@@ -0,0 +1,113 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.config;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MessageTemplateTest {
+
+	private static String[] values() {
+		return new String[PunishmentVariable.values().length];
+	}
+
+	@Test
+	public void literalsAndVariables() {
+		MessageTemplate template = MessageTemplate.compile(Component.text("Banned by %OPERATOR% for %REASON%"));
+		assertTrue(template.uses(PunishmentVariable.OPERATOR));
+		assertTrue(template.uses(PunishmentVariable.REASON));
+		assertFalse(template.uses(PunishmentVariable.ID));
+
+		String[] values = values();
+		values[PunishmentVariable.OPERATOR.ordinal()] = "A248";
+		values[PunishmentVariable.REASON.ordinal()] = "spamming";
+		assertEquals(Component.text("Banned by A248 for spamming"), template.render(values));
+	}
+
+	@Test
+	public void unknownVariablesAndPercentSigns() {
+		MessageTemplate template = MessageTemplate.compile(Component.text("100% sure %NOT_A_VARIABLE% %ID%%"));
+		String[] values = values();
+		values[PunishmentVariable.ID.ordinal()] = "5";
+		assertEquals(Component.text("100% sure %NOT_A_VARIABLE% 5%"), template.render(values));
+	}
+
+	@Test
+	public void missingValueLeavesVariable() {
+		MessageTemplate template = MessageTemplate.compile(Component.text("Undone by %UNOPERATOR%"));
+		assertEquals(Component.text("Undone by %UNOPERATOR%"), template.render(values()));
+	}
+
+	@Test
+	public void valuesAreNotReplacedAgain() {
+		MessageTemplate template = MessageTemplate.compile(Component.text("%REASON% (%ID%)"));
+		String[] values = values();
+		values[PunishmentVariable.REASON.ordinal()] = "%ID%";
+		values[PunishmentVariable.ID.ordinal()] = "7";
+		assertEquals(Component.text("%ID% (7)"), template.render(values));
+	}
+
+	@Test
+	public void reuseMessageWithoutVariables() {
+		Component message = Component.text("You are banned", NamedTextColor.RED);
+		assertSame(message, MessageTemplate.compile(message).render(values()));
+	}
+
+	@Test
+	public void childrenAndEvents() {
+		Component constantChild = Component.text(" - appeal on our website");
+		Component message = Component.text()
+				.content("Banned for %DURATION%")
+				.color(NamedTextColor.RED)
+				.hoverEvent(HoverEvent.showText(Component.text("Punishment %ID%")))
+				.clickEvent(ClickEvent.suggestCommand("/libertybans unban %VICTIM%"))
+				.append(Component.text(" by %OPERATOR%", NamedTextColor.GRAY))
+				.append(constantChild)
+				.build();
+		MessageTemplate template = MessageTemplate.compile(message);
+
+		String[] values = values();
+		values[PunishmentVariable.DURATION.ordinal()] = "3 days";
+		values[PunishmentVariable.ID.ordinal()] = "12";
+		values[PunishmentVariable.VICTIM.ordinal()] = "ObWolf";
+		values[PunishmentVariable.OPERATOR.ordinal()] = "Console";
+		Component rendered = template.render(values);
+
+		Component expected = Component.text()
+				.content("Banned for 3 days")
+				.color(NamedTextColor.RED)
+				.hoverEvent(HoverEvent.showText(Component.text("Punishment 12")))
+				.clickEvent(ClickEvent.suggestCommand("/libertybans unban ObWolf"))
+				.append(Component.text(" by Console", NamedTextColor.GRAY))
+				.append(constantChild)
+				.build();
+		assertEquals(expected, rendered);
+		assertSame(constantChild, rendered.children().get(1));
+	}
+
+}
@@ -0,0 +1,216 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.database.execute;
+
+import org.jooq.SQLDialect;
+import org.jooq.exception.DataAccessException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import space.arim.libertybans.core.database.jooq.JooqContext;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class JooqQueryExecutorTest {
+
+	private final DataSource dataSource;
+	private final EnhancedExecutor enhancedExecutor;
+	private final Connection firstConnection;
+	private final Connection secondConnection;
+
+	private final Semaphore connectionPermits = new Semaphore(1);
+	private final QueryMetrics queryMetrics = new QueryMetrics();
+	private QueryExecutor queryExecutor;
+
+	public JooqQueryExecutorTest(@Mock DataSource dataSource, @Mock EnhancedExecutor enhancedExecutor,
+								 @Mock Connection firstConnection, @Mock Connection secondConnection) {
+		this.dataSource = dataSource;
+		this.enhancedExecutor = enhancedExecutor;
+		this.firstConnection = firstConnection;
+		this.secondConnection = secondConnection;
+	}
+
+	@BeforeEach
+	public void setQueryExecutor() throws SQLException {
+		when(dataSource.getConnection()).thenReturn(firstConnection, secondConnection);
+		queryExecutor = new JooqQueryExecutor(
+				new JooqContext(SQLDialect.HSQLDB), dataSource,
+				new IndifferentFactoryOfTheFuture(), enhancedExecutor, queryMetrics, Runnable::run, connectionPermits
+		);
+	}
+
+	private void runScheduledBackoffImmediately() {
+		when(enhancedExecutor.schedule(any(), any())).thenAnswer((invocation) -> {
+			invocation.getArgument(0, Runnable.class).run();
+			return null;
+		});
+	}
+
+	private static DataAccessException serializationFailure() {
+		return new DataAccessException("Deadlock", new SQLException("Deadlock", "40001", 40001));
+	}
+
+	@Test
+	public void releaseConnectionBeforeRetry() throws SQLException {
+		runScheduledBackoffImmediately();
+		AtomicInteger attempts = new AtomicInteger();
+		int value = queryExecutor.queryWithRetry("test.retried", (context, transaction) -> {
+			if (attempts.getAndIncrement() == 0) {
+				throw serializationFailure();
+			}
+			assertEquals(0, connectionPermits.availablePermits(), "Permit held during attempt");
+			return 3;
+		}).join();
+		assertEquals(3, value);
+		assertEquals(2, attempts.get());
+		assertEquals(1, connectionPermits.availablePermits(), "Permit released afterward");
+
+		InOrder order = inOrder(dataSource, firstConnection, secondConnection);
+		order.verify(firstConnection).rollback();
+		order.verify(firstConnection).close();
+		order.verify(dataSource).getConnection();
+		order.verify(secondConnection).commit();
+		order.verify(secondConnection).close();
+		verify(enhancedExecutor).schedule(any(), any());
+
+		RetryStatistics retryStatistics = queryMetrics.retryStatistics();
+		assertEquals(1, retryStatistics.transactions());
+		assertEquals(1, retryStatistics.retries());
+		assertEquals(0, retryStatistics.exhausted());
+
+		QueryStatistics statistics = queryMetrics.statistics("test.retried").orElseThrow();
+		assertEquals(1, statistics.executions());
+		assertEquals(1, statistics.retries());
+		assertEquals(1, statistics.rows());
+		assertEquals(0, statistics.failures());
+	}
+
+	@Test
+	public void retryOnlyOnceBackoffElapses() {
+		AtomicInteger attempts = new AtomicInteger();
+		var future = queryExecutor.executeWithRetry((context, transaction) -> {
+			if (attempts.getAndIncrement() == 0) {
+				throw serializationFailure();
+			}
+		});
+		assertFalse(future.isDone());
+		assertEquals(1, attempts.get());
+		assertEquals(1, connectionPermits.availablePermits(), "No permit held while backing off");
+
+		ArgumentCaptor<Runnable> backoff = ArgumentCaptor.forClass(Runnable.class);
+		verify(enhancedExecutor).schedule(backoff.capture(), any());
+		backoff.getValue().run();
+		assertTrue(future.isDone());
+		assertEquals(2, attempts.get());
+	}
+
+	@Test
+	public void exceedRetryCount() throws SQLException {
+		runScheduledBackoffImmediately();
+		AtomicInteger attempts = new AtomicInteger();
+		assertThrows(CompletionException.class, () -> queryExecutor.executeWithRetry(2, (context, transaction) -> {
+			attempts.incrementAndGet();
+			throw serializationFailure();
+		}).join());
+		assertEquals(2, attempts.get());
+		assertEquals(1, connectionPermits.availablePermits());
+		verify(dataSource, times(2)).getConnection();
+		assertEquals(1, queryMetrics.retryStatistics().exhausted());
+	}
+
+	@Test
+	public void releasePermitOnFailure() throws SQLException {
+		assertThrows(CompletionException.class, () -> queryExecutor.query((context) -> {
+			throw new IllegalStateException("Failure");
+		}).join());
+		assertEquals(1, connectionPermits.availablePermits());
+		verify(firstConnection).rollback();
+		verify(firstConnection).close();
+		QueryStatistics statistics = queryMetrics.statistics("JooqQueryExecutorTest").orElseThrow();
+		assertEquals(1, statistics.failures());
+	}
+
+	@Test
+	public void recordQueryStatistics() {
+		for (int n = 0; n < 2; n++) {
+			List<Integer> values = queryExecutor.query(SQLFunction.readOnly("test.query", (context) -> {
+				return List.of(1, 2, 3);
+			})).join();
+			assertEquals(3, values.size());
+		}
+		queryExecutor.query((context) -> Optional.empty()).join();
+
+		QueryStatistics named = queryMetrics.statistics("test.query").orElseThrow();
+		assertEquals(2, named.executions());
+		assertEquals(6, named.rows());
+		assertEquals(2, named.connectionWait().count());
+		assertEquals(2, named.execution().count());
+		QueryStatistics unnamed = queryMetrics.statistics("JooqQueryExecutorTest").orElseThrow();
+		assertEquals(1, unnamed.executions());
+		assertEquals(0, unnamed.rows());
+		assertEquals(List.of("JooqQueryExecutorTest", "test.query"),
+				queryMetrics.statistics().stream().map(QueryStatistics::name).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void countTimeQueuedForThreadAsConnectionWait() throws InterruptedException {
+		List<Runnable> queuedTasks = new ArrayList<>();
+		QueryExecutor saturatedExecutor = new JooqQueryExecutor(
+				new JooqContext(SQLDialect.HSQLDB), dataSource,
+				new IndifferentFactoryOfTheFuture(), enhancedExecutor, queryMetrics, queuedTasks::add, connectionPermits
+		);
+		var future = saturatedExecutor.query(SQLFunction.readOnly("test.queued", (context) -> 1));
+		// All threads are busy, so the query waits in the queue
+		Thread.sleep(50L);
+		queuedTasks.forEach(Runnable::run);
+		assertEquals(1, future.join());
+
+		QueryStatistics statistics = queryMetrics.statistics("test.queued").orElseThrow();
+		assertTrue(statistics.connectionWait().maxMicros() >= 50_000L,
+				"Time queued for a thread must count as waiting for a connection");
+	}
+
+}
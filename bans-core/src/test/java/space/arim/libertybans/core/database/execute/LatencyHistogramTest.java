@@ -0,0 +1,89 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.database.execute;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+	private final LatencyHistogram histogram = new LatencyHistogram();
+
+	private void recordMicros(long micros) {
+		histogram.record(micros * 1_000L);
+	}
+
+	@Test
+	public void empty() {
+		assertEquals(0, histogram.count());
+		assertEquals(0, histogram.percentileMicros(50));
+		assertEquals(0, histogram.meanMicros());
+	}
+
+	@Test
+	public void bucketBoundsAreConsistent() {
+		for (long micros = 0; micros < 1_000_000L; micros += 1 + (micros / 64)) {
+			int index = LatencyHistogram.bucketIndex(micros);
+			assertTrue(LatencyHistogram.bucketLowerBound(index) <= micros, "Lower bound of " + micros);
+			assertTrue(LatencyHistogram.bucketLowerBound(index + 1) > micros, "Upper bound of " + micros);
+		}
+	}
+
+	@Test
+	public void exactSmallValues() {
+		for (long micros = 1; micros <= 10; micros++) {
+			recordMicros(micros);
+		}
+		assertEquals(10, histogram.count());
+		assertEquals(5, histogram.percentileMicros(50));
+		assertEquals(10, histogram.percentileMicros(100));
+		assertEquals(10, histogram.maxMicros());
+	}
+
+	@Test
+	public void percentilesWithinPrecision() {
+		long[] values = new long[10_000];
+		for (int n = 0; n < values.length; n++) {
+			values[n] = ThreadLocalRandom.current().nextLong(1L, 5_000_000L);
+			recordMicros(values[n]);
+		}
+		Arrays.sort(values);
+		for (double percentile : new double[] {50, 90, 99, 99.9}) {
+			long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+			long approximate = histogram.percentileMicros(percentile);
+			assertTrue(Math.abs(approximate - exact) <= exact / 8 + 1,
+					"Percentile " + percentile + " was " + approximate + " rather than " + exact);
+		}
+		assertEquals(values[values.length - 1], histogram.maxMicros());
+	}
+
+	@Test
+	public void veryLongDurations() {
+		recordMicros(Long.MAX_VALUE / 1_000L);
+		assertEquals(1, histogram.count());
+		assertEquals(histogram.maxMicros(), histogram.percentileMicros(99));
+	}
+
+}
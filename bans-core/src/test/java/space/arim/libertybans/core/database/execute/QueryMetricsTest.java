@@ -0,0 +1,107 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.database.execute;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
+import space.arim.omnibus.util.concurrent.ScheduledTask;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class QueryMetricsTest {
+
+	private final QueryMetrics queryMetrics = new QueryMetrics();
+
+	private static void recordSample(QueryMetrics queryMetrics, String name) {
+		QuerySample sample = new QuerySample(name);
+		sample.beginAttempt();
+		sample.connectionAcquired();
+		sample.endAttempt();
+		sample.rows = 2;
+		queryMetrics.record(sample);
+	}
+
+	@Test
+	public void deriveNameFromLambda() {
+		SQLFunction<Object> command = (context) -> null;
+		assertEquals("QueryMetricsTest", command.name());
+		assertEquals("QueryMetricsTest", QueryMetrics.deriveName(Nested.class));
+		assertEquals("named", SQLFunction.named("named", command).name());
+		assertEquals("named", SQLFunction.readOnly(SQLFunction.named("named", command)).name());
+	}
+
+	private static final class Nested { }
+
+	@Test
+	public void exportToExporters(@Mock QueryMetricsExporter exporter) {
+		recordSample(queryMetrics, "query");
+		recordSample(queryMetrics, "query");
+		queryMetrics.addExporter(exporter);
+		queryMetrics.export();
+		verify(exporter).export(any(), eq(queryMetrics.retryStatistics()));
+
+		queryMetrics.removeExporter(exporter);
+		queryMetrics.export();
+		verify(exporter).export(any(), any());
+
+		List<QueryStatistics> statistics = queryMetrics.statistics();
+		assertEquals(1, statistics.size());
+		assertEquals(2, statistics.get(0).executions());
+		assertEquals(4, statistics.get(0).rows());
+	}
+
+	@Test
+	public void disabled(@Mock SqlConfig.Metrics config, @Mock EnhancedExecutor enhancedExecutor) {
+		when(config.enable()).thenReturn(false);
+		queryMetrics.start(config, enhancedExecutor);
+		recordSample(queryMetrics, "query");
+		assertTrue(queryMetrics.statistics().isEmpty());
+		queryMetrics.stop();
+		verifyNoInteractions(enhancedExecutor);
+	}
+
+	@Test
+	public void scheduleExports(@Mock SqlConfig.Metrics config, @Mock EnhancedExecutor enhancedExecutor) {
+		when(config.enable()).thenReturn(true);
+		when(config.exportIntervalSeconds()).thenReturn(60);
+		ScheduledTask task = mock(ScheduledTask.class);
+		when(enhancedExecutor.scheduleRepeating(any(Runnable.class), eq(Duration.ofSeconds(60)), any()))
+				.thenReturn(task);
+		queryMetrics.start(config, enhancedExecutor);
+		queryMetrics.stop();
+		verify(task).cancel();
+	}
+
+}
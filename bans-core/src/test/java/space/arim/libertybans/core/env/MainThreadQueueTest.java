@@ -0,0 +1,118 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.env;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class MainThreadQueueTest {
+
+	private final FactoryOfTheFuture futuresFactory;
+	private final List<Runnable> mainThreadTasks = new ArrayList<>();
+	private MainThreadQueue mainThread;
+
+	public MainThreadQueueTest(@Mock FactoryOfTheFuture futuresFactory) {
+		this.futuresFactory = futuresFactory;
+	}
+
+	@BeforeEach
+	public void setMainThread() {
+		FactoryOfTheFuture delegate = new IndifferentFactoryOfTheFuture();
+		when(futuresFactory.newIncompleteFuture()).thenAnswer((invocation) -> delegate.newIncompleteFuture());
+		doAnswer((invocation) -> mainThreadTasks.add(invocation.getArgument(0)))
+				.when(futuresFactory).executeSync(any());
+		mainThread = new MainThreadQueue(futuresFactory);
+	}
+
+	private void tick() {
+		List<Runnable> tasks = List.copyOf(mainThreadTasks);
+		mainThreadTasks.clear();
+		tasks.forEach(Runnable::run);
+	}
+
+	@Test
+	public void runTasksInOneBatch() {
+		List<Integer> ran = new ArrayList<>();
+		CentralisedFuture<Void> first = mainThread.run(() -> ran.add(1));
+		CentralisedFuture<Integer> second = mainThread.supply(() -> {
+			ran.add(2);
+			return 2;
+		});
+		assertEquals(1, mainThreadTasks.size(), "Only one synchronous task should be scheduled");
+		assertFalse(first.isDone(), "Caller must not wait for the main thread");
+
+		tick();
+		assertEquals(List.of(1, 2), ran);
+		assertTrue(first.isDone());
+		assertEquals(2, second.join());
+	}
+
+	@Test
+	public void scheduleAgainAfterRunning() {
+		mainThread.run(() -> {});
+		tick();
+		CentralisedFuture<Void> future = mainThread.run(() -> {});
+		assertEquals(1, mainThreadTasks.size());
+		tick();
+		assertTrue(future.isDone());
+	}
+
+	@Test
+	public void failedTask() {
+		CentralisedFuture<Void> failed = mainThread.run(() -> {
+			throw new IllegalStateException("Player state unavailable");
+		});
+		CentralisedFuture<Void> following = mainThread.run(() -> {});
+		tick();
+		assertThrows(CompletionException.class, failed::join);
+		assertTrue(following.isDone(), "Later tasks must still run");
+	}
+
+	@Test
+	public void taskThrowingError() {
+		CentralisedFuture<Void> failed = mainThread.run(() -> {
+			throw new AssertionError("Plugin misbehaved");
+		});
+		CentralisedFuture<Void> following = mainThread.run(() -> {});
+		tick();
+		CompletionException ex = assertThrows(CompletionException.class, failed::join);
+		assertTrue(ex.getCause() instanceof AssertionError);
+		assertTrue(following.isDone(), "Later tasks must still run");
+	}
+}
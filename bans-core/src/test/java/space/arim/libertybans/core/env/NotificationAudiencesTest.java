@@ -0,0 +1,127 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.env;
+
+import org.junit.jupiter.api.Test;
+import space.arim.libertybans.core.service.SettableTime;
+import space.arim.libertybans.core.service.SettableTimeImpl;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NotificationAudiencesTest {
+
+	private final FactoryOfTheFuture futuresFactory = new IndifferentFactoryOfTheFuture();
+	private final SettableTime time = new SettableTimeImpl(Instant.EPOCH);
+	private final NotificationAudiences audiences = new NotificationAudiences(futuresFactory, time);
+
+	private final Set<UUID> staff = Set.of(UUID.randomUUID(), UUID.randomUUID());
+	private final AtomicInteger computations = new AtomicInteger();
+
+	private final Function<String, CentralisedFuture<Set<UUID>>> computer = (permission) -> {
+		computations.incrementAndGet();
+		return futuresFactory.completedFuture(staff);
+	};
+
+	private Set<UUID> audience(String permission) {
+		return audiences.audience(permission, computer).join();
+	}
+
+	@Test
+	public void cacheAudience() {
+		assertEquals(staff, audience("libertybans.ban.notify"));
+		assertEquals(staff, audience("libertybans.ban.notify"));
+		assertEquals(1, computations.get());
+		assertEquals(1L, audiences.statistics().hitCount());
+		assertEquals(1L, audiences.statistics().missCount());
+
+		assertEquals(staff, audience("libertybans.mute.notify"));
+		assertEquals(2, computations.get(), "Audiences are cached per permission");
+	}
+
+	@Test
+	public void expireAudience() {
+		audience("libertybans.ban.notify");
+		time.advanceBy(Duration.ofSeconds(10L));
+		audience("libertybans.ban.notify");
+		assertEquals(2, computations.get());
+	}
+
+	@Test
+	public void invalidateAudiences() {
+		audience("libertybans.ban.notify");
+		audiences.invalidateAll();
+		audience("libertybans.ban.notify");
+		assertEquals(2, computations.get());
+	}
+
+	@Test
+	public void addJoiningPlayer() {
+		audience("libertybans.ban.notify");
+		audience("libertybans.mute.notify");
+		UUID joining = UUID.randomUUID();
+		audiences.addPlayer(joining, "libertybans.ban.notify"::equals);
+		assertTrue(audience("libertybans.ban.notify").contains(joining));
+		assertFalse(audience("libertybans.mute.notify").contains(joining));
+		assertEquals(2, computations.get(), "Joining must not require recomputing audiences");
+	}
+
+	@Test
+	public void removeQuittingPlayer() {
+		audience("libertybans.ban.notify");
+		UUID quitting = staff.iterator().next();
+		audiences.removePlayer(quitting);
+		assertFalse(audience("libertybans.ban.notify").contains(quitting));
+		assertEquals(staff.size() - 1, audience("libertybans.ban.notify").size());
+		assertEquals(1, computations.get(), "Quitting must not require recomputing audiences");
+	}
+
+	@Test
+	public void updatesDoNotExtendExpiry() {
+		audience("libertybans.ban.notify");
+		time.advanceBy(Duration.ofSeconds(3L));
+		audiences.addPlayer(UUID.randomUUID(), (permission) -> true);
+		time.advanceBy(Duration.ofSeconds(3L));
+		audience("libertybans.ban.notify");
+		assertEquals(2, computations.get(), "Permission changes must still be noticed");
+	}
+
+	@Test
+	public void joinWhileComputing() {
+		audiences.audience("libertybans.ban.notify", (permission) -> {
+			// Someone joins before the audience is computed
+			audiences.addPlayer(UUID.randomUUID(), (perm) -> true);
+			return computer.apply(permission);
+		}).join();
+		audience("libertybans.ban.notify");
+		assertEquals(2, computations.get(), "Audience computed before the join must not be cached");
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.env;
+
+import org.junit.jupiter.api.Test;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.it.util.RandomUtil;
+
+import java.net.InetAddress;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OnlinePlayerRegistryTest {
+
+	private final OnlinePlayerRegistry registry = new OnlinePlayerRegistry();
+	private final Consumer<Object> callback = (player) -> {};
+
+	@Test
+	public void registerAndUnregister() {
+		UUID uuid1 = UUID.randomUUID();
+		UUID uuid2 = UUID.randomUUID();
+		NetworkAddress address = RandomUtil.randomAddress();
+		registry.register(uuid1, address);
+		registry.register(uuid2, address);
+		assertTrue(registry.isOnline(uuid1));
+		assertEquals(Set.of(uuid1, uuid2), registry.playersAt(address));
+
+		registry.unregister(uuid1);
+		assertFalse(registry.isOnline(uuid1));
+		assertEquals(Set.of(uuid2), registry.playersAt(address));
+		registry.unregister(uuid2);
+		assertEquals(Set.of(), registry.playersAt(address));
+	}
+
+	@Test
+	public void reregisterWithNewAddress() {
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress oldAddress = RandomUtil.randomAddress();
+		NetworkAddress newAddress = RandomUtil.randomAddress();
+		registry.register(uuid, oldAddress);
+		registry.register(uuid, newAddress);
+		assertEquals(Set.of(), registry.playersAt(oldAddress));
+		assertEquals(Set.of(uuid), registry.playersAt(newAddress));
+	}
+
+	@Test
+	public void uuidMatcherCandidates() {
+		UUID online = UUID.randomUUID();
+		UUID offline = UUID.randomUUID();
+		registry.register(online, RandomUtil.randomAddress());
+		TargetMatcher<Object> matcher = new UUIDTargetMatcher<>(Set.of(online, offline), callback);
+		assertEquals(Set.of(online), matcher.candidates(registry));
+	}
+
+	@Test
+	public void exactMatcherCandidates() {
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = RandomUtil.randomAddress();
+		registry.register(uuid, address);
+		registry.register(UUID.randomUUID(), RandomUtil.randomAddress());
+		InetAddress inetAddress = address.toInetAddress();
+		assertEquals(Set.of(uuid), new ExactTargetMatcher<>(inetAddress, callback).candidates(registry));
+	}
+
+	@Test
+	public void additionalUUIDMatcherCandidates() {
+		UUID additional = UUID.randomUUID();
+		UUID atAddress = UUID.randomUUID();
+		NetworkAddress address = RandomUtil.randomAddress();
+		TargetMatcher<Object> matcher = new AdditionalUUIDTargetMatcher<>(
+				additional, new ExactTargetMatcher<>(address, callback)
+		);
+		registry.register(atAddress, address);
+		assertEquals(Set.of(atAddress), matcher.candidates(registry), "Additional player is offline");
+		registry.register(additional, RandomUtil.randomAddress());
+		assertEquals(Set.of(additional, atAddress), matcher.candidates(registry));
+	}
+
+	@Test
+	public void clear() {
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = RandomUtil.randomAddress();
+		registry.register(uuid, address);
+		registry.clear();
+		assertFalse(registry.isOnline(uuid));
+		assertEquals(Set.of(), registry.playersAt(address));
+	}
+}
@@ -27,6 +27,10 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -74,19 +78,47 @@ public class DatabaseStreamTest {
 	}
 
 	private Set<Row> sourceRows() {
-		return databaseStream.streamRows(new SchemaRowMapper<Row>() {
+		return databaseStream.streamRows(new RowMapper()).collect(Collectors.toUnmodifiableSet());
+	}
 
-			@Override
-			public String selectStatement() {
-				return "SELECT * FROM test_rows";
-			}
+	private static class RowMapper implements SchemaRowMapper<Row> {
 
-			@Override
-			public Optional<Row> mapRow(ResultSet resultSet) throws SQLException {
-				return Optional.of(new Row(
-						resultSet.getInt("tally"), resultSet.getString("textual"), resultSet.getBoolean("flag")));
+		@Override
+		public String selectStatement() {
+			return "SELECT * FROM test_rows";
+		}
+
+		@Override
+		public Optional<Row> mapRow(ResultSet resultSet) throws SQLException {
+			return Optional.of(new Row(
+					resultSet.getInt("tally"), resultSet.getString("textual"), resultSet.getBoolean("flag")));
+		}
+	}
+
+	private static class RangedRowMapper extends RowMapper {
+
+		@Override
+		public Optional<String> rangeColumn() {
+			return Optional.of("tally");
+		}
+	}
+
+	private List<Row> sourceRowsInRanges(SchemaRowMapper<Row> rowMapper) {
+		try (var rows = new DatabaseStream(connectionSource, 2, 3).streamRows(rowMapper)) {
+			return rows.collect(Collectors.toUnmodifiableList());
+		}
+	}
+
+	private Set<Row> manyRows() {
+		Set<Row> rows = new HashSet<>();
+		for (int tally = -10; tally < 100; tally++) {
+			if (tally % 7 == 0) {
+				// Leave gaps between IDs
+				continue;
 			}
-		}).collect(Collectors.toUnmodifiableSet());
+			rows.add(new Row(tally, "row " + tally, tally % 3 == 0));
+		}
+		return rows;
 	}
 
 	@Test
@@ -136,6 +168,46 @@ public class DatabaseStreamTest {
 		assertEquals(expectedRows, sourceRows());
 	}
 
+	@Test
+	public void readRangesEmpty() {
+		assertEquals(List.of(), sourceRowsInRanges(new RangedRowMapper()));
+	}
+
+	@Test
+	public void readRangesSingleRow() {
+		Set<Row> expectedRows = Set.of(new Row(-1, "some text", true));
+		insertAllData(expectedRows);
+		assertEquals(List.copyOf(expectedRows), sourceRowsInRanges(new RangedRowMapper()));
+	}
+
+	@Test
+	public void readRangesInOrder() {
+		Set<Row> rows = manyRows();
+		insertAllData(rows);
+		List<Row> expectedRows = new ArrayList<>(rows);
+		expectedRows.sort(Comparator.comparingInt(Row::tally));
+		assertEquals(expectedRows, sourceRowsInRanges(new RangedRowMapper()));
+	}
+
+	@Test
+	public void readRangesSkippingRows() {
+		Set<Row> rows = manyRows();
+		insertAllData(rows);
+		List<Row> expectedRows = new ArrayList<>();
+		for (Row row : rows) {
+			if (row.flag()) {
+				expectedRows.add(row);
+			}
+		}
+		expectedRows.sort(Comparator.comparingInt(Row::tally));
+		assertEquals(expectedRows, sourceRowsInRanges(new RangedRowMapper() {
+			@Override
+			public Optional<Row> mapRow(ResultSet resultSet) throws SQLException {
+				return super.mapRow(resultSet).filter(Row::flag);
+			}
+		}));
+	}
+
 	private static class Row {
 		private final int tally;
 		private final String text;
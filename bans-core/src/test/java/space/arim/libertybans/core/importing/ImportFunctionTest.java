@@ -0,0 +1,123 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.importing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.core.scope.ScopeImpl;
+import space.arim.libertybans.core.service.Time;
+import space.arim.libertybans.core.uuid.UUIDManager;
+import space.arim.libertybans.it.util.RandomUtil;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ImportFunctionTest {
+
+	private final FactoryOfTheFuture futuresFactory = new IndifferentFactoryOfTheFuture();
+	private final UUIDManager uuidManager;
+	private ImportFunction importFunction;
+
+	public ImportFunctionTest(@Mock UUIDManager uuidManager) {
+		this.uuidManager = uuidManager;
+	}
+
+	@BeforeEach
+	public void setImportFunction(@Mock Time time) {
+		importFunction = new ImportFunction(uuidManager, time);
+	}
+
+	private static PortablePunishment punishment(PortablePunishment.VictimInfo victimInfo,
+												 PortablePunishment.OperatorInfo operatorInfo) {
+		return new PortablePunishment(
+				null,
+				new PortablePunishment.KnownDetails(
+						PunishmentType.BAN, "reason", ScopeImpl.GLOBAL, Instant.EPOCH, Instant.MAX),
+				victimInfo, operatorInfo, false
+		);
+	}
+
+	private ImportFunction.ResolvedNames resolveNames(PortablePunishment...punishments) {
+		ImportSource importSource = () -> Stream.of(punishments);
+		return importFunction.resolveNames(importSource);
+	}
+
+	@Test
+	public void lookupEachNameOnce() {
+		UUID operatorUuid = UUID.randomUUID();
+		when(uuidManager.lookupUUIDFromExactName("A248"))
+				.thenReturn(futuresFactory.completedFuture(Optional.of(operatorUuid)));
+		when(uuidManager.lookupUUIDFromExactName("Unknown"))
+				.thenReturn(futuresFactory.completedFuture(Optional.empty()));
+
+		var operatorInfo = PortablePunishment.OperatorInfo.createUser(null, "A248");
+		ImportFunction.ResolvedNames resolvedNames = resolveNames(
+				punishment(new PortablePunishment.VictimInfo(UUID.randomUUID(), "Victim1", null), operatorInfo),
+				punishment(new PortablePunishment.VictimInfo(UUID.randomUUID(), "Victim2", null), operatorInfo),
+				punishment(new PortablePunishment.VictimInfo(null, "Unknown", null), operatorInfo)
+		);
+		assertEquals(operatorUuid, resolvedNames.lookupUUID("A248"));
+		assertNull(resolvedNames.lookupUUID("Unknown"));
+		verify(uuidManager, times(1)).lookupUUIDFromExactName("A248");
+		verify(uuidManager, times(1)).lookupUUIDFromExactName("Unknown");
+		verifyNoMoreInteractions(uuidManager);
+	}
+
+	@Test
+	public void useNamesKnownFromSource() {
+		UUID uuid = UUID.randomUUID();
+		ImportFunction.ResolvedNames resolvedNames = resolveNames(
+				punishment(new PortablePunishment.VictimInfo(null, "a248", null),
+						PortablePunishment.OperatorInfo.createConsole()),
+				punishment(new PortablePunishment.VictimInfo(UUID.randomUUID(), "Victim", null),
+						PortablePunishment.OperatorInfo.createUser(uuid, "A248"))
+		);
+		assertEquals(uuid, resolvedNames.lookupUUID("a248"));
+		assertEquals(uuid, resolvedNames.lookupUUID("A248"));
+		verify(uuidManager, times(0)).lookupUUIDFromExactName(anyString());
+	}
+
+	@Test
+	public void skipNamesOfAddressVictims() {
+		resolveNames(
+				punishment(new PortablePunishment.VictimInfo(null, "Victim", RandomUtil.randomAddress()),
+						PortablePunishment.OperatorInfo.createConsole())
+		);
+		verifyNoMoreInteractions(uuidManager);
+	}
+
+}
@@ -19,6 +19,8 @@
 
 package space.arim.libertybans.core.importing;
 
+import org.h2.jdbcx.JdbcDataSource;
+import org.hsqldb.jdbc.JDBCDataSource;
 import org.jooq.CloseableDSLContext;
 import org.jooq.DSLContext;
 import org.jooq.impl.DSL;
@@ -30,6 +32,7 @@ import org.junit.jupiter.api.extension.ParameterContext;
 import org.junit.jupiter.api.extension.ParameterResolutionException;
 import org.junit.jupiter.api.extension.ParameterResolver;
 
+import javax.sql.DataSource;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -55,6 +58,22 @@ public class LocalDatabaseSetup implements BeforeEachCallback, AfterEachCallback
 
 	}
 
+	/**
+	 * Resolves a {@code ConnectionSource} or {@code DataSource} parameter to a second database,
+	 * separate from the one used by unannotated parameters
+	 *
+	 */
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.PARAMETER)
+	public @interface Second {
+
+	}
+
+	private enum Database {
+		FIRST,
+		SECOND
+	}
+
 	private boolean isHsqldbNotH2(Class<?> testClass) {
 		if (testClass.getAnnotation(Hsqldb.class) != null) {
 			return true;
@@ -73,33 +92,57 @@ public class LocalDatabaseSetup implements BeforeEachCallback, AfterEachCallback
 		}
 	}
 
-	@Override
-	public void beforeEach(ExtensionContext context) throws Exception {
-		int counterValue;
-		{
+	private String getJdbcUrl(ExtensionContext context, Database database) {
+		boolean hsqldb = isHsqldbNotH2(context.getRequiredTestClass());
+		return context.getStore(namespace).getOrComputeIfAbsent(database, (d) -> {
 			AtomicInteger globalCounter = context.getRoot().getStore(namespace)
 					.getOrComputeIfAbsent(AtomicInteger.class, (k) -> new AtomicInteger(), AtomicInteger.class);
-			counterValue = globalCounter.getAndIncrement();
-		}
-		String jdbcUrl =  isHsqldbNotH2(context.getRequiredTestClass()) ?
-				"jdbc:hsqldb:mem:testdb-" + counterValue
-				: "jdbc:h2:mem:testdb-" + counterValue + ";DB_CLOSE_DELAY=-1";
+			int counterValue = globalCounter.getAndIncrement();
+			return hsqldb ?
+					"jdbc:hsqldb:mem:testdb-" + counterValue
+					: "jdbc:h2:mem:testdb-" + counterValue + ";DB_CLOSE_DELAY=-1";
+		}, String.class);
+	}
 
-		context.getStore(namespace).put(String.class, jdbcUrl);
+	@Override
+	public void beforeEach(ExtensionContext context) throws Exception {
+		String jdbcUrl = getJdbcUrl(context, Database.FIRST);
 		context.getStore(namespace).put(WrappedDSLContext.class, new WrappedDSLContext(DSL.using(jdbcUrl, "SA", "")));
 	}
 
-	private ConnectionSource getConnectionSource(ExtensionContext context) {
-		String jdbcUrl = context.getStore(namespace).get(String.class, String.class);
+	private ConnectionSource getConnectionSource(ExtensionContext context, Database database) {
+		String jdbcUrl = getJdbcUrl(context, database);
 		return () -> DriverManager.getConnection(jdbcUrl, "SA", "");
 	}
 
+	private DataSource getDataSource(ExtensionContext context, Database database) {
+		String jdbcUrl = getJdbcUrl(context, database);
+		if (isHsqldbNotH2(context.getRequiredTestClass())) {
+			JDBCDataSource dataSource = new JDBCDataSource();
+			dataSource.setUrl(jdbcUrl);
+			dataSource.setUser("SA");
+			dataSource.setPassword("");
+			return dataSource;
+		}
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL(jdbcUrl);
+		dataSource.setUser("SA");
+		dataSource.setPassword("");
+		return dataSource;
+	}
+
 	@Override
 	public void afterEach(ExtensionContext context) throws Exception {
-		// Both HSQLDB and H2 use the 'SHUTDOWN' statement
-		try (Connection connection = getConnectionSource(context).openConnection();
-			 PreparedStatement prepStmt = connection.prepareStatement("SHUTDOWN")) {
-			prepStmt.execute();
+		for (Database database : Database.values()) {
+			if (context.getStore(namespace).get(database) == null) {
+				// Never used
+				continue;
+			}
+			// Both HSQLDB and H2 use the 'SHUTDOWN' statement
+			try (Connection connection = getConnectionSource(context, database).openConnection();
+				 PreparedStatement prepStmt = connection.prepareStatement("SHUTDOWN")) {
+				prepStmt.execute();
+			}
 		}
 	}
 
@@ -107,7 +150,10 @@ public class LocalDatabaseSetup implements BeforeEachCallback, AfterEachCallback
 	public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext)
 			throws ParameterResolutionException {
 		var paramType = parameterContext.getParameter().getType();
-		return paramType.equals(ConnectionSource.class) || paramType.equals(DSLContext.class);
+		if (paramType.equals(DSLContext.class)) {
+			return !parameterContext.isAnnotated(Second.class);
+		}
+		return paramType.equals(ConnectionSource.class) || paramType.equals(DataSource.class);
 	}
 
 	@Override
@@ -117,7 +163,11 @@ public class LocalDatabaseSetup implements BeforeEachCallback, AfterEachCallback
 		if (paramType.equals(DSLContext.class)) {
 			return extensionContext.getStore(namespace).get(WrappedDSLContext.class, WrappedDSLContext.class).context;
 		}
+		Database database = parameterContext.isAnnotated(Second.class) ? Database.SECOND : Database.FIRST;
+		if (paramType.equals(DataSource.class)) {
+			return getDataSource(extensionContext, database);
+		}
 		assert paramType.equals(ConnectionSource.class);
-		return getConnectionSource(extensionContext);
+		return getConnectionSource(extensionContext, database);
 	}
 }
@@ -0,0 +1,159 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.importing;
+
+import org.jooq.BatchBindStep;
+import org.jooq.Record3;
+import org.jooq.SQLDialect;
+import org.jooq.Table;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import space.arim.libertybans.core.database.DatabaseConstants;
+import space.arim.libertybans.core.database.Vendor;
+import space.arim.libertybans.core.database.execute.JooqQueryExecutor;
+import space.arim.libertybans.core.database.execute.QueryExecutor;
+import space.arim.libertybans.core.database.execute.QueryMetrics;
+import space.arim.libertybans.core.database.flyway.MigrateWithFlyway;
+import space.arim.libertybans.core.database.flyway.MigrationFailedException;
+import space.arim.libertybans.core.database.jooq.JooqContext;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static space.arim.libertybans.core.schema.tables.BanApplicability.BAN_APPLICABILITY;
+import static space.arim.libertybans.core.schema.tables.Bans.BANS;
+import static space.arim.libertybans.core.schema.tables.Names.NAMES;
+import static space.arim.libertybans.core.schema.tables.Victims.VICTIMS;
+
+@ExtendWith(LocalDatabaseSetup.class)
+@LocalDatabaseSetup.Hsqldb
+public class TableTransferTest {
+
+	private final JooqContext jooqContext = new JooqContext(SQLDialect.HSQLDB);
+	private QueryExecutor source;
+	private QueryExecutor target;
+
+	@BeforeEach
+	public void setDatabases(DataSource sourceDataSource, @LocalDatabaseSetup.Second DataSource targetDataSource)
+			throws MigrationFailedException {
+		source = createExecutor(sourceDataSource);
+		target = createExecutor(targetDataSource);
+	}
+
+	private QueryExecutor createExecutor(DataSource dataSource) throws MigrationFailedException {
+		new MigrateWithFlyway(dataSource, Vendor.HSQLDB).migrate(jooqContext);
+		return new JooqQueryExecutor(
+				jooqContext, dataSource, new IndifferentFactoryOfTheFuture(), mock(EnhancedExecutor.class),
+				new QueryMetrics(), Runnable::run
+		);
+	}
+
+	private void insertNames(QueryExecutor database, int uuids, int namesPerUuid) {
+		database.execute((context) -> {
+			BatchBindStep batch = context.batch(context
+					.insertInto(NAMES)
+					.columns(NAMES.UUID, NAMES.NAME, NAMES.UPDATED)
+					.values((UUID) null, null, null));
+			for (int n = 0; n < uuids; n++) {
+				UUID uuid = new UUID(n * 31L, n);
+				for (int m = 0; m < namesPerUuid; m++) {
+					batch = batch.bind(uuid, "Name" + n + "_" + m, Instant.ofEpochSecond(n + m));
+				}
+			}
+			batch.execute();
+		}).join();
+	}
+
+	private List<Record3<UUID, String, Instant>> selectNames(QueryExecutor database) {
+		return database.query((context) -> {
+			return context
+					.select(NAMES.UUID, NAMES.NAME, NAMES.UPDATED)
+					.from(NAMES)
+					.orderBy(NAMES.UUID, NAMES.NAME)
+					.fetch();
+		}).join();
+	}
+
+	private void transfer(TableTransfer<?, ?> tableTransfer, int maxPartitions, int chunkSize) {
+		for (var partition : tableTransfer.partition(source, maxPartitions)) {
+			partition.transfer(source, target, chunkSize, () -> false);
+		}
+	}
+
+	@Test
+	public void transferInChunks() {
+		insertNames(source, 200, 5);
+		transfer(TableTransfer.create(NAMES), 4, 64);
+		assertEquals(selectNames(source), selectNames(target));
+	}
+
+	@Test
+	public void transferInPartitions() {
+		insertNames(source, 22_000, 5);
+		TableTransfer<?, ?> tableTransfer = TableTransfer.create(NAMES);
+		var partitions = tableTransfer.partition(source, 4);
+		assertEquals(2, partitions.size());
+		for (var partition : partitions) {
+			partition.transfer(source, target, 5_000, () -> false);
+		}
+		assertEquals(selectNames(source), selectNames(target));
+	}
+
+	@Test
+	public void resumeInterruptedTransfer() {
+		insertNames(source, 200, 5);
+		// Simulate an interruption partway through the names of one uuid
+		List<Record3<UUID, String, Instant>> names = selectNames(source);
+		target.execute((context) -> {
+			for (Record3<UUID, String, Instant> name : names.subList(0, 303)) {
+				context.insertInto(NAMES)
+						.columns(NAMES.UUID, NAMES.NAME, NAMES.UPDATED)
+						.values(name.value1(), name.value2(), name.value3())
+						.execute();
+			}
+		}).join();
+		transfer(TableTransfer.create(NAMES), 4, 64);
+		assertEquals(names, selectNames(target));
+	}
+
+	@Test
+	public void skipCompletedTransfer() {
+		insertNames(source, 200, 5);
+		transfer(TableTransfer.create(NAMES), 4, 64);
+		transfer(TableTransfer.create(NAMES), 4, 64);
+		assertEquals(selectNames(source), selectNames(target));
+	}
+
+	@Test
+	public void levelsFollowReferences() {
+		List<Table<?>> tables = List.of(DatabaseConstants.allTables(DatabaseConstants.TableOrder.REFERENTS_FIRST));
+		assertEquals(0, TableTransfer.create(NAMES).level(tables));
+		assertEquals(0, TableTransfer.create(VICTIMS).level(tables));
+		assertEquals(1, TableTransfer.create(BANS).level(tables));
+		assertEquals(2, TableTransfer.create(BAN_APPLICABILITY).level(tables));
+	}
+}
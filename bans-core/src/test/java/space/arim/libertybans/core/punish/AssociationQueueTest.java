@@ -0,0 +1,167 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.punish;
+
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.libertybans.core.database.execute.QueryExecutor;
+import space.arim.libertybans.core.database.execute.SQLTransactionalRunnable;
+import space.arim.libertybans.it.util.RandomUtil;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class AssociationQueueTest {
+
+	private final FactoryOfTheFuture futuresFactory = new IndifferentFactoryOfTheFuture();
+	private final Configs configs;
+	private final EnhancedExecutor enhancedExecutor;
+	private final QueryExecutor queryExecutor;
+	private final SqlConfig.AssociationBatching conf;
+
+	private final AtomicInteger statementsExecuted = new AtomicInteger();
+	private AssociationQueue associationQueue;
+
+	public AssociationQueueTest(@Mock Configs configs, @Mock EnhancedExecutor enhancedExecutor,
+								@Mock QueryExecutor queryExecutor, @Mock SqlConfig.AssociationBatching conf) {
+		this.configs = configs;
+		this.enhancedExecutor = enhancedExecutor;
+		this.queryExecutor = queryExecutor;
+		this.conf = conf;
+	}
+
+	@BeforeEach
+	public void setAssociationQueue() {
+		SqlConfig sqlConfig = mock(SqlConfig.class);
+		when(configs.getSqlConfig()).thenReturn(sqlConfig);
+		when(sqlConfig.associationBatching()).thenReturn(conf);
+		associationQueue = new AssociationQueue(configs, enhancedExecutor, () -> queryExecutor);
+	}
+
+	private void enable(int maxBatchSize, int queueCapacity) {
+		when(conf.enable()).thenReturn(true);
+		when(conf.flushIntervalMillis()).thenReturn(500);
+		when(conf.maxBatchSize()).thenReturn(maxBatchSize);
+		when(conf.queueCapacity()).thenReturn(queueCapacity);
+		associationQueue.startup();
+	}
+
+	private void writeBatchesSuccessfully() {
+		when(queryExecutor.executeWithRetry(any(SQLTransactionalRunnable.class))).thenAnswer((invocation) -> {
+			SQLTransactionalRunnable command = invocation.getArgument(0);
+			var connection = new MockConnection((context) -> {
+				String[] batchSql = context.batchSQL();
+				statementsExecuted.addAndGet(batchSql.length);
+				MockResult[] results = new MockResult[batchSql.length];
+				for (int n = 0; n < results.length; n++) {
+					results[n] = new MockResult(1);
+				}
+				return results;
+			});
+			command.run(DSL.using(connection, SQLDialect.HSQLDB), null);
+			return futuresFactory.completedFuture(null);
+		});
+	}
+
+	@Test
+	public void disabled() {
+		when(conf.enable()).thenReturn(false);
+		associationQueue.startup();
+		assertFalse(associationQueue.enqueue(UUID.randomUUID(), "A248", RandomUtil.randomAddress(), Instant.EPOCH));
+		associationQueue.shutdown();
+		verifyNoInteractions(enhancedExecutor, queryExecutor);
+	}
+
+	@Test
+	public void coalesceRepeatedJoins() {
+		enable(100, 100);
+		writeBatchesSuccessfully();
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = RandomUtil.randomAddress();
+		for (int n = 0; n < 5; n++) {
+			assertTrue(associationQueue.enqueue(uuid, "A248", address, Instant.ofEpochSecond(n)));
+		}
+		associationQueue.flush();
+		assertEquals(5, statementsExecuted.get(), "One name, one address, and its applicability for each type");
+		// Nothing left to write
+		associationQueue.shutdown();
+		verify(queryExecutor).executeWithRetry(any(SQLTransactionalRunnable.class));
+	}
+
+	@Test
+	public void fullQueue() {
+		enable(100, 2);
+		UUID uuid = UUID.randomUUID();
+		NetworkAddress address = RandomUtil.randomAddress();
+		assertTrue(associationQueue.enqueue(uuid, "A248", address, Instant.EPOCH));
+		assertTrue(associationQueue.enqueue(UUID.randomUUID(), "Aurelian", address, Instant.EPOCH));
+		assertFalse(associationQueue.enqueue(UUID.randomUUID(), "Eva", address, Instant.EPOCH));
+		assertTrue(associationQueue.enqueue(uuid, "A248", address, Instant.EPOCH), "Already queued");
+	}
+
+	@Test
+	public void triggerFlushWhenBatchFull() {
+		enable(2, 100);
+		NetworkAddress address = RandomUtil.randomAddress();
+		assertTrue(associationQueue.enqueue(UUID.randomUUID(), "A248", address, Instant.EPOCH));
+		verify(enhancedExecutor, never()).execute(any());
+		assertTrue(associationQueue.enqueue(UUID.randomUUID(), "Aurelian", address, Instant.EPOCH));
+		verify(enhancedExecutor).execute(any());
+	}
+
+	@Test
+	public void retryFailedBatch() {
+		enable(100, 100);
+		when(queryExecutor.executeWithRetry(any(SQLTransactionalRunnable.class)))
+				.thenReturn(futuresFactory.failedFuture(new IllegalStateException("Database unavailable")));
+		assertTrue(associationQueue.enqueue(UUID.randomUUID(), "A248", RandomUtil.randomAddress(), Instant.EPOCH));
+		associationQueue.flush();
+		assertEquals(0, statementsExecuted.get());
+
+		writeBatchesSuccessfully();
+		associationQueue.flush();
+		assertEquals(5, statementsExecuted.get());
+	}
+}
@@ -26,6 +26,8 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import space.arim.libertybans.api.ConsoleOperator;
+import space.arim.libertybans.api.PlayerVictim;
 import space.arim.libertybans.api.PunishmentType;
 import space.arim.libertybans.api.punish.EnforcementOptions;
 import space.arim.libertybans.api.punish.Punishment;
@@ -34,13 +36,17 @@ import space.arim.libertybans.core.config.SqlConfig;
 import space.arim.libertybans.core.punish.sync.MessageReceiver;
 import space.arim.libertybans.core.punish.sync.SynchronizationMessenger;
 import space.arim.libertybans.core.punish.sync.SynchronizationProtocol;
+import space.arim.libertybans.core.scope.ScopeImpl;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
 
+import java.time.Instant;
+import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.notNull;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
@@ -229,6 +235,28 @@ public class StandardGlobalEnforcementTest {
 		verify(synchronizationMessenger).dispatch(notNull());
 	}
 
+	@Test
+	public void enforceGlobalEmbedded() {
+		enableSync();
+		when(conf.embedPunishments()).thenReturn(true);
+
+		Punishment punishment = punishmentWithType(PunishmentType.BAN);
+		when(punishment.getVictim()).thenReturn(PlayerVictim.of(UUID.randomUUID()));
+		when(punishment.getOperator()).thenReturn(ConsoleOperator.INSTANCE);
+		when(punishment.getReason()).thenReturn("reason");
+		when(punishment.getScope()).thenReturn(ScopeImpl.GLOBAL);
+		when(punishment.getStartDate()).thenReturn(Instant.EPOCH);
+		when(punishment.getEndDate()).thenReturn(Instant.MAX);
+
+		EnforcementOpts enforcementOpts = EnforcementOpts
+				.builder()
+				.enforcement(EnforcementOptions.Enforcement.GLOBAL)
+				.build();
+		globalEnforcement.enforce(punishment, enforcementOpts).join();
+		verify(enforcer).enforceWithoutSynchronization(punishment, enforcementOpts);
+		verify(synchronizationMessenger).dispatch(argThat((messageData) -> messageData[0] == 2));
+	}
+
 	@ParameterizedTest
 	@EnumSource(PunishmentType.class)
 	public void unenforceByIdAndTypeGlobal(PunishmentType type) {
@@ -0,0 +1,197 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.punish.sync;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import space.arim.libertybans.api.ConsoleOperator;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
+import space.arim.libertybans.api.punish.EnforcementOptions;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.punish.LocalEnforcer;
+import space.arim.libertybans.core.punish.Mode;
+import space.arim.libertybans.core.punish.PunishmentCreator;
+import space.arim.libertybans.core.scope.ScopeImpl;
+import space.arim.libertybans.core.selector.InternalSelector;
+import space.arim.libertybans.core.selector.cache.ActivePunishmentIndex;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class EnforcingMessageReceiverTest {
+
+	private final FactoryOfTheFuture futuresFactory = new IndifferentFactoryOfTheFuture();
+	private final InternalSelector selector;
+	private final LocalEnforcer enforcer;
+	private final PunishmentCreator creator;
+
+	private EnforcingMessageReceiver messageReceiver;
+
+	public EnforcingMessageReceiverTest(@Mock InternalSelector selector, @Mock LocalEnforcer enforcer,
+										@Mock PunishmentCreator creator) {
+		this.selector = selector;
+		this.enforcer = enforcer;
+		this.creator = creator;
+	}
+
+	@BeforeEach
+	public void setMessageReceiver() {
+		// Never started, therefore disabled
+		ActivePunishmentIndex punishmentIndex = new ActivePunishmentIndex(
+				mock(Configs.class), mock(EnhancedExecutor.class), () -> null, creator, mock(Time.class)
+		);
+		messageReceiver = new EnforcingMessageReceiver(futuresFactory, selector, enforcer, punishmentIndex, creator);
+	}
+
+	private static Punishment punishment(long id, PunishmentType type, Victim victim) {
+		Punishment punishment = mock(Punishment.class);
+		lenient().when(punishment.getIdentifier()).thenReturn(id);
+		lenient().when(punishment.getType()).thenReturn(type);
+		lenient().when(punishment.getVictim()).thenReturn(victim);
+		return punishment;
+	}
+
+	private static SynchronizationMessage message(long id, PunishmentType type, Mode mode) {
+		return new SynchronizationMessage(id, type, mode, EnforcementOptions.Broadcasting.NORMAL, null, null);
+	}
+
+	private void enforceSuccessfully() {
+		lenient().when(enforcer.enforceWithoutSynchronization(any(), any()))
+				.thenReturn(futuresFactory.completedFuture(null));
+		lenient().when(enforcer.unenforceWithoutSynchronization(any(), any()))
+				.thenReturn(futuresFactory.completedFuture(null));
+	}
+
+	@Test
+	public void embeddedPunishmentNeedsNoLookup() {
+		enforceSuccessfully();
+		Victim victim = PlayerVictim.of(UUID.randomUUID());
+		Punishment punishment = punishment(1L, PunishmentType.BAN, victim);
+		when(creator.createPunishment(1L, PunishmentType.BAN, victim, ConsoleOperator.INSTANCE, "reason",
+				ScopeImpl.GLOBAL, Instant.EPOCH, Instant.MAX)).thenReturn(punishment);
+
+		messageReceiver.onReception(new SynchronizationMessage(
+				1L, PunishmentType.BAN, Mode.DO, EnforcementOptions.Broadcasting.NORMAL, null, null,
+				new SynchronizationMessage.EmbeddedPunishment(
+						victim, ConsoleOperator.INSTANCE, "reason", ScopeImpl.GLOBAL, Instant.EPOCH, Instant.MAX
+				)
+		)).toCompletableFuture().join();
+		verify(enforcer).enforceWithoutSynchronization(eq(punishment), any());
+		verifyNoInteractions(selector);
+	}
+
+	@Test
+	public void lookUpBatchInOneQuery() {
+		enforceSuccessfully();
+		Punishment ban = punishment(1L, PunishmentType.BAN, PlayerVictim.of(UUID.randomUUID()));
+		Punishment mute = punishment(2L, PunishmentType.MUTE, PlayerVictim.of(UUID.randomUUID()));
+		when(selector.getHistoricalPunishmentsByIds(Set.of(1L, 2L)))
+				.thenReturn(futuresFactory.completedFuture(Map.of(1L, ban, 2L, mute)));
+
+		messageReceiver.onBatchReception(List.of(
+				message(1L, PunishmentType.BAN, Mode.DO), message(2L, PunishmentType.MUTE, Mode.UNDO)
+		)).toCompletableFuture().join();
+		verify(enforcer).enforceWithoutSynchronization(eq(ban), any());
+		verify(enforcer).unenforceWithoutSynchronization(eq(mute), any());
+		verify(selector, never()).getHistoricalPunishmentByIdAndType(anyLong(), any());
+	}
+
+	@Test
+	public void batchUndoesWithoutBroadcastingWithoutLookup() {
+		enforceSuccessfully();
+		Punishment ban = punishment(1L, PunishmentType.BAN, PlayerVictim.of(UUID.randomUUID()));
+		when(selector.getHistoricalPunishmentsByIds(Set.of(1L)))
+				.thenReturn(futuresFactory.completedFuture(Map.of(1L, ban)));
+		when(enforcer.unenforceWithoutSynchronization(eq(2L), eq(PunishmentType.MUTE), any()))
+				.thenReturn(futuresFactory.completedFuture(null));
+
+		messageReceiver.onBatchReception(List.of(
+				message(1L, PunishmentType.BAN, Mode.DO),
+				new SynchronizationMessage(
+						2L, PunishmentType.MUTE, Mode.UNDO, EnforcementOptions.Broadcasting.NONE, null, null)
+		)).toCompletableFuture().join();
+		verify(enforcer).enforceWithoutSynchronization(eq(ban), any());
+		verify(enforcer).unenforceWithoutSynchronization(eq(2L), eq(PunishmentType.MUTE), any());
+	}
+
+	@Test
+	public void ignoreMissingOrMismatchedPunishments() {
+		Punishment warn = punishment(1L, PunishmentType.WARN, PlayerVictim.of(UUID.randomUUID()));
+		when(selector.getHistoricalPunishmentsByIds(Set.of(1L, 2L)))
+				.thenReturn(futuresFactory.completedFuture(Map.of(1L, warn)));
+
+		messageReceiver.onBatchReception(List.of(
+				message(1L, PunishmentType.BAN, Mode.DO), message(2L, PunishmentType.MUTE, Mode.DO)
+		)).toCompletableFuture().join();
+		verifyNoInteractions(enforcer);
+	}
+
+	@Test
+	public void orderPerVictimButNotAcrossVictims() {
+		Victim victim = PlayerVictim.of(UUID.randomUUID());
+		Punishment ban = punishment(1L, PunishmentType.BAN, victim);
+		Punishment mute = punishment(2L, PunishmentType.MUTE, victim);
+		Punishment otherBan = punishment(3L, PunishmentType.BAN, PlayerVictim.of(UUID.randomUUID()));
+		when(selector.getHistoricalPunishmentsByIds(Set.of(1L, 2L, 3L)))
+				.thenReturn(futuresFactory.completedFuture(Map.of(1L, ban, 2L, mute, 3L, otherBan)));
+		CentralisedFuture<Void> banEnforcement = futuresFactory.newIncompleteFuture();
+		when(enforcer.enforceWithoutSynchronization(eq(ban), any())).thenReturn(banEnforcement);
+		when(enforcer.enforceWithoutSynchronization(eq(mute), any())).thenReturn(futuresFactory.completedFuture(null));
+		when(enforcer.enforceWithoutSynchronization(eq(otherBan), any()))
+				.thenReturn(futuresFactory.completedFuture(null));
+
+		var future = messageReceiver.onBatchReception(List.of(
+				message(1L, PunishmentType.BAN, Mode.DO),
+				message(2L, PunishmentType.MUTE, Mode.DO),
+				message(3L, PunishmentType.BAN, Mode.DO)
+		)).toCompletableFuture();
+		verify(enforcer).enforceWithoutSynchronization(eq(otherBan), any());
+		verify(enforcer, never()).enforceWithoutSynchronization(eq(mute), any());
+
+		banEnforcement.complete(null);
+		future.join();
+		verify(enforcer).enforceWithoutSynchronization(eq(mute), any());
+	}
+}
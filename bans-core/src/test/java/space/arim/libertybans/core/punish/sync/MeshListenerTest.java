@@ -0,0 +1,114 @@
+/*
+ * LibertyBans
+ * Copyright © 2021 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+
+package space.arim.libertybans.core.punish.sync;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MeshListenerTest {
+
+	private static final byte[] SECRET = "secret".getBytes(StandardCharsets.UTF_8);
+	private static final int READ_TIMEOUT_MILLIS = 500;
+
+	private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+	private int port;
+	private MeshListener listener;
+
+	@AfterEach
+	public void closeListener() {
+		if (listener != null) {
+			listener.close();
+		}
+	}
+
+	private final class RecordingHandler implements MeshListener.Handler {
+
+		@Override
+		public void onConnect(String peer) {
+			events.add("connect");
+		}
+
+		@Override
+		public void onMessage(String peer, byte[] message) {
+			events.add("message " + new String(message, StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public void onDisconnect(String peer) {
+			events.add("disconnect");
+		}
+	}
+
+	private DataOutputStream connect(Socket socket) throws IOException {
+		try (ServerSocket serverSocket = new ServerSocket(0)) {
+			port = serverSocket.getLocalPort();
+		}
+		listener = MeshListener.start(
+				new InetSocketAddress("127.0.0.1", port), SECRET, new RecordingHandler(), READ_TIMEOUT_MILLIS);
+		socket.connect(new InetSocketAddress("127.0.0.1", port));
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		MessageFrames.writeFrame(output, SECRET);
+		MessageFrames.writeFrame(output, "identity".getBytes(StandardCharsets.UTF_8));
+		return output;
+	}
+
+	private String awaitEvent() throws InterruptedException {
+		return events.poll(5L, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void heartbeatsKeepConnectionAlive() throws IOException, InterruptedException {
+		try (Socket socket = new Socket()) {
+			DataOutputStream output = connect(socket);
+			assertEquals("connect", awaitEvent());
+
+			// Stay connected for twice the read timeout
+			for (int n = 0; n < 10; n++) {
+				MessageFrames.writeFrame(output, MessageFrames.HEARTBEAT);
+				Thread.sleep(READ_TIMEOUT_MILLIS / 5);
+			}
+			MessageFrames.writeFrame(output, "hello".getBytes(StandardCharsets.UTF_8));
+			assertEquals("message hello", awaitEvent(), "Heartbeats are not messages");
+		}
+	}
+
+	@Test
+	public void silentConnectionIsLost() throws IOException, InterruptedException {
+		try (Socket socket = new Socket()) {
+			connect(socket);
+			assertEquals("connect", awaitEvent());
+			assertEquals("disconnect", awaitEvent());
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * LibertyBans
+ * Copyright © 2021 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.punish.sync;
+
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.libertybans.core.database.InternalDatabase;
+import space.arim.libertybans.core.database.Vendor;
+import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.libertybans.core.database.execute.SQLRunnable;
+import space.arim.libertybans.core.service.FixedTime;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PostgresSynchronizationMessengerTest {
+
+	private final FactoryOfTheFuture futuresFactory = new IndifferentFactoryOfTheFuture();
+	private final Time time = new FixedTime(Instant.ofEpochSecond(1_000_000L));
+	private final SqlConfig.Synchronization conf;
+	private final InternalDatabase database;
+
+	private PostgresSynchronizationMessenger messenger;
+
+	public PostgresSynchronizationMessengerTest(@Mock SqlConfig.Synchronization conf,
+												@Mock InternalDatabase database) {
+		this.conf = conf;
+		this.database = database;
+	}
+
+	@BeforeEach
+	public void setMessenger() {
+		SqlConfig sqlConfig = mock(SqlConfig.class);
+		when(sqlConfig.synchronization()).thenReturn(conf);
+		Configs configs = mock(Configs.class);
+		when(configs.getSqlConfig()).thenReturn(sqlConfig);
+		lenient().when(conf.mode()).thenReturn(SqlConfig.Synchronization.SyncMode.ANSI_SQL);
+		lenient().when(conf.postgresListenNotify()).thenReturn(true);
+		messenger = new PostgresSynchronizationMessenger(
+				configs, futuresFactory, () -> database,
+				new SQLSynchronizationMessenger(() -> database, time),
+				new SynchronizationProtocol(futuresFactory),
+				(message) -> futuresFactory.completedFuture(null), time
+		);
+	}
+
+	@AfterEach
+	public void shutdownMessenger() {
+		messenger.shutdown();
+	}
+
+	@Test
+	public void inactiveWithoutListenNotify() throws SQLException {
+		when(database.getVendor()).thenReturn(Vendor.COCKROACH);
+		messenger.startup();
+		assertFalse(messenger.isActive());
+		verify(database, never()).openDedicatedConnection();
+	}
+
+	@Test
+	public void inactiveIfDisabled() {
+		when(conf.postgresListenNotify()).thenReturn(false);
+		messenger.startup();
+		assertFalse(messenger.isActive());
+		verify(database, never()).getVendor();
+	}
+
+	@Test
+	public void notifyInSameTransaction() throws SQLException {
+		when(database.getVendor()).thenReturn(Vendor.POSTGRES);
+		lenient().when(database.openDedicatedConnection()).thenThrow(new SQLException("Connection refused"));
+		List<String> statements = new ArrayList<>();
+		when(database.execute(any(SQLRunnable.class))).thenAnswer((invocation) -> {
+			SQLRunnable command = invocation.getArgument(0);
+			var connection = new MockConnection((context) -> {
+				statements.add(context.sql());
+				return new MockResult[] {new MockResult(1)};
+			});
+			command.run(DSL.using(connection, SQLDialect.POSTGRES));
+			return futuresFactory.completedFuture(null);
+		});
+		messenger.startup();
+		messenger.dispatch(new byte[] {1, 2, 3}).join();
+		assertEquals(2, statements.size(), "Insert and notify");
+		assertTrue(statements.get(0).startsWith("insert into"), statements.get(0));
+		assertTrue(statements.get(1).contains("pg_notify"), statements.get(1));
+	}
+
+	@Test
+	public void pollWhileUnableToListen() throws SQLException {
+		when(database.getVendor()).thenReturn(Vendor.POSTGRES);
+		lenient().when(database.openDedicatedConnection()).thenThrow(new SQLException("Connection refused"));
+		byte[] message = {1, 2, 3};
+		when(database.query(any(SQLFunction.class))).thenReturn(futuresFactory.completedFuture(new byte[][] {message}));
+		messenger.startup();
+		assertTrue(messenger.isActive());
+
+		assertArrayEquals(new byte[][] {message}, messenger.poll().join());
+		assertArrayEquals(new byte[][] {}, messenger.poll().join(), "Already received");
+		verify(database, times(2)).query(any(SQLFunction.class));
+	}
+}
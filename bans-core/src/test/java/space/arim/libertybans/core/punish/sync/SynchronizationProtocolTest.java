@@ -25,29 +25,42 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 import org.mockito.junit.jupiter.MockitoExtension;
+import space.arim.libertybans.api.AddressVictim;
+import space.arim.libertybans.api.CompositeVictim;
 import space.arim.libertybans.api.ConsoleOperator;
 import space.arim.libertybans.api.PlayerOperator;
+import space.arim.libertybans.api.PlayerVictim;
 import space.arim.libertybans.api.PunishmentType;
 import space.arim.libertybans.api.punish.EnforcementOptions;
 import space.arim.libertybans.core.punish.Mode;
+import space.arim.libertybans.core.scope.ScopeImpl;
+import space.arim.libertybans.it.util.RandomUtil;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.ReactionStage;
 import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(MockitoExtension.class)
 public class SynchronizationProtocolTest {
 
 	private final FactoryOfTheFuture futuresFactory = new IndifferentFactoryOfTheFuture();
 	private SynchronizationProtocol synchronizationProtocol;
+	private SynchronizationProtocol receivingProtocol;
 	private long id;
 
 	@BeforeEach
 	public void setSynchronizationProtocol() {
 		synchronizationProtocol = new SynchronizationProtocol(futuresFactory);
+		receivingProtocol = new SynchronizationProtocol(futuresFactory);
 		id = ThreadLocalRandom.current().nextLong();
 	}
 
@@ -82,13 +95,93 @@ public class SynchronizationProtocolTest {
 		));
 	}
 
+	@Test
+	public void writeFirstVersionWithoutEmbeddedPunishment() {
+		byte[] serializedMessage = synchronizationProtocol.serializeMessage(new SynchronizationMessage(
+				id, PunishmentType.BAN, Mode.DO, EnforcementOptions.Broadcasting.NORMAL, null, null
+		));
+		assertEquals(1, serializedMessage[0], "Older instances must be able to read this message");
+	}
+
+	@ParameterizedTest
+	@EnumSource(PunishmentType.class)
+	public void embedPlayerPunishment(PunishmentType type) {
+		communicateMessageSuccessfully(new SynchronizationMessage(
+				id, type, Mode.DO, EnforcementOptions.Broadcasting.NORMAL, "user5", null,
+				new SynchronizationMessage.EmbeddedPunishment(
+						PlayerVictim.of(UUID.randomUUID()), PlayerOperator.of(UUID.randomUUID()), "some reason",
+						ScopeImpl.GLOBAL, Instant.ofEpochSecond(1_600_000_000L), Instant.MAX
+				)
+		));
+	}
+
+	@Test
+	public void embedAddressPunishment() {
+		communicateMessageSuccessfully(new SynchronizationMessage(
+				id, PunishmentType.BAN, Mode.DO, EnforcementOptions.Broadcasting.SILENT, null, null,
+				new SynchronizationMessage.EmbeddedPunishment(
+						AddressVictim.of(RandomUtil.randomAddress()), ConsoleOperator.INSTANCE, "",
+						ScopeImpl.specificServer("lobby"),
+						Instant.ofEpochSecond(1_600_000_000L), Instant.ofEpochSecond(1_700_000_000L)
+				)
+		));
+	}
+
+	@Test
+	public void embedCompositePunishment() {
+		communicateMessageSuccessfully(new SynchronizationMessage(
+				id, PunishmentType.MUTE, Mode.UNDO, EnforcementOptions.Broadcasting.NORMAL, "user6",
+				PlayerOperator.of(UUID.randomUUID()),
+				new SynchronizationMessage.EmbeddedPunishment(
+						CompositeVictim.of(UUID.randomUUID(), RandomUtil.randomAddress()), ConsoleOperator.INSTANCE,
+						"composite reason", ScopeImpl.GLOBAL, Instant.ofEpochSecond(1_600_000_000L), Instant.MAX
+				)
+		));
+	}
+
+	@Test
+	public void receiveBatchInOrder() {
+		SynchronizationMessage message1 = new SynchronizationMessage(
+				id, PunishmentType.BAN, Mode.DO, EnforcementOptions.Broadcasting.NORMAL, "user7", null
+		);
+		SynchronizationMessage message2 = new SynchronizationMessage(
+				id, PunishmentType.BAN, Mode.UNDO, EnforcementOptions.Broadcasting.NORMAL, "user7", null
+		);
+		byte[] ownMessage = receivingProtocol.serializeMessage(message1);
+		List<SynchronizationMessage> received = new ArrayList<>();
+		receivingProtocol.receiveMessages(new byte[][] {
+				synchronizationProtocol.serializeMessage(message1), ownMessage,
+				synchronizationProtocol.serializeMessage(message2)
+		}, new MessageReceiver() {
+			@Override
+			public ReactionStage<?> onReception(SynchronizationMessage message) {
+				received.add(message);
+				return futuresFactory.completedFuture(null);
+			}
+		}).toCompletableFuture().join();
+		assertEquals(List.of(message1, message2), received);
+	}
+
 	private void communicateMessageSuccessfully(SynchronizationMessage message) {
 		byte[] serializedMessage = synchronizationProtocol.serializeMessage(message);
 
-		synchronizationProtocol.receiveMessage(serializedMessage, receivedMessage -> {
+		AtomicBoolean received = new AtomicBoolean();
+		receivingProtocol.receiveMessage(serializedMessage, receivedMessage -> {
 			assertEquals(message, receivedMessage);
+			received.set(true);
 			return futuresFactory.completedFuture(null);
 		}).toCompletableFuture().join();
+		assertTrue(received.get(), "Message not received");
+	}
+
+	@Test
+	public void ignoreOwnMessage() {
+		byte[] serializedMessage = synchronizationProtocol.serializeMessage(new SynchronizationMessage(
+				id, PunishmentType.BAN, Mode.DO, EnforcementOptions.Broadcasting.NORMAL, null, null
+		));
+		synchronizationProtocol.receiveMessage(serializedMessage, receivedMessage -> {
+			throw new AssertionError("Received own message");
+		}).toCompletableFuture().join();
 	}
 
 }
@@ -0,0 +1,249 @@
+/*
+ * LibertyBans
+ * Copyright © 2021 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.punish.sync;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.punish.EnforcementOptions;
+import space.arim.libertybans.core.config.Configs;
+import space.arim.libertybans.core.config.SqlConfig;
+import space.arim.libertybans.core.database.execute.QueryExecutor;
+import space.arim.libertybans.core.database.execute.SQLFunction;
+import space.arim.libertybans.core.database.execute.SQLRunnable;
+import space.arim.libertybans.core.punish.Mode;
+import space.arim.libertybans.core.service.FixedTime;
+import space.arim.libertybans.core.service.Time;
+import space.arim.omnibus.util.concurrent.DelayCalculator;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.ScheduledTask;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TcpSynchronizationMessengerTest {
+
+	private final FactoryOfTheFuture futuresFactory = new IndifferentFactoryOfTheFuture();
+	private final Time time = new FixedTime(Instant.ofEpochSecond(1_000_000L));
+	private final List<Instance> instances = new ArrayList<>();
+
+	private long nextId;
+
+	@AfterEach
+	public void shutdownInstances() {
+		for (Instance instance : instances) {
+			instance.messenger.shutdown();
+		}
+	}
+
+	private static int freePort() throws IOException {
+		try (ServerSocket serverSocket = new ServerSocket(0)) {
+			return serverSocket.getLocalPort();
+		}
+	}
+
+	private final class Instance {
+
+		final BlockingQueue<SynchronizationMessage> received = new LinkedBlockingQueue<>();
+		final SynchronizationProtocol protocol = new SynchronizationProtocol(futuresFactory);
+		final QueryExecutor queryExecutor = mock(QueryExecutor.class);
+		final TcpSynchronizationMessenger messenger;
+
+		Instance(int port, String sharedSecret, int...peerPorts) {
+			List<String> peers = new ArrayList<>();
+			for (int peerPort : peerPorts) {
+				peers.add("127.0.0.1:" + peerPort);
+			}
+			SqlConfig.Synchronization.TcpMesh meshConf = mock(SqlConfig.Synchronization.TcpMesh.class);
+			when(meshConf.bindAddress()).thenReturn("127.0.0.1");
+			when(meshConf.port()).thenReturn(port);
+			when(meshConf.peers()).thenReturn(peers);
+			when(meshConf.sharedSecret()).thenReturn(sharedSecret);
+			when(meshConf.reconnectIntervalMillis()).thenReturn(5000);
+			SqlConfig.Synchronization synchronization = mock(SqlConfig.Synchronization.class);
+			when(synchronization.mode()).thenReturn(SqlConfig.Synchronization.SyncMode.TCP_MESH);
+			when(synchronization.tcpMesh()).thenReturn(meshConf);
+			SqlConfig sqlConfig = mock(SqlConfig.class);
+			when(sqlConfig.synchronization()).thenReturn(synchronization);
+			Configs configs = mock(Configs.class);
+			when(configs.getSqlConfig()).thenReturn(sqlConfig);
+
+			// Run tasks immediately; reconnection is triggered manually by restarting
+			EnhancedExecutor enhancedExecutor = mock(EnhancedExecutor.class);
+			doAnswer((invocation) -> {
+				invocation.<Runnable>getArgument(0).run();
+				return null;
+			}).when(enhancedExecutor).execute(any());
+			when(enhancedExecutor.scheduleRepeating(any(Runnable.class), any(Duration.class), any(DelayCalculator.class))).thenReturn(mock(ScheduledTask.class));
+
+			when(queryExecutor.execute(any(SQLRunnable.class))).thenReturn(futuresFactory.completedFuture(null));
+			when(queryExecutor.query(any(SQLFunction.class))).thenReturn(futuresFactory.completedFuture(new byte[][] {}));
+
+			messenger = new TcpSynchronizationMessenger(
+					configs, futuresFactory, enhancedExecutor,
+					new SQLSynchronizationMessenger(() -> queryExecutor, time),
+					protocol, (message) -> {
+						received.add(message);
+						return futuresFactory.completedFuture(null);
+					}, time);
+			instances.add(this);
+		}
+
+		byte[] dispatchMessage() {
+			byte[] message = protocol.serializeMessage(new SynchronizationMessage(
+					nextId++, PunishmentType.BAN, Mode.DO, EnforcementOptions.Broadcasting.NONE, null, null
+			));
+			messenger.dispatch(message).join();
+			return message;
+		}
+
+		void dispatchMessageLater() {
+			messenger.dispatch(protocol.serializeMessage(new SynchronizationMessage(
+					nextId++, PunishmentType.BAN, Mode.DO, EnforcementOptions.Broadcasting.NONE, null, null
+			)));
+		}
+
+		SynchronizationMessage awaitMessage() throws InterruptedException {
+			return received.poll(5L, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test
+	public void pushMessage() throws IOException, InterruptedException {
+		int port1 = freePort(), port2 = freePort();
+		Instance receiver = new Instance(port2, "secret", port1);
+		receiver.messenger.startup();
+		Instance sender = new Instance(port1, "secret", port2);
+		sender.messenger.startup();
+
+		sender.dispatchMessage();
+		SynchronizationMessage message = receiver.awaitMessage();
+		assertEquals(0L, message.id);
+		assertEquals(Mode.DO, message.mode);
+		assertArrayEquals(new byte[][] {}, receiver.messenger.poll().join(), "Nothing missed upon connecting");
+		clearInvocations(receiver.queryExecutor);
+		assertArrayEquals(new byte[][] {}, receiver.messenger.poll().join());
+		verify(receiver.queryExecutor, never()).query(any(SQLFunction.class));
+	}
+
+	@Test
+	public void sendInDispatchOrder() throws IOException, InterruptedException {
+		int port1 = freePort(), port2 = freePort();
+		Instance receiver = new Instance(port2, "secret", port1);
+		receiver.messenger.startup();
+		Instance sender = new Instance(port1, "secret", port2);
+		sender.messenger.startup();
+
+		for (int n = 0; n < 50; n++) {
+			sender.dispatchMessageLater();
+		}
+		for (long n = 0; n < 50; n++) {
+			assertEquals(n, receiver.awaitMessage().id);
+		}
+	}
+
+	@Test
+	public void refuseWrongSecret() throws IOException, InterruptedException {
+		int port1 = freePort(), port2 = freePort();
+		Instance receiver = new Instance(port2, "secret", port1);
+		receiver.messenger.startup();
+		Instance sender = new Instance(port1, "other secret", port2);
+		sender.messenger.startup();
+
+		sender.dispatchMessage();
+		assertNull(receiver.received.poll(500L, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void catchUpAfterReconnect() throws IOException, InterruptedException {
+		int port1 = freePort(), port2 = freePort();
+		Instance receiver = new Instance(port2, "secret", port1);
+		receiver.messenger.startup();
+		Instance sender = new Instance(port1, "secret", port2);
+		sender.messenger.startup();
+
+		byte[] pushed = sender.dispatchMessage();
+		receiver.awaitMessage();
+		receiver.messenger.poll().join();
+
+		sender.messenger.shutdown();
+		byte[] missed = sender.dispatchMessage();
+		sender.messenger.startup();
+		// Receiving this message ensures the receiver has accepted the new connection
+		sender.dispatchMessage();
+		assertEquals(2L, receiver.awaitMessage().id);
+
+		// The database holds both messages, but the first has already been received
+		when(receiver.queryExecutor.query(any(SQLFunction.class)))
+				.thenReturn(futuresFactory.completedFuture(new byte[][] {pushed, missed}));
+		assertArrayEquals(new byte[][] {missed}, receiver.messenger.poll().join());
+		assertArrayEquals(new byte[][] {}, receiver.messenger.poll().join(), "Catch up only once");
+	}
+
+	@Test
+	public void catchUpWhilePeerRemainsDisconnected() throws IOException {
+		Instance receiver = new Instance(freePort(), "secret");
+		receiver.messenger.startup();
+		MeshListener.Handler handler = receiver.messenger.receptionHandler();
+
+		handler.onConnect("peer1");
+		handler.onConnect("peer2");
+		assertPolled(receiver, true, "Catch up upon connecting");
+		assertPolled(receiver, false, "Steady state");
+
+		handler.onDisconnect("peer1");
+		handler.onDisconnect("peer2");
+		handler.onConnect("peer2");
+		assertPolled(receiver, true, "Catch up after peer 2 reconnects");
+		assertPolled(receiver, true, "Peer 1 is still disconnected");
+
+		handler.onConnect("peer1");
+		assertPolled(receiver, true, "Catch up after peer 1 reconnects");
+		assertPolled(receiver, false, "Steady state");
+	}
+
+	private void assertPolled(Instance instance, boolean expectQuery, String message) {
+		clearInvocations(instance.queryExecutor);
+		instance.messenger.poll().join();
+		verify(instance.queryExecutor, times(expectQuery ? 1 : 0).description(message))
+				.query(any(SQLFunction.class));
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+package space.arim.libertybans.core.selector;
+
+import org.junit.jupiter.api.Test;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
+import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class InFlightLookupsTest {
+
+	private final FactoryOfTheFuture futuresFactory = new IndifferentFactoryOfTheFuture();
+	private final InFlightLookups<String, Integer> inFlightLookups = new InFlightLookups<>(futuresFactory);
+	private final AtomicInteger lookupsPerformed = new AtomicInteger();
+
+	private CentralisedFuture<Integer> lookup(String key, CentralisedFuture<Integer> result) {
+		return inFlightLookups.lookup(key, () -> {
+			lookupsPerformed.incrementAndGet();
+			return result;
+		});
+	}
+
+	@Test
+	public void coalesceWhileInFlight() {
+		CentralisedFuture<Integer> result = futuresFactory.newIncompleteFuture();
+		CentralisedFuture<Integer> first = lookup("key", result);
+		CentralisedFuture<Integer> second = lookup("key", futuresFactory.completedFuture(2));
+		assertSame(first, second);
+		result.complete(1);
+		assertEquals(1, second.join());
+		assertEquals(1, lookupsPerformed.get());
+		assertEquals(2, inFlightLookups.lookupCount());
+		assertEquals(1, inFlightLookups.coalescedCount());
+		assertEquals(0.5, inFlightLookups.hitRate());
+	}
+
+	@Test
+	public void distinctKeys() {
+		CentralisedFuture<Integer> first = lookup("key1", futuresFactory.newIncompleteFuture());
+		CentralisedFuture<Integer> second = lookup("key2", futuresFactory.newIncompleteFuture());
+		assertNotSame(first, second);
+		assertEquals(2, lookupsPerformed.get());
+		assertEquals(0, inFlightLookups.coalescedCount());
+	}
+
+	@Test
+	public void forgetCompletedLookup() {
+		assertEquals(1, lookup("key", futuresFactory.completedFuture(1)).join());
+		assertEquals(2, lookup("key", futuresFactory.completedFuture(2)).join());
+		assertEquals(2, lookupsPerformed.get());
+	}
+
+	@Test
+	public void forgetFailedLookup() {
+		CentralisedFuture<Integer> failed = lookup("key", futuresFactory.failedFuture(new IllegalStateException()));
+		assertThrows(CompletionException.class, failed::join);
+		assertEquals(1, lookup("key", futuresFactory.completedFuture(1)).join());
+		assertEquals(2, lookupsPerformed.get());
+	}
+}
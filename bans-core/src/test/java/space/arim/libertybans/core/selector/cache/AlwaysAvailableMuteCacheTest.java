@@ -47,7 +47,9 @@ import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -167,6 +169,53 @@ public class AlwaysAvailableMuteCacheTest {
 		assertAvailableCacheResult(null, uuid, address);
 	}
 
+	@Test
+	public void freshValueIsReusedWithoutRequery() {
+		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE))
+				.thenReturn(futuresFactory.completedFuture(Optional.empty()));
+		muteCache.cacheOnLogin(uuid, address).join();
+
+		CentralisedFuture<Optional<Component>> firstRequest = muteCache.getCachedMuteMessage(uuid, address);
+		time.advanceBy(Duration.ofSeconds(1L));
+		assertSame(firstRequest, muteCache.getCachedMuteMessage(uuid, address));
+		verify(selector, times(1)).getApplicablePunishment(uuid, address, PunishmentType.MUTE);
+	}
+
+	@Test
+	public void staleValueIsRefreshedOnce() {
+		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE))
+				.thenReturn(futuresFactory.completedFuture(Optional.empty()));
+		muteCache.cacheOnLogin(uuid, address).join();
+
+		CentralisedFuture<Optional<Punishment>> futurePunishment = futuresFactory.newIncompleteFuture();
+		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE)).thenReturn(futurePunishment);
+		time.advanceBy(EXPIRATION_TIME.plusSeconds(1L));
+		for (int n = 0; n < 5; n++) {
+			assertAvailableCacheResult(null, uuid, address);
+		}
+		// Only one refresh may be in progress
+		verify(selector, times(2)).getApplicablePunishment(uuid, address, PunishmentType.MUTE);
+
+		futurePunishment.complete(Optional.empty());
+		assertAvailableCacheResult(null, uuid, address);
+		verify(selector, times(2)).getApplicablePunishment(uuid, address, PunishmentType.MUTE);
+	}
+
+	@Test
+	public void differentAddressIsNotCached() {
+		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE))
+				.thenReturn(futuresFactory.completedFuture(Optional.empty()));
+		muteCache.cacheOnLogin(uuid, address).join();
+
+		NetworkAddress otherAddress = RandomUtil.randomAddress();
+		CentralisedFuture<Optional<Punishment>> databaseQuery = futuresFactory.newIncompleteFuture();
+		when(selector.getApplicablePunishment(uuid, otherAddress, PunishmentType.MUTE)).thenReturn(databaseQuery);
+		CentralisedFuture<Optional<Punishment>> cachedMute = muteCache.getCachedMute(uuid, otherAddress);
+		assertFalse(cachedMute.isDone());
+		databaseQuery.complete(Optional.empty());
+		assertEquals(Optional.empty(), cachedMute.join());
+	}
+
 	// cacheRequest
 
 	@Test
@@ -281,6 +330,30 @@ public class AlwaysAvailableMuteCacheTest {
 		assertAvailableCacheResult(newMuteMessage, uuid, address);
 	}
 
+	@Test
+	public void expiredMuteIsAbsentBeforeRefresh(@Mock Punishment mute) {
+		Component muteMessage = Component.text("Muted for a minute");
+		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE))
+				.thenReturn(futuresFactory.completedFuture(Optional.of(mute)));
+		when(formatter.getPunishmentMessage(mute)).thenReturn(futuresFactory.completedFuture(muteMessage));
+		when(mute.isExpired(any())).thenReturn(false);
+		muteCache.cacheOnLogin(uuid, address).join();
+		assertAvailableCacheResult(muteMessage, uuid, address);
+
+		// The mute ends well before the next refresh is due
+		CentralisedFuture<Optional<Punishment>> futurePunishment = futuresFactory.newIncompleteFuture();
+		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE)).thenReturn(futurePunishment);
+		when(mute.isExpired(any())).thenReturn(true);
+		time.advanceBy(Duration.ofSeconds(1L));
+		assertAvailableCacheResult(null, uuid, address);
+		assertAvailableCacheResult(null, uuid, address);
+		// Only one refresh may be in progress
+		verify(selector, times(2)).getApplicablePunishment(uuid, address, PunishmentType.MUTE);
+
+		futurePunishment.complete(Optional.empty());
+		assertAvailableCacheResult(null, uuid, address);
+	}
+
 	// setCachedMute
 
 	@Test
@@ -319,6 +392,82 @@ public class AlwaysAvailableMuteCacheTest {
 		assertEquals(Optional.of(newMute), muteCache.getCachedMute(uuid, address).join());
 	}
 
+	@Test
+	public void setCachedMuteForOfflinePlayer(@Mock Punishment mute) {
+		when(mute.getType()).thenReturn(PunishmentType.MUTE);
+		muteCache.setCachedMute(uuid, address, mute);
+
+		// The mute is loaded upon login instead
+		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE))
+				.thenReturn(futuresFactory.completedFuture(Optional.of(mute)));
+		when(formatter.getPunishmentMessage(mute)).thenReturn(futuresFactory.completedFuture(Component.empty()));
+		muteCache.cacheOnLogin(uuid, address).join();
+		assertEquals(Optional.of(mute), muteCache.getCachedMute(uuid, address).join());
+	}
+
+	// clearCachedMute
+
+	@Test
+	public void refreshOnClearedMute(@Mock Punishment mute) {
+		Component muteMessage = Component.text("Muted forever");
+		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE))
+				.thenReturn(futuresFactory.completedFuture(Optional.of(mute)));
+		when(formatter.getPunishmentMessage(mute)).thenReturn(futuresFactory.completedFuture(muteMessage));
+		when(mute.getType()).thenReturn(PunishmentType.MUTE);
+		muteCache.cacheOnLogin(uuid, address).join();
+
+		CentralisedFuture<Optional<Punishment>> futurePunishment = futuresFactory.newIncompleteFuture();
+		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE)).thenReturn(futurePunishment);
+		muteCache.clearCachedMute(mute);
+
+		// The old mute remains available until the refresh completes
+		assertAvailableCacheResult(muteMessage, uuid, address);
+		futurePunishment.complete(Optional.empty());
+		assertAvailableCacheResult(null, uuid, address);
+	}
+
+	@Test
+	public void repeatRefreshOverlappingClearedMute(@Mock Punishment mute) {
+		Component muteMessage = Component.text("Muted forever");
+		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE))
+				.thenReturn(futuresFactory.completedFuture(Optional.of(mute)));
+		when(formatter.getPunishmentMessage(mute)).thenReturn(futuresFactory.completedFuture(muteMessage));
+		muteCache.cacheOnLogin(uuid, address).join();
+
+		// Begin a refresh
+		CentralisedFuture<Optional<Punishment>> futurePunishment = futuresFactory.newIncompleteFuture();
+		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE)).thenReturn(futurePunishment);
+		time.advanceBy(EXPIRATION_TIME.plusSeconds(1L));
+		assertAvailableCacheResult(muteMessage, uuid, address);
+
+		// The mute is removed while the refresh is in progress, which then reads the outdated mute
+		muteCache.clearCachedMute(5L);
+		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE))
+				.thenReturn(futuresFactory.completedFuture(Optional.empty()));
+		futurePunishment.complete(Optional.of(mute));
+
+		assertAvailableCacheResult(null, uuid, address);
+		verify(selector, times(3)).getApplicablePunishment(uuid, address, PunishmentType.MUTE);
+	}
+
+	@Test
+	public void refreshLoginOverlappingNewMute(@Mock Punishment mute) {
+		CentralisedFuture<Optional<Punishment>> databaseQuery = futuresFactory.newIncompleteFuture();
+		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE)).thenReturn(databaseQuery);
+		CentralisedFuture<?> cacheOnLogin = muteCache.cacheOnLogin(uuid, address);
+
+		// A mute is added while the player is logging in
+		muteCache.clearCachedMutes((targetUuid, targetAddress) -> targetUuid.equals(uuid));
+		Component muteMessage = Component.text("Muted forever");
+		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE))
+				.thenReturn(futuresFactory.completedFuture(Optional.of(mute)));
+		when(formatter.getPunishmentMessage(mute)).thenReturn(futuresFactory.completedFuture(muteMessage));
+		databaseQuery.complete(Optional.empty());
+		cacheOnLogin.join();
+
+		assertAvailableCacheResult(muteMessage, uuid, address);
+	}
+
 	// uncacheOnQuit
 
 	@Test
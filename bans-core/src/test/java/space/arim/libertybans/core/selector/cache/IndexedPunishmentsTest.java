@@ -0,0 +1,145 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.core.selector.cache;
+
+import org.junit.jupiter.api.Test;
+import space.arim.libertybans.api.AddressVictim;
+import space.arim.libertybans.api.CompositeVictim;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.core.selector.AddressStrictness;
+import space.arim.libertybans.it.util.RandomUtil;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class IndexedPunishmentsTest {
+
+	private final IndexedPunishments indexed = new IndexedPunishments();
+	private final UUID uuid = UUID.randomUUID();
+	private final NetworkAddress address = RandomUtil.randomAddress();
+
+	private static final Instant NOW = Instant.ofEpochSecond(1_000_000L);
+
+	private static Punishment punishment(long id, PunishmentType type, Victim victim, Instant end) {
+		Punishment punishment = mock(Punishment.class, withSettings().lenient());
+		when(punishment.getIdentifier()).thenReturn(id);
+		when(punishment.getType()).thenReturn(type);
+		when(punishment.getVictim()).thenReturn(victim);
+		when(punishment.getEndDate()).thenReturn(end);
+		when(punishment.isPermanent()).thenCallRealMethod();
+		return punishment;
+	}
+
+	private Punishment select(UUID uuid, PunishmentType type, AddressStrictness strictness) {
+		return indexed.selectApplicable(uuid, address, type, strictness, NOW, Function.identity(), () -> {
+			throw new AssertionError("Database must not be queried");
+		});
+	}
+
+	private Punishment select(PunishmentType type, AddressStrictness strictness) {
+		return select(uuid, type, strictness);
+	}
+
+	private boolean fallsBackToDatabase(PunishmentType type, AddressStrictness strictness) {
+		return indexed.selectApplicable(uuid, address, type, strictness, NOW, (punishment) -> false, () -> true);
+	}
+
+	@Test
+	public void fallBackToDatabase() {
+		assertFalse(fallsBackToDatabase(PunishmentType.BAN, AddressStrictness.LENIENT));
+		assertFalse(fallsBackToDatabase(PunishmentType.MUTE, AddressStrictness.NORMAL));
+		assertTrue(fallsBackToDatabase(PunishmentType.BAN, AddressStrictness.STRICT));
+		assertTrue(fallsBackToDatabase(PunishmentType.WARN, AddressStrictness.NORMAL));
+	}
+
+	@Test
+	public void selectPlayerPunishment() {
+		Punishment ban = punishment(1L, PunishmentType.BAN, PlayerVictim.of(uuid), Punishment.PERMANENT_END_DATE);
+		indexed.addPunishment(ban);
+		assertEquals(ban, select(PunishmentType.BAN, AddressStrictness.LENIENT));
+		assertNull(select(PunishmentType.MUTE, AddressStrictness.LENIENT));
+		assertNull(select(UUID.randomUUID(), PunishmentType.BAN, AddressStrictness.LENIENT));
+	}
+
+	@Test
+	public void ignoreExpired() {
+		indexed.addPunishment(punishment(1L, PunishmentType.MUTE, PlayerVictim.of(uuid), NOW.minusSeconds(1L)));
+		assertNull(select(PunishmentType.MUTE, AddressStrictness.LENIENT));
+	}
+
+	@Test
+	public void selectLeastSoonExpiring() {
+		Punishment shorter = punishment(1L, PunishmentType.BAN, PlayerVictim.of(uuid), NOW.plusSeconds(10L));
+		Punishment longer = punishment(2L, PunishmentType.BAN, AddressVictim.of(address), NOW.plusSeconds(20L));
+		indexed.addPunishment(shorter);
+		indexed.addPunishment(longer);
+		assertEquals(longer, select(PunishmentType.BAN, AddressStrictness.LENIENT));
+
+		Punishment permanent = punishment(3L, PunishmentType.BAN, CompositeVictim.of(uuid, address), Punishment.PERMANENT_END_DATE);
+		indexed.addPunishment(permanent);
+		assertEquals(permanent, select(PunishmentType.BAN, AddressStrictness.LENIENT));
+	}
+
+	@Test
+	public void normalStrictnessUsesPastAddresses() {
+		NetworkAddress pastAddress = RandomUtil.randomAddress();
+		Punishment ban = punishment(1L, PunishmentType.BAN, AddressVictim.of(pastAddress), Punishment.PERMANENT_END_DATE);
+		indexed.addPunishment(ban);
+		assertTrue(indexed.isAddressPunished(pastAddress));
+		assertNull(select(PunishmentType.BAN, AddressStrictness.NORMAL));
+
+		indexed.linkAddress(uuid, pastAddress);
+		assertEquals(ban, select(PunishmentType.BAN, AddressStrictness.NORMAL));
+		assertNull(select(PunishmentType.BAN, AddressStrictness.LENIENT), "Lenient strictness ignores past addresses");
+	}
+
+	@Test
+	public void removePunishment() {
+		NetworkAddress pastAddress = RandomUtil.randomAddress();
+		indexed.addPunishment(punishment(1L, PunishmentType.BAN, AddressVictim.of(pastAddress), Punishment.PERMANENT_END_DATE));
+		indexed.linkAddress(uuid, pastAddress);
+		indexed.removePunishment(1L);
+		assertFalse(indexed.isAddressPunished(pastAddress));
+		assertNull(select(PunishmentType.BAN, AddressStrictness.NORMAL));
+		assertEquals(0, indexed.size());
+	}
+
+	@Test
+	public void removeWhileLoadingPreventsResurrection() {
+		Punishment mute = punishment(1L, PunishmentType.MUTE, PlayerVictim.of(uuid), Punishment.PERMANENT_END_DATE);
+		indexed.removePunishmentWhileLoading(1L);
+		indexed.addPunishment(mute);
+		assertNull(select(PunishmentType.MUTE, AddressStrictness.LENIENT));
+		assertEquals(0, indexed.size());
+	}
+}
@@ -34,6 +34,7 @@ import space.arim.libertybans.core.selector.InternalSelector;
 import space.arim.libertybans.core.service.SettableTime;
 import space.arim.libertybans.core.service.SettableTimeImpl;
 import space.arim.libertybans.it.util.RandomUtil;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
 
@@ -170,4 +171,54 @@ public class OnDemandMuteCacheTest {
 
 		assertEquals(Optional.of(newMute), muteCache.getCachedMute(uuid, address).join());
 	}
+
+	@Test
+	public void clearCachedMutesOfAffectedUsers() {
+		NetworkAddress otherAddress = RandomUtil.randomAddress();
+		when(selector.getApplicablePunishment(any(), any(), any()))
+				.thenReturn(futuresFactory.completedFuture(Optional.empty()));
+
+		assertEquals(Optional.empty(), muteCache.getCachedMute(uuid, address).join());
+		assertEquals(Optional.empty(), muteCache.getCachedMute(uuid, otherAddress).join());
+
+		muteCache.clearCachedMutes((targetUuid, targetAddress) -> targetAddress.equals(address));
+		assertEquals(Optional.empty(), muteCache.getCachedMute(uuid, address).join());
+		assertEquals(Optional.empty(), muteCache.getCachedMute(uuid, otherAddress).join());
+
+		// Only the affected user was queried again
+		verify(selector, times(2)).getApplicablePunishment(uuid, address, PunishmentType.MUTE);
+		verify(selector, times(1)).getApplicablePunishment(uuid, otherAddress, PunishmentType.MUTE);
+	}
+
+	@Test
+	public void clearCachedMuteDuringComputation(@Mock Punishment mute) {
+		CentralisedFuture<Optional<Punishment>> databaseQuery = futuresFactory.newIncompleteFuture();
+		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE)).thenReturn(databaseQuery);
+		CentralisedFuture<Optional<Punishment>> cachedMute = muteCache.getCachedMute(uuid, address);
+
+		// The mute is removed while being queried
+		muteCache.clearCachedMute(5L);
+		databaseQuery.complete(Optional.of(mute));
+		assertEquals(Optional.of(mute), cachedMute.join());
+
+		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE))
+				.thenReturn(futuresFactory.completedFuture(Optional.empty()));
+		assertEquals(Optional.empty(), muteCache.getCachedMute(uuid, address).join());
+	}
+
+	@Test
+	public void setCachedMuteDuringComputation(@Mock Punishment mute) {
+		CentralisedFuture<Optional<Punishment>> databaseQuery = futuresFactory.newIncompleteFuture();
+		when(selector.getApplicablePunishment(uuid, address, PunishmentType.MUTE)).thenReturn(databaseQuery);
+		when(mute.getType()).thenReturn(PunishmentType.MUTE);
+		when(mute.isExpired(any())).thenReturn(false);
+		muteCache.getCachedMute(uuid, address);
+
+		// The mute is added while being queried, and the query does not see it
+		muteCache.setCachedMute(uuid, address, mute);
+		databaseQuery.complete(Optional.empty());
+
+		assertEquals(Optional.of(mute), muteCache.getCachedMute(uuid, address).join());
+		verify(selector, times(1)).getApplicablePunishment(uuid, address, PunishmentType.MUTE);
+	}
 }
@@ -32,7 +32,7 @@ public final class ConfigSpec {
 	private final ServerType serverType;
 	private final long unixTime;
 	
-	ConfigSpec(Vendor vendor, AddressStrictness addressStrictness, ServerType serverType, long unixTime) {
+	public ConfigSpec(Vendor vendor, AddressStrictness addressStrictness, ServerType serverType, long unixTime) {
 		this.vendor = Objects.requireNonNull(vendor, "vendor");
 		this.addressStrictness = Objects.requireNonNull(addressStrictness, "addressStrictness");
 		this.serverType = Objects.requireNonNull(serverType, "serverType");
@@ -45,6 +45,6 @@ final class InjectorCleanupCallback implements AfterEachCallback {
 		Instant startTime = injector.request(Identifier.ofTypeAndNamed(Instant.class, "testStartTime"));
 		injector.request(SettableTime.class).setTimestamp(startTime);
 		// Reset synchronization
-		injector.request(SQLSynchronizationMessenger.class).resetLastTimestamp();
+		injector.request(SQLSynchronizationMessenger.class).resetPosition();
 	}
 }
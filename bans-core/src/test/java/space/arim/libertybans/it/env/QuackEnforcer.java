@@ -27,6 +27,8 @@ import space.arim.libertybans.core.env.AbstractEnvEnforcer;
 import space.arim.libertybans.core.env.TargetMatcher;
 import space.arim.libertybans.it.env.platform.QuackPlatform;
 import space.arim.libertybans.it.env.platform.QuackPlayer;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
 import java.net.InetAddress;
 import java.util.UUID;
@@ -34,26 +36,31 @@ import java.util.function.Consumer;
 
 public class QuackEnforcer extends AbstractEnvEnforcer<QuackPlayer, QuackPlayer> {
 
+	private final FactoryOfTheFuture futuresFactory;
 	private final QuackPlatform platform;
 
 	@Inject
-	public QuackEnforcer(InternalFormatter formatter, PlatformHandle handle, QuackPlatform platform) {
+	public QuackEnforcer(InternalFormatter formatter, PlatformHandle handle, FactoryOfTheFuture futuresFactory,
+						 QuackPlatform platform) {
 		super(formatter, AudienceRepresenter.identity());
+		this.futuresFactory = futuresFactory;
 		this.platform = platform;
 	}
 
 	@Override
-	protected void sendToThoseWithPermissionNoPrefix(String permission, Component message) {
+	protected CentralisedFuture<Void> sendToThoseWithPermissionNoPrefix(String permission, Component message) {
 		for (QuackPlayer player : platform.getAllPlayers()) {
 			if (player.hasPermission(permission)) {
 				player.sendMessage(message);
 			}
 		}
+		return futuresFactory.completedFuture(null);
 	}
 
 	@Override
-	public void doForPlayerIfOnline(UUID uuid, Consumer<QuackPlayer> callback) {
+	public CentralisedFuture<Void> doForPlayerIfOnline(UUID uuid, Consumer<QuackPlayer> callback) {
 		platform.getPlayer(uuid).ifPresent(callback);
+		return futuresFactory.completedFuture(null);
 	}
 
 	@Override
@@ -62,12 +69,13 @@ public class QuackEnforcer extends AbstractEnvEnforcer<QuackPlayer, QuackPlayer>
 	}
 
 	@Override
-	public void enforceMatcher(TargetMatcher<QuackPlayer> matcher) {
+	public CentralisedFuture<Void> enforceMatcher(TargetMatcher<QuackPlayer> matcher) {
 		for (QuackPlayer player : platform.getAllPlayers()) {
 			if (matcher.matches(player.getUniqueId(), player.getAddress())) {
 				matcher.callback().accept(player);
 			}
 		}
+		return futuresFactory.completedFuture(null);
 	}
 
 	@Override
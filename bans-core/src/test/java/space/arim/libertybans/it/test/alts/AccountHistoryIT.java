@@ -25,11 +25,16 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import space.arim.libertybans.api.AddressVictim;
 import space.arim.libertybans.api.NetworkAddress;
 import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.punish.PunishmentDrafter;
+import space.arim.libertybans.api.select.PunishmentSelector;
 import space.arim.libertybans.core.alts.AccountHistory;
 import space.arim.libertybans.core.alts.KnownAccount;
 import space.arim.libertybans.core.punish.Guardian;
+import space.arim.libertybans.core.selector.AddressStrictness;
 import space.arim.libertybans.core.service.SettableTime;
 import space.arim.libertybans.it.InjectionInvocationContextProvider;
+import space.arim.libertybans.it.SetAddressStrictness;
 import space.arim.libertybans.it.SetTime;
 
 import java.time.Duration;
@@ -137,4 +142,40 @@ public class AccountHistoryIT {
 				List.of(new KnownAccount(player, username, secondAddress, startTime.plus(ONE_DAY))),
 				accountHistory.knownAccounts(PlayerVictim.of(player)).join());
 	}
+
+	@TestTemplate
+	@SetTime(unixTime = 1636233200)
+	@SetAddressStrictness(AddressStrictness.NORMAL)
+	public void deleteAccountUnlinksAddressPunishments(Guardian guardian, SettableTime time,
+													   PunishmentDrafter drafter, PunishmentSelector selector) {
+		final Instant startTime = Instant.ofEpochSecond(1636233200);
+
+		UUID player = UUID.randomUUID();
+		String username = "Player1";
+		NetworkAddress bannedAddress = randomAddress();
+		NetworkAddress otherAddress = randomAddress();
+
+		guardian.executeAndCheckConnection(player, username, bannedAddress).join();
+		time.advanceBy(ONE_DAY);
+		guardian.executeAndCheckConnection(player, username, otherAddress).join();
+
+		assertTrue(drafter.draftBuilder()
+				.type(PunishmentType.BAN)
+				.victim(AddressVictim.of(bannedAddress))
+				.reason("Botnet is banned")
+				.build()
+				.enactPunishment().toCompletableFuture().join().isPresent());
+		assertTrue(
+				selector.getApplicablePunishment(player, otherAddress, PunishmentType.BAN)
+						.toCompletableFuture().join().isPresent(),
+				"Past address is banned");
+
+		assertTrue(
+				accountHistory.deleteAccount(player, startTime).join(),
+				"Delete account at banned address");
+		assertFalse(
+				selector.getApplicablePunishment(player, otherAddress, PunishmentType.BAN)
+						.toCompletableFuture().join().isPresent(),
+				"Deleted account no longer links the user to the banned address");
+	}
 }
@@ -37,6 +37,7 @@ import space.arim.libertybans.core.service.Time;
 import space.arim.libertybans.it.DontInject;
 import space.arim.libertybans.it.InjectionInvocationContextProvider;
 import space.arim.libertybans.it.SetTime;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
 
 import java.time.Duration;
 import java.time.Instant;
@@ -54,21 +55,24 @@ import static space.arim.libertybans.core.schema.tables.Names.NAMES;
 public class OfflineNamesIT {
 
 	private final Configs configs;
+	private final EnhancedExecutor enhancedExecutor;
 	private final Provider<InternalDatabase> dbProvider;
 	private final Time time;
 
 	private TabCompletion tabCompletion;
 
 	@Inject
-	public OfflineNamesIT(@DontInject @Mock Configs configs, Provider<InternalDatabase> dbProvider, Time time) {
+	public OfflineNamesIT(@DontInject @Mock Configs configs, EnhancedExecutor enhancedExecutor,
+						  Provider<InternalDatabase> dbProvider, Time time) {
 		this.configs = configs;
+		this.enhancedExecutor = enhancedExecutor;
 		this.dbProvider = dbProvider;
 		this.time = time;
 	}
 
 	@BeforeEach
 	public void setTabCompletion() {
-		tabCompletion = new StandardTabCompletion(configs, dbProvider, time);
+		tabCompletion = new StandardTabCompletion(configs, enhancedExecutor, dbProvider, time);
 	}
 
 	private static final long CURRENT_TIME = 1628954750;
@@ -104,8 +108,17 @@ public class OfflineNamesIT {
 		}).join();
 
 		tabCompletion.startup();
+		try {
+			assertEquals(Set.of("Sender", "Player1", "Player2"),
+					tabCompletion.completeOfflinePlayerNames(sender, "").collect(Collectors.toUnmodifiableSet()));
+			assertEquals(Set.of("Player1", "Player2"),
+					tabCompletion.completeOfflinePlayerNames(sender, "pl").collect(Collectors.toUnmodifiableSet()));
 
-		assertEquals(Set.of("Sender", "Player1", "Player2"),
-				tabCompletion.completeOfflinePlayerNames(sender).collect(Collectors.toUnmodifiableSet()));
+			tabCompletion.recordJoin("Player4", now);
+			assertEquals(Set.of("Player1", "Player2", "Player4"),
+					tabCompletion.completeOfflinePlayerNames(sender, "PLAY").collect(Collectors.toUnmodifiableSet()));
+		} finally {
+			tabCompletion.shutdown();
+		}
 	}
 }
@@ -31,8 +31,10 @@ import space.arim.libertybans.core.database.DatabaseManager;
 import space.arim.libertybans.core.database.DatabaseResult;
 import space.arim.libertybans.core.database.DatabaseSettings;
 import space.arim.libertybans.core.database.Vendor;
+import space.arim.libertybans.core.database.execute.QueryMetrics;
 import space.arim.libertybans.it.util.ContextClassLoaderAction;
 import space.arim.libertybans.it.util.FlywayStaticStateManagementExtension;
+import space.arim.omnibus.util.concurrent.EnhancedExecutor;
 import space.arim.omnibus.util.concurrent.impl.IndifferentFactoryOfTheFuture;
 
 import java.nio.file.Path;
@@ -66,6 +68,8 @@ public class DatabaseSettingsIT {
 	private DatabaseSettings createDatabaseSettings() {
 		DatabaseManager dbManager = mock(DatabaseManager.class);
 		when(dbManager.futuresFactory()).thenReturn(new IndifferentFactoryOfTheFuture());
+		when(dbManager.enhancedExecutor()).thenReturn(mock(EnhancedExecutor.class));
+		when(dbManager.queryMetrics()).thenReturn(new QueryMetrics());
 		return new DatabaseSettings(databaseDir, dbManager);
 	}
 
@@ -0,0 +1,135 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.it.test.punish;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import org.jooq.Table;
+import org.junit.jupiter.api.TestTemplate;
+import org.junit.jupiter.api.extension.ExtendWith;
+import space.arim.libertybans.api.AddressVictim;
+import space.arim.libertybans.api.CompositeVictim;
+import space.arim.libertybans.api.ConsoleOperator;
+import space.arim.libertybans.api.PlayerVictim;
+import space.arim.libertybans.api.PunishmentType;
+import space.arim.libertybans.api.Victim;
+import space.arim.libertybans.api.punish.Punishment;
+import space.arim.libertybans.core.database.execute.QueryExecutor;
+import space.arim.libertybans.core.punish.Enaction;
+import space.arim.libertybans.core.punish.PunishmentCreator;
+import space.arim.libertybans.core.scope.ScopeImpl;
+import space.arim.libertybans.it.InjectionInvocationContextProvider;
+import space.arim.libertybans.it.util.RandomUtil;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static space.arim.libertybans.core.schema.tables.Bans.BANS;
+import static space.arim.libertybans.core.schema.tables.History.HISTORY;
+import static space.arim.libertybans.core.schema.tables.Punishments.PUNISHMENTS;
+import static space.arim.libertybans.core.schema.tables.Victims.VICTIMS;
+import static space.arim.libertybans.core.schema.tables.Warns.WARNS;
+
+@ExtendWith(InjectionInvocationContextProvider.class)
+public class EnactionIT {
+
+	private final Provider<QueryExecutor> queryExecutor;
+	private final PunishmentCreator creator;
+
+	@Inject
+	public EnactionIT(Provider<QueryExecutor> queryExecutor, PunishmentCreator creator) {
+		this.queryExecutor = queryExecutor;
+		this.creator = creator;
+	}
+
+	private Enaction enaction(PunishmentType type, Victim victim) {
+		return new Enaction(new Enaction.OrderDetails(
+				type, victim, ConsoleOperator.INSTANCE, "reason", ScopeImpl.GLOBAL,
+				Instant.ofEpochSecond(1_000_000L), Punishment.PERMANENT_END_DATE
+		), creator);
+	}
+
+	private Punishment enactActive(PunishmentType type, Victim victim) {
+		Enaction enaction = enaction(type, victim);
+		return queryExecutor.get().queryWithRetry(enaction::enactActive).join();
+	}
+
+	private Punishment enactHistorical(PunishmentType type, Victim victim) {
+		Enaction enaction = enaction(type, victim);
+		return queryExecutor.get().query(enaction::enactHistorical).join();
+	}
+
+	private int count(Table<?> table) {
+		return queryExecutor.get().query((context) -> context.fetchCount(table)).join();
+	}
+
+	@TestTemplate
+	public void enactActiveBan() {
+		PlayerVictim victim = PlayerVictim.of(UUID.randomUUID());
+		Punishment punishment = enactActive(PunishmentType.BAN, victim);
+		assertNotNull(punishment);
+
+		QueryExecutor database = queryExecutor.get();
+		long id = database.query((context) -> {
+			return context.select(PUNISHMENTS.ID).from(PUNISHMENTS).fetchSingle().value1();
+		}).join();
+		assertEquals(id, punishment.getIdentifier());
+		assertEquals(PunishmentType.BAN, punishment.getType());
+		assertEquals(victim, punishment.getVictim());
+		assertEquals(ConsoleOperator.INSTANCE, punishment.getOperator());
+		assertEquals("reason", punishment.getReason());
+		assertEquals(ScopeImpl.GLOBAL, punishment.getScope());
+		assertEquals(Instant.ofEpochSecond(1_000_000L), punishment.getStartDate());
+		assertEquals(Punishment.PERMANENT_END_DATE, punishment.getEndDate());
+		assertEquals(id, database.query((context) -> {
+			return context.select(BANS.ID).from(BANS).fetchSingle().value1();
+		}).join());
+		assertEquals(id, database.query((context) -> {
+			return context.select(HISTORY.ID).from(HISTORY).fetchSingle().value1();
+		}).join());
+		assertEquals(1, count(VICTIMS));
+	}
+
+	@TestTemplate
+	public void rejectSecondActiveBan() {
+		AddressVictim victim = AddressVictim.of(RandomUtil.randomAddress());
+		assertNotNull(enactActive(PunishmentType.BAN, victim));
+		assertNull(enactActive(PunishmentType.BAN, victim));
+		assertEquals(1, count(BANS));
+		assertEquals(1, count(HISTORY));
+	}
+
+	@TestTemplate
+	public void reuseVictims() {
+		CompositeVictim victim = CompositeVictim.of(UUID.randomUUID(), RandomUtil.randomAddress());
+		assertNotNull(enactActive(PunishmentType.WARN, victim));
+		assertNotNull(enactActive(PunishmentType.WARN, victim));
+		assertNotNull(enactHistorical(PunishmentType.BAN, victim));
+		assertNotNull(enactActive(PunishmentType.KICK, PlayerVictim.of(victim.getUUID())));
+		assertEquals(4, count(PUNISHMENTS));
+		assertEquals(2, count(WARNS));
+		assertEquals(0, count(BANS));
+		assertEquals(4, count(HISTORY));
+		assertEquals(2, count(VICTIMS), "The composite victim and the player victim");
+	}
+}
@@ -24,6 +24,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.TestTemplate;
 import org.junit.jupiter.api.extension.ExtendWith;
+import space.arim.libertybans.core.database.execute.QueryExecutor;
 import space.arim.libertybans.core.punish.sync.SQLSynchronizationMessenger;
 import space.arim.libertybans.core.service.SettableTime;
 import space.arim.libertybans.it.InjectionInvocationContextProvider;
@@ -33,28 +34,32 @@ import java.time.Duration;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static space.arim.libertybans.core.schema.tables.Messages.MESSAGES;
 
 @ExtendWith(InjectionInvocationContextProvider.class)
 public class SQLSynchronizationIT {
 
 	private final SQLSynchronizationMessenger synchronizationMessenger;
+	private final QueryExecutor queryExecutor;
 	private final SettableTime time;
 
 	@Inject
-	public SQLSynchronizationIT(SQLSynchronizationMessenger synchronizationMessenger, SettableTime time) {
+	public SQLSynchronizationIT(SQLSynchronizationMessenger synchronizationMessenger,
+								QueryExecutor queryExecutor, SettableTime time) {
 		this.synchronizationMessenger = synchronizationMessenger;
+		this.queryExecutor = queryExecutor;
 		this.time = time;
 	}
 
 	@BeforeEach
 	public void initialPoll() {
-		synchronizationMessenger.setInitialTimestamp();
+		synchronizationMessenger.setInitialPosition();
 		time.advanceBy(Duration.ofMinutes(1L));
 	}
 
 	@AfterEach
 	public void resetState() {
-		synchronizationMessenger.resetLastTimestamp();
+		synchronizationMessenger.resetPosition();
 	}
 
 	@TestTemplate
@@ -98,4 +103,40 @@ public class SQLSynchronizationIT {
 				synchronizationMessenger.poll().join()
 		);
 	}
+
+	@TestTemplate
+	public void drainMultipleBatches() {
+		byte[][] messages = new byte[500][];
+		for (int n = 0; n < messages.length; n++) {
+			messages[n] = dispatchRandomMessage();
+		}
+		assertArrayEquals(messages, synchronizationMessenger.poll().join());
+		assertArrayEquals(new byte[][] {}, synchronizationMessenger.poll().join());
+	}
+
+	private byte[] insertRandomMessageWithId(long id) {
+		byte[] message = RandomUtil.randomBytes(ThreadLocalRandom.current().nextInt(5, 100));
+		queryExecutor.execute((context) -> {
+			context
+					.insertInto(MESSAGES)
+					.columns(MESSAGES.ID, MESSAGES.MESSAGE, MESSAGES.TIME)
+					.values(id, message, time.currentTimestamp())
+					.execute();
+		}).join();
+		return message;
+	}
+
+	@TestTemplate
+	public void receiveMessageCommittedOutOfOrder() {
+		long startId = 1_000_000L;
+		byte[] first = insertRandomMessageWithId(startId);
+		assertArrayEquals(new byte[][] {first}, synchronizationMessenger.poll().join());
+
+		// The message with the next ID is committed after the one following it
+		byte[] third = insertRandomMessageWithId(startId + 2);
+		assertArrayEquals(new byte[][] {third}, synchronizationMessenger.poll().join());
+		byte[] second = insertRandomMessageWithId(startId + 1);
+		assertArrayEquals(new byte[][] {second}, synchronizationMessenger.poll().join());
+		assertArrayEquals(new byte[][] {}, synchronizationMessenger.poll().join());
+	}
 }
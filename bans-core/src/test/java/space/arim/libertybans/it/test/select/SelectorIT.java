@@ -22,6 +22,7 @@ package space.arim.libertybans.it.test.select;
 import jakarta.inject.Inject;
 import org.junit.jupiter.api.TestTemplate;
 import org.junit.jupiter.api.extension.ExtendWith;
+import space.arim.libertybans.api.AddressVictim;
 import space.arim.libertybans.api.NetworkAddress;
 import space.arim.libertybans.api.PlayerVictim;
 import space.arim.libertybans.api.PunishmentType;
@@ -32,6 +33,8 @@ import space.arim.libertybans.it.InjectionInvocationContextProvider;
 import space.arim.libertybans.it.test.applicable.StrictnessAssertHelper;
 import space.arim.libertybans.it.util.RandomUtil;
 
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -66,4 +69,31 @@ public class SelectorIT {
 						.toCompletableFuture().join().orElse(null)
 		);
 	}
+
+	@TestTemplate
+	public void selectHistoricalPunishmentsByIds(InternalSelector selector, PunishmentDrafter drafter) {
+		Punishment ban = drafter.draftBuilder()
+				.type(PunishmentType.BAN)
+				.victim(PlayerVictim.of(UUID.randomUUID()))
+				.reason("first")
+				.build()
+				.enactPunishment()
+				.toCompletableFuture().join()
+				.orElseThrow(AssertionError::new);
+		Punishment warn = drafter.draftBuilder()
+				.type(PunishmentType.WARN)
+				.victim(AddressVictim.of(RandomUtil.randomAddress()))
+				.reason("second")
+				.build()
+				.enactPunishment()
+				.toCompletableFuture().join()
+				.orElseThrow(AssertionError::new);
+		long nonexistentId = Math.max(ban.getIdentifier(), warn.getIdentifier()) + 1;
+		assertEquals(
+				Map.of(ban.getIdentifier(), ban, warn.getIdentifier(), warn),
+				selector.getHistoricalPunishmentsByIds(
+						Set.of(ban.getIdentifier(), warn.getIdentifier(), nonexistentId)
+				).join()
+		);
+	}
 }
@@ -29,41 +29,66 @@ import net.md_5.bungee.api.connection.ProxiedPlayer;
 import space.arim.api.env.AudienceRepresenter;
 import space.arim.libertybans.core.config.InternalFormatter;
 import space.arim.libertybans.core.env.AbstractEnvEnforcer;
+import space.arim.libertybans.core.env.NotificationAudiences;
+import space.arim.libertybans.core.env.OnlinePlayerRegistry;
 import space.arim.libertybans.core.env.TargetMatcher;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
 import java.net.InetAddress;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Consumer;
 
 @Singleton
 public class BungeeEnforcer extends AbstractEnvEnforcer<CommandSender, ProxiedPlayer> {
 
+	private final FactoryOfTheFuture futuresFactory;
 	private final ProxyServer server;
 	private final AddressReporter addressReporter;
+	private final OnlinePlayerRegistry onlinePlayers;
+	private final NotificationAudiences notificationAudiences;
 
 	@Inject
 	public BungeeEnforcer(InternalFormatter formatter, AudienceRepresenter<CommandSender> audienceRepresenter,
-						  ProxyServer server, AddressReporter addressReporter) {
+						  FactoryOfTheFuture futuresFactory, ProxyServer server, AddressReporter addressReporter,
+						  OnlinePlayerRegistry onlinePlayers, NotificationAudiences notificationAudiences) {
 		super(formatter, audienceRepresenter);
+		this.futuresFactory = futuresFactory;
 		this.server = server;
 		this.addressReporter = addressReporter;
+		this.onlinePlayers = onlinePlayers;
+		this.notificationAudiences = notificationAudiences;
 	}
 
 	@Override
-	protected void sendToThoseWithPermissionNoPrefix(String permission, Component message) {
-		for (ProxiedPlayer player : server.getPlayers()) {
-			if (player.hasPermission(permission)) {
-				audienceRepresenter().toAudience(player).sendMessage(message);
+	protected CentralisedFuture<Void> sendToThoseWithPermissionNoPrefix(String permission, Component message) {
+		return notificationAudiences.audience(permission, (perm) -> {
+			Set<UUID> uuids = new HashSet<>();
+			for (ProxiedPlayer player : server.getPlayers()) {
+				if (player.hasPermission(perm)) {
+					uuids.add(player.getUniqueId());
+				}
 			}
-		}
+			return futuresFactory.completedFuture(uuids);
+		}).thenAccept((uuids) -> {
+			for (UUID uuid : uuids) {
+				ProxiedPlayer player = server.getPlayer(uuid);
+				if (player != null) {
+					audienceRepresenter().toAudience(player).sendMessage(message);
+				}
+			}
+		});
 	}
 
 	@Override
-	public void doForPlayerIfOnline(UUID uuid, Consumer<ProxiedPlayer> callback) {
+	public CentralisedFuture<Void> doForPlayerIfOnline(UUID uuid, Consumer<ProxiedPlayer> callback) {
 		ProxiedPlayer player = server.getPlayer(uuid);
 		if (player != null) {
 			callback.accept(player);
 		}
+		return futuresFactory.completedFuture(null);
 	}
 
 	@Override
@@ -73,12 +98,14 @@ public class BungeeEnforcer extends AbstractEnvEnforcer<CommandSender, ProxiedPl
 	}
 
 	@Override
-	public void enforceMatcher(TargetMatcher<ProxiedPlayer> matcher) {
-		for (ProxiedPlayer player : server.getPlayers()) {
-			if (matcher.matches(player.getUniqueId(), addressReporter.getAddress(player))) {
+	public CentralisedFuture<Void> enforceMatcher(TargetMatcher<ProxiedPlayer> matcher) {
+		for (UUID uuid : matcher.candidates(onlinePlayers)) {
+			ProxiedPlayer player = server.getPlayer(uuid);
+			if (player != null && matcher.matches(uuid, addressReporter.getAddress(player))) {
 				matcher.callback().accept(player);
 			}
 		}
+		return futuresFactory.completedFuture(null);
 	}
 
 	@Override
@@ -33,13 +33,16 @@ public class BungeeEnv implements Environment {
 
 	private final Provider<ConnectionListener> connectionListenerProvider;
 	private final Provider<ChatListener> chatListenerProvider;
+	private final Provider<OnlinePlayerListener> onlinePlayerListenerProvider;
 	private final CommandHandler.CommandHelper commandHelper;
 
 	@Inject
 	public BungeeEnv(Provider<ConnectionListener> connectionListenerProvider,
-			Provider<ChatListener> chatListenerProvider, CommandHandler.CommandHelper commandHelper) {
+			Provider<ChatListener> chatListenerProvider, Provider<OnlinePlayerListener> onlinePlayerListenerProvider,
+			CommandHandler.CommandHelper commandHelper) {
 		this.connectionListenerProvider = connectionListenerProvider;
 		this.chatListenerProvider = chatListenerProvider;
+		this.onlinePlayerListenerProvider = onlinePlayerListenerProvider;
 		this.commandHelper = commandHelper;
 	}
 
@@ -48,6 +51,7 @@ public class BungeeEnv implements Environment {
 		return Set.of(
 				connectionListenerProvider.get(),
 				chatListenerProvider.get(),
+				onlinePlayerListenerProvider.get(),
 				new CommandHandler(commandHelper, Commands.BASE_COMMAND_NAME, false));
 	}
 
@@ -0,0 +1,90 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.env.bungee;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.api.event.PlayerDisconnectEvent;
+import net.md_5.bungee.api.event.PostLoginEvent;
+import net.md_5.bungee.api.plugin.Listener;
+import net.md_5.bungee.api.plugin.Plugin;
+import net.md_5.bungee.event.EventHandler;
+import net.md_5.bungee.event.EventPriority;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.core.env.NotificationAudiences;
+import space.arim.libertybans.core.env.OnlinePlayerRegistry;
+import space.arim.libertybans.core.env.PlatformListener;
+
+@Singleton
+public final class OnlinePlayerListener implements Listener, PlatformListener {
+
+	private final Plugin plugin;
+	private final AddressReporter addressReporter;
+	private final OnlinePlayerRegistry onlinePlayers;
+	private final NotificationAudiences notificationAudiences;
+
+	@Inject
+	public OnlinePlayerListener(Plugin plugin, AddressReporter addressReporter, OnlinePlayerRegistry onlinePlayers,
+								NotificationAudiences notificationAudiences) {
+		this.plugin = plugin;
+		this.addressReporter = addressReporter;
+		this.onlinePlayers = onlinePlayers;
+		this.notificationAudiences = notificationAudiences;
+	}
+
+	@Override
+	public void register() {
+		plugin.getProxy().getPluginManager().registerListener(plugin, this);
+		// Players may already be online if the plugin was reloaded
+		for (ProxiedPlayer player : plugin.getProxy().getPlayers()) {
+			registerPlayer(player);
+		}
+	}
+
+	@Override
+	public void unregister() {
+		plugin.getProxy().getPluginManager().unregisterListener(this);
+		onlinePlayers.clear();
+		notificationAudiences.invalidateAll();
+	}
+
+	private void registerPlayer(ProxiedPlayer player) {
+		onlinePlayers.register(player.getUniqueId(), NetworkAddress.of(addressReporter.getAddress(player)));
+		notificationAudiences.addPlayer(player.getUniqueId(), player::hasPermission);
+	}
+
+	@EventHandler(priority = EventPriority.LOWEST)
+	public void onPostLogin(PostLoginEvent event) {
+		registerPlayer(event.getPlayer());
+	}
+
+	@EventHandler(priority = EventPriority.HIGHEST)
+	public void onDisconnect(PlayerDisconnectEvent event) {
+		ProxiedPlayer player = event.getPlayer();
+		ProxiedPlayer current = plugin.getProxy().getPlayer(player.getUniqueId());
+		if (current != null && current != player) {
+			// This connection was replaced by another with the same uuid
+			return;
+		}
+		onlinePlayers.unregister(player.getUniqueId());
+		notificationAudiences.removePlayer(player.getUniqueId());
+	}
+}
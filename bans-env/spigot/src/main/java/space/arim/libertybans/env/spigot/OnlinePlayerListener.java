@@ -0,0 +1,83 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.env.spigot;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.java.JavaPlugin;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.core.env.NotificationAudiences;
+import space.arim.libertybans.core.env.OnlinePlayerRegistry;
+import space.arim.libertybans.core.env.PlatformListener;
+
+@Singleton
+public final class OnlinePlayerListener implements PlatformListener, Listener {
+
+	private final JavaPlugin plugin;
+	private final OnlinePlayerRegistry onlinePlayers;
+	private final NotificationAudiences notificationAudiences;
+
+	@Inject
+	public OnlinePlayerListener(JavaPlugin plugin, OnlinePlayerRegistry onlinePlayers,
+								NotificationAudiences notificationAudiences) {
+		this.plugin = plugin;
+		this.onlinePlayers = onlinePlayers;
+		this.notificationAudiences = notificationAudiences;
+	}
+
+	@Override
+	public void register() {
+		plugin.getServer().getPluginManager().registerEvents(this, plugin);
+		// Players may already be online if the plugin was reloaded
+		for (Player player : plugin.getServer().getOnlinePlayers()) {
+			registerPlayer(player);
+		}
+	}
+
+	@Override
+	public void unregister() {
+		HandlerList.unregisterAll(this);
+		onlinePlayers.clear();
+		notificationAudiences.invalidateAll();
+	}
+
+	private void registerPlayer(Player player) {
+		onlinePlayers.register(player.getUniqueId(), NetworkAddress.of(player.getAddress().getAddress()));
+		notificationAudiences.addPlayer(player.getUniqueId(), player::hasPermission);
+	}
+
+	@EventHandler(priority = EventPriority.LOWEST)
+	public void onJoin(PlayerJoinEvent event) {
+		registerPlayer(event.getPlayer());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onQuit(PlayerQuitEvent event) {
+		onlinePlayers.unregister(event.getPlayer().getUniqueId());
+		notificationAudiences.removePlayer(event.getPlayer().getUniqueId());
+	}
+}
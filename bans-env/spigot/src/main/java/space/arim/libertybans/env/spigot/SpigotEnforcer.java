@@ -27,11 +27,17 @@ import org.bukkit.entity.Player;
 import space.arim.api.env.AudienceRepresenter;
 import space.arim.libertybans.core.config.InternalFormatter;
 import space.arim.libertybans.core.env.AbstractEnvEnforcer;
+import space.arim.libertybans.core.env.MainThreadQueue;
+import space.arim.libertybans.core.env.NotificationAudiences;
+import space.arim.libertybans.core.env.OnlinePlayerRegistry;
 import space.arim.libertybans.core.env.TargetMatcher;
 import space.arim.morepaperlib.adventure.MorePaperLibAdventure;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
 import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
 import java.net.InetAddress;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Consumer;
 
@@ -39,32 +45,52 @@ import java.util.function.Consumer;
 public class SpigotEnforcer extends AbstractEnvEnforcer<CommandSender, Player> {
 
 	private final FactoryOfTheFuture futuresFactory;
+	private final MainThreadQueue mainThread;
 	private final Server server;
 	private final MorePaperLibAdventure morePaperLibAdventure;
+	private final OnlinePlayerRegistry onlinePlayers;
+	private final NotificationAudiences notificationAudiences;
 
 	@Inject
 	public SpigotEnforcer(InternalFormatter formatter,
 						  AudienceRepresenter<CommandSender> audienceRepresenter,
-						  FactoryOfTheFuture futuresFactory, Server server,
-						  MorePaperLibAdventure morePaperLibAdventure) {
+						  FactoryOfTheFuture futuresFactory, MainThreadQueue mainThread, Server server,
+						  MorePaperLibAdventure morePaperLibAdventure, OnlinePlayerRegistry onlinePlayers,
+						  NotificationAudiences notificationAudiences) {
 		super(formatter, audienceRepresenter);
 		this.futuresFactory = futuresFactory;
+		this.mainThread = mainThread;
 		this.server = server;
 		this.morePaperLibAdventure = morePaperLibAdventure;
-	}
-	
-	private void runSyncNow(Runnable command) {
-		futuresFactory.runSync(command).join();
+		this.onlinePlayers = onlinePlayers;
+		this.notificationAudiences = notificationAudiences;
 	}
 	
 	@Override
-	protected void sendToThoseWithPermissionNoPrefix(String permission, Component message) {
-		runSyncNow(() -> {
+	protected CentralisedFuture<Void> sendToThoseWithPermissionNoPrefix(String permission, Component message) {
+		// Permissions are checked on the main thread, but only when the audience is not cached
+		return notificationAudiences.audience(permission, (perm) -> mainThread.supply(() -> {
+			Set<UUID> uuids = new HashSet<>();
 			for (Player player : server.getOnlinePlayers()) {
-				if (player.hasPermission(permission)) {
-					audienceRepresenter().toAudience(player).sendMessage(message);
+				if (player.hasPermission(perm)) {
+					uuids.add(player.getUniqueId());
 				}
 			}
+			return uuids;
+		})).thenCompose((uuids) -> {
+			if (uuids.isEmpty()) {
+				// Nothing to do on the main thread
+				return futuresFactory.completedFuture(null);
+			}
+			// The audience may come from the cache on any thread, but players must be accessed on the main thread
+			return mainThread.run(() -> {
+				for (UUID uuid : uuids) {
+					Player player = server.getPlayer(uuid);
+					if (player != null) {
+						audienceRepresenter().toAudience(player).sendMessage(message);
+					}
+				}
+			});
 		});
 	}
 
@@ -74,8 +100,12 @@ public class SpigotEnforcer extends AbstractEnvEnforcer<CommandSender, Player> {
 	}
 
 	@Override
-	public void doForPlayerIfOnline(UUID uuid, Consumer<Player> callback) {
-		runSyncNow(() -> {
+	public CentralisedFuture<Void> doForPlayerIfOnline(UUID uuid, Consumer<Player> callback) {
+		if (!onlinePlayers.isOnline(uuid)) {
+			// Nothing to do on the main thread
+			return futuresFactory.completedFuture(null);
+		}
+		return mainThread.run(() -> {
 			Player player = server.getPlayer(uuid);
 			if (player != null) {
 				callback.accept(player);
@@ -84,10 +114,16 @@ public class SpigotEnforcer extends AbstractEnvEnforcer<CommandSender, Player> {
 	}
 
 	@Override
-	public void enforceMatcher(TargetMatcher<Player> matcher) {
-		runSyncNow(() -> {
-			for (Player player : server.getOnlinePlayers()) {
-				if (matcher.matches(player.getUniqueId(), player.getAddress().getAddress())) {
+	public CentralisedFuture<Void> enforceMatcher(TargetMatcher<Player> matcher) {
+		Set<UUID> candidates = matcher.candidates(onlinePlayers);
+		if (candidates.isEmpty()) {
+			// Nothing to do on the main thread
+			return futuresFactory.completedFuture(null);
+		}
+		return mainThread.run(() -> {
+			for (UUID uuid : candidates) {
+				Player player = server.getPlayer(uuid);
+				if (player != null && matcher.matches(uuid, player.getAddress().getAddress())) {
 					matcher.callback().accept(player);
 				}
 			}
@@ -33,16 +33,19 @@ public class SpigotEnv implements Environment {
 	private final Provider<ConnectionListener> connectionListenerProvider;
 	private final Provider<ChatListener> chatListenerProvider;
 	private final Provider<QuitListener> quitListenerProvider;
+	private final Provider<OnlinePlayerListener> onlinePlayerListenerProvider;
 	private final CommandHandler.CommandHelper commandHelper;
 
 	@Inject
 	public SpigotEnv(Provider<ConnectionListener> connectionListenerProvider,
 					 Provider<ChatListener> chatListenerProvider,
 					 Provider<QuitListener> quitListenerProvider,
+					 Provider<OnlinePlayerListener> onlinePlayerListenerProvider,
 					 CommandHandler.CommandHelper commandHelper) {
 		this.connectionListenerProvider = connectionListenerProvider;
 		this.chatListenerProvider = chatListenerProvider;
 		this.quitListenerProvider = quitListenerProvider;
+		this.onlinePlayerListenerProvider = onlinePlayerListenerProvider;
 		this.commandHelper = commandHelper;
 	}
 
@@ -52,6 +55,7 @@ public class SpigotEnv implements Environment {
 				connectionListenerProvider.get(),
 				chatListenerProvider.get(),
 				quitListenerProvider.get(),
+				onlinePlayerListenerProvider.get(),
 				new CommandHandler(commandHelper, Commands.BASE_COMMAND_NAME, false));
 	}
 
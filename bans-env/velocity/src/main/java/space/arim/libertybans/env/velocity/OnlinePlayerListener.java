@@ -0,0 +1,92 @@
+/*
+ * LibertyBans
+ * Copyright © 2022 Anand Beh
+ *
+ * LibertyBans is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * LibertyBans is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with LibertyBans. If not, see <https://www.gnu.org/licenses/>
+ * and navigate to version 3 of the GNU Affero General Public License.
+ */
+
+package space.arim.libertybans.env.velocity;
+
+import com.velocitypowered.api.event.EventHandler;
+import com.velocitypowered.api.event.EventManager;
+import com.velocitypowered.api.event.PostOrder;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.connection.PostLoginEvent;
+import com.velocitypowered.api.plugin.PluginContainer;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import space.arim.libertybans.api.NetworkAddress;
+import space.arim.libertybans.core.env.NotificationAudiences;
+import space.arim.libertybans.core.env.OnlinePlayerRegistry;
+import space.arim.libertybans.core.env.PlatformListener;
+
+@Singleton
+public final class OnlinePlayerListener implements PlatformListener {
+
+	private final PluginContainer plugin;
+	private final ProxyServer server;
+	private final OnlinePlayerRegistry onlinePlayers;
+	private final NotificationAudiences notificationAudiences;
+
+	private final EventHandler<PostLoginEvent> postLoginHandler = (event) -> registerPlayer(event.getPlayer());
+	private final EventHandler<DisconnectEvent> disconnectHandler = this::onDisconnect;
+
+	@Inject
+	public OnlinePlayerListener(PluginContainer plugin, ProxyServer server, OnlinePlayerRegistry onlinePlayers,
+								NotificationAudiences notificationAudiences) {
+		this.plugin = plugin;
+		this.server = server;
+		this.onlinePlayers = onlinePlayers;
+		this.notificationAudiences = notificationAudiences;
+	}
+
+	@Override
+	public void register() {
+		EventManager eventManager = server.getEventManager();
+		eventManager.register(plugin, PostLoginEvent.class, PostOrder.FIRST, postLoginHandler);
+		eventManager.register(plugin, DisconnectEvent.class, PostOrder.LAST, disconnectHandler);
+		// Players may already be online if the plugin was reloaded
+		for (Player player : server.getAllPlayers()) {
+			registerPlayer(player);
+		}
+	}
+
+	@Override
+	public void unregister() {
+		EventManager eventManager = server.getEventManager();
+		eventManager.unregister(plugin, postLoginHandler);
+		eventManager.unregister(plugin, disconnectHandler);
+		onlinePlayers.clear();
+		notificationAudiences.invalidateAll();
+	}
+
+	private void registerPlayer(Player player) {
+		onlinePlayers.register(player.getUniqueId(), NetworkAddress.of(player.getRemoteAddress().getAddress()));
+		notificationAudiences.addPlayer(player.getUniqueId(), player::hasPermission);
+	}
+
+	private void onDisconnect(DisconnectEvent event) {
+		Player player = event.getPlayer();
+		Player current = server.getPlayer(player.getUniqueId()).orElse(null);
+		if (current != null && current != player) {
+			// This connection was replaced by another with the same uuid
+			return;
+		}
+		onlinePlayers.unregister(player.getUniqueId());
+		notificationAudiences.removePlayer(player.getUniqueId());
+	}
+}
@@ -27,30 +27,51 @@ import net.kyori.adventure.text.Component;
 import space.arim.api.env.AudienceRepresenter;
 import space.arim.libertybans.core.config.InternalFormatter;
 import space.arim.libertybans.core.env.AbstractEnvEnforcer;
+import space.arim.libertybans.core.env.NotificationAudiences;
+import space.arim.libertybans.core.env.OnlinePlayerRegistry;
 import space.arim.libertybans.core.env.TargetMatcher;
+import space.arim.omnibus.util.concurrent.CentralisedFuture;
+import space.arim.omnibus.util.concurrent.FactoryOfTheFuture;
 
 import java.net.InetAddress;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Consumer;
 
 @Singleton
 public class VelocityEnforcer extends AbstractEnvEnforcer<CommandSource, Player> {
 
+	private final FactoryOfTheFuture futuresFactory;
 	private final ProxyServer server;
+	private final OnlinePlayerRegistry onlinePlayers;
+	private final NotificationAudiences notificationAudiences;
 	
 	@Inject
-	public VelocityEnforcer(InternalFormatter formatter, ProxyServer server) {
+	public VelocityEnforcer(InternalFormatter formatter, FactoryOfTheFuture futuresFactory, ProxyServer server,
+							OnlinePlayerRegistry onlinePlayers, NotificationAudiences notificationAudiences) {
 		super(formatter, AudienceRepresenter.identity());
+		this.futuresFactory = futuresFactory;
 		this.server = server;
+		this.onlinePlayers = onlinePlayers;
+		this.notificationAudiences = notificationAudiences;
 	}
 
 	@Override
-	protected void sendToThoseWithPermissionNoPrefix(String permission, Component message) {
-		for (Player player : server.getAllPlayers()) {
-			if (player.hasPermission(permission)) {
-				player.sendMessage(message);
+	protected CentralisedFuture<Void> sendToThoseWithPermissionNoPrefix(String permission, Component message) {
+		return notificationAudiences.audience(permission, (perm) -> {
+			Set<UUID> uuids = new HashSet<>();
+			for (Player player : server.getAllPlayers()) {
+				if (player.hasPermission(perm)) {
+					uuids.add(player.getUniqueId());
+				}
 			}
-		}
+			return futuresFactory.completedFuture(uuids);
+		}).thenAccept((uuids) -> {
+			for (UUID uuid : uuids) {
+				server.getPlayer(uuid).ifPresent((player) -> player.sendMessage(message));
+			}
+		});
 	}
 
 	@Override
@@ -59,17 +80,20 @@ public class VelocityEnforcer extends AbstractEnvEnforcer<CommandSource, Player>
 	}
 
 	@Override
-	public void doForPlayerIfOnline(UUID uuid, Consumer<Player> callback) {
+	public CentralisedFuture<Void> doForPlayerIfOnline(UUID uuid, Consumer<Player> callback) {
 		server.getPlayer(uuid).ifPresent(callback);
+		return futuresFactory.completedFuture(null);
 	}
 
 	@Override
-	public void enforceMatcher(TargetMatcher<Player> matcher) {
-		for (Player player : server.getAllPlayers()) {
-			if (matcher.matches(player.getUniqueId(), player.getRemoteAddress().getAddress())) {
+	public CentralisedFuture<Void> enforceMatcher(TargetMatcher<Player> matcher) {
+		for (UUID uuid : matcher.candidates(onlinePlayers)) {
+			Player player = server.getPlayer(uuid).orElse(null);
+			if (player != null && matcher.matches(uuid, player.getRemoteAddress().getAddress())) {
 				matcher.callback().accept(player);
 			}
 		}
+		return futuresFactory.completedFuture(null);
 	}
 
 	@Override
@@ -34,15 +34,17 @@ public class VelocityEnv implements Environment {
 	private final Provider<ConnectionListener> connectionListenerProvider;
 	private final Provider<ChatListener> chatListenerProvider;
 	private final Provider<CommandListener> commandListenerProvider;
+	private final Provider<OnlinePlayerListener> onlinePlayerListenerProvider;
 	private final CommandHandler.CommandHelper commandHelper;
 
 	@Inject
 	public VelocityEnv(Provider<ConnectionListener> connectionListenerProvider,
 			Provider<ChatListener> chatListenerProvider, Provider<CommandListener> commandListenerProvider,
-			CommandHandler.CommandHelper commandHelper) {
+			Provider<OnlinePlayerListener> onlinePlayerListenerProvider, CommandHandler.CommandHelper commandHelper) {
 		this.connectionListenerProvider = connectionListenerProvider;
 		this.chatListenerProvider = chatListenerProvider;
 		this.commandListenerProvider = commandListenerProvider;
+		this.onlinePlayerListenerProvider = onlinePlayerListenerProvider;
 		this.commandHelper = commandHelper;
 	}
 
@@ -52,6 +54,7 @@ public class VelocityEnv implements Environment {
 				connectionListenerProvider.get(),
 				chatListenerProvider.get(),
 				commandListenerProvider.get(),
+				onlinePlayerListenerProvider.get(),
 				new CommandHandler(commandHelper, Commands.BASE_COMMAND_NAME, false));
 	}
 